@@ -30,6 +30,12 @@ android {
 
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        buildConfigField("String", "API_BASE_URL",
+            "\"https://sedeaplicaciones.minetur.gob.es/ServiciosRESTCarburantes/PreciosCarburantes/\"")
+        // Servidor de teselas XYZ ({z}/{x}/{y}.png) que admita descarga masiva. Vacío usa
+        // MAPNIK, cuya política prohíbe descargar zonas, y oculta el mapa sin conexión
+        buildConfigField("String", "TILE_URL", "\"\"")
     }
     
     dependenciesInfo {
@@ -56,12 +62,25 @@ android {
             if (storeFilePath.exists()) {
                 signingConfig = signingConfigs.getByName("release")
             }
-            isMinifyEnabled = false
+            // GasolineraAPI se parsea sin reflexión (AdaptadorGasolineraAPI), así que R8
+            // puede reducir y optimizar; las reglas de Retrofit están en proguard-rules.pro
+            isMinifyEnabled = true
+            isShrinkResources = true
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
                 "proguard-rules.pro"
             )
         }
+        // Variante medible por :macrobenchmark: optimizada como release, firmada con la
+        // clave de depuración y apuntando al servidor local que sirve el volcado sintético
+        create("benchmark") {
+            initWith(getByName("release"))
+            signingConfig = signingConfigs.getByName("debug")
+            matchingFallbacks += listOf("release")
+            isDebuggable = false
+            buildConfigField("String", "API_BASE_URL",
+                "\"http://127.0.0.1:8089/ServiciosRESTCarburantes/PreciosCarburantes/\"")
+        }
     }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
@@ -72,10 +91,14 @@ android {
     }
     buildFeatures {
         viewBinding = true
+        buildConfig = true
     }
 }
 
 dependencies {
+    // Modelo, ingesta, filtrado y puntuación en Java puro
+    implementation(project(":geogas-core"))
+
     implementation(libs.androidx.core.ktx)
     implementation(libs.androidx.lifecycle.runtime.ktx)
     // implementation(libs.androidx.activity.compose)
@@ -86,6 +109,8 @@ dependencies {
     //implementation(libs.androidx.compose.material3)
     implementation(libs.androidx.appcompat)
     implementation(libs.androidx.core.splashscreen)
+    // Instala el perfil de referencia (src/main/baseline-prof.txt) también fuera de Play
+    implementation(libs.androidx.profileinstaller)
     testImplementation(libs.junit)
     androidTestImplementation(libs.androidx.junit)
     androidTestImplementation(libs.androidx.espresso.core)
@@ -109,6 +134,9 @@ dependencies {
     implementation(libs.androidx.lifecycle.viewmodel)
     implementation(libs.androidx.lifecycle.livedata)
 
+    // WorkManager (comprobación periódica de precios de favoritas)
+    implementation(libs.androidx.work.runtime)
+
 
     // Para manejar permisos de internet
     implementation(libs.androidx.activity)
@@ -123,4 +151,6 @@ dependencies {
     implementation(libs.androidx.constraintlayout)
 
     testImplementation(libs.mockito.core)
+    // LiveData síncrono en las pruebas del ViewModel
+    testImplementation(libs.androidx.arch.core.testing)
 }
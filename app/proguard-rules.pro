@@ -18,4 +18,22 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# Conserva la información de línea en las trazas de los informes de fallos.
+-keepattributes SourceFile,LineNumberTable
+-renamesourcefileattribute SourceFile
+
+# Retrofit lee por reflexión las anotaciones y los tipos genéricos de MitecoApiService
+# (Call<List<GasolineraAPI>>). En modo completo R8 elimina las firmas genéricas de las
+# clases que no se conservan explícitamente.
+-keepattributes Signature, InnerClasses, EnclosingMethod
+-keepattributes RuntimeVisibleAnnotations, RuntimeVisibleParameterAnnotations, AnnotationDefault
+-keep,allowobfuscation,allowshrinking interface retrofit2.Call
+-keep,allowobfuscation,allowshrinking class retrofit2.Response
+-keep,allowobfuscation,allowshrinking class kotlin.coroutines.Continuation
+-if interface * { @retrofit2.http.* <methods>; }
+-keep,allowobfuscation interface <1>
+
+# GasolineraAPI se lee con AdaptadorGasolineraAPI, sin reflexión: no necesita reglas
+# y R8 puede ofuscar y eliminar sus campos sin usar.
@@ -1,6 +1,8 @@
 
 package com.eliasbuenosdias.geogas.api;
 
+import com.eliasbuenosdias.geogas.BuildConfig;
+
 import retrofit2.Retrofit;
 import retrofit2.converter.gson.GsonConverterFactory;
 
@@ -14,16 +16,18 @@ import retrofit2.converter.gson.GsonConverterFactory;
 public class ApiClient {
     /**
      * URL base de los servicios REST de precios de carburantes del Ministerio.
+     * La variante {@code benchmark} la sustituye por un servidor local.
      */
-    private static final String BASE_URL = "https://sedeaplicaciones.minetur.gob.es/ServiciosRESTCarburantes/PreciosCarburantes/";
+    private static final String BASE_URL = BuildConfig.API_BASE_URL;
     /**
      * Instancia singleton de Retrofit.
      */
     private static Retrofit retrofit = null;
     /**
      * Obtiene la instancia singleton de Retrofit.
-     * Si no existe una instancia previa, crea una nueva configurada con la URL base
-     * y el convertidor Gson para procesar respuestas JSON.
+     * Si no existe una instancia previa, crea una nueva configurada con la URL base,
+     * el convertidor en streaming de la lista de gasolineras y el convertidor Gson
+     * para el resto de respuestas JSON.
      *
      * @return la instancia de Retrofit configurada para acceder a la API de carburantes
      */
@@ -31,6 +35,7 @@ public class ApiClient {
         if (retrofit == null) {
             retrofit = new Retrofit.Builder()
                     .baseUrl(BASE_URL)
+                    .addConverterFactory(new ConvertidorGasolineras())
                     .addConverterFactory(GsonConverterFactory.create())
                     .build();
         }
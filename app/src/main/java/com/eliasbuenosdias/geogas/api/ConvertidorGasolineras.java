@@ -0,0 +1,50 @@
+package com.eliasbuenosdias.geogas.api;
+
+import com.eliasbuenosdias.geogas.data.ParserGasolineras;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import okhttp3.ResponseBody;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+/**
+ * Convertidor de Retrofit que lee las respuestas {@code List<GasolineraAPI>} en streaming
+ * con {@link ParserGasolineras}, en el hilo de red y sin construir el árbol JSON.
+ * El resto de tipos se delegan en los demás convertidores registrados.
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class ConvertidorGasolineras extends Converter.Factory {
+    /**
+     * Parser compartido entre respuestas para reutilizar las cadenas internadas.
+     */
+    private final ParserGasolineras parser = new ParserGasolineras();
+
+    @Override
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations,
+            Retrofit retrofit) {
+        if (!esListaDeGasolineras(type))
+            return null;
+        return (Converter<ResponseBody, List<GasolineraAPI>>) body -> {
+            try (ResponseBody cuerpo = body) {
+                synchronized (parser) {
+                    return parser.parsear(cuerpo.charStream());
+                }
+            }
+        };
+    }
+
+    private static boolean esListaDeGasolineras(Type type) {
+        if (!(type instanceof ParameterizedType))
+            return false;
+        ParameterizedType parametrizado = (ParameterizedType) type;
+        return parametrizado.getRawType() == List.class
+                && parametrizado.getActualTypeArguments()[0] == GasolineraAPI.class;
+    }
+}
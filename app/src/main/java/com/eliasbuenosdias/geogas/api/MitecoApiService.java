@@ -1,10 +1,15 @@
 // MitecoApiService.java
 package com.eliasbuenosdias.geogas.api;
 
-import com.google.gson.JsonElement;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
 
+import java.util.List;
+
+import okhttp3.ResponseBody;
 import retrofit2.Call;
 import retrofit2.http.GET;
+import retrofit2.http.Path;
+import retrofit2.http.Streaming;
 /**
  * Servicio de la API de Miteco para realizar peticiones HTTP a los endpoints de carburantes.
  * Define los métodos de acceso a los servicios REST del Ministerio para la Transición Ecológica.
@@ -15,11 +20,33 @@ import retrofit2.http.GET;
 public interface MitecoApiService {
     /**
      * Obtiene la lista completa de estaciones terrestres de servicio.
-     * Realiza una petición GET al endpoint de estaciones terrestres y devuelve
-     * los datos en formato JSON.
+     * Realiza una petición GET al endpoint de estaciones terrestres; la respuesta se
+     * convierte en streaming con {@link ConvertidorGasolineras}.
+     *
+     * @return llamada asíncrona que contiene la información de todas las gasolineras
+     */
+    @GET("EstacionesTerrestres/")
+    Call<List<GasolineraAPI>> obtenerGasolineras();
+
+    /**
+     * Descarga la lista completa de estaciones terrestres sin almacenarla en memoria.
+     * El cuerpo se entrega como flujo para poder procesarlo en streaming desde tareas
+     * en segundo plano.
      *
-     * @return llamada asíncrona que contiene el JSON con la información de todas las gasolineras
+     * @return llamada cuyo cuerpo es el JSON sin procesar
      */
+    @Streaming
     @GET("EstacionesTerrestres/")
-    Call<JsonElement> obtenerGasolineras();
+    Call<ResponseBody> descargarGasolineras();
+
+    /**
+     * Descarga el volcado histórico de un día sin almacenarlo en memoria. Tiene el mismo
+     * formato que el del día en curso.
+     *
+     * @param fecha el día, con el formato {@code dd-MM-yyyy}
+     * @return llamada cuyo cuerpo es el JSON sin procesar
+     */
+    @Streaming
+    @GET("EstacionesTerrestresHist/{fecha}")
+    Call<ResponseBody> descargarHistorico(@Path("fecha") String fecha);
 }
\ No newline at end of file
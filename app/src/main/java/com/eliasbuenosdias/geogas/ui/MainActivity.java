@@ -20,17 +20,21 @@ import com.eliasbuenosdias.geogas.R;
 import com.eliasbuenosdias.geogas.api.ApiClient;
 import com.eliasbuenosdias.geogas.api.MitecoApiService;
 import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.tiles.MapaCalorPrecios;
 import com.eliasbuenosdias.geogas.ui.fragments.DetailsPanelFragment;
 import com.eliasbuenosdias.geogas.ui.fragments.FiltersFragment;
 import com.eliasbuenosdias.geogas.ui.helpers.MapHelper;
 import com.eliasbuenosdias.geogas.ui.helpers.PermissionHelper;
 import com.eliasbuenosdias.geogas.ui.helpers.SplashHelper;
+import com.eliasbuenosdias.geogas.utils.AlertasPreciosManager;
 import com.eliasbuenosdias.geogas.utils.FavoritosManager;
 import com.eliasbuenosdias.geogas.utils.FiltrosManager;
 import com.eliasbuenosdias.geogas.utils.IconosManager;
 import com.eliasbuenosdias.geogas.utils.LocaleManager;
+import com.eliasbuenosdias.geogas.utils.MapaOfflineManager;
 import com.eliasbuenosdias.geogas.utils.PuntuadorGasolineras;
 import com.eliasbuenosdias.geogas.viewmodels.GasStationViewModel;
+import com.eliasbuenosdias.geogas.worker.ComprobacionPreciosWorker;
 
 import org.osmdroid.config.Configuration;
 import org.osmdroid.util.GeoPoint;
@@ -54,7 +58,9 @@ public class MainActivity extends AppCompatActivity {
 
     private FavoritosManager favoritosManager;
     private FiltrosManager filtrosManager;
+    private MapaOfflineManager mapaOfflineManager;
     private final Handler handler = new Handler();
+    private boolean firstMarkersReported = false;
     private static final String KEY_LOCALE_CHANGE = "locale_change_pending";
 
     private final Runnable viewportChangeRunnable = () -> {
@@ -94,11 +100,14 @@ public class MainActivity extends AppCompatActivity {
         } else {
             checkPermissionsAndLoadData();
         }
+        ComprobacionPreciosWorker.programar(getApplicationContext());
     }
 
     private void setupOsmdroidConfig() {
         Configuration.getInstance().load(this, getPreferences(MODE_PRIVATE));
         Configuration.getInstance().setUserAgentValue(getPackageName());
+        mapaOfflineManager = new MapaOfflineManager(this);
+        mapaOfflineManager.ajustarCapacidadCache();
     }
 
     private void initializeManagers() {
@@ -108,9 +117,18 @@ public class MainActivity extends AppCompatActivity {
 
     private void initializeViewModel() {
         viewModel = new ViewModelProvider(this).get(GasStationViewModel.class);
+        viewModel.setFavoritos(favoritosManager);
         viewModel.setPuntuador(new PuntuadorGasolineras(favoritosManager));
 
-        viewModel.getGasolinerasVisibles().observe(this, list -> mapHelper.updateMarkers(list));
+        viewModel.getCambiosVisibles().observe(this, cambios -> {
+            mapHelper.aplicarCambios(cambios, viewModel::getGasolinerasVisibles);
+            // Fin del arranque para StartupTimingMetric: primeros marcadores en el mapa
+            if (!firstMarkersReported && cambios.getTotal() > 0) {
+                firstMarkersReported = true;
+                reportFullyDrawn();
+            }
+        });
+        viewModel.getMapaCalor().observe(this, mapa -> mapHelper.mostrarMapaCalor(mapa));
         viewModel.getProgress().observe(this, p -> {
             String key = viewModel.getStatusMessage().getValue();
             String msg = resolveStatusMessage(key);
@@ -156,12 +174,14 @@ public class MainActivity extends AppCompatActivity {
         mapView.addMapListener(new org.osmdroid.events.MapListener() {
             @Override
             public boolean onScroll(org.osmdroid.events.ScrollEvent e) {
+                mapHelper.actualizarConexion(mapaOfflineManager);
                 triggerViewportUpdate();
                 return false;
             }
 
             @Override
             public boolean onZoom(org.osmdroid.events.ZoomEvent e) {
+                mapHelper.actualizarConexion(mapaOfflineManager);
                 triggerViewportUpdate();
                 return false;
             }
@@ -208,17 +228,19 @@ public class MainActivity extends AppCompatActivity {
         if (filtersFragment == null)
             return;
         filtersFragment.setFiltrosManager(filtrosManager);
+        filtersFragment.setAlertasPreciosManager(new AlertasPreciosManager(this));
+        filtersFragment.setMapaOfflineManager(mapaOfflineManager);
         filtersFragment.setFiltersListener(new FiltersFragment.FiltersListener() {
             @Override
             public void onFiltersApplied() {
-                viewModel.applyFilters(filtrosManager, favoritosManager);
+                viewModel.applyFilters(filtrosManager);
                 hideFiltersPanel();
                 updateFilterButtonIcon();
             }
 
             @Override
             public void onFiltersCleared() {
-                viewModel.applyFilters(filtrosManager, favoritosManager);
+                viewModel.applyFilters(filtrosManager);
                 updateFilterButtonIcon();
             }
 
@@ -226,6 +248,20 @@ public class MainActivity extends AppCompatActivity {
             public void onCloseFilters() {
                 hideFiltersPanel();
             }
+
+            @Override
+            public void onHeatmapChanged(MapaCalorPrecios.Modo modo) {
+                viewModel.setModoMapaCalor(modo);
+            }
+
+            @Override
+            public void onGasolineraBuscada(GasolineraAPI g) {
+                hideFiltersPanel();
+                mapHelper.irAGasolinera(g);
+                if (detailsFragment != null)
+                    detailsFragment.setGasolinera(g);
+                showDetailPanel();
+            }
         });
     }
 
@@ -241,9 +277,11 @@ public class MainActivity extends AppCompatActivity {
 
             @Override
             public void onFavoriteToggled(GasolineraAPI g) {
-                favoritosManager.toggleFavorito(g.getId());
-                viewModel.applyFilters(filtrosManager, favoritosManager);
-                mapHelper.refreshMarkers();
+                if (favoritosManager.toggleFavorito(g.getId())
+                        && !PermissionHelper.hasNotificationPermission(MainActivity.this))
+                    PermissionHelper.requestNotificationPermission(MainActivity.this);
+                // Solo cambia esta gasolinera: su marcador llega como cambiado
+                viewModel.actualizarFavorita(g.getId());
             }
         });
     }
@@ -383,5 +421,7 @@ public class MainActivity extends AppCompatActivity {
     protected void onDestroy() {
         super.onDestroy();
         handler.removeCallbacksAndMessages(null);
+        if (mapHelper != null)
+            mapHelper.cancelarPendientes();
     }
 }
\ No newline at end of file
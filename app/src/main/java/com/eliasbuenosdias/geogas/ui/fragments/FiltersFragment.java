@@ -1,8 +1,13 @@
 package com.eliasbuenosdias.geogas.ui.fragments;
 
+import android.app.AlertDialog;
+import android.app.TimePickerDialog;
+import android.content.Context;
 import android.os.Bundle;
+import android.text.format.Formatter;
 import android.text.Editable;
 import android.text.TextWatcher;
+import android.text.format.DateFormat;
 import android.util.Log;
 import android.view.LayoutInflater;
 import android.view.View;
@@ -14,16 +19,38 @@ import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.Filter;
 import android.widget.ImageButton;
+import android.widget.RadioGroup;
 import android.widget.TextView;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
 
 import com.eliasbuenosdias.geogas.R;
+import com.eliasbuenosdias.geogas.data.IndiceAutocompletado;
+import com.eliasbuenosdias.geogas.data.IndicesPrecios;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.tiles.MapaCalorPrecios;
+import com.eliasbuenosdias.geogas.tiles.RegionTeselas;
+import com.eliasbuenosdias.geogas.ui.helpers.CombustibleHelper;
+import com.eliasbuenosdias.geogas.ui.views.HistogramaPreciosView;
+import com.eliasbuenosdias.geogas.utils.AlertasPreciosManager;
 import com.eliasbuenosdias.geogas.utils.FiltrosManager;
-
+import com.eliasbuenosdias.geogas.utils.MapaOfflineManager;
+import com.eliasbuenosdias.geogas.worker.DescargaMapaWorker;
+import com.eliasbuenosdias.geogas.worker.ImportacionHistoricoWorker;
+import com.google.android.material.progressindicator.LinearProgressIndicator;
+import com.google.android.material.slider.RangeSlider;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.FormatStyle;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -34,15 +61,45 @@ import java.util.List;
 public class FiltersFragment extends Fragment {
 
     private FiltrosManager filtrosManager;
+    private AlertasPreciosManager alertasPreciosManager;
     private FiltersListener listener;
     private com.eliasbuenosdias.geogas.viewmodels.GasStationViewModel viewModel;
 
+    private AutoCompleteTextView busqueda;
+    private final List<GasolineraAPI> resultadosBusqueda = new ArrayList<>();
     private AutoCompleteTextView filterProvincia, filterMunicipio, filterGasolinera;
+    private AdaptadorAutocompletado adaptadorProvincias, adaptadorMunicipios, adaptadorMarcas;
     private CheckBox filterGasolina95, filterGasolina98, filterDiesel, filterDieselPremium, filterGLP;
-    private CheckBox filter24h, filterFavoritas;
-    private EditText filterPrecioMaxGasolina95, filterPrecioMaxDiesel;
+    private CheckBox filter24h, filterFavoritas, filterAbiertas;
+    private Button btnHoraApertura;
+    // Hora elegida para el filtro de abiertas; null es la hora actual
+    private LocalTime horaApertura;
+    private EditText filterPrecioMaxGasolina95, filterPrecioMaxDiesel, filterPrecioMaxOtro;
+    private AutoCompleteTextView filterPrecioCombustible;
+    private HistogramaPreciosView histogramaGasolina95, histogramaDiesel, histogramaOtro;
+    private IndicesPrecios indicesPrecios;
+    private final List<Combustible> combustiblesOtros = new ArrayList<>();
+    private Combustible combustibleOtro;
+    private EditText filterUmbralAlerta;
     private Button btnApplyFilters, btnClearFilters;
     private TextView filterResultsCount;
+    private CheckBox mapaCalor;
+    private RadioGroup mapaCalorModo;
+    private MapaOfflineManager mapaOfflineManager;
+    private View seccionMapaOffline;
+    private RangeSlider offlineZoom;
+    private TextView offlineZoomTexto, offlineEstimacion, offlineRegiones, offlineEstado;
+    private LinearProgressIndicator offlineProgreso;
+    private Button btnOfflineDescargar, btnOfflineCancelar;
+    // Región que descargaría el botón: la provincia del filtro o, sin ella, la zona visible
+    private RegionTeselas regionOffline;
+    private TextView historicoDias, historicoEstado;
+    private LinearProgressIndicator historicoProgreso;
+    private Button btnHistoricoImportar, btnHistoricoCancelar;
+
+    private static final int CUBETAS_HISTOGRAMA = 32;
+    private static final float ZOOM_OFFLINE_MIN = 8f;
+    private static final float ZOOM_OFFLINE_MAX = 14f;
 
     public interface FiltersListener {
         void onFiltersApplied();
@@ -50,6 +107,20 @@ public class FiltersFragment extends Fragment {
         void onFiltersCleared();
 
         void onCloseFilters();
+
+        /**
+         * El mapa de calor se ha activado, ha cambiado de modo o se ha desactivado.
+         *
+         * @param modo el modo, o null si se ha desactivado
+         */
+        void onHeatmapChanged(MapaCalorPrecios.Modo modo);
+
+        /**
+         * Se ha elegido una gasolinera en la búsqueda de texto.
+         *
+         * @param g la gasolinera elegida
+         */
+        void onGasolineraBuscada(GasolineraAPI g);
     }
 
     public void setFiltersListener(FiltersListener listener) {
@@ -60,6 +131,165 @@ public class FiltersFragment extends Fragment {
         this.filtrosManager = filtrosManager;
     }
 
+    public void setAlertasPreciosManager(AlertasPreciosManager alertasPreciosManager) {
+        this.alertasPreciosManager = alertasPreciosManager;
+        mostrarUmbralAlerta();
+    }
+
+    public void setMapaOfflineManager(MapaOfflineManager mapaOfflineManager) {
+        this.mapaOfflineManager = mapaOfflineManager;
+        mostrarMapaOffline();
+    }
+
+    /**
+     * Muestra la sección del mapa sin conexión solo si la fuente de teselas admite descargar
+     * zonas enteras; la de OpenStreetMap no lo permite.
+     */
+    private void mostrarMapaOffline() {
+        if (seccionMapaOffline == null || mapaOfflineManager == null)
+            return;
+        boolean permitida = MapaOfflineManager.permiteDescarga(MapaOfflineManager.crearFuenteTeselas());
+        seccionMapaOffline.setVisibility(permitida ? View.VISIBLE : View.GONE);
+        if (!permitida)
+            return;
+        androidx.lifecycle.LiveData<List<WorkInfo>> descargas = WorkManager.getInstance(requireContext())
+                .getWorkInfosForUniqueWorkLiveData(DescargaMapaWorker.NOMBRE_TAREA);
+        descargas.removeObservers(getViewLifecycleOwner());
+        descargas.observe(getViewLifecycleOwner(), this::mostrarDescarga);
+        actualizarEstimacionOffline();
+    }
+
+    /**
+     * Calcula la región a descargar con el zoom elegido y muestra cuántas teselas tiene y
+     * lo que ocupará.
+     */
+    private void actualizarEstimacionOffline() {
+        if (mapaOfflineManager == null || seccionMapaOffline == null
+                || seccionMapaOffline.getVisibility() != View.VISIBLE)
+            return;
+        List<Float> zoom = offlineZoom.getValues();
+        int zoomMin = Math.round(zoom.get(0));
+        int zoomMax = Math.round(zoom.get(zoom.size() - 1));
+        offlineZoomTexto.setText(getString(R.string.filters_offline_zoom, zoomMin, zoomMax));
+
+        String provincia = filterProvincia.getText().toString().trim();
+        regionOffline = provincia.isEmpty()
+                ? viewModel.regionVisible(zoomMin, zoomMax)
+                : viewModel.regionProvincia(provincia, zoomMin, zoomMax);
+        if (regionOffline == null) {
+            offlineEstimacion.setText("");
+            btnOfflineDescargar.setEnabled(false);
+            return;
+        }
+
+        long bytes = regionOffline.estimarBytes(mapaOfflineManager.getBytesPorTesela());
+        String teselas = String.format("%,d", regionOffline.contarTeselas());
+        String tamano = Formatter.formatShortFileSize(requireContext(), bytes);
+        offlineEstimacion.setText(provincia.isEmpty()
+                ? getString(R.string.filters_offline_target_visible, teselas, tamano)
+                : getString(R.string.filters_offline_target_province, provincia, teselas, tamano));
+        btnOfflineDescargar.setEnabled(true);
+    }
+
+    /**
+     * Pide confirmación con la estimación y encola la descarga si cabe en el almacenamiento.
+     */
+    private void descargarMapaOffline() {
+        RegionTeselas region = regionOffline;
+        if (region == null || mapaOfflineManager == null)
+            return;
+        if (region.estimarBytes(mapaOfflineManager.getBytesPorTesela()) > MapaOfflineManager.getEspacioDisponible()) {
+            offlineEstado.setText(R.string.filters_offline_no_space);
+            return;
+        }
+        new AlertDialog.Builder(requireContext())
+                .setTitle(R.string.filters_offline_map)
+                .setMessage(offlineEstimacion.getText())
+                .setPositiveButton(R.string.filters_offline_download,
+                        (dialog, which) -> DescargaMapaWorker.programar(requireContext(), region))
+                .setNegativeButton(R.string.filters_offline_cancel, null)
+                .show();
+    }
+
+    /**
+     * Muestra el avance de la descarga en curso y las zonas ya descargadas.
+     */
+    private void mostrarDescarga(List<WorkInfo> tareas) {
+        WorkInfo enCurso = null;
+        boolean pendiente = false;
+        if (tareas != null) {
+            for (WorkInfo tarea : tareas) {
+                if (tarea.getState() == WorkInfo.State.RUNNING)
+                    enCurso = tarea;
+                else if (!tarea.getState().isFinished())
+                    pendiente = true;
+            }
+        }
+
+        if (enCurso != null) {
+            long procesadas = enCurso.getProgress().getLong(DescargaMapaWorker.KEY_PROCESADAS, 0);
+            long total = enCurso.getProgress().getLong(DescargaMapaWorker.KEY_TOTAL, 0);
+            offlineProgreso.setVisibility(View.VISIBLE);
+            offlineProgreso.setProgressCompat(total > 0 ? (int) (procesadas * 100 / total) : 0, true);
+            offlineEstado.setText(getString(R.string.filters_offline_progress,
+                    String.format("%,d", procesadas), String.format("%,d", total)));
+        } else {
+            offlineProgreso.setVisibility(View.GONE);
+            offlineEstado.setText("");
+        }
+        btnOfflineCancelar.setVisibility(enCurso != null || pendiente ? View.VISIBLE : View.GONE);
+        offlineRegiones.setText(getString(R.string.filters_offline_downloaded,
+                mapaOfflineManager.getRegionesCompletas().size()));
+    }
+
+    /**
+     * Muestra el avance de la importación del histórico y los días ya guardados.
+     */
+    private void mostrarImportacion(List<WorkInfo> tareas) {
+        WorkInfo enCurso = null;
+        boolean pendiente = false;
+        if (tareas != null) {
+            for (WorkInfo tarea : tareas) {
+                if (tarea.getState() == WorkInfo.State.RUNNING)
+                    enCurso = tarea;
+                else if (!tarea.getState().isFinished())
+                    pendiente = true;
+            }
+        }
+
+        if (enCurso != null) {
+            int procesados = enCurso.getProgress().getInt(ImportacionHistoricoWorker.KEY_PROCESADOS, 0);
+            int total = enCurso.getProgress().getInt(ImportacionHistoricoWorker.KEY_TOTAL, 0);
+            historicoProgreso.setVisibility(View.VISIBLE);
+            historicoProgreso.setProgressCompat(total > 0 ? procesados * 100 / total : 0, true);
+            historicoEstado.setText(getString(R.string.filters_history_progress, procesados, total));
+        } else {
+            historicoProgreso.setVisibility(View.GONE);
+            historicoEstado.setText("");
+        }
+        btnHistoricoCancelar.setVisibility(enCurso != null || pendiente ? View.VISIBLE : View.GONE);
+        btnHistoricoImportar.setEnabled(enCurso == null && !pendiente);
+        historicoDias.setText(getString(R.string.filters_history_days,
+                ImportacionHistoricoWorker.abrirSerie(requireContext()).dias().size()));
+    }
+
+    private void avisarMapaCalor() {
+        MapaCalorPrecios.Modo modo = null;
+        if (mapaCalor.isChecked()) {
+            modo = mapaCalorModo.getCheckedRadioButtonId() == R.id.mapa_calor_mediana
+                    ? MapaCalorPrecios.Modo.MEDIANA
+                    : MapaCalorPrecios.Modo.MINIMO;
+        }
+        if (listener != null)
+            listener.onHeatmapChanged(modo);
+    }
+
+    private void mostrarUmbralAlerta() {
+        if (filterUmbralAlerta != null && alertasPreciosManager != null) {
+            filterUmbralAlerta.setText(String.valueOf(alertasPreciosManager.getUmbral()));
+        }
+    }
+
     @Nullable
     @Override
     public View onCreateView(@NonNull LayoutInflater inflater, @Nullable ViewGroup container,
@@ -75,28 +305,233 @@ public class FiltersFragment extends Fragment {
         initializeViews(view);
         setupListeners();
         observeViewModel();
+        mostrarMapaOffline();
+        WorkManager.getInstance(requireContext())
+                .getWorkInfosForUniqueWorkLiveData(ImportacionHistoricoWorker.NOMBRE_TAREA)
+                .observe(getViewLifecycleOwner(), this::mostrarImportacion);
     }
 
     private void observeViewModel() {
-        viewModel.getProvincias().observe(getViewLifecycleOwner(), list -> setupAdapter(filterProvincia, list));
-        viewModel.getMunicipios().observe(getViewLifecycleOwner(), list -> setupAdapter(filterMunicipio, list));
-        viewModel.getMarcas().observe(getViewLifecycleOwner(), list -> setupAdapter(filterGasolinera, list));
-        viewModel.getGasolinerasVisibles().observe(getViewLifecycleOwner(),
-                list -> setResultsCount(list != null ? list.size() : 0));
+        viewModel.getProvincias().observe(getViewLifecycleOwner(), indice -> {
+            adaptadorProvincias.setIndice(indice);
+            actualizarMunicipios();
+        });
+        viewModel.getMunicipios().observe(getViewLifecycleOwner(), indice -> actualizarMunicipios());
+        viewModel.getMarcas().observe(getViewLifecycleOwner(), adaptadorMarcas::setIndice);
+        viewModel.getCambiosVisibles().observe(getViewLifecycleOwner(), cambios -> {
+            setResultsCount(cambios != null ? cambios.getTotal() : 0);
+            // La zona visible ha cambiado
+            actualizarEstimacionOffline();
+        });
+        viewModel.getIndicesPrecios().observe(getViewLifecycleOwner(), this::mostrarIndicesPrecios);
+    }
+
+    /**
+     * Actualiza los histogramas y la lista de combustibles con precio en el volcado actual.
+     * Gasolina 95 y Diésel tienen campo propio; el resto se eligen en el desplegable.
+     */
+    private void mostrarIndicesPrecios(IndicesPrecios indices) {
+        if (indices == null || getContext() == null)
+            return;
+        indicesPrecios = indices;
+        histogramaGasolina95.setHistograma(indices.get(Combustible.GASOLINA_95).histograma(CUBETAS_HISTOGRAMA));
+        histogramaDiesel.setHistograma(indices.get(Combustible.GASOLEO_A).histograma(CUBETAS_HISTOGRAMA));
+        histogramaGasolina95.setPrecioMaximo(leerPrecio(filterPrecioMaxGasolina95));
+        histogramaDiesel.setPrecioMaximo(leerPrecio(filterPrecioMaxDiesel));
+
+        combustiblesOtros.clear();
+        List<String> etiquetas = new ArrayList<>();
+        for (Combustible c : indices.getCombustiblesDisponibles()) {
+            if (c != Combustible.GASOLINA_95 && c != Combustible.GASOLEO_A) {
+                combustiblesOtros.add(c);
+                etiquetas.add(getString(CombustibleHelper.etiqueta(c)));
+            }
+        }
+        filterPrecioCombustible.setAdapter(new ArrayAdapter<>(getContext(), R.layout.dropdown_item, etiquetas));
+        mostrarHistogramaOtro();
+    }
+
+    private void mostrarHistogramaOtro() {
+        if (combustibleOtro == null || indicesPrecios == null) {
+            histogramaOtro.setHistograma(null);
+            return;
+        }
+        histogramaOtro.setHistograma(indicesPrecios.get(combustibleOtro).histograma(CUBETAS_HISTOGRAMA));
+        histogramaOtro.setPrecioMaximo(leerPrecio(filterPrecioMaxOtro));
+    }
+
+    private static Double leerPrecio(EditText campo) {
+        String texto = campo.getText().toString().trim();
+        if (texto.isEmpty())
+            return null;
+        try {
+            return Double.parseDouble(texto);
+        } catch (NumberFormatException e) {
+            return null;
+        }
     }
 
-    private void setupAdapter(AutoCompleteTextView view, List<String> data) {
-        if (getContext() == null || data == null)
+    private void elegirHoraApertura() {
+        if (getContext() == null)
             return;
-        ArrayAdapter<String> adapter = new ArrayAdapter<>(getContext(), R.layout.dropdown_item,
-                data);
-        view.setAdapter(adapter);
+        LocalTime inicial = horaApertura != null ? horaApertura : LocalTime.now();
+        TimePickerDialog dialogo = new TimePickerDialog(getContext(), (picker, hora, minuto) -> {
+            horaApertura = LocalTime.of(hora, minuto);
+            filterAbiertas.setChecked(true);
+            mostrarHoraApertura();
+        }, inicial.getHour(), inicial.getMinute(), DateFormat.is24HourFormat(getContext()));
+        dialogo.setButton(TimePickerDialog.BUTTON_NEUTRAL, getString(R.string.filters_open_now), (d, which) -> {
+            horaApertura = null;
+            mostrarHoraApertura();
+        });
+        dialogo.show();
+    }
+
+    private void mostrarHoraApertura() {
+        btnHoraApertura.setText(horaApertura == null
+                ? getString(R.string.filters_open_now)
+                : getString(R.string.filters_open_at,
+                        horaApertura.format(DateTimeFormatter.ofLocalizedTime(FormatStyle.SHORT))));
+    }
+
+    /**
+     * Convierte la hora elegida en la próxima vez que llega: si hoy ya ha pasado, mañana.
+     */
+    @Nullable
+    private static LocalDateTime proximoMomento(@Nullable LocalTime hora) {
+        if (hora == null)
+            return null;
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDateTime momento = ahora.toLocalDate().atTime(hora);
+        return momento.isBefore(ahora.withSecond(0).withNano(0)) ? momento.plusDays(1) : momento;
+    }
+
+    /**
+     * Adaptador de la búsqueda de texto. Los resultados salen del índice del ViewModel, que
+     * solo se usa desde el hilo principal, así que la búsqueda se hace al publicar los
+     * resultados y no en el hilo del filtro.
+     */
+    private class AdaptadorBusqueda extends ArrayAdapter<String> {
+
+        private final Filter filtro = new Filter() {
+            @Override
+            protected FilterResults performFiltering(CharSequence texto) {
+                return new FilterResults();
+            }
+
+            @Override
+            protected void publishResults(CharSequence texto, FilterResults resultados) {
+                resultadosBusqueda.clear();
+                if (texto != null)
+                    resultadosBusqueda.addAll(viewModel.buscarGasolineras(texto.toString()));
+                setNotifyOnChange(false);
+                clear();
+                for (GasolineraAPI g : resultadosBusqueda)
+                    add(g.getRotulo() + " · " + g.getDireccion() + ", " + g.getLocalidad());
+                notifyDataSetChanged();
+                // El desplegable se abre o se cierra según este número
+                resultados.count = getCount();
+            }
+        };
+
+        AdaptadorBusqueda() {
+            super(requireContext(), R.layout.dropdown_item, new ArrayList<>());
+        }
+
+        @NonNull
+        @Override
+        public Filter getFilter() {
+            return filtro;
+        }
+    }
+
+    /**
+     * Adaptador de los desplegables de provincia, municipio y rótulo. Filtra con un
+     * {@link IndiceAutocompletado}, que es inmutable y se puede consultar desde el hilo del
+     * filtro.
+     */
+    private static class AdaptadorAutocompletado extends ArrayAdapter<String> {
+
+        private volatile IndiceAutocompletado indice = IndiceAutocompletado.VACIO;
+
+        private final Filter filtro = new Filter() {
+            @Override
+            protected FilterResults performFiltering(CharSequence texto) {
+                List<String> encontrados = indice.buscar(texto);
+                FilterResults resultados = new FilterResults();
+                resultados.values = encontrados;
+                resultados.count = encontrados.size();
+                return resultados;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            protected void publishResults(CharSequence texto, FilterResults resultados) {
+                mostrar((List<String>) resultados.values);
+            }
+        };
+
+        AdaptadorAutocompletado(Context context) {
+            super(context, R.layout.dropdown_item, new ArrayList<>());
+        }
+
+        IndiceAutocompletado getIndice() {
+            return indice;
+        }
+
+        /**
+         * Cambia la lista del desplegable y muestra todos sus valores.
+         */
+        void setIndice(IndiceAutocompletado indice) {
+            this.indice = indice;
+            mostrar(indice.getValores());
+        }
+
+        private void mostrar(List<String> valores) {
+            setNotifyOnChange(false);
+            clear();
+            addAll(valores);
+            notifyDataSetChanged();
+        }
+
+        @NonNull
+        @Override
+        public Filter getFilter() {
+            return filtro;
+        }
+    }
+
+    /**
+     * Limita los municipios del desplegable a los de la provincia escrita, si es una.
+     */
+    private void actualizarMunicipios() {
+        IndiceAutocompletado indice = viewModel.municipiosDe(filterProvincia.getText().toString());
+        if (indice != adaptadorMunicipios.getIndice())
+            adaptadorMunicipios.setIndice(indice);
+    }
+
+    /**
+     * Obtiene el valor de la lista que coincide con lo escrito sin importar tildes ni
+     * mayúsculas, o lo escrito si no coincide con ninguno.
+     */
+    private static String valorEscrito(AutoCompleteTextView campo, AdaptadorAutocompletado adaptador) {
+        String texto = campo.getText().toString().trim();
+        String valor = adaptador.getIndice().buscarExacto(texto);
+        return valor != null ? valor : texto;
     }
 
     private void initializeViews(View view) {
+        busqueda = view.findViewById(R.id.filter_busqueda);
+        busqueda.setAdapter(new AdaptadorBusqueda());
         filterProvincia = view.findViewById(R.id.filter_provincia);
         filterMunicipio = view.findViewById(R.id.filter_municipio);
         filterGasolinera = view.findViewById(R.id.filter_gasolinera);
+        adaptadorProvincias = new AdaptadorAutocompletado(requireContext());
+        adaptadorMunicipios = new AdaptadorAutocompletado(requireContext());
+        adaptadorMarcas = new AdaptadorAutocompletado(requireContext());
+        filterProvincia.setAdapter(adaptadorProvincias);
+        filterMunicipio.setAdapter(adaptadorMunicipios);
+        filterGasolinera.setAdapter(adaptadorMarcas);
         filterGasolina95 = view.findViewById(R.id.filter_gasolina95);
         filterGasolina98 = view.findViewById(R.id.filter_gasolina98);
         filterDiesel = view.findViewById(R.id.filter_diesel);
@@ -104,11 +539,39 @@ public class FiltersFragment extends Fragment {
         filterGLP = view.findViewById(R.id.filter_glp);
         filter24h = view.findViewById(R.id.filter_24h);
         filterFavoritas = view.findViewById(R.id.filter_favoritas);
+        filterAbiertas = view.findViewById(R.id.filter_abiertas);
+        btnHoraApertura = view.findViewById(R.id.filter_hora_apertura);
         filterPrecioMaxGasolina95 = view.findViewById(R.id.filter_precio_max_gasolina95);
         filterPrecioMaxDiesel = view.findViewById(R.id.filter_precio_max_diesel);
+        filterPrecioMaxOtro = view.findViewById(R.id.filter_precio_max_otro);
+        filterPrecioCombustible = view.findViewById(R.id.filter_precio_combustible);
+        histogramaGasolina95 = view.findViewById(R.id.histograma_gasolina95);
+        histogramaDiesel = view.findViewById(R.id.histograma_diesel);
+        histogramaOtro = view.findViewById(R.id.histograma_otro);
+        filterUmbralAlerta = view.findViewById(R.id.filter_umbral_alerta);
+        mostrarUmbralAlerta();
         btnApplyFilters = view.findViewById(R.id.btn_apply_filters);
         btnClearFilters = view.findViewById(R.id.btn_clear_filters);
         filterResultsCount = view.findViewById(R.id.filter_results_count);
+        mapaCalor = view.findViewById(R.id.mapa_calor);
+        mapaCalorModo = view.findViewById(R.id.mapa_calor_modo);
+        seccionMapaOffline = view.findViewById(R.id.seccion_mapa_offline);
+        offlineZoom = view.findViewById(R.id.offline_zoom);
+        offlineZoomTexto = view.findViewById(R.id.offline_zoom_texto);
+        offlineEstimacion = view.findViewById(R.id.offline_estimacion);
+        offlineRegiones = view.findViewById(R.id.offline_regiones);
+        offlineProgreso = view.findViewById(R.id.offline_progreso);
+        offlineEstado = view.findViewById(R.id.offline_estado);
+        btnOfflineDescargar = view.findViewById(R.id.btn_offline_descargar);
+        btnOfflineCancelar = view.findViewById(R.id.btn_offline_cancelar);
+        offlineZoom.setValues(Arrays.asList(ZOOM_OFFLINE_MIN, ZOOM_OFFLINE_MAX));
+        historicoDias = view.findViewById(R.id.historico_dias);
+        historicoProgreso = view.findViewById(R.id.historico_progreso);
+        historicoEstado = view.findViewById(R.id.historico_estado);
+        btnHistoricoImportar = view.findViewById(R.id.btn_historico_importar);
+        btnHistoricoCancelar = view.findViewById(R.id.btn_historico_cancelar);
+        btnHistoricoImportar.setText(getString(R.string.filters_history_import,
+                ImportacionHistoricoWorker.DIAS_POR_DEFECTO));
 
         ImageButton btnCloseFilters = view.findViewById(R.id.btn_close_filters);
         if (btnCloseFilters != null) {
@@ -127,6 +590,11 @@ public class FiltersFragment extends Fragment {
             }
         };
 
+        busqueda.setOnItemClickListener((parent, v, position, id) -> {
+            if (listener != null && position < resultadosBusqueda.size())
+                listener.onGasolineraBuscada(resultadosBusqueda.get(position));
+        });
+
         filterProvincia.setOnClickListener(clickListener);
         filterMunicipio.setOnClickListener(clickListener);
         filterGasolinera.setOnClickListener(clickListener);
@@ -141,6 +609,47 @@ public class FiltersFragment extends Fragment {
         filterMunicipio.setOnFocusChangeListener(focusListener);
         filterGasolinera.setOnFocusChangeListener(focusListener);
 
+        // Los histogramas resaltan lo que deja dentro el precio escrito
+        filterPrecioMaxGasolina95.addTextChangedListener(new PrecioWatcher(filterPrecioMaxGasolina95, histogramaGasolina95));
+        filterPrecioMaxDiesel.addTextChangedListener(new PrecioWatcher(filterPrecioMaxDiesel, histogramaDiesel));
+        filterPrecioMaxOtro.addTextChangedListener(new PrecioWatcher(filterPrecioMaxOtro, histogramaOtro));
+
+        btnHoraApertura.setOnClickListener(v -> elegirHoraApertura());
+
+        // El mapa de calor no es un filtro: se aplica al momento
+        mapaCalor.setOnCheckedChangeListener((boton, marcado) -> avisarMapaCalor());
+        mapaCalorModo.setOnCheckedChangeListener((grupo, id) -> avisarMapaCalor());
+
+        offlineZoom.addOnChangeListener((slider, value, fromUser) -> actualizarEstimacionOffline());
+        filterProvincia.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                actualizarMunicipios();
+                actualizarEstimacionOffline();
+            }
+        });
+        btnOfflineDescargar.setOnClickListener(v -> descargarMapaOffline());
+        btnOfflineCancelar.setOnClickListener(v -> DescargaMapaWorker.cancelar(requireContext()));
+        btnHistoricoImportar.setOnClickListener(v -> ImportacionHistoricoWorker.programar(requireContext(),
+                ImportacionHistoricoWorker.DIAS_POR_DEFECTO));
+        btnHistoricoCancelar.setOnClickListener(v -> ImportacionHistoricoWorker.cancelar(requireContext()));
+
+        filterPrecioCombustible.setOnClickListener(clickListener);
+        filterPrecioCombustible.setOnItemClickListener((parent, v, position, id) -> {
+            combustibleOtro = combustiblesOtros.get(position);
+            Double actual = filtrosManager != null ? filtrosManager.getPrecioMaximo(combustibleOtro) : null;
+            filterPrecioMaxOtro.setText(actual != null ? String.valueOf(actual) : "");
+            mostrarHistogramaOtro();
+        });
+
         if (btnApplyFilters != null) {
             btnApplyFilters.setOnClickListener(v -> {
                 updateFiltrosFromUI();
@@ -162,8 +671,8 @@ public class FiltersFragment extends Fragment {
         if (filtrosManager == null)
             return;
 
-        filtrosManager.setProvincia(filterProvincia.getText().toString().trim());
-        filtrosManager.setMunicipio(filterMunicipio.getText().toString().trim());
+        filtrosManager.setProvincia(valorEscrito(filterProvincia, adaptadorProvincias));
+        filtrosManager.setMunicipio(valorEscrito(filterMunicipio, adaptadorMunicipios));
         filtrosManager.setGasolinera(filterGasolinera.getText().toString().trim());
 
         filtrosManager.setSoloGasolina95(filterGasolina95.isChecked());
@@ -174,6 +683,8 @@ public class FiltersFragment extends Fragment {
 
         filtrosManager.setSolo24Horas(filter24h.isChecked());
         filtrosManager.setSoloFavoritas(filterFavoritas.isChecked());
+        filtrosManager.setSoloAbiertas(filterAbiertas.isChecked());
+        filtrosManager.setMomentoApertura(proximoMomento(horaApertura));
 
         try {
             String p95 = filterPrecioMaxGasolina95.getText().toString();
@@ -188,6 +699,25 @@ public class FiltersFragment extends Fragment {
         } catch (NumberFormatException e) {
             filtrosManager.setPrecioMaxDiesel(null);
         }
+
+        // Un único campo para el resto de combustibles: solo cuenta el seleccionado
+        for (Combustible c : Combustible.values()) {
+            if (c != Combustible.GASOLINA_95 && c != Combustible.GASOLEO_A)
+                filtrosManager.setPrecioMaximo(c, null);
+        }
+        if (combustibleOtro != null)
+            filtrosManager.setPrecioMaximo(combustibleOtro, leerPrecio(filterPrecioMaxOtro));
+
+        if (alertasPreciosManager != null) {
+            try {
+                String umbral = filterUmbralAlerta.getText().toString();
+                alertasPreciosManager.setUmbral(umbral.isEmpty()
+                        ? AlertasPreciosManager.UMBRAL_POR_DEFECTO
+                        : Float.parseFloat(umbral));
+            } catch (IllegalArgumentException ignored) {
+                // Texto que no es un número o umbral que no es positivo: se queda el anterior
+            }
+        }
     }
 
     private void clearUI() {
@@ -201,14 +731,44 @@ public class FiltersFragment extends Fragment {
         filterGLP.setChecked(false);
         filter24h.setChecked(false);
         filterFavoritas.setChecked(false);
+        filterAbiertas.setChecked(false);
+        horaApertura = null;
+        mostrarHoraApertura();
         filterPrecioMaxGasolina95.setText("");
         filterPrecioMaxDiesel.setText("");
+        filterPrecioMaxOtro.setText("");
 
         if (filtrosManager != null) {
             filtrosManager.limpiarFiltros();
         }
     }
 
+    /**
+     * Traslada el precio escrito en un campo a su histograma.
+     */
+    private static class PrecioWatcher implements TextWatcher {
+        private final EditText campo;
+        private final HistogramaPreciosView histograma;
+
+        PrecioWatcher(EditText campo, HistogramaPreciosView histograma) {
+            this.campo = campo;
+            this.histograma = histograma;
+        }
+
+        @Override
+        public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+        }
+
+        @Override
+        public void onTextChanged(CharSequence s, int start, int before, int count) {
+        }
+
+        @Override
+        public void afterTextChanged(Editable s) {
+            histograma.setPrecioMaximo(leerPrecio(campo));
+        }
+    }
+
     public void setResultsCount(int count) {
         if (filterResultsCount != null) {
             filterResultsCount.setText(getString(R.string.results_count, count));
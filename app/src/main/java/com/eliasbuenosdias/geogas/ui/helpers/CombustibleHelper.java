@@ -0,0 +1,35 @@
+package com.eliasbuenosdias.geogas.ui.helpers;
+
+import com.eliasbuenosdias.geogas.R;
+import com.eliasbuenosdias.geogas.models.Combustible;
+
+/**
+ * Nombres de los combustibles que se muestran al usuario.
+ */
+public class CombustibleHelper {
+
+    /**
+     * Obtiene el recurso con el nombre de un combustible.
+     *
+     * @param combustible el combustible
+     * @return el identificador del texto
+     */
+    public static int etiqueta(Combustible combustible) {
+        switch (combustible) {
+            case GASOLINA_95: return R.string.fuel_gasoline_95_e5;
+            case GASOLINA_95_E10: return R.string.fuel_gasoline_95_e10;
+            case GASOLINA_98: return R.string.fuel_gasoline_98_e5;
+            case GASOLINA_98_E10: return R.string.fuel_gasoline_98_e10;
+            case GASOLEO_A: return R.string.fuel_diesel_standard;
+            case GASOLEO_B: return R.string.fuel_diesel_agro;
+            case GASOLEO_C: return R.string.fuel_diesel_heating;
+            case GASOLEO_PREMIUM: return R.string.fuel_diesel_premium;
+            case GLP: return R.string.filters_glp;
+            case GNC: return R.string.fuel_gnc;
+            case GNL: return R.string.fuel_gnl;
+            case HIDROGENO: return R.string.fuel_hydrogen;
+            case BIODIESEL: return R.string.fuel_biodiesel;
+            default: return R.string.fuel_bioethanol;
+        }
+    }
+}
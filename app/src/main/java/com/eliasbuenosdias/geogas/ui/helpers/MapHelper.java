@@ -1,22 +1,43 @@
 package com.eliasbuenosdias.geogas.ui.helpers;
 
+import android.app.ActivityManager;
 import android.content.Context;
+import android.graphics.Color;
+import android.view.Choreographer;
 import androidx.core.content.ContextCompat;
 import com.eliasbuenosdias.geogas.R;
+import com.eliasbuenosdias.geogas.data.CambiosVisibles;
 import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.tiles.MapaCalorPrecios;
 import com.eliasbuenosdias.geogas.utils.FavoritosManager;
 import com.eliasbuenosdias.geogas.utils.IconosManager;
+import com.eliasbuenosdias.geogas.utils.MapaOfflineManager;
 
-import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
+import org.osmdroid.tileprovider.MapTileProviderArray;
+import org.osmdroid.tileprovider.MapTileProviderBase;
+import org.osmdroid.tileprovider.modules.MapTileModuleProviderBase;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.tileprovider.util.SimpleRegisterReceiver;
 import org.osmdroid.util.GeoPoint;
 import org.osmdroid.views.MapView;
+import org.osmdroid.views.overlay.Overlay;
 import org.osmdroid.views.overlay.Marker;
+import org.osmdroid.views.overlay.TilesOverlay;
 import org.osmdroid.views.overlay.compass.CompassOverlay;
 import org.osmdroid.views.overlay.compass.InternalCompassOrientationProvider;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * Encapsula la gestión del mapa y marcadores.
@@ -28,8 +49,31 @@ public class MapHelper {
     private final IconosManager iconosManager;
     private final FavoritosManager favoritosManager;
     private OnMarkerClickListener markerListener;
+    private final Map<String, Marker> marcadores = new HashMap<>();
+    private final Map<String, Integer> iconosAplicados = new HashMap<>();
     private int lastGasStationCount = 0;
     private double lastZoomLevel = 15.0;
+    private ProveedorTeselasCalor proveedorCalor;
+    private MapTileProviderArray teselasCalor;
+    private TilesOverlay capaCalor;
+    // Cambios de marcadores por aplicar: altas y actualizaciones de más cercana a más
+    // lejana al centro, y después las bajas
+    private final ArrayDeque<GasolineraAPI> pendientesActualizar = new ArrayDeque<>();
+    private final Set<String> pendientesQuitar = new LinkedHashSet<>();
+    private final Choreographer.FrameCallback aplicarPendientes = this::aplicarPendientes;
+    private boolean fotogramaProgramado;
+    // Versión del conjunto visible cuyos cambios ya están encolados
+    private long versionAplicada;
+
+    /**
+     * Tiempo máximo aplicando cambios de marcadores en cada fotograma.
+     */
+    private static final long PRESUPUESTO_FOTOGRAMA_NS = 4_000_000L;
+    /**
+     * Zoom mínimo al ir a una gasolinera buscada, suficiente para distinguirla de las vecinas.
+     */
+    private static final double ZOOM_GASOLINERA = 16.0;
+    private static final long DURACION_IR_A_MS = 800L;
 
     public interface OnMarkerClickListener {
         void onMarkerClick(GasolineraAPI gasolinera);
@@ -44,7 +88,14 @@ public class MapHelper {
     }
 
     private void setupMap() {
-        map.setTileSource(TileSourceFactory.MAPNIK);
+        ITileSource fuente = MapaOfflineManager.crearFuenteTeselas();
+        // Los archivos MBTiles/SQLite copiados al dispositivo van antes que la red
+        MapTileProviderBase proveedor = new ProveedorTeselasArchivo(context, fuente,
+                MapaOfflineManager.buscarArchivosTeselas(MapaOfflineManager.getCarpetaArchivos()));
+        int memoria = ((ActivityManager) context.getSystemService(Context.ACTIVITY_SERVICE)).getMemoryClass();
+        proveedor.getTileCache().ensureCapacity(MapaOfflineManager.calcularTeselasEnMemoria(memoria));
+        map.setTileProvider(proveedor);
+        map.setTileSource(fuente);
         map.setMultiTouchControls(true);
         map.setBuiltInZoomControls(false); // Eliminamos botones +/-
         map.getController().setZoom(15.0);
@@ -60,45 +111,219 @@ public class MapHelper {
         this.markerListener = listener;
     }
 
+    /**
+     * Lleva la cámara hasta una gasolinera, acercándola si el mapa está muy alejado.
+     */
+    public void irAGasolinera(GasolineraAPI g) {
+        map.getController().animateTo(posicion(g), Math.max(map.getZoomLevelDouble(), ZOOM_GASOLINERA),
+                DURACION_IR_A_MS);
+    }
+
+    /**
+     * Desactiva la red del mapa mientras lo visible esté dentro de una zona descargada,
+     * para que ni las teselas caducadas de esa zona se vuelvan a pedir.
+     */
+    public void actualizarConexion(MapaOfflineManager mapaOfflineManager) {
+        boolean sinRed = mapaOfflineManager.cubre(map.getBoundingBox(), map.getZoomLevelDouble());
+        if (map.useDataConnection() == sinRed)
+            map.setUseDataConnection(!sinRed);
+    }
+
+    /**
+     * Muestra el mapa de calor de precios bajo los marcadores, o lo oculta. Las teselas se
+     * pintan fuera del hilo principal; si el mapa tiene la misma versión que el mostrado no
+     * se vuelve a pintar nada.
+     *
+     * @param mapa el mapa de calor, o null para ocultarlo
+     */
+    public void mostrarMapaCalor(MapaCalorPrecios mapa) {
+        if (mapa == null) {
+            if (capaCalor != null && capaCalor.isEnabled()) {
+                capaCalor.setEnabled(false);
+                map.invalidate();
+            }
+            return;
+        }
+        if (capaCalor == null) {
+            proveedorCalor = new ProveedorTeselasCalor(context);
+            teselasCalor = new MapTileProviderArray(ProveedorTeselasCalor.FUENTE, new SimpleRegisterReceiver(context),
+                    new MapTileModuleProviderBase[] { proveedorCalor });
+            teselasCalor.getTileRequestCompleteHandlers().add(map.getTileRequestCompleteHandler());
+            capaCalor = new TilesOverlay(teselasCalor, context);
+            // Sin cuadrícula de carga: hasta que llega la tesela se ve el mapa
+            capaCalor.setLoadingBackgroundColor(Color.TRANSPARENT);
+            capaCalor.setLoadingLineColor(Color.TRANSPARENT);
+            map.getOverlays().add(0, capaCalor);
+        }
+        MapaCalorPrecios actual = proveedorCalor.getMapa();
+        if (actual == null || actual.getVersion() != mapa.getVersion()) {
+            proveedorCalor.setMapa(mapa);
+            teselasCalor.clearTileCache();
+        }
+        capaCalor.setEnabled(true);
+        map.invalidate();
+    }
+
+    /**
+     * Sincroniza los marcadores con la lista visible. Solo se crean, eliminan o modifican
+     * los marcadores cuya gasolinera, icono o título ha cambiado realmente, y el mapa
+     * únicamente se invalida si hubo alguna modificación.
+     * <p>
+     * Los cambios no se aplican de golpe: se encolan y se aplican en los fotogramas
+     * siguientes, como mucho {@link #PRESUPUESTO_FOTOGRAMA_NS} en cada uno, empezando por
+     * las gasolineras más cercanas al centro. Un cambio grande de viewport se reparte en
+     * varios fotogramas en lugar de congelar uno. Una lista nueva sustituye a lo que quedara
+     * pendiente de la anterior.
+     * </p>
+     */
     public void updateMarkers(List<GasolineraAPI> gasolineras) {
-        Map<String, Marker> existingMarkers = getExistingMarkers();
         lastGasStationCount = gasolineras.size();
         lastZoomLevel = map.getZoomLevel();
 
-        for (GasolineraAPI g : gasolineras) {
-            Marker m = existingMarkers.remove(g.getId());
+        pendientesActualizar.clear();
+        for (GasolineraAPI g : ordenarPorCercania(gasolineras))
+            pendientesActualizar.add(g);
+
+        Set<String> visibles = new HashSet<>();
+        for (GasolineraAPI g : gasolineras)
+            visibles.add(g.getId());
+        pendientesQuitar.clear();
+        for (String id : marcadores.keySet()) {
+            if (!visibles.contains(id))
+                pendientesQuitar.add(id);
+        }
+        programarFotograma();
+    }
+
+    /**
+     * Encola los cambios de una publicación del conjunto visible: solo se tocan los
+     * marcadores de las gasolineras que entran, salen o han cambiado. Si la publicación no es
+     * la siguiente a la última aplicada, se ha perdido alguna y se vuelve a partir del
+     * conjunto completo con {@link #updateMarkers(List)}.
+     *
+     * @param cambios  la diferencia publicada por el ViewModel
+     * @param visibles el conjunto visible completo, solo para ese caso
+     */
+    public void aplicarCambios(CambiosVisibles cambios, Supplier<List<GasolineraAPI>> visibles) {
+        if (cambios.getVersion() != versionAplicada + 1) {
+            updateMarkers(visibles.get());
+            versionAplicada = cambios.getVersion();
+            return;
+        }
+        versionAplicada = cambios.getVersion();
+
+        Map<String, GasolineraAPI> actualizar = new HashMap<>();
+        for (GasolineraAPI g : cambios.getEntradas())
+            actualizar.put(g.getId(), g);
+        for (GasolineraAPI g : cambios.getCambiadas())
+            actualizar.put(g.getId(), g);
+        // El tamaño del icono depende de cuántas hay y del zoom; si cambia, se repasan todos
+        double zoom = map.getZoomLevel();
+        if (iconosManager.obtenerIconoGasolinera(false, cambios.getTotal(), zoom)
+                != iconosManager.obtenerIconoGasolinera(false, lastGasStationCount, lastZoomLevel)) {
+            for (Map.Entry<String, Marker> e : marcadores.entrySet())
+                actualizar.putIfAbsent(e.getKey(), (GasolineraAPI) e.getValue().getRelatedObject());
+        }
+        lastGasStationCount = cambios.getTotal();
+        lastZoomLevel = zoom;
+
+        for (GasolineraAPI g : ordenarPorCercania(new ArrayList<>(actualizar.values()))) {
+            pendientesQuitar.remove(g.getId());
+            pendientesActualizar.add(g);
+        }
+        pendientesQuitar.addAll(cambios.getSalidas());
+        programarFotograma();
+    }
+
+    /**
+     * Descarta los cambios de marcadores pendientes, por ejemplo al destruir la actividad.
+     */
+    public void cancelarPendientes() {
+        pendientesActualizar.clear();
+        pendientesQuitar.clear();
+        if (fotogramaProgramado) {
+            Choreographer.getInstance().removeFrameCallback(aplicarPendientes);
+            fotogramaProgramado = false;
+        }
+    }
+
+    private void programarFotograma() {
+        if (fotogramaProgramado || (pendientesActualizar.isEmpty() && pendientesQuitar.isEmpty()))
+            return;
+        fotogramaProgramado = true;
+        Choreographer.getInstance().postFrameCallback(aplicarPendientes);
+    }
+
+    /**
+     * Aplica cambios pendientes hasta agotar el presupuesto del fotograma. Los marcadores
+     * nuevos y los quitados se añaden y retiran de la lista de overlays de una vez, que
+     * copia la lista entera en cada modificación.
+     */
+    private void aplicarPendientes(long tiempoFotograma) {
+        fotogramaProgramado = false;
+        long limite = System.nanoTime() + PRESUPUESTO_FOTOGRAMA_NS;
+        List<Overlay> anadidos = new ArrayList<>();
+        List<Overlay> quitados = new ArrayList<>();
+        boolean modificado = false;
+
+        while (!pendientesActualizar.isEmpty() && System.nanoTime() < limite) {
+            GasolineraAPI g = pendientesActualizar.poll();
+            Marker m = marcadores.get(g.getId());
             if (m == null) {
                 m = createMarker(g, lastGasStationCount, lastZoomLevel);
-                map.getOverlays().add(m);
+                anadidos.add(m);
+                marcadores.put(g.getId(), m);
             } else {
-                updateMarker(m, g, lastGasStationCount, lastZoomLevel);
+                modificado |= updateMarker(m, g, lastGasStationCount, lastZoomLevel);
             }
         }
-
-        for (Marker m : existingMarkers.values()) {
-            map.getOverlays().remove(m);
+        while (pendientesActualizar.isEmpty() && !pendientesQuitar.isEmpty() && System.nanoTime() < limite) {
+            Iterator<String> primera = pendientesQuitar.iterator();
+            String id = primera.next();
+            primera.remove();
+            Marker m = marcadores.remove(id);
+            if (m != null) {
+                quitados.add(m);
+                iconosAplicados.remove(id);
+            }
         }
-        map.invalidate();
+
+        if (!anadidos.isEmpty())
+            map.getOverlays().addAll(anadidos);
+        if (!quitados.isEmpty())
+            map.getOverlays().removeAll(quitados);
+        if (modificado || !anadidos.isEmpty() || !quitados.isEmpty())
+            map.invalidate();
+        programarFotograma();
     }
 
-    private Map<String, Marker> getExistingMarkers() {
-        Map<String, Marker> markers = new HashMap<>();
-        for (org.osmdroid.views.overlay.Overlay o : map.getOverlays()) {
-            if (o instanceof Marker) {
-                Marker m = (Marker) o;
-                if (m.getRelatedObject() instanceof GasolineraAPI) {
-                    markers.put(((GasolineraAPI) m.getRelatedObject()).getId(), m);
-                }
-            }
+    /**
+     * Ordena las gasolineras de más cercana a más lejana al centro del mapa.
+     */
+    private List<GasolineraAPI> ordenarPorCercania(List<GasolineraAPI> gasolineras) {
+        double centroLat = map.getMapCenter().getLatitude();
+        double centroLon = map.getMapCenter().getLongitude();
+        double escalaLon = Math.cos(Math.toRadians(centroLat));
+        // Distancia al cuadrado en los bits altos (un float positivo se ordena igual que sus
+        // bits) y posición en la lista en los bajos
+        long[] orden = new long[gasolineras.size()];
+        for (int i = 0; i < orden.length; i++) {
+            GeoPoint p = posicion(gasolineras.get(i));
+            double dLat = p.getLatitude() - centroLat;
+            double dLon = (p.getLongitude() - centroLon) * escalaLon;
+            orden[i] = (long) Float.floatToIntBits((float) (dLat * dLat + dLon * dLon)) << 32 | i;
         }
-        return markers;
+        Arrays.sort(orden);
+        List<GasolineraAPI> ordenadas = new ArrayList<>(orden.length);
+        for (long o : orden)
+            ordenadas.add(gasolineras.get((int) o));
+        return ordenadas;
     }
 
     private Marker createMarker(GasolineraAPI g, int density, double zoom) {
         Marker m = new Marker(map);
         m.setRelatedObject(g);
-        m.setPosition(new GeoPoint(Double.parseDouble(g.getLatitud().replace(",", ".")),
-                Double.parseDouble(g.getLongitud().replace(",", "."))));
+        m.setPosition(posicion(g));
         m.setAnchor(Marker.ANCHOR_CENTER, Marker.ANCHOR_BOTTOM);
         m.setOnMarkerClickListener((marker, mapView) -> {
             if (markerListener != null) {
@@ -110,20 +335,52 @@ public class MapHelper {
         return m;
     }
 
-    private void updateMarker(Marker m, GasolineraAPI g, int density, double zoom) {
+    private static GeoPoint posicion(GasolineraAPI g) {
+        return new GeoPoint(Double.parseDouble(g.getLatitud().replace(",", ".")),
+                Double.parseDouble(g.getLongitud().replace(",", ".")));
+    }
+
+    /**
+     * Actualiza un marcador existente y devuelve si se modificó algo. Tras una sincronización
+     * la gasolinera puede ser una instancia nueva con el mismo IDEESS; la posición solo se
+     * recalcula si cambiaron las coordenadas y el icono solo si cambió el recurso.
+     */
+    private boolean updateMarker(Marker m, GasolineraAPI g, int density, double zoom) {
+        boolean modificado = false;
+        GasolineraAPI anterior = (GasolineraAPI) m.getRelatedObject();
+        if (anterior != g) {
+            m.setRelatedObject(g);
+            if (!Objects.equals(anterior.getLatitud(), g.getLatitud())
+                    || !Objects.equals(anterior.getLongitud(), g.getLongitud())) {
+                m.setPosition(posicion(g));
+            }
+            modificado = true;
+        }
+
         boolean fav = favoritosManager.esFavorita(g.getId());
         int icon = iconosManager.obtenerIconoGasolinera(fav, density, zoom);
-        m.setIcon(ContextCompat.getDrawable(context, icon));
-        m.setTitle((fav ? "★ " : "") + g.getRotulo());
+        Integer iconoActual = iconosAplicados.get(g.getId());
+        if (iconoActual == null || iconoActual != icon) {
+            m.setIcon(ContextCompat.getDrawable(context, icon));
+            iconosAplicados.put(g.getId(), icon);
+            modificado = true;
+        }
+
+        String titulo = (fav ? "★ " : "") + g.getRotulo();
+        if (!titulo.equals(m.getTitle())) {
+            m.setTitle(titulo);
+            modificado = true;
+        }
+        return modificado;
     }
 
     public void refreshMarkers() {
         double zoom = map.getZoomLevel();
-        for (org.osmdroid.views.overlay.Overlay o : map.getOverlays()) {
-            if (o instanceof Marker && ((Marker) o).getRelatedObject() instanceof GasolineraAPI) {
-                updateMarker((Marker) o, (GasolineraAPI) ((Marker) o).getRelatedObject(), lastGasStationCount, zoom);
-            }
+        boolean modificado = false;
+        for (Marker m : marcadores.values()) {
+            modificado |= updateMarker(m, (GasolineraAPI) m.getRelatedObject(), lastGasStationCount, zoom);
         }
-        map.invalidate();
+        if (modificado)
+            map.invalidate();
     }
 }
@@ -3,6 +3,7 @@ package com.eliasbuenosdias.geogas.ui.helpers;
 import android.Manifest;
 import android.app.Activity;
 import android.content.pm.PackageManager;
+import android.os.Build;
 import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 
@@ -12,6 +13,7 @@ import androidx.core.content.ContextCompat;
 public class PermissionHelper {
 
     public static final int REQ_PERMISSIONS = 100;
+    public static final int REQ_NOTIFICATIONS = 101;
 
     public static boolean hasLocationPermission(Activity activity) {
         return ContextCompat.checkSelfPermission(activity,
@@ -24,4 +26,18 @@ public class PermissionHelper {
                 Manifest.permission.ACCESS_COARSE_LOCATION
         }, REQ_PERMISSIONS);
     }
+
+    public static boolean hasNotificationPermission(Activity activity) {
+        return Build.VERSION.SDK_INT < Build.VERSION_CODES.TIRAMISU
+                || ContextCompat.checkSelfPermission(activity,
+                        Manifest.permission.POST_NOTIFICATIONS) == PackageManager.PERMISSION_GRANTED;
+    }
+
+    public static void requestNotificationPermission(Activity activity) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
+            ActivityCompat.requestPermissions(activity, new String[] {
+                    Manifest.permission.POST_NOTIFICATIONS
+            }, REQ_NOTIFICATIONS);
+        }
+    }
 }
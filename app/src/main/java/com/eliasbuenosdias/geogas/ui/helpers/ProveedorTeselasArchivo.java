@@ -0,0 +1,68 @@
+package com.eliasbuenosdias.geogas.ui.helpers;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.osmdroid.tileprovider.MapTileProviderBasic;
+import org.osmdroid.tileprovider.modules.ArchiveFileFactory;
+import org.osmdroid.tileprovider.modules.IArchiveFile;
+import org.osmdroid.tileprovider.modules.MapTileFileArchiveProvider;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.tileprovider.util.SimpleRegisterReceiver;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Proveedor de teselas que consulta primero archivos MBTiles o SQLite locales.
+ * <p>
+ * Es el proveedor habitual de osmdroid (caché en disco, descarga y aproximación desde
+ * otros zooms) con un módulo delante que lee de los archivos. Una tesela que esté en un
+ * archivo sale de una lectura local; las demás siguen por la caché y, si hay red, por la
+ * descarga de la fuente del mapa.
+ * </p>
+ * <p>
+ * Los archivos se usan para cualquier fuente: un SQLite de osmdroid generado con otro
+ * nombre de fuente también sirve.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class ProveedorTeselasArchivo extends MapTileProviderBasic {
+
+    private static final String TAG = "GeoGas";
+
+    /**
+     * Construye el proveedor.
+     *
+     * @param context  el contexto de la aplicación
+     * @param fuente   la fuente de teselas del mapa
+     * @param archivos los archivos de teselas, en orden de preferencia
+     */
+    public ProveedorTeselasArchivo(Context context, ITileSource fuente, List<File> archivos) {
+        super(context, fuente);
+        IArchiveFile[] abiertos = abrir(archivos);
+        if (abiertos.length == 0)
+            return;
+        MapTileFileArchiveProvider archivoProvider = new MapTileFileArchiveProvider(
+                new SimpleRegisterReceiver(context), fuente, abiertos, true);
+        mTileProviderList.add(0, archivoProvider);
+        getTileCache().getPreCache().addProvider(archivoProvider);
+    }
+
+    private static IArchiveFile[] abrir(List<File> archivos) {
+        List<IArchiveFile> abiertos = new ArrayList<>();
+        for (File archivo : archivos) {
+            IArchiveFile abierto = ArchiveFileFactory.getArchiveFile(archivo);
+            if (abierto != null) {
+                abierto.setIgnoreTileSource(true);
+                abiertos.add(abierto);
+            } else {
+                Log.w(TAG, "No se ha podido abrir el archivo de teselas " + archivo);
+            }
+        }
+        return abiertos.toArray(new IArchiveFile[0]);
+    }
+}
@@ -0,0 +1,164 @@
+package com.eliasbuenosdias.geogas.ui.helpers;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.Drawable;
+import android.util.LruCache;
+
+import com.eliasbuenosdias.geogas.tiles.CacheDiscoTeselas;
+import com.eliasbuenosdias.geogas.tiles.MapaCalorPrecios;
+
+import org.osmdroid.tileprovider.modules.MapTileModuleProviderBase;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.tileprovider.tilesource.XYTileSource;
+import org.osmdroid.util.MapTileIndex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+
+/**
+ * Módulo de osmdroid que pinta las teselas del mapa de calor de precios.
+ * <p>
+ * Las teselas se pintan en los hilos del módulo, nunca en el principal, a partir de la
+ * copia inmutable de {@link MapaCalorPrecios}. Antes de pintar se busca en una caché en
+ * memoria y después en una en disco; las dos usan la clave del mapa, que incluye el
+ * combustible, el modo y la versión de los datos, así que al cambiar cualquiera de ellos
+ * las teselas antiguas dejan de encontrarse sin tener que borrarlas.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class ProveedorTeselasCalor extends MapTileModuleProviderBase {
+
+    /** Fuente de teselas del mapa de calor, para el proveedor que contiene el módulo. */
+    public static final ITileSource FUENTE = new XYTileSource("MapaCalor", 0, MapaCalorPrecios.ZOOM_MAXIMO,
+            MapaCalorPrecios.LADO, ".png", new String[0]);
+
+    private static final int HILOS = 2;
+    private static final int PENDIENTES = 40;
+    private static final String CARPETA = "mapa_calor";
+    private static final long MAXIMO_DISCO = 32L * 1024 * 1024;
+
+    private final Resources resources;
+    private final File carpeta;
+    private final LruCache<String, Bitmap> memoria;
+    // Tesela sin gasolineras; se estira al tamaño de la tesela y no pinta nada
+    private final Bitmap vacia = Bitmap.createBitmap(1, 1, Bitmap.Config.ARGB_8888);
+    private CacheDiscoTeselas disco;
+    private volatile MapaCalorPrecios mapa;
+
+    /**
+     * Construye el módulo. La caché en disco se abre en el primer uso, en un hilo del módulo.
+     *
+     * @param context el contexto de la aplicación
+     */
+    public ProveedorTeselasCalor(Context context) {
+        super(HILOS, PENDIENTES);
+        this.resources = context.getResources();
+        this.carpeta = new File(context.getCacheDir(), CARPETA);
+        // Un dieciseisavo de la memoria de la aplicación
+        this.memoria = new LruCache<String, Bitmap>((int) (Runtime.getRuntime().maxMemory() / 16)) {
+            @Override
+            protected int sizeOf(String clave, Bitmap bitmap) {
+                return bitmap.getByteCount();
+            }
+        };
+    }
+
+    /**
+     * Cambia el mapa de calor que se pinta. Las teselas ya pedidas al anterior siguen su curso.
+     *
+     * @param mapa el mapa, o {@code null} para no pintar nada
+     */
+    public void setMapa(MapaCalorPrecios mapa) {
+        this.mapa = mapa;
+    }
+
+    /**
+     * Obtiene el mapa de calor que se pinta.
+     *
+     * @return el mapa, o {@code null}
+     */
+    public MapaCalorPrecios getMapa() {
+        return mapa;
+    }
+
+    private Bitmap obtener(MapaCalorPrecios mapa, int zoom, int x, int y) {
+        String clave = mapa.clave(zoom, x, y);
+        Bitmap bitmap = memoria.get(clave);
+        if (bitmap != null)
+            return bitmap;
+
+        byte[] guardada = disco().leer(clave);
+        if (guardada != null)
+            bitmap = BitmapFactory.decodeByteArray(guardada, 0, guardada.length);
+        if (bitmap == null) {
+            int[] pixeles = mapa.pintar(zoom, x, y);
+            if (pixeles == null) {
+                bitmap = vacia;
+            } else {
+                bitmap = Bitmap.createBitmap(pixeles, MapaCalorPrecios.LADO, MapaCalorPrecios.LADO,
+                        Bitmap.Config.ARGB_8888);
+                ByteArrayOutputStream png = new ByteArrayOutputStream();
+                if (bitmap.compress(Bitmap.CompressFormat.PNG, 100, png))
+                    disco().guardar(clave, png.toByteArray());
+            }
+        }
+        memoria.put(clave, bitmap);
+        return bitmap;
+    }
+
+    private synchronized CacheDiscoTeselas disco() {
+        if (disco == null)
+            disco = new CacheDiscoTeselas(carpeta, MAXIMO_DISCO);
+        return disco;
+    }
+
+    @Override
+    protected String getName() {
+        return "Mapa de calor";
+    }
+
+    @Override
+    protected String getThreadGroupName() {
+        return "mapacalor";
+    }
+
+    @Override
+    public TileLoader getTileLoader() {
+        return new TileLoader() {
+            @Override
+            public Drawable loadTile(long indice) {
+                MapaCalorPrecios actual = mapa;
+                if (actual == null)
+                    return null;
+                return new BitmapDrawable(resources, obtener(actual, MapTileIndex.getZoom(indice),
+                        MapTileIndex.getX(indice), MapTileIndex.getY(indice)));
+            }
+        };
+    }
+
+    @Override
+    public boolean getUsesDataConnection() {
+        return false;
+    }
+
+    @Override
+    public int getMinimumZoomLevel() {
+        return 0;
+    }
+
+    @Override
+    public int getMaximumZoomLevel() {
+        return MapaCalorPrecios.ZOOM_MAXIMO;
+    }
+
+    @Override
+    public void setTileSource(ITileSource fuente) {
+        // Las teselas salen del mapa de calor, no de una fuente
+    }
+}
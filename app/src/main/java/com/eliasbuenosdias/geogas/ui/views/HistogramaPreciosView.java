@@ -0,0 +1,99 @@
+package com.eliasbuenosdias.geogas.ui.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.ContextCompat;
+
+import com.eliasbuenosdias.geogas.R;
+import com.eliasbuenosdias.geogas.data.IndicePrecios;
+
+/**
+ * Gráfico de barras con la distribución de precios de un combustible.
+ * <p>
+ * Se dibuja junto al campo de precio máximo: las barras que el límite escrito deja dentro
+ * se pintan con el color principal y el resto atenuadas, de modo que el usuario ve
+ * cuántas gasolineras descarta antes de aplicar el filtro.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class HistogramaPreciosView extends View {
+
+    private static final float SEPARACION_DP = 1f;
+
+    private final Paint pinturaDentro = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint pinturaFuera = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float separacion;
+
+    private IndicePrecios.Histograma histograma;
+    private int cubetaLimite = Integer.MAX_VALUE;
+
+    public HistogramaPreciosView(Context context) {
+        this(context, null);
+    }
+
+    public HistogramaPreciosView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        pinturaDentro.setColor(ContextCompat.getColor(context, R.color.colorPrimary));
+        pinturaFuera.setColor(ContextCompat.getColor(context, R.color.textColorSecondary));
+        pinturaFuera.setAlpha(90);
+        separacion = SEPARACION_DP * context.getResources().getDisplayMetrics().density;
+    }
+
+    /**
+     * Establece la distribución a dibujar.
+     *
+     * @param histograma el histograma, o {@code null} para ocultar el gráfico
+     */
+    public void setHistograma(@Nullable IndicePrecios.Histograma histograma) {
+        this.histograma = histograma;
+        setVisibility(histograma == null || histograma.getConteoMaximo() == 0 ? GONE : VISIBLE);
+        invalidate();
+    }
+
+    /**
+     * Establece el precio máximo escrito por el usuario.
+     *
+     * @param precioMaximo el límite en euros, o {@code null} si no hay
+     */
+    public void setPrecioMaximo(@Nullable Double precioMaximo) {
+        int cubeta = Integer.MAX_VALUE;
+        if (precioMaximo != null && histograma != null) {
+            int milesimas = (int) Math.floor(precioMaximo * 1000 + 1e-9);
+            cubeta = milesimas < histograma.minimo ? -1 : histograma.cubeta(milesimas);
+        }
+        if (cubeta != cubetaLimite) {
+            cubetaLimite = cubeta;
+            invalidate();
+        }
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (histograma == null)
+            return;
+        int maximo = histograma.getConteoMaximo();
+        if (maximo == 0)
+            return;
+
+        int[] conteos = histograma.conteos;
+        float ancho = (float) (getWidth() - getPaddingLeft() - getPaddingRight()) / conteos.length;
+        float alto = getHeight() - getPaddingTop() - getPaddingBottom();
+        float base = getHeight() - getPaddingBottom();
+        for (int i = 0; i < conteos.length; i++) {
+            if (conteos[i] == 0)
+                continue;
+            float izquierda = getPaddingLeft() + i * ancho;
+            float altura = Math.max(separacion, alto * conteos[i] / maximo);
+            canvas.drawRect(izquierda, base - altura, izquierda + ancho - separacion, base,
+                    i <= cubetaLimite ? pinturaDentro : pinturaFuera);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.eliasbuenosdias.geogas.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.eliasbuenosdias.geogas.data.LectorPreciosFavoritos;
+import com.eliasbuenosdias.geogas.models.Combustible;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Gestor de alertas de bajada de precio para las gasolineras favoritas.
+ * <p>
+ * Guarda en SharedPreferences el umbral de bajada configurado por el usuario y el último
+ * precio conocido de cada combustible vigilado de cada favorita. Al registrar una nueva
+ * lectura devuelve las bajadas que igualan o superan el umbral, actualiza los precios
+ * guardados y olvida los de las gasolineras que ya no son favoritas.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class AlertasPreciosManager {
+    /**
+     * Nombre del archivo de preferencias compartidas.
+     */
+    private static final String PREFS_NAME = "GeoGasAlertas";
+    /**
+     * Clave del umbral de bajada en euros por litro.
+     */
+    private static final String KEY_UMBRAL = "umbral";
+    /**
+     * Prefijo de las claves de último precio conocido.
+     */
+    private static final String PREFIJO_PRECIO = "precio_";
+    /**
+     * Umbral por defecto: 5 céntimos por litro.
+     */
+    public static final float UMBRAL_POR_DEFECTO = 0.05f;
+
+    private final SharedPreferences sharedPreferences;
+
+    /**
+     * Bajada de precio detectada en una gasolinera favorita.
+     */
+    public static class BajadaPrecio {
+        /**
+         * Identificador IDEESS de la gasolinera.
+         */
+        public final String id;
+        /**
+         * Rótulo de la gasolinera.
+         */
+        public final String rotulo;
+        /**
+         * Índice del combustible en {@link LectorPreciosFavoritos#COMBUSTIBLES}.
+         */
+        public final int combustible;
+        /**
+         * Último precio conocido.
+         */
+        public final double anterior;
+        /**
+         * Precio actual.
+         */
+        public final double actual;
+
+        /**
+         * Construye una bajada de precio.
+         *
+         * @param id          el identificador IDEESS
+         * @param rotulo      el rótulo de la gasolinera
+         * @param combustible el índice del combustible
+         * @param anterior    el último precio conocido
+         * @param actual      el precio actual
+         */
+        public BajadaPrecio(String id, String rotulo, int combustible, double anterior, double actual) {
+            this.id = id;
+            this.rotulo = rotulo;
+            this.combustible = combustible;
+            this.anterior = anterior;
+            this.actual = actual;
+        }
+
+        /**
+         * Obtiene el combustible que ha bajado.
+         *
+         * @return el combustible de {@link LectorPreciosFavoritos#VIGILADOS} en el índice
+         *         {@link #combustible}
+         */
+        public Combustible getCombustible() {
+            return LectorPreciosFavoritos.VIGILADOS[combustible];
+        }
+    }
+
+    /**
+     * Construye un nuevo AlertasPreciosManager.
+     *
+     * @param context el contexto de la aplicación para acceder a SharedPreferences
+     */
+    public AlertasPreciosManager(Context context) {
+        sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Obtiene el umbral de bajada a partir del cual se notifica.
+     *
+     * @return el umbral en euros por litro; {@link #UMBRAL_POR_DEFECTO} si el guardado no es válido
+     */
+    public float getUmbral() {
+        float umbral = sharedPreferences.getFloat(KEY_UMBRAL, UMBRAL_POR_DEFECTO);
+        return umbral > 0 ? umbral : UMBRAL_POR_DEFECTO;
+    }
+
+    /**
+     * Establece el umbral de bajada a partir del cual se notifica.
+     * <p>
+     * Con un umbral de cero o negativo un precio sin cambios, o incluso una subida,
+     * contaría como bajada y se notificaría en cada comprobación.
+     * </p>
+     *
+     * @param umbral el umbral en euros por litro
+     * @throws IllegalArgumentException si {@code umbral} no es mayor que cero
+     */
+    public void setUmbral(float umbral) {
+        if (!(umbral > 0))
+            throw new IllegalArgumentException("Umbral no válido: " + umbral);
+        sharedPreferences.edit().putFloat(KEY_UMBRAL, umbral).apply();
+    }
+
+    /**
+     * Compara una lectura de precios con los últimos precios guardados.
+     * <p>
+     * Devuelve las bajadas que igualan o superan el umbral y guarda los nuevos precios
+     * como referencia para la próxima comprobación. La primera lectura de una favorita
+     * solo establece la referencia y no genera alertas.
+     * </p>
+     * <p>
+     * Los precios guardados de las gasolineras que ya no están en {@code favoritas} se
+     * borran, así que una que se vuelve a marcar semanas después empieza sin referencia.
+     * </p>
+     *
+     * @param lecturas  los precios actuales de las favoritas
+     * @param favoritas los identificadores de las favoritas actuales
+     * @return las bajadas de precio a notificar
+     */
+    public List<BajadaPrecio> registrarPrecios(List<LectorPreciosFavoritos.PreciosFavorita> lecturas,
+            Set<String> favoritas) {
+        List<BajadaPrecio> bajadas = new ArrayList<>();
+        float umbral = getUmbral();
+        SharedPreferences.Editor editor = sharedPreferences.edit();
+
+        // Claves precio_<IDEESS>_<combustible> de las que ya no son favoritas
+        for (String clave : sharedPreferences.getAll().keySet()) {
+            int separador = clave.lastIndexOf('_');
+            if (clave.startsWith(PREFIJO_PRECIO) && separador > PREFIJO_PRECIO.length()
+                    && !favoritas.contains(clave.substring(PREFIJO_PRECIO.length(), separador)))
+                editor.remove(clave);
+        }
+
+        for (LectorPreciosFavoritos.PreciosFavorita lectura : lecturas) {
+            for (int i = 0; i < lectura.precios.length; i++) {
+                double actual = lectura.precios[i];
+                if (Double.isNaN(actual))
+                    continue;
+
+                String clave = PREFIJO_PRECIO + lectura.id + "_" + i;
+                float anterior = sharedPreferences.getFloat(clave, Float.NaN);
+                if (!Float.isNaN(anterior) && anterior - actual >= umbral - 1e-6) {
+                    bajadas.add(new BajadaPrecio(lectura.id, lectura.rotulo, i, anterior, actual));
+                }
+                editor.putFloat(clave, (float) actual);
+            }
+        }
+
+        editor.apply();
+        return bajadas;
+    }
+}
@@ -1,8 +1,12 @@
 package com.eliasbuenosdias.geogas.utils;
 import android.content.Context;
 import android.content.SharedPreferences;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
     /**
      * Gestor de gasolineras favoritas utilizando SharedPreferences.
      * <p>
@@ -14,7 +18,7 @@ import java.util.Set;
      * @author Elías Prieto Parrilla
      * @version 1.0
      */
-    public class FavoritosManager {
+    public class FavoritosManager implements ProveedorFavoritos {
         /**
          * Nombre del archivo de preferencias compartidas.
          */
@@ -27,38 +31,57 @@ import java.util.Set;
          * Instancia de SharedPreferences para persistencia de datos.
          */
         private SharedPreferences sharedPreferences;
+        /**
+         * Copia en memoria de los favoritos de cada archivo de preferencias, leída la primera
+         * vez que se necesita. Es común a todos los gestores sobre las mismas preferencias,
+         * así que el que crea cada actividad y el que ya tiene el ViewModel nunca difieren.
+         * Las consultas, que también llegan desde los hilos de indexado, y los cambios la
+         * tocan sin copiar el conjunto.
+         */
+        private static final Map<SharedPreferences, Set<String>> FAVORITOS =
+                Collections.synchronizedMap(new WeakHashMap<>());
         /**
          * Construye un nuevo FavoritosManager.
          *
          * @param context el contexto de la aplicación para acceder a SharedPreferences
          */
         public FavoritosManager(Context context) {
-            sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+            this(context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE));
+        }
+        /**
+         * Construye un FavoritosManager sobre unas preferencias ya abiertas.
+         * <p>
+         * Permite usar el gestor fuera de una actividad, por ejemplo en pruebas
+         * con unas preferencias en memoria.
+         * </p>
+         *
+         * @param sharedPreferences las preferencias donde se guardan los favoritos
+         */
+        public FavoritosManager(SharedPreferences sharedPreferences) {
+            this.sharedPreferences = sharedPreferences;
         }
         /**
          * Alterna el estado de favorito de una gasolinera.
          * <p>
          * Si la gasolinera ya está marcada como favorita, la elimina. Si no lo está,
-         * la añade. Crea siempre un nuevo HashSet para evitar problemas de SharedPreferences
-         * con conjuntos mutables.
+         * la añade. El cambio se hace sobre la copia en memoria y se guarda en un nuevo
+         * HashSet para evitar problemas de SharedPreferences con conjuntos mutables.
          * </p>
          *
          * @param gasolineraId el identificador único de la gasolinera
+         * @return {@code true} si la gasolinera ha quedado como favorita
          */
-        public void toggleFavorito(String gasolineraId) {
-            // Crear un NUEVO HashSet cada vez (no reutilizar el obtenido)
-            Set<String> favoritos = new HashSet<>(getFavoritos());
-
-            if (favoritos.contains(gasolineraId)) {
-                favoritos.remove(gasolineraId);
-            } else {
-                favoritos.add(gasolineraId);
-            }
+        public boolean toggleFavorito(String gasolineraId) {
+            Set<String> actuales = cargarFavoritos();
+            boolean favorita = actuales.add(gasolineraId);
+            if (!favorita)
+                actuales.remove(gasolineraId);
 
-            // Guardar el NUEVO conjunto
+            // Guardar un NUEVO conjunto
             sharedPreferences.edit()
-                    .putStringSet(KEY_FAVORITOS, new HashSet<>(favoritos)) // Siempre nuevo HashSet
+                    .putStringSet(KEY_FAVORITOS, new HashSet<>(actuales)) // Siempre nuevo HashSet
                     .apply();
+            return favorita;
         }
 
         /**
@@ -67,8 +90,9 @@ import java.util.Set;
          * @param gasolineraId el identificador único de la gasolinera
          * @return {@code true} si la gasolinera es favorita, {@code false} en caso contrario
          */
+        @Override
         public boolean esFavorita(String gasolineraId) {
-            return getFavoritos().contains(gasolineraId);
+            return cargarFavoritos().contains(gasolineraId);
         }
 
         /**
@@ -81,8 +105,16 @@ import java.util.Set;
          * @return un conjunto con todos los identificadores de gasolineras favoritas
          */
         public Set<String> getFavoritos() {
-            // Siempre crear un nuevo HashSet a partir del obtenido
-            return new HashSet<>(sharedPreferences.getStringSet(KEY_FAVORITOS, new HashSet<>()));
+            return new HashSet<>(cargarFavoritos());
+        }
+
+        private Set<String> cargarFavoritos() {
+            return FAVORITOS.computeIfAbsent(sharedPreferences, prefs -> {
+                // Siempre crear un nuevo conjunto a partir del obtenido
+                Set<String> leidos = ConcurrentHashMap.newKeySet();
+                leidos.addAll(prefs.getStringSet(KEY_FAVORITOS, new HashSet<>()));
+                return leidos;
+            });
         }
 
         /**
@@ -92,6 +124,7 @@ import java.util.Set;
          * </p>
          */
         public void limpiarFavoritos() {
+            FAVORITOS.put(sharedPreferences, ConcurrentHashMap.newKeySet());
             sharedPreferences.edit()
                     .putStringSet(KEY_FAVORITOS, new HashSet<>())
                     .apply();
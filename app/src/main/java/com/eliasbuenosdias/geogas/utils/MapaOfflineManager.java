@@ -0,0 +1,314 @@
+package com.eliasbuenosdias.geogas.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.eliasbuenosdias.geogas.BuildConfig;
+import com.eliasbuenosdias.geogas.tiles.RegionTeselas;
+
+import org.osmdroid.config.Configuration;
+import org.osmdroid.config.IConfigurationProvider;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.tileprovider.tilesource.OnlineTileSourceBase;
+import org.osmdroid.tileprovider.tilesource.TileSourceFactory;
+import org.osmdroid.tileprovider.tilesource.TileSourcePolicy;
+import org.osmdroid.tileprovider.tilesource.XYTileSource;
+import org.osmdroid.util.BoundingBox;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Gestor de las zonas del mapa descargadas para usarlas sin conexión.
+ * <p>
+ * Guarda en SharedPreferences las regiones pendientes y completas y el tamaño medio de
+ * tesela observado, que sirve para estimar lo que ocupará una descarga. Las teselas
+ * viven en la caché de osmdroid; este gestor se asegura de que su límite de tamaño no
+ * borre las zonas descargadas y dice al mapa cuándo puede prescindir de la red.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class MapaOfflineManager {
+    /**
+     * Nombre del archivo de preferencias compartidas.
+     */
+    private static final String PREFS_NAME = "GeoGasMapaOffline";
+    /**
+     * Clave del conjunto de regiones descargadas por completo.
+     */
+    private static final String KEY_COMPLETAS = "regiones_completas";
+    /**
+     * Clave del conjunto de regiones con descarga pendiente o interrumpida.
+     */
+    private static final String KEY_PENDIENTES = "regiones_pendientes";
+    /**
+     * Clave del tamaño medio de tesela observado.
+     */
+    private static final String KEY_BYTES_TESELA = "bytes_por_tesela";
+    /**
+     * Tamaño medio de una tesela raster de 256 px hasta que se mide uno real.
+     */
+    public static final long BYTES_POR_TESELA_DEFECTO = 15 * 1024;
+    /**
+     * Descargas simultáneas como máximo, aunque la fuente admita más.
+     */
+    public static final int CONCURRENCIA_DESCARGA = 4;
+    /**
+     * Margen sobre el tamaño estimado de las regiones al ajustar la caché.
+     */
+    private static final double MARGEN_CACHE = 1.25;
+    /**
+     * Carpeta, dentro de la de osmdroid, donde se copian los archivos MBTiles o SQLite.
+     * <p>
+     * No es la carpeta base porque osmdroid ya busca archivos allí y los abriría dos veces.
+     * </p>
+     */
+    public static final String CARPETA_ARCHIVOS = "mapas";
+    /**
+     * Extensiones de los archivos de teselas que se usan como fuente del mapa.
+     */
+    private static final String[] EXTENSIONES_ARCHIVO = { ".mbtiles", ".sqlite" };
+    /**
+     * Bytes de una tesela decodificada: 256 x 256 píxeles ARGB.
+     */
+    private static final int BYTES_TESELA_DECODIFICADA = 256 * 256 * 4;
+    /**
+     * Parte de la memoria de la aplicación que pueden ocupar las teselas decodificadas.
+     */
+    private static final int FRACCION_MEMORIA_TESELAS = 8;
+    /**
+     * Teselas decodificadas en memoria como mínimo, aunque el dispositivo tenga poca.
+     */
+    private static final int TESELAS_EN_MEMORIA_MINIMO = 32;
+
+    private final SharedPreferences sharedPreferences;
+    private List<RegionTeselas> completas;
+    // SharedPreferences solo guarda una referencia débil a sus oyentes
+    private final SharedPreferences.OnSharedPreferenceChangeListener oyente = (prefs, clave) -> {
+        // La clave es null cuando se vacían las preferencias
+        if (clave == null || KEY_COMPLETAS.equals(clave))
+            invalidarCompletas();
+    };
+
+    /**
+     * Construye un nuevo MapaOfflineManager.
+     * <p>
+     * La lista de regiones completas se guarda en memoria y se vuelve a leer cuando otro
+     * gestor, como el del trabajo de descarga, marca una región.
+     * </p>
+     *
+     * @param context el contexto de la aplicación para acceder a SharedPreferences
+     */
+    public MapaOfflineManager(Context context) {
+        sharedPreferences = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        sharedPreferences.registerOnSharedPreferenceChangeListener(oyente);
+    }
+
+    /**
+     * Crea la fuente de teselas del mapa. Con {@code BuildConfig.TILE_URL} vacío es MAPNIK.
+     *
+     * @return la fuente que deben usar el mapa y las descargas
+     */
+    public static ITileSource crearFuenteTeselas() {
+        if (BuildConfig.TILE_URL.isEmpty())
+            return TileSourceFactory.MAPNIK;
+        return new XYTileSource("GeoGas", 0, RegionTeselas.ZOOM_MAXIMO, 256, ".png",
+                new String[] { BuildConfig.TILE_URL }, "© OpenStreetMap contributors",
+                new TileSourcePolicy(CONCURRENCIA_DESCARGA, TileSourcePolicy.FLAG_USER_AGENT_MEANINGFUL));
+    }
+
+    /**
+     * Indica si la política de una fuente de teselas permite descargar zonas enteras.
+     *
+     * @param fuente la fuente de teselas
+     * @return {@code true} si admite descarga masiva
+     */
+    public static boolean permiteDescarga(ITileSource fuente) {
+        return fuente instanceof OnlineTileSourceBase
+                && ((OnlineTileSourceBase) fuente).getTileSourcePolicy().acceptsBulkDownload();
+    }
+
+    /**
+     * Obtiene las regiones descargadas por completo.
+     *
+     * @return lista de solo lectura con las regiones
+     */
+    public synchronized List<RegionTeselas> getRegionesCompletas() {
+        if (completas == null)
+            completas = Collections.unmodifiableList(leer(KEY_COMPLETAS));
+        return completas;
+    }
+
+    /**
+     * Obtiene las regiones cuya descarga no ha terminado.
+     *
+     * @return las regiones pendientes
+     */
+    public List<RegionTeselas> getRegionesPendientes() {
+        return leer(KEY_PENDIENTES);
+    }
+
+    /**
+     * Registra una región cuya descarga va a empezar.
+     *
+     * @param region la región
+     */
+    public synchronized void registrarPendiente(RegionTeselas region) {
+        Set<String> pendientes = new HashSet<>(sharedPreferences.getStringSet(KEY_PENDIENTES, new HashSet<>()));
+        pendientes.add(region.codificar());
+        sharedPreferences.edit().putStringSet(KEY_PENDIENTES, pendientes).apply();
+    }
+
+    /**
+     * Marca una región como descargada por completo.
+     *
+     * @param region la región
+     */
+    public synchronized void marcarCompleta(RegionTeselas region) {
+        Set<String> pendientes = new HashSet<>(sharedPreferences.getStringSet(KEY_PENDIENTES, new HashSet<>()));
+        Set<String> completasGuardadas = new HashSet<>(sharedPreferences.getStringSet(KEY_COMPLETAS, new HashSet<>()));
+        pendientes.remove(region.codificar());
+        completasGuardadas.add(region.codificar());
+        sharedPreferences.edit()
+                .putStringSet(KEY_PENDIENTES, pendientes)
+                .putStringSet(KEY_COMPLETAS, completasGuardadas)
+                .apply();
+        completas = null;
+    }
+
+    private synchronized void invalidarCompletas() {
+        completas = null;
+    }
+
+    /**
+     * Indica si alguna región descargada cubre lo que muestra el mapa.
+     *
+     * @param visible el rectángulo visible
+     * @param zoom    el zoom del mapa
+     * @return {@code true} si todas las teselas visibles están descargadas
+     */
+    public boolean cubre(BoundingBox visible, double zoom) {
+        for (RegionTeselas region : getRegionesCompletas()) {
+            if (region.cubre(visible.getLatNorth(), visible.getLatSouth(), visible.getLonEast(),
+                    visible.getLonWest(), zoom))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Obtiene el tamaño medio de tesela para las estimaciones.
+     *
+     * @return los bytes por tesela medidos, o {@link #BYTES_POR_TESELA_DEFECTO}
+     */
+    public long getBytesPorTesela() {
+        return sharedPreferences.getLong(KEY_BYTES_TESELA, BYTES_POR_TESELA_DEFECTO);
+    }
+
+    /**
+     * Guarda el tamaño medio de tesela medido tras una descarga.
+     *
+     * @param bytesPorTesela los bytes por tesela
+     */
+    public void setBytesPorTesela(long bytesPorTesela) {
+        if (bytesPorTesela > 0)
+            sharedPreferences.edit().putLong(KEY_BYTES_TESELA, bytesPorTesela).apply();
+    }
+
+    /**
+     * Obtiene el espacio libre donde osmdroid guarda las teselas.
+     *
+     * @return los bytes disponibles
+     */
+    public static long getEspacioDisponible() {
+        File cache = Configuration.getInstance().getOsmdroidTileCache();
+        return cache.getUsableSpace();
+    }
+
+    /**
+     * Obtiene la carpeta donde se buscan los archivos de teselas.
+     *
+     * @return la carpeta {@link #CARPETA_ARCHIVOS} dentro de la de osmdroid
+     */
+    public static File getCarpetaArchivos() {
+        return new File(Configuration.getInstance().getOsmdroidBasePath(), CARPETA_ARCHIVOS);
+    }
+
+    /**
+     * Busca los archivos MBTiles y SQLite de osmdroid de una carpeta, sin entrar en subcarpetas.
+     *
+     * @param carpeta la carpeta
+     * @return los archivos ordenados por nombre; vacía si la carpeta no existe
+     */
+    public static List<File> buscarArchivosTeselas(File carpeta) {
+        List<File> archivos = new ArrayList<>();
+        File[] contenido = carpeta.listFiles();
+        if (contenido == null)
+            return archivos;
+        Arrays.sort(contenido);
+        for (File archivo : contenido) {
+            String nombre = archivo.getName().toLowerCase(Locale.ROOT);
+            for (String extension : EXTENSIONES_ARCHIVO) {
+                if (archivo.isFile() && nombre.endsWith(extension)) {
+                    archivos.add(archivo);
+                    break;
+                }
+            }
+        }
+        return archivos;
+    }
+
+    /**
+     * Calcula cuántas teselas decodificadas caben en la caché de memoria del mapa.
+     *
+     * @param memoriaMb la memoria de la aplicación en MB, según {@code ActivityManager.getMemoryClass()}
+     * @return el número de teselas, nunca menor que {@link #TESELAS_EN_MEMORIA_MINIMO}
+     */
+    public static int calcularTeselasEnMemoria(int memoriaMb) {
+        long bytes = (long) memoriaMb * 1024 * 1024 / FRACCION_MEMORIA_TESELAS;
+        return (int) Math.max(TESELAS_EN_MEMORIA_MINIMO, Math.min(Short.MAX_VALUE, bytes / BYTES_TESELA_DECODIFICADA));
+    }
+
+    /**
+     * Amplía el límite de la caché de osmdroid para que quepan todas las regiones.
+     * <p>
+     * osmdroid recorta la caché al superar ese límite sin distinguir las teselas
+     * descargadas a propósito; como la configuración no se guarda, se ajusta al arrancar
+     * la aplicación y antes de cada descarga.
+     * </p>
+     */
+    public void ajustarCapacidadCache() {
+        long necesarios = 0;
+        for (RegionTeselas region : getRegionesCompletas())
+            necesarios += region.estimarBytes(getBytesPorTesela());
+        for (RegionTeselas region : getRegionesPendientes())
+            necesarios += region.estimarBytes(getBytesPorTesela());
+        necesarios = (long) (necesarios * MARGEN_CACHE);
+
+        IConfigurationProvider configuracion = Configuration.getInstance();
+        long maximo = configuracion.getTileFileSystemCacheMaxBytes();
+        if (necesarios > maximo) {
+            long recorte = configuracion.getTileFileSystemCacheTrimBytes();
+            configuracion.setTileFileSystemCacheMaxBytes(necesarios);
+            configuracion.setTileFileSystemCacheTrimBytes(necesarios - (maximo - recorte));
+        }
+    }
+
+    private List<RegionTeselas> leer(String clave) {
+        List<RegionTeselas> regiones = new ArrayList<>();
+        for (String texto : sharedPreferences.getStringSet(clave, new HashSet<>())) {
+            RegionTeselas region = RegionTeselas.decodificar(texto);
+            if (region != null)
+                regiones.add(region);
+        }
+        return regiones;
+    }
+}
@@ -1,15 +1,46 @@
 package com.eliasbuenosdias.geogas.viewmodels;
 
+import android.os.Looper;
+import android.os.MessageQueue;
+
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
 import androidx.lifecycle.ViewModel;
 
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.data.CacheViewport;
+import com.eliasbuenosdias.geogas.data.CambiosSincronizacion;
+import com.eliasbuenosdias.geogas.data.CambiosVisibles;
+import com.eliasbuenosdias.geogas.data.ConsultaViewport;
+import com.eliasbuenosdias.geogas.data.EtapaIndexado;
+import com.eliasbuenosdias.geogas.data.IndiceAutocompletado;
+import com.eliasbuenosdias.geogas.data.IndiceBusqueda;
+import com.eliasbuenosdias.geogas.data.IndicesPrecios;
+import com.eliasbuenosdias.geogas.data.PiramideRepresentantes;
+import com.eliasbuenosdias.geogas.data.SincronizadorGasolineras;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.DiccionarioCadenas;
 import com.eliasbuenosdias.geogas.models.GasolineraAPI;
-import com.eliasbuenosdias.geogas.utils.FavoritosManager;
+import com.eliasbuenosdias.geogas.models.HorarioSemanal;
+import com.eliasbuenosdias.geogas.models.NormalizadorTexto;
+import com.eliasbuenosdias.geogas.tiles.MapaCalorPrecios;
+import com.eliasbuenosdias.geogas.tiles.RegionTeselas;
 import com.eliasbuenosdias.geogas.utils.FiltrosManager;
+import com.eliasbuenosdias.geogas.utils.ProveedorFavoritos;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * ViewModel que gestiona el estado de las gasolineras y filtros.
@@ -18,21 +49,106 @@ import java.util.List;
 public class GasStationViewModel extends ViewModel {
 
     private final MutableLiveData<List<GasolineraAPI>> todasLasGasolineras = new MutableLiveData<>(new ArrayList<>());
-    private final MutableLiveData<List<GasolineraAPI>> gasolinerasVisibles = new MutableLiveData<>(new ArrayList<>());
+    private final MutableLiveData<CambiosVisibles> cambiosVisibles = new MutableLiveData<>();
     private final MutableLiveData<Boolean> isLoading = new MutableLiveData<>(false);
     private final MutableLiveData<Integer> progress = new MutableLiveData<>(0);
 
-    private List<GasolineraAPI> masterList = new ArrayList<>();
-    private List<GasolineraAPI> filteredList = new ArrayList<>();
-    private final MutableLiveData<List<String>> provincias = new MutableLiveData<>(new ArrayList<>());
-    private final MutableLiveData<List<String>> municipios = new MutableLiveData<>(new ArrayList<>());
-    private final MutableLiveData<List<String>> marcas = new MutableLiveData<>(new ArrayList<>());
+    private final SincronizadorGasolineras sincronizador = new SincronizadorGasolineras();
+    private final AlmacenGasolineras almacen = new AlmacenGasolineras();
+    private BitSet filasFiltradas = new BitSet();
+    private IndicesPrecios indicesPrecios = IndicesPrecios.construir(almacen);
+    private final MutableLiveData<IndicesPrecios> indicesPreciosLiveData = new MutableLiveData<>(indicesPrecios);
+    private final IndiceBusqueda indiceBusqueda = new IndiceBusqueda();
+    private final Map<String, Integer> conteoProvincias = new HashMap<>();
+    private final Map<String, Integer> conteoMunicipios = new HashMap<>();
+    private final Map<String, Map<String, Integer>> conteoMunicipiosPorProvincia = new HashMap<>();
+    private final Map<String, Integer> conteoMarcas = new HashMap<>();
+    private BitSet filasVisibles = new BitSet();
+    // Lo que ha pasado desde la última publicación del conjunto visible
+    private BitSet filasModificadas = new BitSet();
+    private final List<String> visiblesEliminadas = new ArrayList<>();
+    private long versionVisibles;
+    private FiltrosManager filtrosManager;
+    // Ninguna hasta que la actividad da las suyas con setFavoritos, nunca null
+    private ProveedorFavoritos favoritos = id -> false;
+    private IndiceAutocompletado indiceProvincias = IndiceAutocompletado.VACIO;
+    private IndiceAutocompletado indiceMunicipios = IndiceAutocompletado.VACIO;
+    // Municipios de cada provincia, construidos la primera vez que se eligen
+    private final Map<String, IndiceAutocompletado> municipiosPorProvincia = new HashMap<>();
+    private final MutableLiveData<IndiceAutocompletado> provincias = new MutableLiveData<>(indiceProvincias);
+    private final MutableLiveData<IndiceAutocompletado> municipios = new MutableLiveData<>(indiceMunicipios);
+    private final MutableLiveData<IndiceAutocompletado> marcas = new MutableLiveData<>(IndiceAutocompletado.VACIO);
     private final MutableLiveData<String> statusMessage = new MutableLiveData<>("");
     private final MutableLiveData<org.osmdroid.util.BoundingBox> currentViewport = new MutableLiveData<>();
     private com.eliasbuenosdias.geogas.utils.PuntuadorGasolineras puntuador;
+    private final CacheViewport cacheViewport = new CacheViewport(almacen);
+    private PiramideRepresentantes piramide = PiramideRepresentantes.construir(almacen, filasFiltradas,
+            Combustible.GASOLINA_95, favoritos);
+    private MessageQueue.IdleHandler precalculo;
+    private org.osmdroid.util.BoundingBox viewportPrecalculo;
+    private MapaCalorPrecios.Modo modoMapaCalor;
+    private final MutableLiveData<MapaCalorPrecios> mapaCalor = new MutableLiveData<>();
+    // Un hilo por núcleo para construir a la vez lo que se deriva del almacén
+    private final ForkJoinPool poolIndexado = EtapaIndexado.crearPool();
+    // Espera a la barrera de la etapa de cada sincronización fuera del hilo principal
+    private final ExecutorService ejecutorEtapas;
+    // Donde se publica lo que ha construido la etapa
+    private final Executor hiloPrincipal;
+    // Recibe el precálculo del viewport para ejecutarlo cuando el hilo principal está ocioso
+    private final Consumer<MessageQueue.IdleHandler> colaOciosa;
+    // Mientras se indexa una sincronización, lo que rehace las vistas se deja para después
+    private boolean sincronizando;
+    private final Queue<Runnable> sincronizacionesPendientes = new ArrayDeque<>();
+    private boolean visiblesPendientes;
+    private boolean filtrosPendientes;
+    private final List<String> favoritasPendientes = new ArrayList<>();
+    // Los horarios del diccionario anteriores a este identificador ya están interpretados
+    private int horariosCompilados;
+    private boolean cerrado;
+
+    /**
+     * Tiempo máximo de precálculo del viewport cada vez que el hilo principal queda ocioso.
+     */
+    private static final long PRESUPUESTO_PRECALCULO_NS = 4_000_000L;
+    /**
+     * Resultados que se muestran de cada búsqueda de texto.
+     */
+    private static final int RESULTADOS_BUSQUEDA = 20;
+
+    public GasStationViewModel() {
+        this(Executors.newSingleThreadExecutor(), new android.os.Handler(Looper.getMainLooper())::post,
+                tarea -> Looper.myQueue().addIdleHandler(tarea));
+    }
+
+    /**
+     * Construye el ViewModel con los hilos donde se espera a cada etapa de indexado y
+     * donde se publica su resultado, y la cola del hilo principal que avisa al quedar
+     * ocioso; las pruebas dan los suyos sin tocar Handler ni Looper.
+     */
+    GasStationViewModel(ExecutorService ejecutorEtapas, Executor hiloPrincipal,
+            Consumer<MessageQueue.IdleHandler> colaOciosa) {
+        this.ejecutorEtapas = ejecutorEtapas;
+        this.hiloPrincipal = hiloPrincipal;
+        this.colaOciosa = colaOciosa;
+    }
 
-    public LiveData<List<GasolineraAPI>> getGasolinerasVisibles() {
-        return gasolinerasVisibles;
+    /**
+     * Cambios del conjunto de gasolineras visibles: cada publicación trae las que entran,
+     * salen o han cambiado respecto a la anterior y su número de versión.
+     */
+    public LiveData<CambiosVisibles> getCambiosVisibles() {
+        return cambiosVisibles;
+    }
+
+    /**
+     * Conjunto visible completo de la última publicación, para el consumidor que se ha
+     * perdido alguna.
+     */
+    public List<GasolineraAPI> getGasolinerasVisibles() {
+        List<GasolineraAPI> visibles = new ArrayList<>(filasVisibles.cardinality());
+        for (int fila = filasVisibles.nextSetBit(0); fila >= 0; fila = filasVisibles.nextSetBit(fila + 1))
+            visibles.add(sincronizador.obtener(almacen.id(fila)));
+        return visibles;
     }
 
     public LiveData<Boolean> getIsLoading() {
@@ -47,20 +163,109 @@ public class GasStationViewModel extends ViewModel {
         return statusMessage;
     }
 
-    public LiveData<List<String>> getProvincias() {
+    public LiveData<IndiceAutocompletado> getProvincias() {
         return provincias;
     }
 
-    public LiveData<List<String>> getMunicipios() {
+    /**
+     * Todos los municipios. Se publica también cuando solo cambian los de alguna
+     * provincia, para que se vuelva a pedir {@link #municipiosDe(String)}.
+     */
+    public LiveData<IndiceAutocompletado> getMunicipios() {
         return municipios;
     }
 
-    public LiveData<List<String>> getMarcas() {
+    public LiveData<IndiceAutocompletado> getMarcas() {
         return marcas;
     }
 
+    /**
+     * Municipios de una provincia para el autocompletado.
+     *
+     * @param provincia el texto escrito como provincia, sin importar tildes ni mayúsculas
+     * @return los municipios de la provincia, o todos si no es ninguna provincia conocida
+     */
+    public IndiceAutocompletado municipiosDe(String provincia) {
+        String nombre = indiceProvincias.buscarExacto(provincia);
+        if (nombre == null)
+            return indiceMunicipios;
+        IndiceAutocompletado indice = municipiosPorProvincia.get(nombre);
+        if (indice == null) {
+            Map<String, Integer> conteo = conteoMunicipiosPorProvincia.get(nombre);
+            indice = conteo != null ? IndiceAutocompletado.construir(conteo.keySet()) : IndiceAutocompletado.VACIO;
+            municipiosPorProvincia.put(nombre, indice);
+        }
+        return indice;
+    }
+
+    /**
+     * Índices de precios por combustible del volcado actual, para los histogramas del
+     * panel de filtros.
+     */
+    public LiveData<IndicesPrecios> getIndicesPrecios() {
+        return indicesPreciosLiveData;
+    }
+
+    /**
+     * Mapa de calor de precios de las gasolineras filtradas, o null si está desactivado.
+     * Solo se publica uno nuevo cuando cambia su versión.
+     */
+    public LiveData<MapaCalorPrecios> getMapaCalor() {
+        return mapaCalor;
+    }
+
+    /**
+     * Activa el mapa de calor con el modo indicado, o lo desactiva con null.
+     */
+    public void setModoMapaCalor(MapaCalorPrecios.Modo modo) {
+        modoMapaCalor = modo;
+        actualizarMapaCalor();
+    }
+
+    /**
+     * Región del mapa sin conexión que cubre las gasolineras de una provincia.
+     *
+     * @return la región, o null si la provincia no existe en el volcado actual
+     */
+    public RegionTeselas regionProvincia(String provincia, int zoomMin, int zoomMax) {
+        int idProvincia = DiccionarioCadenas.PROVINCIAS.buscarClave(NormalizadorTexto.plegar(provincia));
+        if (idProvincia == DiccionarioCadenas.SIN_VALOR)
+            return null;
+        return RegionTeselas.deProvincia(almacen, idProvincia, zoomMin, zoomMax);
+    }
+
+    /**
+     * Región del mapa sin conexión con la zona visible del mapa.
+     *
+     * @return la región, o null si el mapa aún no ha informado de su zona visible
+     */
+    public RegionTeselas regionVisible(int zoomMin, int zoomMax) {
+        org.osmdroid.util.BoundingBox viewport = currentViewport.getValue();
+        if (viewport == null)
+            return null;
+        return new RegionTeselas(viewport.getLatNorth(), viewport.getLatSouth(), viewport.getLonEast(),
+                viewport.getLonWest(), zoomMin, zoomMax);
+    }
+
     public void setPuntuador(com.eliasbuenosdias.geogas.utils.PuntuadorGasolineras puntuador) {
         this.puntuador = puntuador;
+        cacheViewport.invalidar(filasFiltradas, puntuador);
+    }
+
+    /**
+     * Fuente de las favoritas para el filtro, la pirámide y {@link #actualizarFavorita(String)}.
+     * Se da al crear la actividad, antes de cargar datos o tocar los filtros, y se sustituye
+     * en cada recreación para no quedarse con la de una actividad ya destruida. Si ya hay
+     * datos, la pirámide se rehace con ella para que sus favoritas se vean desde el principio.
+     */
+    public void setFavoritos(ProveedorFavoritos favoritos) {
+        this.favoritos = favoritos;
+        if (sincronizando) {
+            filtrosPendientes = true;
+        } else if (almacen.tamano() > 0) {
+            reconstruirVistas();
+            updateVisibleGasStations();
+        }
     }
 
     public void setViewport(org.osmdroid.util.BoundingBox viewport) {
@@ -73,16 +278,18 @@ public class GasStationViewModel extends ViewModel {
         progress.setValue(10);
         statusMessage.setValue("status_loading");
 
-        apiService.obtenerGasolineras().enqueue(new retrofit2.Callback<com.google.gson.JsonElement>() {
+        apiService.obtenerGasolineras().enqueue(new retrofit2.Callback<List<GasolineraAPI>>() {
             @Override
-            public void onResponse(retrofit2.Call<com.google.gson.JsonElement> call,
-                    retrofit2.Response<com.google.gson.JsonElement> response) {
+            public void onResponse(retrofit2.Call<List<GasolineraAPI>> call,
+                    retrofit2.Response<List<GasolineraAPI>> response) {
                 if (response.isSuccessful() && response.body() != null) {
                     progress.setValue(50);
                     statusMessage.setValue("status_processing");
-                    parseJson(response.body());
-                    progress.setValue(100);
-                    isLoading.setValue(false);
+                    sincronizar(response.body(), () -> {
+                        progress.setValue(100);
+                        // Sigue cargando si tras este volcado se indexa otro
+                        isLoading.setValue(sincronizando);
+                    });
                 } else {
                     statusMessage.setValue("status_error_server");
                     isLoading.setValue(false);
@@ -90,114 +297,499 @@ public class GasStationViewModel extends ViewModel {
             }
 
             @Override
-            public void onFailure(retrofit2.Call<com.google.gson.JsonElement> call, Throwable t) {
-                statusMessage.setValue("status_error_connection");
+            public void onFailure(retrofit2.Call<List<GasolineraAPI>> call, Throwable t) {
+                // El parseo ocurre en el convertidor, así que sus errores también llegan aquí
+                boolean errorDeParseo = t instanceof com.google.gson.JsonParseException
+                        || t instanceof com.google.gson.stream.MalformedJsonException
+                        || t instanceof IllegalStateException;
+                statusMessage.setValue(errorDeParseo ? "status_error_parsing" : "status_error_connection");
                 isLoading.setValue(false);
             }
         });
     }
 
-    private void parseJson(com.google.gson.JsonElement json) {
-        try {
-            com.google.gson.Gson gson = new com.google.gson.Gson();
-            List<GasolineraAPI> lista = new ArrayList<>();
-
-            if (json.isJsonArray()) {
-                java.lang.reflect.Type listType = new com.google.gson.reflect.TypeToken<List<GasolineraAPI>>() {
-                }.getType();
-                lista = gson.fromJson(json, listType);
-            } else if (json.isJsonObject()) {
-                com.google.gson.JsonObject obj = json.getAsJsonObject();
-                String[] fields = { "ListaEESSPrecio", "listaEESSPrecio", "data" };
-                for (String field : fields) {
-                    if (obj.has(field) && obj.get(field).isJsonArray()) {
-                        java.lang.reflect.Type listType = new com.google.gson.reflect.TypeToken<List<GasolineraAPI>>() {
-                        }.getType();
-                        lista = gson.fromJson(obj.get(field), listType);
-                        break;
-                    }
+    /**
+     * Sincroniza un volcado de la API. Si se está indexando la sincronización anterior, el
+     * volcado espera su turno sin tocar el sincronizador, que así nunca va por delante del
+     * almacén del que se leen las filas.
+     *
+     * @param alPublicar lo que se ejecuta en el hilo principal cuando se ha publicado
+     */
+    private void sincronizar(List<GasolineraAPI> volcado, Runnable alPublicar) {
+        if (sincronizando) {
+            sincronizacionesPendientes.add(() -> sincronizar(volcado, alPublicar));
+            return;
+        }
+        aplicarSincronizacion(sincronizador.sincronizar(volcado), alPublicar);
+    }
+
+    /**
+     * Aplica los cambios de una sincronización tocando solo las gasolineras afectadas:
+     * filas del almacén columnar, pertenencia al filtro, índices de autocompletado y, si
+     * el cambio cae dentro del viewport, el conjunto visible.
+     * <p>
+     * Con el almacén y el filtro al día, los índices que se derivan de ellos se lanzan a la
+     * vez en una {@link EtapaIndexado}. A su barrera se espera en {@link #ejecutorEtapas} y
+     * lo construido se publica junto en el hilo principal, que mientras tanto sigue
+     * atendiendo a la interfaz. Hasta entonces los cambios de viewport, filtros y favoritas
+     * se guardan y se aplican tras publicar, y otra sincronización espera su turno.
+     * </p>
+     * <p>
+     * Solo se rehace lo que los cambios pueden alterar: los índices de precios de los
+     * combustibles con algún precio distinto, o todos si hay altas o bajas; el mapa de calor
+     * si cambian precios del combustible de referencia, ubicaciones o filas filtradas; y la
+     * pirámide además con cualquier cambio de metadatos. Lo que se rehace es una pasada
+     * completa sobre las filas filtradas: la pirámide y el mapa de calor no se actualizan
+     * por gasolinera, y la caché del viewport se vacía en cada sincronización.
+     * </p>
+     *
+     * @param alPublicar lo que se ejecuta en el hilo principal cuando se ha publicado
+     */
+    private void aplicarSincronizacion(CambiosSincronizacion cambios, Runnable alPublicar) {
+        if (cambios.estaVacio()) {
+            alPublicar.run();
+            return;
+        }
+
+        // Se evalúa antes de tocar el almacén, que reutiliza las filas de las eliminadas
+        boolean afectaAlViewport = afectaAlViewport(cambios);
+        boolean filtroCambiado = false;
+
+        for (GasolineraAPI g : cambios.getEliminadas()) {
+            int fila = almacen.fila(g.getId());
+            if (fila >= 0) {
+                filtroCambiado |= filasFiltradas.get(fila);
+                filasFiltradas.clear(fila);
+                indiceBusqueda.eliminar(fila);
+                // Su fila puede ocuparla otra gasolinera: la salida se anota por IDEESS
+                if (filasVisibles.get(fila)) {
+                    filasVisibles.clear(fila);
+                    visiblesEliminadas.add(g.getId());
                 }
             }
+        }
+        almacen.aplicar(cambios);
+        for (GasolineraAPI g : cambios.getActualizadas()) {
+            int fila = almacen.fila(g.getId());
+            boolean filtrada = cumpleFiltrosActivos(fila);
+            filtroCambiado |= filtrada != filasFiltradas.get(fila);
+            filasFiltradas.set(fila, filtrada);
+            filasModificadas.set(fila);
+        }
+        boolean mapaAfectado = filtroCambiado || cambios.afectaAPrecios(combustibleReferencia())
+                || cambios.afectaAUbicaciones();
+        boolean piramideAfectada = mapaAfectado || cambios.afectaAMetadatos();
+
+        sincronizando = true;
+        EtapaIndexado etapa = new EtapaIndexado(poolIndexado);
+        etapa.ejecutar(() -> indiceBusqueda.aplicar(cambios, almacen));
+        Supplier<IndicesPrecios> nuevosIndicesPrecios =
+                IndicesPrecios.actualizar(indicesPrecios, almacen, cambios, etapa);
+        Runnable publicarVistas = reconstruirVistas(etapa, piramideAfectada, mapaAfectado);
+        Runnable publicarListas = null;
+        if (cambios.afectaAMetadatos()) {
+            // Los horarios nuevos se interpretan ya, no en el primer filtro de abiertas
+            int desde = horariosCompilados;
+            int hasta = DiccionarioCadenas.HORARIOS.tamano();
+            horariosCompilados = hasta;
+            if (desde < hasta) {
+                etapa.ejecutar(() -> {
+                    for (int id = desde; id < hasta; id++)
+                        HorarioSemanal.compilado(id);
+                });
+            }
+            publicarListas = actualizarListasAutocompletado(cambios, etapa);
+        }
 
-            if (lista != null) {
-                masterList = new ArrayList<>(lista);
-                filteredList = new ArrayList<>(lista);
-                updateVisibleGasStations();
-                actualizarListasAutocompletado(lista);
+        Runnable listas = publicarListas;
+        Runnable publicar = () -> {
+            if (cerrado)
+                return;
+            IndicesPrecios nuevos = nuevosIndicesPrecios.get();
+            if (nuevos != indicesPrecios) {
+                indicesPrecios = nuevos;
+                indicesPreciosLiveData.postValue(indicesPrecios);
+            }
+            publicarVistas.run();
+            if (listas != null)
+                listas.run();
+            reanudarTrasSincronizacion(afectaAlViewport);
+            alPublicar.run();
+        };
+        ejecutorEtapas.execute(() -> {
+            try {
+                etapa.completar();
+            } catch (RuntimeException e) {
+                // Como cuando se completaba en el hilo principal, el error llega a él
+                hiloPrincipal.execute(() -> {
+                    sincronizando = false;
+                    throw e;
+                });
+                return;
             }
-        } catch (Exception e) {
-            statusMessage.postValue("status_error_parsing");
+            hiloPrincipal.execute(publicar);
+        });
+    }
+
+    /**
+     * Aplica lo que ha llegado mientras se indexaba una sincronización: los filtros y
+     * favoritas, el viewport y la siguiente sincronización.
+     */
+    private void reanudarTrasSincronizacion(boolean afectaAlViewport) {
+        sincronizando = false;
+        if (filtrosPendientes) {
+            filtrosPendientes = false;
+            visiblesPendientes = false;
+            applyFilters(filtrosManager);
+        } else if (afectaAlViewport || visiblesPendientes) {
+            visiblesPendientes = false;
+            updateVisibleGasStations();
         }
+        List<String> favoritas = new ArrayList<>(favoritasPendientes);
+        favoritasPendientes.clear();
+        for (String id : favoritas)
+            actualizarFavorita(id);
+
+        // Una sincronización sin cambios se publica al momento y deja pasar a la siguiente
+        Runnable siguiente;
+        while (!sincronizando && (siguiente = sincronizacionesPendientes.poll()) != null)
+            siguiente.run();
     }
 
-    private void updateVisibleGasStations() {
-        List<GasolineraAPI> dataToFilter = filteredList;
-        org.osmdroid.util.BoundingBox viewport = currentViewport.getValue();
+    /**
+     * Busca gasolineras por rótulo, dirección, localidad, municipio o código postal, sin
+     * tener en cuenta los filtros activos.
+     *
+     * @param texto el texto escrito
+     * @return las gasolineras encontradas, la más relevante primero
+     */
+    public List<GasolineraAPI> buscarGasolineras(String texto) {
+        int[] filas = indiceBusqueda.buscar(texto, RESULTADOS_BUSQUEDA);
+        List<GasolineraAPI> encontradas = new ArrayList<>(filas.length);
+        for (int fila : filas)
+            encontradas.add(sincronizador.obtener(almacen.id(fila)));
+        return encontradas;
+    }
 
-        if (dataToFilter == null)
+    /**
+     * Refleja que una gasolinera se ha marcado o desmarcado como favorita tocando solo esa
+     * gasolinera: su pertenencia al filtro, su puesto en la pirámide y en la caché del
+     * viewport y su marcador. El conjunto visible solo se vuelve a seleccionar si la
+     * gasolinera puede cruzar el límite de las mejor puntuadas.
+     */
+    public void actualizarFavorita(String id) {
+        if (sincronizando) {
+            favoritasPendientes.add(id);
             return;
-        if (viewport == null) {
-            gasolinerasVisibles.postValue(dataToFilter);
+        }
+        int fila = almacen.fila(id);
+        if (fila < 0)
+            return;
+        filasModificadas.set(fila);
+
+        boolean filtrada = cumpleFiltrosActivos(fila);
+        if (filtrada != filasFiltradas.get(fila)) {
+            // Con el filtro de favoritas cambian las candidatas: se rehace lo que depende de ellas
+            filasFiltradas.set(fila, filtrada);
+            reconstruirVistas();
+            updateVisibleGasStations();
             return;
         }
+        boolean favorita = favoritos.esFavorita(id);
+        piramide.marcarFavorita(fila, filtrada && favorita);
+        cacheViewport.recolocar(fila);
 
-        List<GasolineraAPI> resultList = new ArrayList<>();
-        for (GasolineraAPI g : dataToFilter) {
-            try {
-                double lat = Double.parseDouble(g.getLatitud().replace(",", "."));
-                double lon = Double.parseDouble(g.getLongitud().replace(",", "."));
-                if (viewport.contains(lat, lon))
-                    resultList.add(g);
-            } catch (Exception ignored) {
-            }
+        // Al marcarla sube y al desmarcarla baja: si ya estaba dentro (o fuera) sigue igual
+        boolean visible = filasVisibles.get(fila);
+        org.osmdroid.util.BoundingBox viewport = currentViewport.getValue();
+        boolean enViewport = viewport == null || ConsultaViewport.contiene(almacen, fila,
+                viewport.getLatNorth(), viewport.getLatSouth(), viewport.getLonEast(), viewport.getLonWest());
+        if (!filtrada || favorita == visible || !enViewport)
+            publicarVisibles((BitSet) filasVisibles.clone());
+        else
+            updateVisibleGasStations();
+    }
+
+    private boolean cumpleFiltrosActivos(int fila) {
+        return filtrosManager == null || !filtrosManager.tieneFiltrosActivos()
+                || filtrosManager.cumpleFiltros(almacen, fila, favoritos);
+    }
+
+    private boolean afectaAlViewport(CambiosSincronizacion cambios) {
+        org.osmdroid.util.BoundingBox viewport = currentViewport.getValue();
+        if (viewport == null)
+            return true;
+        for (GasolineraAPI g : cambios.getEliminadas()) {
+            if (esVisible(g))
+                return true;
+        }
+        for (GasolineraAPI g : cambios.getActualizadas()) {
+            if (esVisible(g) || estaEnViewport(g, viewport))
+                return true;
         }
+        return false;
+    }
+
+    private boolean esVisible(GasolineraAPI g) {
+        int fila = almacen.fila(g.getId());
+        return fila >= 0 && filasVisibles.get(fila);
+    }
 
-        if (puntuador != null) {
-            List<com.eliasbuenosdias.geogas.utils.PuntuadorGasolineras.GasolineraPuntuada> puntuadas = puntuador
-                    .ordenarPorPuntuacion(resultList);
-            List<GasolineraAPI> result = new ArrayList<>();
-            int limit = Math.min(200, puntuadas.size());
-            for (int i = 0; i < limit; i++)
-                result.add(puntuadas.get(i).gasolinera);
-            gasolinerasVisibles.postValue(result);
+    private static boolean estaEnViewport(GasolineraAPI g, org.osmdroid.util.BoundingBox viewport) {
+        return ConsultaViewport.contiene(g, viewport.getLatNorth(), viewport.getLatSouth(),
+                viewport.getLonEast(), viewport.getLonWest());
+    }
+
+    private void updateVisibleGasStations() {
+        if (sincronizando) {
+            visiblesPendientes = true;
+            return;
+        }
+        org.osmdroid.util.BoundingBox viewport = currentViewport.getValue();
+
+        int[] filas;
+        if (viewport == null) {
+            filas = filasFiltradas.stream().toArray();
         } else {
-            gasolinerasVisibles.postValue(resultList);
+            // De lejos, una gasolinera por zona; de cerca, las mejor puntuadas
+            filas = piramide.seleccionar(viewport.getLatNorth(), viewport.getLatSouth(),
+                    viewport.getLonEast(), viewport.getLonWest());
+            if (filas == null) {
+                // Un desplazamiento corto suele estar ya precalculado
+                filas = cacheViewport.seleccionar(viewport.getLatNorth(), viewport.getLatSouth(),
+                        viewport.getLonEast(), viewport.getLonWest(), ConsultaViewport.LIMITE_VISIBLES);
+                if (filas == null) {
+                    filas = ConsultaViewport.seleccionar(almacen, filasFiltradas, viewport.getLatNorth(),
+                            viewport.getLatSouth(), viewport.getLonEast(), viewport.getLonWest(), puntuador,
+                            ConsultaViewport.LIMITE_VISIBLES);
+                }
+                programarPrecalculo(viewport);
+            }
+        }
+
+        BitSet visibles = new BitSet(almacen.tamano());
+        for (int fila : filas)
+            visibles.set(fila);
+        publicarVisibles(visibles);
+    }
+
+    /**
+     * Publica la diferencia entre el conjunto visible anterior y el nuevo, si la hay. Las
+     * instancias las conserva el sincronizador; aquí no se crea ninguna.
+     */
+    private void publicarVisibles(BitSet visibles) {
+        CambiosVisibles cambios = CambiosVisibles.calcular(versionVisibles + 1, filasVisibles, visibles,
+                filasModificadas, visiblesEliminadas, almacen, fila -> sincronizador.obtener(almacen.id(fila)));
+        filasVisibles = visibles;
+        filasModificadas = new BitSet();
+        visiblesEliminadas.clear();
+        if (cambios.estaVacio())
+            return;
+        versionVisibles = cambios.getVersion();
+        // setValue y no postValue: dos publicaciones seguidas no deben fundirse en una
+        cambiosVisibles.setValue(cambios);
+    }
+
+    /**
+     * Rehace lo que depende de las filas filtradas: la pirámide de representantes, con la
+     * más barata del combustible del filtro, la caché del viewport y el mapa de calor.
+     */
+    private void reconstruirVistas() {
+        EtapaIndexado etapa = new EtapaIndexado(poolIndexado);
+        Runnable publicar = reconstruirVistas(etapa, true, true);
+        etapa.completar();
+        publicar.run();
+    }
+
+    /**
+     * Lanza en una etapa la pirámide de representantes y el mapa de calor de las filas
+     * filtradas actuales, o solo los que se indiquen.
+     *
+     * @return lo que los publica, para ejecutarlo después de completar la etapa
+     */
+    private Runnable reconstruirVistas(EtapaIndexado etapa, boolean conPiramide, boolean conMapaCalor) {
+        BitSet filas = filasFiltradas;
+        Combustible combustible = combustibleReferencia();
+        ProveedorFavoritos favoritas = favoritos;
+        MapaCalorPrecios.Modo modo = modoMapaCalor;
+        Supplier<PiramideRepresentantes> nuevaPiramide = conPiramide
+                ? etapa.anadir(() -> PiramideRepresentantes.construir(almacen, filas, combustible, favoritas))
+                : null;
+        Supplier<MapaCalorPrecios> nuevoMapaCalor = conMapaCalor && modo != null
+                ? etapa.anadir(() -> MapaCalorPrecios.construir(almacen, filas, combustible, modo))
+                : null;
+        return () -> {
+            if (nuevaPiramide != null)
+                piramide = nuevaPiramide.get();
+            cacheViewport.invalidar(filas, puntuador);
+            // El modo puede haber cambiado mientras se construía
+            if (modo != modoMapaCalor)
+                actualizarMapaCalor();
+            else if (conMapaCalor)
+                publicarMapaCalor(nuevoMapaCalor != null ? nuevoMapaCalor.get() : null);
+        };
+    }
+
+    private Combustible combustibleReferencia() {
+        return filtrosManager != null ? filtrosManager.getCombustibleReferencia() : Combustible.GASOLINA_95;
+    }
+
+    /**
+     * Copia los precios para el mapa de calor. Las teselas se pintan después en otros hilos
+     * a partir de esta copia; si sale la misma versión que la publicada, por ejemplo al marcar
+     * una favorita, no se publica y las teselas pintadas siguen valiendo.
+     */
+    private void actualizarMapaCalor() {
+        publicarMapaCalor(modoMapaCalor != null
+                ? MapaCalorPrecios.construir(almacen, filasFiltradas, combustibleReferencia(), modoMapaCalor)
+                : null);
+    }
+
+    private void publicarMapaCalor(MapaCalorPrecios nuevo) {
+        MapaCalorPrecios actual = mapaCalor.getValue();
+        if (nuevo == null) {
+            if (actual != null)
+                mapaCalor.setValue(null);
+        } else if (actual == null || actual.getVersion() != nuevo.getVersion()) {
+            mapaCalor.setValue(nuevo);
         }
     }
 
-    private void actualizarListasAutocompletado(List<GasolineraAPI> lista) {
-        java.util.Set<String> setProvincias = new java.util.HashSet<>();
-        java.util.Set<String> setMunicipios = new java.util.HashSet<>();
-        java.util.Set<String> setMarcas = new java.util.HashSet<>();
+    /**
+     * Calcula las celdas de alrededor del viewport, y las del zoom siguiente y el anterior,
+     * mientras el hilo principal está ocioso. Cada pasada se limita a
+     * {@link #PRESUPUESTO_PRECALCULO_NS} para no retrasar ningún fotograma.
+     */
+    private void programarPrecalculo(org.osmdroid.util.BoundingBox viewport) {
+        viewportPrecalculo = viewport;
+        if (precalculo != null)
+            return;
+        precalculo = () -> {
+            if (cerrado) {
+                precalculo = null;
+                return false;
+            }
+            org.osmdroid.util.BoundingBox v = viewportPrecalculo;
+            long limite = System.nanoTime() + PRESUPUESTO_PRECALCULO_NS;
+            boolean quedan;
+            do {
+                quedan = cacheViewport.precalcularSiguiente(v.getLatNorth(), v.getLatSouth(),
+                        v.getLonEast(), v.getLonWest());
+            } while (quedan && System.nanoTime() < limite);
+            if (!quedan) {
+                precalculo = null;
+                return false;
+            }
+            // La cola solo avisa al quedar ociosa de nuevo; un mensaje vacío fuerza el siguiente aviso
+            hiloPrincipal.execute(() -> { });
+            return true;
+        };
+        colaOciosa.accept(precalculo);
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        // El precálculo pendiente se quita de la cola en su siguiente aviso
+        cerrado = true;
+        ejecutorEtapas.shutdown();
+        poolIndexado.shutdown();
+    }
 
-        for (GasolineraAPI g : lista) {
-            if (g.getProvincia() != null && !g.getProvincia().isEmpty())
-                setProvincias.add(g.getProvincia());
-            if (g.getMunicipio() != null && !g.getMunicipio().isEmpty())
-                setMunicipios.add(g.getMunicipio());
-            if (g.getRotulo() != null && !g.getRotulo().isEmpty())
-                setMarcas.add(g.getRotulo());
+    /**
+     * Mantiene un recuento de ocurrencias por provincia, municipio y marca para que altas,
+     * bajas y cambios de metadatos ajusten los índices sin recorrer todo el conjunto.
+     * Los índices de autocompletado solo se reconstruyen cuando aparece o desaparece algún
+     * valor de su lista, cada uno en su tarea de la etapa.
+     *
+     * @return lo que publica los índices nuevos, para ejecutarlo después de completar la etapa
+     */
+    private Runnable actualizarListasAutocompletado(CambiosSincronizacion cambios, EtapaIndexado etapa) {
+        // Provincias, municipios, rótulos y municipios de alguna provincia
+        boolean[] cambiado = new boolean[4];
+
+        for (GasolineraAPI g : cambios.getEliminadas())
+            contar(g, -1, cambiado);
+        for (GasolineraAPI g : cambios.getMetadatosCambiados()) {
+            contar(cambios.getAnterior(g.getId()), -1, cambiado);
+            contar(g, 1, cambiado);
         }
+        for (GasolineraAPI g : cambios.getAnadidas())
+            contar(g, 1, cambiado);
+
+        // Los recuentos no cambian hasta la siguiente sincronización, así que las tareas los leen sin copiarlos
+        Supplier<IndiceAutocompletado> nuevasProvincias = cambiado[0]
+                ? etapa.anadir(() -> IndiceAutocompletado.construir(conteoProvincias.keySet())) : null;
+        Supplier<IndiceAutocompletado> nuevosMunicipios = cambiado[1]
+                ? etapa.anadir(() -> IndiceAutocompletado.construir(conteoMunicipios.keySet())) : null;
+        Supplier<IndiceAutocompletado> nuevasMarcas = cambiado[2]
+                ? etapa.anadir(() -> IndiceAutocompletado.construir(conteoMarcas.keySet())) : null;
+        return () -> {
+            if (nuevasProvincias != null) {
+                indiceProvincias = nuevasProvincias.get();
+                provincias.postValue(indiceProvincias);
+            }
+            if (nuevosMunicipios != null)
+                indiceMunicipios = nuevosMunicipios.get();
+            if (cambiado[1] || cambiado[3]) {
+                municipiosPorProvincia.clear();
+                municipios.postValue(indiceMunicipios);
+            }
+            if (nuevasMarcas != null)
+                marcas.postValue(nuevasMarcas.get());
+        };
+    }
 
-        List<String> listP = new ArrayList<>(setProvincias);
-        List<String> listM = new ArrayList<>(setMunicipios);
-        List<String> listR = new ArrayList<>(setMarcas);
+    private void contar(GasolineraAPI g, int delta, boolean[] cambiado) {
+        cambiado[0] |= ajustarConteo(conteoProvincias, g.getProvincia(), delta);
+        cambiado[1] |= ajustarConteo(conteoMunicipios, g.getMunicipio(), delta);
+        cambiado[2] |= ajustarConteo(conteoMarcas, g.getRotulo(), delta);
 
-        java.util.Collections.sort(listP);
-        java.util.Collections.sort(listM);
-        java.util.Collections.sort(listR);
+        String provincia = g.getProvincia();
+        if (provincia == null || provincia.isEmpty())
+            return;
+        Map<String, Integer> deProvincia = conteoMunicipiosPorProvincia.get(provincia);
+        if (deProvincia == null) {
+            deProvincia = new HashMap<>();
+            conteoMunicipiosPorProvincia.put(provincia, deProvincia);
+        }
+        cambiado[3] |= ajustarConteo(deProvincia, g.getMunicipio(), delta);
+        if (deProvincia.isEmpty())
+            conteoMunicipiosPorProvincia.remove(provincia);
+    }
 
-        provincias.postValue(listP);
-        municipios.postValue(listM);
-        marcas.postValue(listR);
+    private static boolean ajustarConteo(Map<String, Integer> conteo, String valor, int delta) {
+        if (valor == null || valor.isEmpty())
+            return false;
+        Integer actual = conteo.get(valor);
+        int nuevo = (actual == null ? 0 : actual) + delta;
+        if (nuevo <= 0) {
+            conteo.remove(valor);
+            return actual != null;
+        }
+        conteo.put(valor, nuevo);
+        return actual == null;
     }
 
-    public void applyFilters(FiltrosManager filtrosManager, FavoritosManager favoritosManager) {
+
+    public void applyFilters(FiltrosManager filtrosManager) {
+        this.filtrosManager = filtrosManager;
+        if (sincronizando) {
+            filtrosPendientes = true;
+            return;
+        }
+
         if (filtrosManager == null || !filtrosManager.tieneFiltrosActivos()) {
-            filteredList = new ArrayList<>(masterList);
+            BitSet todas = new BitSet(almacen.tamano());
+            for (int fila = 0; fila < almacen.tamano(); fila++) {
+                if (almacen.estaViva(fila))
+                    todas.set(fila);
+            }
+            filasFiltradas = todas;
         } else {
-            filteredList = filtrosManager.aplicarFiltros(masterList, favoritosManager);
+            filasFiltradas = filtrosManager.aplicarFiltros(almacen, indicesPrecios, favoritos);
         }
+        reconstruirVistas();
         updateVisibleGasStations();
     }
 
@@ -0,0 +1,152 @@
+package com.eliasbuenosdias.geogas.worker;
+
+import android.app.NotificationChannel;
+import android.app.NotificationManager;
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.NotificationCompat;
+import androidx.core.app.NotificationManagerCompat;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.eliasbuenosdias.geogas.R;
+import com.eliasbuenosdias.geogas.api.ApiClient;
+import com.eliasbuenosdias.geogas.api.MitecoApiService;
+import com.eliasbuenosdias.geogas.data.LectorPreciosFavoritos;
+import com.eliasbuenosdias.geogas.ui.MainActivity;
+import com.eliasbuenosdias.geogas.ui.helpers.CombustibleHelper;
+import com.eliasbuenosdias.geogas.utils.AlertasPreciosManager;
+import com.eliasbuenosdias.geogas.utils.FavoritosManager;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+/**
+ * Tarea periódica que comprueba en segundo plano los precios de las gasolineras favoritas.
+ * <p>
+ * Descarga el volcado de la API en streaming, extrae solo los precios de las favoritas con
+ * {@link LectorPreciosFavoritos} y notifica las bajadas que superan el umbral configurado en
+ * {@link AlertasPreciosManager}. Solo se ejecuta con red disponible y batería no baja.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class ComprobacionPreciosWorker extends Worker {
+
+    private static final String TAG = "GeoGas";
+    private static final String NOMBRE_TAREA = "comprobacion_precios_favoritas";
+    private static final String CANAL_ALERTAS = "alertas_precio";
+    private static final long INTERVALO_HORAS = 6;
+
+    public ComprobacionPreciosWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Programa la comprobación periódica si no estaba ya programada.
+     *
+     * @param context el contexto de la aplicación
+     */
+    public static void programar(Context context) {
+        Constraints restricciones = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.CONNECTED)
+                .setRequiresBatteryNotLow(true)
+                .build();
+
+        PeriodicWorkRequest peticion = new PeriodicWorkRequest.Builder(ComprobacionPreciosWorker.class,
+                INTERVALO_HORAS, TimeUnit.HOURS)
+                .setConstraints(restricciones)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(NOMBRE_TAREA,
+                ExistingPeriodicWorkPolicy.KEEP, peticion);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        Set<String> favoritas = new FavoritosManager(context).getFavoritos();
+        if (favoritas.isEmpty())
+            return Result.success();
+
+        List<LectorPreciosFavoritos.PreciosFavorita> lecturas;
+        try {
+            Response<ResponseBody> response = ApiClient.getClient().create(MitecoApiService.class)
+                    .descargarGasolineras().execute();
+            if (!response.isSuccessful() || response.body() == null)
+                return Result.retry();
+
+            try (ResponseBody body = response.body(); Reader reader = body.charStream()) {
+                lecturas = LectorPreciosFavoritos.leer(reader, favoritas);
+            }
+        } catch (IOException | RuntimeException e) {
+            Log.w(TAG, "Comprobación de precios fallida", e);
+            return Result.retry();
+        }
+
+        List<AlertasPreciosManager.BajadaPrecio> bajadas = new AlertasPreciosManager(context)
+                .registrarPrecios(lecturas, favoritas);
+        if (!bajadas.isEmpty())
+            notificar(context, bajadas);
+
+        return Result.success();
+    }
+
+    private void notificar(Context context, List<AlertasPreciosManager.BajadaPrecio> bajadas) {
+        NotificationManagerCompat manager = NotificationManagerCompat.from(context);
+        if (!manager.areNotificationsEnabled())
+            return;
+        crearCanal(context);
+
+        Intent intent = new Intent(context, MainActivity.class)
+                .setFlags(Intent.FLAG_ACTIVITY_NEW_TASK | Intent.FLAG_ACTIVITY_CLEAR_TOP);
+        PendingIntent pendingIntent = PendingIntent.getActivity(context, 0, intent,
+                PendingIntent.FLAG_IMMUTABLE | PendingIntent.FLAG_UPDATE_CURRENT);
+
+        for (AlertasPreciosManager.BajadaPrecio bajada : bajadas) {
+            String combustible = context.getString(CombustibleHelper.etiqueta(bajada.getCombustible()));
+            String texto = context.getString(R.string.alert_price_drop_text, combustible,
+                    String.format(Locale.getDefault(), "%.3f", bajada.anterior),
+                    String.format(Locale.getDefault(), "%.3f", bajada.actual));
+
+            NotificationCompat.Builder builder = new NotificationCompat.Builder(context, CANAL_ALERTAS)
+                    .setSmallIcon(R.drawable.ic_gas_station_small)
+                    .setContentTitle(context.getString(R.string.alert_price_drop_title, bajada.rotulo))
+                    .setContentText(texto)
+                    .setContentIntent(pendingIntent)
+                    .setAutoCancel(true)
+                    .setPriority(NotificationCompat.PRIORITY_DEFAULT);
+
+            try {
+                manager.notify((bajada.id + "_" + bajada.combustible).hashCode(), builder.build());
+            } catch (SecurityException e) {
+                Log.w(TAG, "Sin permiso para notificar", e);
+                return;
+            }
+        }
+    }
+
+    private void crearCanal(Context context) {
+        NotificationChannel canal = new NotificationChannel(CANAL_ALERTAS,
+                context.getString(R.string.alert_channel_name), NotificationManager.IMPORTANCE_DEFAULT);
+        context.getSystemService(NotificationManager.class).createNotificationChannel(canal);
+    }
+}
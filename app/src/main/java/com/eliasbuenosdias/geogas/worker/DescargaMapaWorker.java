@@ -0,0 +1,165 @@
+package com.eliasbuenosdias.geogas.worker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.eliasbuenosdias.geogas.tiles.DescargadorTeselas;
+import com.eliasbuenosdias.geogas.tiles.RegionTeselas;
+import com.eliasbuenosdias.geogas.utils.MapaOfflineManager;
+
+import org.osmdroid.config.Configuration;
+import org.osmdroid.tileprovider.cachemanager.CacheManager;
+import org.osmdroid.tileprovider.modules.SqlTileWriter;
+import org.osmdroid.tileprovider.tilesource.ITileSource;
+import org.osmdroid.tileprovider.tilesource.OnlineTileSourceBase;
+import org.osmdroid.tileprovider.tilesource.TileSourcePolicyException;
+import org.osmdroid.util.MapTileIndex;
+
+import java.io.IOException;
+
+/**
+ * Tarea que descarga una zona del mapa para usarla sin conexión.
+ * <p>
+ * Las teselas se guardan en la caché de osmdroid a través de su {@link CacheManager}, pero
+ * se reparten entre {@link MapaOfflineManager#CONCURRENCIA_DESCARGA} hilos con
+ * {@link DescargadorTeselas} en lugar de la tarea secuencial de
+ * {@code CacheManager.downloadAreaAsync}. Las teselas ya guardadas y vigentes no se
+ * vuelven a pedir, así que si WorkManager detiene la tarea, o alguna tesela falla, el
+ * reintento continúa donde se quedó.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class DescargaMapaWorker extends Worker {
+
+    private static final String TAG = "GeoGas";
+    /** Nombre de la cola de descargas; se observa desde la interfaz. */
+    public static final String NOMBRE_TAREA = "descarga_mapa_offline";
+    private static final String KEY_REGION = "region";
+    /** Clave del progreso con las teselas procesadas. */
+    public static final String KEY_PROCESADAS = "procesadas";
+    /** Clave del progreso con las teselas de la región. */
+    public static final String KEY_TOTAL = "total";
+
+    private final DescargadorTeselas descargador;
+
+    public DescargaMapaWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+        ITileSource fuente = MapaOfflineManager.crearFuenteTeselas();
+        int maximo = fuente instanceof OnlineTileSourceBase
+                ? ((OnlineTileSourceBase) fuente).getTileSourcePolicy().getMaxConcurrent()
+                : MapaOfflineManager.CONCURRENCIA_DESCARGA;
+        descargador = new DescargadorTeselas(Math.max(1, Math.min(MapaOfflineManager.CONCURRENCIA_DESCARGA, maximo)));
+    }
+
+    /**
+     * Añade una región a la cola de descargas. Solo se descarga con red sin límite de datos
+     * y almacenamiento suficiente.
+     *
+     * @param context el contexto de la aplicación
+     * @param region  la región a descargar
+     */
+    public static void programar(Context context, RegionTeselas region) {
+        MapaOfflineManager manager = new MapaOfflineManager(context);
+        manager.registrarPendiente(region);
+        manager.ajustarCapacidadCache();
+
+        Constraints restricciones = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresStorageNotLow(true)
+                .build();
+
+        OneTimeWorkRequest peticion = new OneTimeWorkRequest.Builder(DescargaMapaWorker.class)
+                .setConstraints(restricciones)
+                .setInputData(new Data.Builder().putString(KEY_REGION, region.codificar()).build())
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(NOMBRE_TAREA,
+                ExistingWorkPolicy.APPEND_OR_REPLACE, peticion);
+    }
+
+    /**
+     * Cancela las descargas en curso y pendientes. Lo ya descargado se conserva.
+     *
+     * @param context el contexto de la aplicación
+     */
+    public static void cancelar(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(NOMBRE_TAREA);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        RegionTeselas region = RegionTeselas.decodificar(getInputData().getString(KEY_REGION));
+        ITileSource fuente = MapaOfflineManager.crearFuenteTeselas();
+        if (region == null || !MapaOfflineManager.permiteDescarga(fuente))
+            return Result.failure();
+        OnlineTileSourceBase fuenteOnline = (OnlineTileSourceBase) fuente;
+
+        // La configuración de osmdroid no se guarda: sin el agente de usuario el servidor rechaza las peticiones
+        Configuration.getInstance().load(context,
+                context.getSharedPreferences(context.getPackageName() + "_osmdroid", Context.MODE_PRIVATE));
+        Configuration.getInstance().setUserAgentValue(context.getPackageName());
+        MapaOfflineManager manager = new MapaOfflineManager(context);
+        manager.ajustarCapacidadCache();
+
+        // La base de datos de SqlTileWriter es compartida con el mapa; no se cierra aquí
+        SqlTileWriter cache = new SqlTileWriter();
+        try {
+            CacheManager cacheManager = new CacheManager(fuente, cache, region.getZoomMin(), region.getZoomMax());
+            DescargadorTeselas.DestinoTeselas destino = new DescargadorTeselas.DestinoTeselas() {
+                @Override
+                public boolean pendiente(int zoom, int x, int y) {
+                    return cacheManager.isTileToBeDownloaded(fuente, MapTileIndex.getTileIndex(zoom, x, y));
+                }
+
+                @Override
+                public void descargar(int zoom, int x, int y) throws IOException {
+                    long indice = MapTileIndex.getTileIndex(zoom, x, y);
+                    if (!cacheManager.forceLoadTile(fuenteOnline, indice))
+                        throw new IOException("Tesela no descargada: " + MapTileIndex.toString(indice));
+                }
+            };
+
+            DescargadorTeselas.Resultado resultado = descargador.descargar(region, destino,
+                    (procesadas, total) -> setProgressAsync(new Data.Builder()
+                            .putLong(KEY_PROCESADAS, procesadas)
+                            .putLong(KEY_TOTAL, total)
+                            .build()));
+
+            if (resultado.estaCompleta()) {
+                manager.marcarCompleta(region);
+                long teselas = cache.getRowCount(fuente.name());
+                if (teselas > 0)
+                    manager.setBytesPorTesela(cache.getSize() / teselas);
+                return Result.success();
+            }
+            Log.w(TAG, "Descarga de mapa incompleta: " + resultado.fallidas + " teselas fallidas");
+            return Result.retry();
+        } catch (TileSourcePolicyException e) {
+            Log.w(TAG, "La fuente de teselas no admite descarga masiva", e);
+            return Result.failure();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        descargador.cancelar();
+    }
+}
@@ -0,0 +1,153 @@
+package com.eliasbuenosdias.geogas.worker;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.eliasbuenosdias.geogas.api.ApiClient;
+import com.eliasbuenosdias.geogas.api.MitecoApiService;
+import com.eliasbuenosdias.geogas.historico.ImportadorHistorico;
+import com.eliasbuenosdias.geogas.historico.SeriesPreciosHistoricos;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+import okhttp3.ResponseBody;
+import retrofit2.Response;
+
+/**
+ * Tarea que importa los precios de los últimos días desde los volcados históricos del
+ * Ministerio ({@code EstacionesTerrestresHist/{fecha}}) a la serie local.
+ * <p>
+ * Los días se descargan con {@link ImportadorHistorico}, con hasta
+ * {@link #CONCURRENCIA_DESCARGA} descargas simultáneas y leyendo cada volcado en streaming.
+ * Los días ya guardados no se vuelven a pedir, así que si WorkManager detiene la tarea, o
+ * algún día falla, el reintento continúa donde se quedó.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class ImportacionHistoricoWorker extends Worker {
+
+    private static final String TAG = "GeoGas";
+    /** Nombre de la cola de importaciones; se observa desde la interfaz. */
+    public static final String NOMBRE_TAREA = "importacion_historico";
+    private static final String KEY_DIAS = "dias";
+    /** Clave del progreso con los días procesados. */
+    public static final String KEY_PROCESADOS = "procesados";
+    /** Clave del progreso con los días del intervalo. */
+    public static final String KEY_TOTAL = "total";
+    /** Días que se importan desde la interfaz. */
+    public static final int DIAS_POR_DEFECTO = 30;
+    /**
+     * Descargas simultáneas; cada una tiene un día en memoria mientras lo lee.
+     */
+    public static final int CONCURRENCIA_DESCARGA = 3;
+    /** Carpeta de la serie dentro de la de archivos de la aplicación. */
+    private static final String CARPETA_SERIE = "historico";
+    private static final DateTimeFormatter FORMATO_FECHA = DateTimeFormatter.ofPattern("dd-MM-yyyy");
+
+    private final ImportadorHistorico importador = new ImportadorHistorico(CONCURRENCIA_DESCARGA);
+
+    public ImportacionHistoricoWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    /**
+     * Abre la serie local de precios históricos.
+     *
+     * @param context el contexto de la aplicación
+     * @return la serie
+     */
+    public static SeriesPreciosHistoricos abrirSerie(Context context) {
+        return new SeriesPreciosHistoricos(new File(context.getFilesDir(), CARPETA_SERIE));
+    }
+
+    /**
+     * Encola la importación de los últimos días, hasta ayer. Solo se descarga con red sin
+     * límite de datos y almacenamiento suficiente.
+     *
+     * @param context el contexto de la aplicación
+     * @param dias    el número de días
+     */
+    public static void programar(Context context, int dias) {
+        Constraints restricciones = new Constraints.Builder()
+                .setRequiredNetworkType(NetworkType.UNMETERED)
+                .setRequiresStorageNotLow(true)
+                .build();
+
+        OneTimeWorkRequest peticion = new OneTimeWorkRequest.Builder(ImportacionHistoricoWorker.class)
+                .setConstraints(restricciones)
+                .setInputData(new Data.Builder().putInt(KEY_DIAS, dias).build())
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(NOMBRE_TAREA, ExistingWorkPolicy.KEEP, peticion);
+    }
+
+    /**
+     * Cancela la importación en curso o pendiente. Los días ya importados se conservan.
+     *
+     * @param context el contexto de la aplicación
+     */
+    public static void cancelar(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(NOMBRE_TAREA);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        int dias = getInputData().getInt(KEY_DIAS, DIAS_POR_DEFECTO);
+        if (dias < 1)
+            return Result.failure();
+        // El volcado del día en curso aún cambia: la serie llega hasta ayer
+        LocalDate hasta = LocalDate.now().minusDays(1);
+        LocalDate desde = hasta.minusDays(dias - 1);
+        MitecoApiService servicio = ApiClient.getClient().create(MitecoApiService.class);
+
+        ImportadorHistorico.FuenteHistorico fuente = dia -> {
+            Response<ResponseBody> response = servicio.descargarHistorico(dia.format(FORMATO_FECHA)).execute();
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                if (body != null)
+                    body.close();
+                throw new IOException("Histórico no disponible para " + dia + ": HTTP " + response.code());
+            }
+            // Cerrar el lector cierra también la respuesta
+            return body.charStream();
+        };
+
+        try {
+            ImportadorHistorico.Resultado resultado = importador.importar(desde, hasta, fuente,
+                    abrirSerie(getApplicationContext()),
+                    (procesados, total) -> setProgressAsync(new Data.Builder()
+                            .putInt(KEY_PROCESADOS, procesados)
+                            .putInt(KEY_TOTAL, total)
+                            .build()));
+            if (resultado.estaCompleta())
+                return Result.success();
+            Log.w(TAG, "Importación del histórico incompleta: " + resultado.fallidos + " días fallidos");
+            return Result.retry();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        super.onStopped();
+        importador.cancelar();
+    }
+}
@@ -21,6 +21,7 @@ import static org.mockito.Mockito.*;
  * - Añadir/eliminar favoritos (toggle)
  * - Verificar si una gasolinera es favorita
  * - Persistencia en SharedPreferences
+ * - Favoritos compartidos entre gestores de las mismas preferencias
  *
  * VINCULACIÓN CON REQUISITOS:
  * - OBJ-05: Gestionar gasolineras favoritas
@@ -178,6 +179,53 @@ public class FavoritosManagerTest {
         assertTrue("Debería contener ES67890", resultado.contains("ES67890"));
     }
 
+    /**
+     * TEST: Alternar varias veces sin volver a leer las preferencias.
+     *
+     * Escenario: El usuario marca y desmarca gasolineras desde el panel de detalles.
+     * Comportamiento esperado: Las preferencias se leen una sola vez y las consultas
+     * ven cada cambio al momento.
+     */
+    @Test
+    public void testToggleFavorito_SinReleerPreferencias() {
+        // ARRANGE
+        when(mockSharedPreferences.getStringSet(eq("favoritos"), any(Set.class)))
+                .thenReturn(new HashSet<>());
+
+        // ACT + ASSERT
+        assertTrue("Queda como favorita", favoritosManager.toggleFavorito("ES12345"));
+        assertTrue(favoritosManager.esFavorita("ES12345"));
+        assertFalse("Deja de ser favorita", favoritosManager.toggleFavorito("ES12345"));
+        assertFalse(favoritosManager.esFavorita("ES12345"));
+
+        verify(mockSharedPreferences, times(1)).getStringSet(eq("favoritos"), any(Set.class));
+        verify(mockEditor, times(2)).apply();
+    }
+
+    /**
+     * TEST: Dos gestores sobre las mismas preferencias ven los mismos favoritos.
+     *
+     * Escenario: Al girar la pantalla la actividad crea un gestor nuevo mientras el
+     * ViewModel sigue consultando el de antes.
+     * Comportamiento esperado: Lo que marca uno lo ve el otro al momento.
+     */
+    @Test
+    public void testToggleFavorito_CompartidoEntreGestores() {
+        // ARRANGE
+        when(mockSharedPreferences.getStringSet(eq("favoritos"), any(Set.class)))
+                .thenReturn(new HashSet<>());
+        FavoritosManager anterior = new FavoritosManager(mockContext);
+        assertFalse(anterior.esFavorita("ES12345"));
+
+        // ACT
+        favoritosManager.toggleFavorito("ES12345");
+
+        // ASSERT
+        assertTrue("El gestor anterior ve el cambio", anterior.esFavorita("ES12345"));
+        anterior.toggleFavorito("ES12345");
+        assertFalse(favoritosManager.esFavorita("ES12345"));
+    }
+
     /**
      * TEST: Limpiar todos los favoritos.
      *
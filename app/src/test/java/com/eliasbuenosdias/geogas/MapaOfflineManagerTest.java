@@ -0,0 +1,100 @@
+package com.eliasbuenosdias.geogas.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.eliasbuenosdias.geogas.tiles.RegionTeselas;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: MapaOfflineManager
+ *
+ * Esta clase prueba las partes del mapa sin conexión que no dependen de Android:
+ * - Búsqueda de archivos MBTiles y SQLite en la carpeta de mapas
+ * - Tamaño de la caché de teselas decodificadas según la memoria del dispositivo
+ * - Regiones completas marcadas desde otro gestor, como el del trabajo de descarga
+ */
+public class MapaOfflineManagerTest {
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    @Test
+    public void testBuscarArchivos_SoloMBTilesYSQLite() throws IOException {
+        carpeta.newFile("norte.mbtiles");
+        carpeta.newFile("madrid.SQLITE");
+        carpeta.newFile("mapa.zip");
+        carpeta.newFile("cache.db");
+        carpeta.newFolder("otros.mbtiles");
+        File subcarpeta = carpeta.newFolder("sub");
+        assertTrue(new File(subcarpeta, "sur.mbtiles").createNewFile());
+
+        List<File> archivos = MapaOfflineManager.buscarArchivosTeselas(carpeta.getRoot());
+
+        assertEquals(2, archivos.size());
+        // Ordenados por nombre para que la preferencia entre archivos sea estable
+        assertEquals("madrid.SQLITE", archivos.get(0).getName());
+        assertEquals("norte.mbtiles", archivos.get(1).getName());
+    }
+
+    @Test
+    public void testBuscarArchivos_CarpetaInexistente() {
+        File inexistente = new File(carpeta.getRoot(), "mapas");
+        assertTrue(MapaOfflineManager.buscarArchivosTeselas(inexistente).isEmpty());
+    }
+
+    @Test
+    public void testTeselasEnMemoria_SegunMemoriaDelDispositivo() {
+        // Un octavo de la memoria en teselas de 256 KB
+        assertEquals(128, MapaOfflineManager.calcularTeselasEnMemoria(256));
+        assertEquals(256, MapaOfflineManager.calcularTeselasEnMemoria(512));
+        assertEquals("Mínimo aunque haya poca memoria", 32, MapaOfflineManager.calcularTeselasEnMemoria(16));
+    }
+
+    /**
+     * TEST: El trabajo de descarga marca una región con su propio gestor.
+     *
+     * Escenario: La actividad ya consultó las regiones completas cuando termina una descarga.
+     * Comportamiento esperado: Al cambiar las preferencias su gestor vuelve a leerlas.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetRegionesCompletas_MarcadaDesdeOtroGestor() {
+        // ARRANGE
+        Context contexto = mock(Context.class);
+        SharedPreferences preferencias = mock(SharedPreferences.class);
+        when(contexto.getSharedPreferences(anyString(), anyInt())).thenReturn(preferencias);
+        Set<String> guardadas = new HashSet<>();
+        when(preferencias.getStringSet(eq("regiones_completas"), any(Set.class))).thenReturn(guardadas);
+        MapaOfflineManager manager = new MapaOfflineManager(contexto);
+        ArgumentCaptor<SharedPreferences.OnSharedPreferenceChangeListener> oyente =
+                ArgumentCaptor.forClass(SharedPreferences.OnSharedPreferenceChangeListener.class);
+        verify(preferencias).registerOnSharedPreferenceChangeListener(oyente.capture());
+        assertTrue(manager.getRegionesCompletas().isEmpty());
+
+        // ACT: otro gestor guarda la región y las preferencias avisan del cambio
+        RegionTeselas region = new RegionTeselas(40.5, 40.3, -3.6, -3.8, 10, 12);
+        guardadas.add(region.codificar());
+        oyente.getValue().onSharedPreferenceChanged(preferencias, "regiones_completas");
+
+        // ASSERT
+        List<RegionTeselas> completas = manager.getRegionesCompletas();
+        assertEquals("Ve la región nueva", 1, completas.size());
+        assertEquals(region.codificar(), completas.get(0).codificar());
+    }
+}
@@ -0,0 +1,148 @@
+package com.eliasbuenosdias.geogas.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import com.eliasbuenosdias.geogas.data.LectorPreciosFavoritos;
+import com.eliasbuenosdias.geogas.models.Combustible;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.anyFloat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: AlertasPreciosManager
+ *
+ * Esta clase prueba la detección de bajadas de precio de las favoritas:
+ * - La primera lectura solo fija la referencia; una bajada igual al umbral se notifica
+ * - Los precios guardados de las que dejan de ser favoritas se olvidan
+ * - Un umbral de cero o negativo se rechaza
+ * - Cada bajada sabe a qué combustible se refiere
+ *
+ * VINCULACIÓN CON REQUISITOS:
+ * - OBJ-05: Gestionar gasolineras favoritas
+ */
+public class AlertasPreciosManagerTest {
+
+    // Contenido de las preferencias simuladas
+    private final Map<String, Object> guardado = new HashMap<>();
+    private AlertasPreciosManager manager;
+
+    @Before
+    public void setUp() {
+        Context contexto = mock(Context.class);
+        SharedPreferences preferencias = mock(SharedPreferences.class);
+        SharedPreferences.Editor editor = mock(SharedPreferences.Editor.class);
+        when(contexto.getSharedPreferences(anyString(), anyInt())).thenReturn(preferencias);
+        when(preferencias.edit()).thenReturn(editor);
+        doAnswer(i -> new HashMap<>(guardado)).when(preferencias).getAll();
+        doAnswer(i -> guardado.getOrDefault(i.getArgument(0), i.getArgument(1)))
+                .when(preferencias).getFloat(anyString(), anyFloat());
+        doAnswer(i -> {
+            guardado.put(i.getArgument(0), i.getArgument(1));
+            return editor;
+        }).when(editor).putFloat(anyString(), anyFloat());
+        doAnswer(i -> {
+            guardado.remove(i.<String>getArgument(0));
+            return editor;
+        }).when(editor).remove(anyString());
+        manager = new AlertasPreciosManager(contexto);
+    }
+
+    private static List<LectorPreciosFavoritos.PreciosFavorita> lectura(String id, double gasolina,
+            double gasoleo) {
+        return Collections.singletonList(
+                new LectorPreciosFavoritos.PreciosFavorita(id, "Rótulo", new double[] { gasolina, gasoleo }));
+    }
+
+    /**
+     * TEST: Bajada del gasóleo igual al umbral.
+     *
+     * Escenario: La segunda comprobación trae el gasóleo 5 céntimos más barato.
+     * Comportamiento esperado: Se notifica solo esa bajada, como gasóleo A.
+     */
+    @Test
+    public void testRegistrarPrecios_BajadaDelGasoleo() {
+        // ARRANGE
+        Set<String> favoritas = new HashSet<>(Arrays.asList("ES1"));
+        assertTrue("La primera lectura no avisa",
+                manager.registrarPrecios(lectura("ES1", 1.500, 1.400), favoritas).isEmpty());
+
+        // ACT
+        List<AlertasPreciosManager.BajadaPrecio> bajadas =
+                manager.registrarPrecios(lectura("ES1", 1.500, 1.350), favoritas);
+
+        // ASSERT
+        assertEquals(1, bajadas.size());
+        assertEquals(Combustible.GASOLEO_A, bajadas.get(0).getCombustible());
+        assertEquals(1.350, bajadas.get(0).actual, 1e-9);
+    }
+
+    /**
+     * TEST: Una gasolinera se desmarca y se vuelve a marcar semanas después.
+     *
+     * Escenario: Mientras no era favorita su precio bajó más que el umbral.
+     * Comportamiento esperado: Su precio antiguo se olvidó al desmarcarla y no hay alerta.
+     */
+    @Test
+    public void testRegistrarPrecios_OlvidaLasQueYaNoSonFavoritas() {
+        // ARRANGE
+        manager.registrarPrecios(lectura("ES1", 1.600, 1.500), new HashSet<>(Arrays.asList("ES1")));
+        manager.registrarPrecios(lectura("ES2", 1.550, 1.450), new HashSet<>(Arrays.asList("ES2")));
+
+        // ASSERT: solo quedan los precios de la favorita actual
+        assertEquals(new HashSet<>(Arrays.asList("precio_ES2_0", "precio_ES2_1")), guardado.keySet());
+
+        // ACT
+        List<AlertasPreciosManager.BajadaPrecio> bajadas =
+                manager.registrarPrecios(lectura("ES1", 1.400, 1.300), new HashSet<>(Arrays.asList("ES1")));
+
+        // ASSERT
+        assertTrue("Sin referencia antigua no hay alerta", bajadas.isEmpty());
+    }
+
+    /**
+     * TEST: El usuario escribe un umbral de cero o negativo.
+     *
+     * Comportamiento esperado: Se rechaza y sigue el anterior, para no avisar de precios
+     * sin cambios en cada comprobación.
+     */
+    @Test
+    public void testSetUmbral_NoPositivoSeRechaza() {
+        for (float umbral : new float[] { 0f, -0.05f, Float.NaN }) {
+            try {
+                manager.setUmbral(umbral);
+                fail("Umbral aceptado: " + umbral);
+            } catch (IllegalArgumentException esperada) {
+                assertEquals(AlertasPreciosManager.UMBRAL_POR_DEFECTO, manager.getUmbral(), 0f);
+            }
+        }
+    }
+
+    /**
+     * TEST: Precios sin cambios con un umbral guardado de cero por una versión anterior.
+     *
+     * Comportamiento esperado: Se usa el umbral por defecto y no hay alerta.
+     */
+    @Test
+    public void testRegistrarPrecios_UmbralGuardadoNoValido() {
+        // ARRANGE
+        guardado.put("umbral", 0f);
+        Set<String> favoritas = new HashSet<>(Arrays.asList("ES1"));
+        manager.registrarPrecios(lectura("ES1", 1.500, 1.400), favoritas);
+
+        // ACT + ASSERT
+        assertTrue(manager.registrarPrecios(lectura("ES1", 1.500, 1.400), favoritas).isEmpty());
+    }
+}
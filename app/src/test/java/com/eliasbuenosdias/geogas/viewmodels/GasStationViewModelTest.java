@@ -0,0 +1,314 @@
+package com.eliasbuenosdias.geogas.viewmodels;
+
+import android.os.MessageQueue;
+
+import androidx.arch.core.executor.testing.InstantTaskExecutorRule;
+
+import com.eliasbuenosdias.geogas.api.MitecoApiService;
+import com.eliasbuenosdias.geogas.data.IndicesPrecios;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.osmdroid.util.BoundingBox;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import retrofit2.Call;
+import retrofit2.Callback;
+import retrofit2.Response;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: GasStationViewModel
+ *
+ * Esta clase prueba cómo llegan las favoritas al conjunto visible del mapa:
+ * - Marcar una favorita antes de tocar los filtros la muestra en la vista alejada
+ * - Desmarcarla la vuelve a ocultar
+ * - Las favoritas ya marcadas se ven nada más cargar, también con un proveedor nuevo
+ * - Lo indexado en segundo plano se publica en el hilo principal, con lo que llegó entretanto
+ * - Un volcado que llega durante una etapa no se sincroniza hasta que le toca
+ * - Una sincronización solo de precios de otro combustible conserva los índices de precios
+ *
+ * VINCULACIÓN CON REQUISITOS:
+ * - RF014: Visualización diferenciada de favoritas
+ */
+public class GasStationViewModelTest {
+
+    @Rule
+    public InstantTaskExecutorRule ejecucionInmediata = new InstantTaskExecutorRule();
+
+    // Vista de toda la península
+    private static final BoundingBox PENINSULA = new BoundingBox(43.9, 4.4, 35.9, -9.4);
+
+    // El hilo de la prueba nunca queda ocioso: el precálculo del viewport no se ejecuta
+    private static final Consumer<MessageQueue.IdleHandler> SIN_OCIO = tarea -> { };
+
+    private GasStationViewModel viewModel;
+    private final Set<String> favoritas = new HashSet<>();
+
+    /** Espera a las etapas en el propio hilo de la prueba, así todo ha terminado al volver. */
+    private static final class MismoHilo extends AbstractExecutorService {
+        private boolean cerrado;
+
+        @Override
+        public void execute(Runnable tarea) {
+            tarea.run();
+        }
+
+        @Override
+        public void shutdown() {
+            cerrado = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            cerrado = true;
+            return new ArrayList<>();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return cerrado;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return cerrado;
+        }
+
+        @Override
+        public boolean awaitTermination(long tiempo, TimeUnit unidad) {
+            return true;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        viewModel = new GasStationViewModel(new MismoHilo(), Runnable::run, SIN_OCIO);
+        viewModel.setFavoritos(favoritas::contains);
+    }
+
+    private GasolineraAPI crear(String id, String lat, String lon, String precio95) {
+        GasolineraAPI g = new GasolineraAPI();
+        g.setId(id);
+        g.setLatitud(lat);
+        g.setLongitud(lon);
+        g.setPrecioGasolina95(precio95);
+        return g;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void cargar(GasolineraAPI... gasolineras) {
+        List<GasolineraAPI> volcado = Arrays.asList(gasolineras);
+        Call<List<GasolineraAPI>> llamada = mock(Call.class);
+        doAnswer(invocacion -> {
+            Callback<List<GasolineraAPI>> callback = invocacion.getArgument(0);
+            callback.onResponse(llamada, Response.success(volcado));
+            return null;
+        }).when(llamada).enqueue(any());
+        MitecoApiService api = mock(MitecoApiService.class);
+        when(api.obtenerGasolineras()).thenReturn(llamada);
+        viewModel.loadData(api);
+    }
+
+    private Set<String> idsVisibles() {
+        Set<String> ids = new HashSet<>();
+        for (GasolineraAPI g : viewModel.getGasolinerasVisibles())
+            ids.add(g.getId());
+        return ids;
+    }
+
+    /**
+     * TEST: Marcar una favorita sin haber tocado nunca los filtros.
+     *
+     * Escenario: Tras abrir la aplicación, el usuario marca una gasolinera que en la vista
+     * alejada queda oculta por otra más barata de su zona.
+     * Comportamiento esperado: Aparece en el mapa sin esperar a que se apliquen filtros.
+     */
+    @Test
+    public void testActualizarFavorita_AntesDeAplicarFiltros() {
+        // ARRANGE: dos gasolineras en la misma zona y otra lejos
+        viewModel.setViewport(PENINSULA);
+        cargar(crear("BARATA", "40,400", "-3,700", "1,500"),
+                crear("CARA", "40,401", "-3,701", "1,900"),
+                crear("LEJOS", "41,380", "2,170", "1,600"));
+        assertEquals(new HashSet<>(Arrays.asList("BARATA", "LEJOS")), idsVisibles());
+
+        // ACT
+        favoritas.add("CARA");
+        viewModel.actualizarFavorita("CARA");
+
+        // ASSERT
+        assertTrue("La favorita se muestra", idsVisibles().contains("CARA"));
+        assertTrue(idsVisibles().contains("BARATA"));
+    }
+
+    /**
+     * TEST: Desmarcar una favorita que solo se veía por serlo.
+     *
+     * Escenario: El usuario quita de favoritas una gasolinera de una zona con otra más barata.
+     * Comportamiento esperado: Deja de mostrarse en la vista alejada.
+     */
+    @Test
+    public void testActualizarFavorita_AlDesmarcarSeOculta() {
+        // ARRANGE
+        viewModel.setViewport(PENINSULA);
+        cargar(crear("BARATA", "40,400", "-3,700", "1,500"),
+                crear("CARA", "40,401", "-3,701", "1,900"));
+        favoritas.add("CARA");
+        viewModel.actualizarFavorita("CARA");
+        assertTrue(idsVisibles().contains("CARA"));
+
+        // ACT
+        favoritas.remove("CARA");
+        viewModel.actualizarFavorita("CARA");
+
+        // ASSERT
+        assertFalse("Ya no se muestra", idsVisibles().contains("CARA"));
+        assertEquals(new ArrayList<>(Arrays.asList("BARATA")), new ArrayList<>(idsVisibles()));
+    }
+
+    /**
+     * TEST: Arrancar con una favorita ya marcada.
+     *
+     * Escenario: El usuario abre la aplicación con favoritas de otra sesión y no toca
+     * los filtros.
+     * Comportamiento esperado: Nada más cargar se muestra aunque su zona tenga otra más barata.
+     */
+    @Test
+    public void testCargar_FavoritaVisibleSinAplicarFiltros() {
+        // ARRANGE
+        favoritas.add("CARA");
+        viewModel.setViewport(PENINSULA);
+
+        // ACT
+        cargar(crear("BARATA", "40,400", "-3,700", "1,500"),
+                crear("CARA", "40,401", "-3,701", "1,900"));
+
+        // ASSERT
+        assertEquals(new HashSet<>(Arrays.asList("BARATA", "CARA")), idsVisibles());
+    }
+
+    /**
+     * TEST: La actividad se recrea y da un proveedor de favoritas nuevo.
+     *
+     * Escenario: Tras girar la pantalla el ViewModel conserva los datos y recibe el
+     * gestor de favoritas de la actividad nueva.
+     * Comportamiento esperado: Las favoritas de ese gestor se muestran sin esperar a otro cambio.
+     */
+    @Test
+    public void testSetFavoritos_ConDatosRehaceLaPiramide() {
+        // ARRANGE
+        viewModel.setViewport(PENINSULA);
+        cargar(crear("BARATA", "40,400", "-3,700", "1,500"),
+                crear("CARA", "40,401", "-3,701", "1,900"));
+        assertFalse(idsVisibles().contains("CARA"));
+
+        // ACT
+        Set<String> nuevas = new HashSet<>(Arrays.asList("CARA"));
+        viewModel.setFavoritos(nuevas::contains);
+
+        // ASSERT
+        assertTrue("La favorita del proveedor nuevo se muestra", idsVisibles().contains("CARA"));
+    }
+
+    /**
+     * TEST: Marcar una favorita mientras se indexa una sincronización.
+     *
+     * Escenario: Llega un volcado y, antes de que su etapa de indexado se publique, el
+     * usuario marca una favorita.
+     * Comportamiento esperado: Nada cambia hasta que el hilo principal publica la etapa;
+     * entonces se ven las gasolineras nuevas y la favorita.
+     */
+    @Test
+    public void testSincronizacion_SePublicaEnElHiloPrincipal() {
+        // ARRANGE: lo que se publica queda en cola hasta que lo ejecuta la prueba
+        Queue<Runnable> hiloPrincipal = new ArrayDeque<>();
+        viewModel = new GasStationViewModel(new MismoHilo(), hiloPrincipal::add, SIN_OCIO);
+        viewModel.setFavoritos(favoritas::contains);
+        viewModel.setViewport(PENINSULA);
+
+        // ACT
+        cargar(crear("BARATA", "40,400", "-3,700", "1,500"),
+                crear("CARA", "40,401", "-3,701", "1,900"));
+        favoritas.add("CARA");
+        viewModel.actualizarFavorita("CARA");
+
+        // ASSERT
+        assertTrue("Nada se publica antes de volver al hilo principal", idsVisibles().isEmpty());
+        assertTrue(viewModel.getIsLoading().getValue());
+        while (!hiloPrincipal.isEmpty())
+            hiloPrincipal.poll().run();
+        assertEquals(new HashSet<>(Arrays.asList("BARATA", "CARA")), idsVisibles());
+        assertFalse(viewModel.getIsLoading().getValue());
+    }
+
+    /**
+     * TEST: Llega otro volcado mientras se indexa el anterior.
+     *
+     * Escenario: El segundo volcado quita una gasolinera y llega antes de que se publique
+     * el primero.
+     * Comportamiento esperado: Se sigue cargando hasta publicar los dos, y el conjunto
+     * visible no tiene huecos por la gasolinera quitada.
+     */
+    @Test
+    public void testSincronizacion_VolcadoDuranteLaEtapaEsperaSuTurno() {
+        // ARRANGE
+        Queue<Runnable> hiloPrincipal = new ArrayDeque<>();
+        viewModel = new GasStationViewModel(new MismoHilo(), hiloPrincipal::add, SIN_OCIO);
+        viewModel.setViewport(PENINSULA);
+        cargar(crear("BARATA", "40,400", "-3,700", "1,500"),
+                crear("LEJOS", "41,380", "2,170", "1,600"));
+
+        // ACT
+        cargar(crear("BARATA", "40,400", "-3,700", "1,500"));
+
+        // ASSERT: tras publicar el primero ya se indexa el segundo
+        hiloPrincipal.poll().run();
+        assertTrue("Sigue cargando el segundo volcado", viewModel.getIsLoading().getValue());
+        for (GasolineraAPI g : viewModel.getGasolinerasVisibles())
+            assertNotNull("Cada fila visible tiene su gasolinera", g);
+        while (!hiloPrincipal.isEmpty())
+            hiloPrincipal.poll().run();
+        assertEquals(new HashSet<>(Arrays.asList("BARATA")), idsVisibles());
+        assertFalse(viewModel.getIsLoading().getValue());
+    }
+
+    /**
+     * TEST: Sincronizar un cambio de precio de un solo combustible.
+     *
+     * Escenario: El volcado nuevo solo trae otro precio de gasóleo A.
+     * Comportamiento esperado: Los índices de los demás combustibles no se reconstruyen.
+     */
+    @Test
+    public void testSincronizacion_SoloPreciosConservaIndicesDeOtrosCombustibles() {
+        // ARRANGE
+        GasolineraAPI antes = crear("1", "40,400", "-3,700", "1,500");
+        antes.setPrecioGasoleoA("1,400");
+        cargar(antes);
+        IndicesPrecios indices = viewModel.getIndicesPrecios().getValue();
+
+        // ACT
+        GasolineraAPI despues = crear("1", "40,400", "-3,700", "1,500");
+        despues.setPrecioGasoleoA("1,350");
+        cargar(despues);
+
+        // ASSERT
+        IndicesPrecios nuevos = viewModel.getIndicesPrecios().getValue();
+        assertNotSame(indices, nuevos);
+        assertSame(indices.get(Combustible.GASOLINA_95), nuevos.get(Combustible.GASOLINA_95));
+        assertEquals(1350, nuevos.get(Combustible.GASOLEO_A).precio(0));
+    }
+}
@@ -0,0 +1,67 @@
+// Generador del perfil de referencia de :app (arranque, carga del volcado, mapa y filtros).
+// ./gradlew :baselineprofile:connectedBenchmarkAndroidTest :baselineprofile:copiarPerfilReferencia
+plugins {
+    alias(libs.plugins.android.test)
+}
+
+android {
+    namespace = "com.eliasbuenosdias.geogas.baselineprofile"
+    compileSdk {
+        version = release(36)
+    }
+
+    defaultConfig {
+        minSdk = 28
+        targetSdk = 36
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "EMULATOR"
+    }
+
+    buildTypes {
+        create("benchmark") {
+            isDebuggable = true
+            signingConfig = getByName("debug").signingConfig
+            matchingFallbacks += listOf("release")
+        }
+    }
+
+    // Mismos escenarios y servidor local que los macrobenchmarks
+    sourceSets {
+        getByName("main") {
+            java.srcDir("../macrobenchmark/src/escenarios/java")
+        }
+    }
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_11
+        targetCompatibility = JavaVersion.VERSION_11
+    }
+
+    targetProjectPath = ":app"
+    experimentalProperties["android.experimental.self-instrumenting"] = true
+}
+
+dependencies {
+    implementation(libs.androidx.junit)
+    implementation(libs.androidx.uiautomator)
+    implementation(libs.androidx.benchmark.macro.junit4)
+    implementation(libs.mockwebserver)
+    implementation(testFixtures(project(":geogas-core")))
+}
+
+androidComponents {
+    beforeVariants(selector().all()) {
+        it.enable = it.buildType == "benchmark"
+    }
+}
+
+// Copia el último perfil generado en el dispositivo a app/src/main/baseline-prof.txt,
+// desde donde AGP lo compila y lo empaqueta en el APK
+tasks.register<Copy>("copiarPerfilReferencia") {
+    from(layout.buildDirectory.dir("outputs/connected_android_test_additional_output")) {
+        include("**/GeneradorPerfilReferencia_generar-baseline-prof.txt")
+    }
+    eachFile { path = "baseline-prof.txt" }
+    includeEmptyDirs = false
+    into(rootProject.layout.projectDirectory.dir("app/src/main"))
+}
@@ -0,0 +1,75 @@
+package com.eliasbuenosdias.geogas.baselineprofile;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.uiautomator.UiDevice;
+
+import com.eliasbuenosdias.geogas.macrobenchmark.EscenariosGeoGas;
+import com.eliasbuenosdias.geogas.macrobenchmark.ServidorDatasetLocal;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+import kotlin.Unit;
+
+/**
+ * GENERADOR DEL PERFIL DE REFERENCIA de GeoGas.
+ * <p>
+ * Recorre los caminos críticos de la aplicación hasta que el conjunto de métodos
+ * ejecutados se estabiliza: arranque de {@code MainActivity}, configuración de Retrofit
+ * y Gson, descarga y parseo del volcado, primeros marcadores, desplazamiento y zoom del
+ * mapa y aplicación de un filtro. Las reglas de arranque se marcan también como perfil
+ * de inicio para optimizar el orden del DEX.
+ * </p>
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class GeneradorPerfilReferencia {
+
+    private static final int ITERACIONES_MAXIMAS = 15;
+    private static final int ITERACIONES_ESTABLES = 3;
+
+    @Rule
+    public BaselineProfileRule regla = new BaselineProfileRule();
+
+    @BeforeClass
+    public static void iniciarServidor() throws IOException {
+        ServidorDatasetLocal.iniciar();
+    }
+
+    @AfterClass
+    public static void detenerServidor() throws IOException {
+        ServidorDatasetLocal.detener();
+    }
+
+    @Test
+    public void generar() {
+        regla.collect(
+                EscenariosGeoGas.PAQUETE,
+                ITERACIONES_MAXIMAS,
+                ITERACIONES_ESTABLES,
+                null,
+                true,
+                false,
+                linea -> true,
+                scope -> {
+                    UiDevice device = scope.getDevice();
+                    scope.pressHome();
+                    EscenariosGeoGas.concederUbicacion(scope);
+                    scope.startActivityAndWait();
+                    EscenariosGeoGas.esperarPrimerMarcador(device);
+
+                    EscenariosGeoGas.alejarHastaAreaMetropolitana(device);
+                    EscenariosGeoGas.recorrerMadrid(device);
+                    EscenariosGeoGas.alejarHastaPais(device);
+                    EscenariosGeoGas.aplicarFiltro(device);
+                    return Unit.INSTANCE;
+                });
+    }
+}
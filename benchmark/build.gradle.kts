@@ -0,0 +1,36 @@
+// Benchmarks JMH de los caminos críticos (filtrado, puntuación, viewport y parseo).
+// Se ejecutan en la JVM de escritorio: ./gradlew :benchmark:jmh
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    implementation(project(":geogas-core"))
+    // Generador de volcados sintéticos compartido con las pruebas del núcleo
+    jmhImplementation(testFixtures(project(":geogas-core")))
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+    jvmArgs.set(listOf("-Xmx2g"))
+    // ./gradlew :benchmark:jmh -PjmhIncludes=Filtros
+    if (project.hasProperty("jmhIncludes")) {
+        includes.set(listOf(project.property("jmhIncludes") as String))
+    }
+}
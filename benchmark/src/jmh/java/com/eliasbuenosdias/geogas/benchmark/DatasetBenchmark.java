@@ -0,0 +1,42 @@
+package com.eliasbuenosdias.geogas.benchmark;
+
+import com.eliasbuenosdias.geogas.GeneradorDatasetMiteco;
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.utils.ProveedorFavoritos;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Datos comunes de los benchmarks: volcados sintéticos de {@link GeneradorDatasetMiteco}
+ * y un {@link ProveedorFavoritos} en memoria con un 1% de favoritas.
+ */
+final class DatasetBenchmark {
+
+    private DatasetBenchmark() {
+    }
+
+    static List<GasolineraAPI> generar(int tamano) {
+        return new GeneradorDatasetMiteco().generarGasolineras(tamano);
+    }
+
+    static AlmacenGasolineras almacenar(List<GasolineraAPI> gasolineras) {
+        AlmacenGasolineras almacen = new AlmacenGasolineras();
+        for (GasolineraAPI g : gasolineras)
+            almacen.actualizar(g);
+        return almacen;
+    }
+
+    static String generarJson(int tamano) {
+        return new GeneradorDatasetMiteco().generarJson(tamano);
+    }
+
+    static ProveedorFavoritos favoritos(List<GasolineraAPI> gasolineras) {
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < gasolineras.size(); i += 100)
+            ids.add(gasolineras.get(i).getId());
+        return ids::contains;
+    }
+}
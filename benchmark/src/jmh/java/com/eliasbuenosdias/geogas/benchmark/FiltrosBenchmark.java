@@ -0,0 +1,100 @@
+package com.eliasbuenosdias.geogas.benchmark;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.data.IndicesPrecios;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.utils.FiltrosManager;
+import com.eliasbuenosdias.geogas.utils.ProveedorFavoritos;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDateTime;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de {@link FiltrosManager#aplicarFiltros} para distintas combinaciones de filtros,
+ * sobre la lista de objetos, sobre el almacén columnar y con los índices de precios.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FiltrosBenchmark {
+
+    @Param({ "12000", "50000", "200000" })
+    public int tamano;
+
+    @Param({ "ubicacion", "marca", "combustibles", "precios", "favoritas", "abiertas", "todos" })
+    public String combinacion;
+
+    private List<GasolineraAPI> gasolineras;
+    private AlmacenGasolineras almacen;
+    private IndicesPrecios indices;
+    private ProveedorFavoritos favoritos;
+    private FiltrosManager filtrosManager;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        gasolineras = DatasetBenchmark.generar(tamano);
+        almacen = DatasetBenchmark.almacenar(gasolineras);
+        indices = IndicesPrecios.construir(almacen);
+        favoritos = DatasetBenchmark.favoritos(gasolineras);
+        filtrosManager = new FiltrosManager();
+
+        switch (combinacion) {
+            case "ubicacion":
+                filtrosManager.setProvincia("MADRID");
+                break;
+            case "marca":
+                filtrosManager.setGasolinera("rep");
+                break;
+            case "combustibles":
+                filtrosManager.setSoloGasolina95(true);
+                filtrosManager.setSoloGasolina98(true);
+                filtrosManager.setSoloDiesel(true);
+                break;
+            case "precios":
+                filtrosManager.setPrecioMaxGasolina95(1.55);
+                filtrosManager.setPrecioMaxDiesel(1.45);
+                break;
+            case "favoritas":
+                filtrosManager.setSoloFavoritas(true);
+                break;
+            case "abiertas":
+                filtrosManager.setSoloAbiertas(true);
+                filtrosManager.setMomentoApertura(LocalDateTime.of(2025, 1, 8, 22, 30));
+                break;
+            default:
+                filtrosManager.setProvincia("MADRID");
+                filtrosManager.setGasolinera("rep");
+                filtrosManager.setSoloGasolina95(true);
+                filtrosManager.setSolo24Horas(true);
+                filtrosManager.setPrecioMaxGasolina95(1.70);
+                break;
+        }
+    }
+
+    @Benchmark
+    public List<GasolineraAPI> aplicarFiltros() {
+        return filtrosManager.aplicarFiltros(gasolineras, favoritos);
+    }
+
+    @Benchmark
+    public BitSet aplicarFiltrosColumnar() {
+        return filtrosManager.aplicarFiltros(almacen, favoritos);
+    }
+
+    @Benchmark
+    public BitSet aplicarFiltrosIndexados() {
+        return filtrosManager.aplicarFiltros(almacen, indices, favoritos);
+    }
+}
@@ -0,0 +1,67 @@
+package com.eliasbuenosdias.geogas.benchmark;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.tiles.MapaCalorPrecios;
+import com.eliasbuenosdias.geogas.tiles.RegionTeselas;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste del mapa de calor de precios: la copia de precios que {@code GasStationViewModel}
+ * hace en el hilo principal tras cada sincronización o cambio de filtros, y el pintado de
+ * una tesela sobre Madrid, que se hace en los hilos del proveedor de teselas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MapaCalorBenchmark {
+
+    @Param({ "12000", "50000", "200000" })
+    public int tamano;
+
+    @Param({ "MINIMO", "MEDIANA" })
+    public MapaCalorPrecios.Modo modo;
+
+    /**
+     * Zoom de la tesela: 6 es la vista de país y 11 la de ciudad.
+     */
+    @Param({ "6", "11" })
+    public int zoom;
+
+    private AlmacenGasolineras almacen;
+    private BitSet filas;
+    private MapaCalorPrecios mapa;
+    private int x, y;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        almacen = DatasetBenchmark.almacenar(DatasetBenchmark.generar(tamano));
+        filas = new BitSet();
+        filas.set(0, almacen.tamano());
+        mapa = construir();
+        x = RegionTeselas.columna(-3.7038, zoom);
+        y = RegionTeselas.fila(40.4168, zoom);
+    }
+
+    @Benchmark
+    public MapaCalorPrecios construir() {
+        return MapaCalorPrecios.construir(almacen, filas, Combustible.GASOLINA_95, modo);
+    }
+
+    @Benchmark
+    public int[] pintarTesela() {
+        return mapa.pintar(zoom, x, y);
+    }
+}
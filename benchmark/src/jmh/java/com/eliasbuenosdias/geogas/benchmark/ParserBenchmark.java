@@ -0,0 +1,59 @@
+package com.eliasbuenosdias.geogas.benchmark;
+
+import com.eliasbuenosdias.geogas.data.ParserGasolineras;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste del parseo de la respuesta de la API: desde un {@link JsonElement} ya construido,
+ * desde el texto pasando por el árbol JSON y en streaming desde el texto.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParserBenchmark {
+
+    @Param({ "12000", "50000", "200000" })
+    public int tamano;
+
+    private final ParserGasolineras parser = new ParserGasolineras();
+    private String texto;
+    private JsonElement arbol;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        texto = DatasetBenchmark.generarJson(tamano);
+        arbol = JsonParser.parseString(texto);
+    }
+
+    @Benchmark
+    public List<GasolineraAPI> parsearArbol() {
+        return parser.parsear(arbol);
+    }
+
+    @Benchmark
+    public List<GasolineraAPI> parsearTexto() {
+        return parser.parsear(JsonParser.parseString(texto));
+    }
+
+    @Benchmark
+    public List<GasolineraAPI> parsearStreaming() throws IOException {
+        return parser.parsear(new StringReader(texto));
+    }
+}
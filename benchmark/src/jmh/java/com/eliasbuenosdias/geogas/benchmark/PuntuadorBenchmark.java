@@ -0,0 +1,43 @@
+package com.eliasbuenosdias.geogas.benchmark;
+
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.utils.PuntuadorGasolineras;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de {@link PuntuadorGasolineras#ordenarPorPuntuacion} sobre el conjunto completo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class PuntuadorBenchmark {
+
+    @Param({ "12000", "50000", "200000" })
+    public int tamano;
+
+    private List<GasolineraAPI> gasolineras;
+    private PuntuadorGasolineras puntuador;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        gasolineras = DatasetBenchmark.generar(tamano);
+        puntuador = new PuntuadorGasolineras(DatasetBenchmark.favoritos(gasolineras));
+    }
+
+    @Benchmark
+    public List<PuntuadorGasolineras.GasolineraPuntuada> ordenarPorPuntuacion() {
+        return puntuador.ordenarPorPuntuacion(gasolineras);
+    }
+}
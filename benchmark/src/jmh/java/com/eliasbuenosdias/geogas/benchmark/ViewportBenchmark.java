@@ -0,0 +1,111 @@
+package com.eliasbuenosdias.geogas.benchmark;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.data.CacheViewport;
+import com.eliasbuenosdias.geogas.data.ConsultaViewport;
+import com.eliasbuenosdias.geogas.data.PiramideRepresentantes;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.utils.ProveedorFavoritos;
+import com.eliasbuenosdias.geogas.utils.PuntuadorGasolineras;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de la consulta de viewport que ejecuta {@code GasStationViewModel} tras cada
+ * desplazamiento del mapa: recorrido, puntuación y selección de las 200 mejores, sobre la
+ * lista de objetos y sobre el almacén columnar. La variante precalculada es un
+ * desplazamiento corto servido por {@link CacheViewport} tras precalcular el anillo; la de
+ * representantes, la pirámide de {@link PiramideRepresentantes} que se usa en vistas alejadas.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ViewportBenchmark {
+
+    @Param({ "12000", "50000", "200000" })
+    public int tamano;
+
+    /**
+     * Vista de ciudad (Madrid) o de todo el país.
+     */
+    @Param({ "ciudad", "pais" })
+    public String vista;
+
+    private List<GasolineraAPI> gasolineras;
+    private AlmacenGasolineras almacen;
+    private BitSet filas;
+    private ProveedorFavoritos favoritos;
+    private PuntuadorGasolineras puntuador;
+    private CacheViewport cache;
+    private PiramideRepresentantes piramide;
+    private double norte, sur, este, oeste;
+
+    @Setup(Level.Trial)
+    public void preparar() {
+        gasolineras = DatasetBenchmark.generar(tamano);
+        almacen = DatasetBenchmark.almacenar(gasolineras);
+        filas = new BitSet();
+        filas.set(0, almacen.tamano());
+        favoritos = DatasetBenchmark.favoritos(gasolineras);
+        puntuador = new PuntuadorGasolineras(favoritos);
+        if ("ciudad".equals(vista)) {
+            norte = 40.56;
+            sur = 40.30;
+            este = -3.52;
+            oeste = -3.89;
+        } else {
+            norte = 43.90;
+            sur = 35.90;
+            este = 4.40;
+            oeste = -9.40;
+        }
+        cache = new CacheViewport(almacen);
+        cache.invalidar(filas, puntuador);
+        cache.precalcular(norte, sur, este, oeste);
+        piramide = construirPiramide();
+    }
+
+    @Benchmark
+    public List<GasolineraAPI> seleccionarVisibles() {
+        return ConsultaViewport.seleccionar(gasolineras, norte, sur, este, oeste, puntuador,
+                ConsultaViewport.LIMITE_VISIBLES);
+    }
+
+    @Benchmark
+    public int[] seleccionarVisiblesColumnar() {
+        return ConsultaViewport.seleccionar(almacen, filas, norte, sur, este, oeste, puntuador,
+                ConsultaViewport.LIMITE_VISIBLES);
+    }
+
+    @Benchmark
+    public int[] seleccionarVisiblesPrecalculado() {
+        // Desplazamiento de un cuarto de pantalla hacia el noreste
+        double alto = (norte - sur) / 4;
+        double ancho = (este - oeste) / 4;
+        return cache.seleccionar(norte + alto, sur + alto, este + ancho, oeste + ancho,
+                ConsultaViewport.LIMITE_VISIBLES);
+    }
+
+    @Benchmark
+    public int[] seleccionarRepresentantes() {
+        return piramide.seleccionar(norte, sur, este, oeste);
+    }
+
+    @Benchmark
+    public PiramideRepresentantes construirPiramide() {
+        return PiramideRepresentantes.construir(almacen, filas, Combustible.GASOLINA_95, favoritos);
+    }
+}
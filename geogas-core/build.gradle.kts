@@ -0,0 +1,23 @@
+// Núcleo de GeoGas en Java puro: modelo, ingesta, índices, filtrado y puntuación.
+// No depende de Android, de modo que se prueba y se mide en la JVM de escritorio.
+plugins {
+    `java-library`
+    `java-test-fixtures`
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+tasks.withType<JavaCompile>().configureEach {
+    options.encoding = "UTF-8"
+}
+
+dependencies {
+    // El modelo expone las anotaciones @SerializedName de Gson
+    api(libs.gson)
+
+    testImplementation(libs.junit)
+    testImplementation(libs.mockito.core)
+}
@@ -0,0 +1,159 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Adaptador Gson escrito a mano para {@link GasolineraAPI}, sin reflexión.
+ * <p>
+ * Lee cada clave del JSON del Ministerio con un {@code switch} sobre su nombre en lugar
+ * de resolver los campos por {@code @SerializedName}, de modo que R8 puede ofuscar y
+ * optimizar el modelo. Las claves que la aplicación no usa (porcentajes de
+ * biocombustibles, identificadores de municipio y provincia, etc.) se saltan sin crear
+ * cadenas. Provincias, municipios, rótulos y horarios se codifican en los
+ * {@link com.eliasbuenosdias.geogas.models.DiccionarioCadenas} compartidos al asignarlos, y
+ * el resto de valores repetidos (códigos postales, localidades, precios) se internan para
+ * que todas las gasolineras compartan la misma instancia.
+ * </p>
+ * <p>
+ * No es seguro para uso concurrente: cada {@link ParserGasolineras} tiene el suyo.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class AdaptadorGasolineraAPI extends TypeAdapter<GasolineraAPI> {
+
+    /**
+     * Tamaño a partir del cual se vacía la tabla de cadenas internadas. Los valores
+     * repetidos del volcado real están muy por debajo de este límite.
+     */
+    private static final int MAXIMO_INTERNADAS = 65_536;
+
+    private final Map<String, String> internadas = new HashMap<>();
+
+    @Override
+    public GasolineraAPI read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+
+        GasolineraAPI g = new GasolineraAPI();
+        in.beginObject();
+        while (in.hasNext()) {
+            String clave = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (clave) {
+                // Identificación y ubicación
+                case "IDEESS": g.setId(in.nextString()); break;
+                case "Rótulo": g.setRotulo(in.nextString()); break;
+                case "C.P.": g.setCodigoPostal(internar(in.nextString())); break;
+                case "Dirección": g.setDireccion(in.nextString()); break;
+                case "Localidad": g.setLocalidad(internar(in.nextString())); break;
+                case "Municipio": g.setMunicipio(in.nextString()); break;
+                case "Provincia": g.setProvincia(in.nextString()); break;
+                case "Latitud": g.setLatitud(in.nextString()); break;
+                case "Longitud (WGS84)": g.setLongitud(in.nextString()); break;
+                // Horarios y servicios
+                case "Horario": g.setHorario(in.nextString()); break;
+                case "Tipo Venta": g.setTipoVenta(internar(in.nextString())); break;
+                case "Remisión": g.setRemision(internar(in.nextString())); break;
+                case "Margen": g.setMargen(internar(in.nextString())); break;
+                // Gasolinas
+                case "Precio Gasolina 95 E5": g.setPrecioGasolina95(internar(in.nextString())); break;
+                case "Precio Gasolina 95 E10": g.setPrecioGasolina95E10(internar(in.nextString())); break;
+                case "Precio Gasolina 98 E5": g.setPrecioGasolina98(internar(in.nextString())); break;
+                case "Precio Gasolina 98 E10": g.setPrecioGasolina98E10(internar(in.nextString())); break;
+                // Gasóleos
+                case "Precio Gasoleo A": g.setPrecioGasoleoA(internar(in.nextString())); break;
+                case "Precio Gasoleo B": g.setPrecioGasoleoB(internar(in.nextString())); break;
+                case "Precio Gasoleo C": g.setPrecioGasoleoC(internar(in.nextString())); break;
+                case "Precio Gasoleo Premium": g.setPrecioGasoleoPremium(internar(in.nextString())); break;
+                // Combustibles alternativos
+                case "Precio Gases licuados del petróleo": g.setPrecioGLP(internar(in.nextString())); break;
+                case "Precio Gas Natural Comprimido": g.setPrecioGNC(internar(in.nextString())); break;
+                case "Precio Gas Natural Licuado": g.setPrecioGNL(internar(in.nextString())); break;
+                case "Precio Hidrogeno": g.setPrecioHidrogeno(internar(in.nextString())); break;
+                case "Precio Biodiesel": g.setPrecioBiodiesel(internar(in.nextString())); break;
+                case "Precio Bioetanol": g.setPrecioBioetanol(internar(in.nextString())); break;
+                // Fecha de actualización
+                case "Fecha": g.setFecha(internar(in.nextString())); break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return g;
+    }
+
+    @Override
+    public void write(JsonWriter out, GasolineraAPI g) throws IOException {
+        if (g == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        escribir(out, "IDEESS", g.getId());
+        escribir(out, "Rótulo", g.getRotulo());
+        escribir(out, "C.P.", g.getCodigoPostal());
+        escribir(out, "Dirección", g.getDireccion());
+        escribir(out, "Localidad", g.getLocalidad());
+        escribir(out, "Municipio", g.getMunicipio());
+        escribir(out, "Provincia", g.getProvincia());
+        escribir(out, "Latitud", g.getLatitud());
+        escribir(out, "Longitud (WGS84)", g.getLongitud());
+        escribir(out, "Horario", g.getHorario());
+        escribir(out, "Tipo Venta", g.getTipoVenta());
+        escribir(out, "Remisión", g.getRemision());
+        escribir(out, "Margen", g.getMargen());
+        escribir(out, "Precio Gasolina 95 E5", g.getPrecioGasolina95());
+        escribir(out, "Precio Gasolina 95 E10", g.getPrecioGasolina95E10());
+        escribir(out, "Precio Gasolina 98 E5", g.getPrecioGasolina98());
+        escribir(out, "Precio Gasolina 98 E10", g.getPrecioGasolina98E10());
+        escribir(out, "Precio Gasoleo A", g.getPrecioGasoleoA());
+        escribir(out, "Precio Gasoleo B", g.getPrecioGasoleoB());
+        escribir(out, "Precio Gasoleo C", g.getPrecioGasoleoC());
+        escribir(out, "Precio Gasoleo Premium", g.getPrecioGasoleoPremium());
+        escribir(out, "Precio Gases licuados del petróleo", g.getPrecioGLP());
+        escribir(out, "Precio Gas Natural Comprimido", g.getPrecioGNC());
+        escribir(out, "Precio Gas Natural Licuado", g.getPrecioGNL());
+        escribir(out, "Precio Hidrogeno", g.getPrecioHidrogeno());
+        escribir(out, "Precio Biodiesel", g.getPrecioBiodiesel());
+        escribir(out, "Precio Bioetanol", g.getPrecioBioetanol());
+        escribir(out, "Fecha", g.getFecha());
+        out.endObject();
+    }
+
+    /**
+     * Devuelve la instancia compartida de una cadena repetida.
+     *
+     * @param valor el valor leído
+     * @return una instancia igual a {@code valor} compartida entre gasolineras
+     */
+    String internar(String valor) {
+        String existente = internadas.get(valor);
+        if (existente != null)
+            return existente;
+        if (internadas.size() >= MAXIMO_INTERNADAS)
+            internadas.clear();
+        internadas.put(valor, valor);
+        return valor;
+    }
+
+    private static void escribir(JsonWriter out, String clave, String valor) throws IOException {
+        if (valor != null)
+            out.name(clave).value(valor);
+    }
+}
@@ -0,0 +1,316 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.DiccionarioCadenas;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Almacén columnar de las gasolineras actuales.
+ * <p>
+ * Guarda en arrays paralelos, indexados por número de fila, los datos que recorren los
+ * filtros, la consulta de viewport y el puntuador: coordenadas como {@code double},
+ * precios en milésimas de euro, identificadores de {@link DiccionarioCadenas} como
+ * {@code short} y una máscara de combustibles disponibles. Así cada recorrido lee memoria
+ * contigua en lugar de saltar entre objetos y cadenas.
+ * </p>
+ * <p>
+ * Las filas son estables: una gasolinera conserva su fila mientras exista y las filas de
+ * las eliminadas se reutilizan para las nuevas. Se actualiza con cada
+ * {@link CambiosSincronizacion}; las instancias de {@link GasolineraAPI} siguen en
+ * {@link SincronizadorGasolineras} para el panel de detalles y los marcadores.
+ * </p>
+ * <p>
+ * No es seguro para uso concurrente.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class AlmacenGasolineras {
+
+    /** Precio de un combustible que la gasolinera no tiene. */
+    public static final int SIN_PRECIO = -1;
+    /** Precio presente en el volcado pero que no se puede interpretar. */
+    public static final int PRECIO_INVALIDO = -2;
+
+    private static final int CAPACIDAD_INICIAL = 1024;
+    private static final int NUM_COMBUSTIBLES = Combustible.values().length;
+    /** Bit de la máscara que marca una fila ocupada. */
+    private static final long FILA_VIVA = 1L << 63;
+
+    private final Map<String, Integer> filaPorId = new HashMap<>();
+    private int[] filasLibres = new int[16];
+    private int numLibres;
+    private int tamano;
+
+    private String[] ids = new String[CAPACIDAD_INICIAL];
+    private double[] latitudes = new double[CAPACIDAD_INICIAL];
+    private double[] longitudes = new double[CAPACIDAD_INICIAL];
+    private final int[][] precios = new int[NUM_COMBUSTIBLES][CAPACIDAD_INICIAL];
+    private short[] provincias = new short[CAPACIDAD_INICIAL];
+    private short[] municipios = new short[CAPACIDAD_INICIAL];
+    private short[] rotulos = new short[CAPACIDAD_INICIAL];
+    private short[] horarios = new short[CAPACIDAD_INICIAL];
+    private long[] mascaras = new long[CAPACIDAD_INICIAL];
+
+    /**
+     * Aplica los cambios de una sincronización: libera las filas de las eliminadas y
+     * escribe las añadidas y modificadas.
+     *
+     * @param cambios los cambios devueltos por {@link SincronizadorGasolineras}
+     */
+    public void aplicar(CambiosSincronizacion cambios) {
+        for (GasolineraAPI g : cambios.getEliminadas())
+            eliminar(g.getId());
+        for (GasolineraAPI g : cambios.getActualizadas())
+            actualizar(g);
+    }
+
+    /**
+     * Escribe una gasolinera en su fila, asignándole una si es nueva.
+     *
+     * @param g la gasolinera, con identificador
+     * @return la fila de la gasolinera
+     */
+    public int actualizar(GasolineraAPI g) {
+        Integer existente = filaPorId.get(g.getId());
+        int fila = existente != null ? existente : asignarFila(g.getId());
+
+        latitudes[fila] = coordenada(g.getLatitud());
+        longitudes[fila] = coordenada(g.getLongitud());
+        provincias[fila] = comprimir(g.getIdProvincia());
+        municipios[fila] = comprimir(g.getIdMunicipio());
+        rotulos[fila] = comprimir(g.getIdRotulo());
+        horarios[fila] = comprimir(g.getIdHorario());
+
+        long mascara = FILA_VIVA;
+        for (Combustible c : Combustible.values()) {
+            String precio = c.precio(g);
+            precios[c.ordinal()][fila] = aMilesimas(precio);
+            if (precio != null && !precio.isEmpty())
+                mascara |= c.bit();
+        }
+        mascaras[fila] = mascara;
+        return fila;
+    }
+
+    /**
+     * Libera la fila de una gasolinera para que la reutilice otra.
+     *
+     * @param id el identificador IDEESS
+     */
+    public void eliminar(String id) {
+        Integer fila = filaPorId.remove(id);
+        if (fila == null)
+            return;
+        ids[fila] = null;
+        mascaras[fila] = 0;
+        if (numLibres == filasLibres.length)
+            filasLibres = Arrays.copyOf(filasLibres, numLibres * 2);
+        filasLibres[numLibres++] = fila;
+    }
+
+    /**
+     * Obtiene el número de filas usadas, incluidas las libres. Las filas válidas son las
+     * de {@code 0} a {@code tamano() - 1} para las que {@link #estaViva(int)} es cierto.
+     *
+     * @return el límite superior de las filas
+     */
+    public int tamano() {
+        return tamano;
+    }
+
+    /**
+     * Obtiene el número de gasolineras almacenadas.
+     *
+     * @return el número de filas ocupadas
+     */
+    public int size() {
+        return filaPorId.size();
+    }
+
+    /**
+     * Busca la fila de una gasolinera.
+     *
+     * @param id el identificador IDEESS
+     * @return la fila, o {@code -1} si no está
+     */
+    public int fila(String id) {
+        Integer fila = filaPorId.get(id);
+        return fila != null ? fila : -1;
+    }
+
+    /**
+     * Comprueba si una fila contiene una gasolinera.
+     *
+     * @param fila la fila
+     * @return {@code true} si la fila está ocupada
+     */
+    public boolean estaViva(int fila) {
+        return (mascaras[fila] & FILA_VIVA) != 0;
+    }
+
+    /**
+     * Obtiene el identificador IDEESS de una fila.
+     *
+     * @param fila la fila
+     * @return el identificador, o {@code null} si la fila está libre
+     */
+    public String id(int fila) {
+        return ids[fila];
+    }
+
+    /**
+     * Obtiene la latitud de una fila.
+     *
+     * @param fila la fila
+     * @return la latitud en grados, o {@code NaN} si no se pudo interpretar
+     */
+    public double latitud(int fila) {
+        return latitudes[fila];
+    }
+
+    /**
+     * Obtiene la longitud de una fila.
+     *
+     * @param fila la fila
+     * @return la longitud en grados, o {@code NaN} si no se pudo interpretar
+     */
+    public double longitud(int fila) {
+        return longitudes[fila];
+    }
+
+    /**
+     * Obtiene el precio de un combustible en milésimas de euro.
+     *
+     * @param fila        la fila
+     * @param combustible el combustible
+     * @return el precio, {@link #SIN_PRECIO} o {@link #PRECIO_INVALIDO}
+     */
+    public int precio(int fila, Combustible combustible) {
+        return precios[combustible.ordinal()][fila];
+    }
+
+    /**
+     * Obtiene la máscara de combustibles de una fila, con un bit por
+     * {@link Combustible#bit()} para cada precio no vacío.
+     *
+     * @param fila la fila
+     * @return la máscara de combustibles
+     */
+    public long combustibles(int fila) {
+        return mascaras[fila] & ~FILA_VIVA;
+    }
+
+    /**
+     * Obtiene el identificador de provincia de una fila.
+     *
+     * @param fila la fila
+     * @return el identificador en {@link DiccionarioCadenas#PROVINCIAS}
+     */
+    public int idProvincia(int fila) {
+        return expandir(provincias[fila]);
+    }
+
+    /**
+     * Obtiene el identificador de municipio de una fila.
+     *
+     * @param fila la fila
+     * @return el identificador en {@link DiccionarioCadenas#MUNICIPIOS}
+     */
+    public int idMunicipio(int fila) {
+        return expandir(municipios[fila]);
+    }
+
+    /**
+     * Obtiene el identificador de rótulo de una fila.
+     *
+     * @param fila la fila
+     * @return el identificador en {@link DiccionarioCadenas#ROTULOS}
+     */
+    public int idRotulo(int fila) {
+        return expandir(rotulos[fila]);
+    }
+
+    /**
+     * Obtiene el identificador de horario de una fila.
+     *
+     * @param fila la fila
+     * @return el identificador en {@link DiccionarioCadenas#HORARIOS}
+     */
+    public int idHorario(int fila) {
+        return expandir(horarios[fila]);
+    }
+
+    /**
+     * Convierte un precio con coma decimal a milésimas de euro.
+     *
+     * @param precio el precio tal como llega de la API
+     * @return el precio en milésimas, {@link #SIN_PRECIO} o {@link #PRECIO_INVALIDO}
+     */
+    public static int aMilesimas(String precio) {
+        if (precio == null)
+            return SIN_PRECIO;
+        try {
+            return (int) Math.round(Double.parseDouble(precio.replace(',', '.')) * 1000);
+        } catch (NumberFormatException e) {
+            return PRECIO_INVALIDO;
+        }
+    }
+
+    private int asignarFila(String id) {
+        int fila;
+        if (numLibres > 0) {
+            fila = filasLibres[--numLibres];
+        } else {
+            if (tamano == ids.length)
+                crecer();
+            fila = tamano++;
+        }
+        ids[fila] = id;
+        filaPorId.put(id, fila);
+        return fila;
+    }
+
+    private void crecer() {
+        int capacidad = ids.length + (ids.length >> 1);
+        ids = Arrays.copyOf(ids, capacidad);
+        latitudes = Arrays.copyOf(latitudes, capacidad);
+        longitudes = Arrays.copyOf(longitudes, capacidad);
+        for (int c = 0; c < NUM_COMBUSTIBLES; c++)
+            precios[c] = Arrays.copyOf(precios[c], capacidad);
+        provincias = Arrays.copyOf(provincias, capacidad);
+        municipios = Arrays.copyOf(municipios, capacidad);
+        rotulos = Arrays.copyOf(rotulos, capacidad);
+        horarios = Arrays.copyOf(horarios, capacidad);
+        mascaras = Arrays.copyOf(mascaras, capacidad);
+    }
+
+    private static double coordenada(String valor) {
+        if (valor == null)
+            return Double.NaN;
+        try {
+            return Double.parseDouble(valor.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Guarda un identificador de diccionario en 16 bits desplazado en uno, de modo que
+     * {@link DiccionarioCadenas#SIN_VALOR} se guarda como cero.
+     */
+    private static short comprimir(int id) {
+        if (id >= 0xFFFF)
+            throw new IllegalStateException("Diccionario demasiado grande para 16 bits: " + id);
+        return (short) (id + 1);
+    }
+
+    private static int expandir(short valor) {
+        return (valor & 0xFFFF) - 1;
+    }
+}
@@ -0,0 +1,304 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.utils.PuntuadorGasolineras;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Caché de selecciones del viewport precalculadas alrededor de lo que muestra el mapa.
+ * <p>
+ * Divide el mapa en celdas del tamaño del viewport redondeado a la potencia de dos
+ * siguiente ({@code 360 / 2^k} grados de longitud y {@code 180 / 2^k} de latitud), de modo
+ * que un viewport toca como mucho dos celdas por eje y al acercar o alejar un zoom el
+ * nivel de celda sube o baja en uno. Cada celda guarda sus filas filtradas ordenadas como
+ * las devuelve {@link ConsultaViewport#seleccionar(AlmacenGasolineras, BitSet, double, double,
+ * double, double, PuntuadorGasolineras, int)}; una consulta cuyas celdas están todas
+ * calculadas se resuelve mezclando esas listas, sin recorrer el almacén.
+ * </p>
+ * <p>
+ * {@link #precalcularSiguiente(double, double, double, double)} calcula una celda cada vez
+ * para poder repartir el trabajo en los momentos en que la aplicación está ociosa: primero
+ * las que cubren el viewport, luego el anillo de celdas vecinas y por último las del zoom
+ * siguiente y el anterior.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class CacheViewport {
+
+    /** Número máximo de celdas guardadas; se descartan las usadas hace más tiempo. */
+    public static final int MAXIMO_CELDAS = 64;
+    /** Nivel de celda más fino; bastante más que el zoom máximo del mapa. */
+    private static final int NIVEL_MAXIMO = 24;
+
+    /**
+     * Filas de una celda en orden de selección, con sus puntuaciones si hay puntuador.
+     */
+    private static final class Celda {
+        final int[] filas;
+        final double[] puntuaciones;
+
+        Celda(int[] filas, double[] puntuaciones) {
+            this.filas = filas;
+            this.puntuaciones = puntuaciones;
+        }
+    }
+
+    private final AlmacenGasolineras almacen;
+    private final Map<Long, Celda> celdas = new LinkedHashMap<Long, Celda>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Celda> mayor) {
+            return size() > MAXIMO_CELDAS;
+        }
+    };
+    private BitSet filas = new BitSet();
+    private PuntuadorGasolineras puntuador;
+
+    /**
+     * Construye una caché vacía sobre un almacén.
+     *
+     * @param almacen el almacén columnar
+     */
+    public CacheViewport(AlmacenGasolineras almacen) {
+        this.almacen = almacen;
+    }
+
+    /**
+     * Descarta todas las celdas y cambia las filas candidatas y el puntuador. Hay que
+     * llamarlo cada vez que cambian el almacén, los filtros o las puntuaciones.
+     *
+     * @param filas     las filas que cumplen los filtros; no se copian ni se modifican
+     * @param puntuador el puntuador, o {@code null}
+     */
+    public void invalidar(BitSet filas, PuntuadorGasolineras puntuador) {
+        this.filas = filas;
+        this.puntuador = puntuador;
+        celdas.clear();
+    }
+
+    /**
+     * Recoloca una fila cuya puntuación ha cambiado, por ejemplo al marcarla como favorita,
+     * en las celdas calculadas que la contienen. Las demás celdas siguen valiendo.
+     *
+     * @param fila la fila
+     */
+    public void recolocar(int fila) {
+        if (puntuador == null || !filas.get(fila))
+            return;
+        double puntuacion = puntuador.calcularPuntuacion(almacen, fila);
+        for (Celda celda : celdas.values()) {
+            int i = 0;
+            while (i < celda.filas.length && celda.filas[i] != fila)
+                i++;
+            if (i == celda.filas.length)
+                continue;
+            // Desplaza las intermedias un puesto hacia donde estaba la fila
+            int[] f = celda.filas;
+            double[] p = celda.puntuaciones;
+            while (i > 0 && (p[i - 1] < puntuacion || (p[i - 1] == puntuacion && f[i - 1] > fila))) {
+                f[i] = f[i - 1];
+                p[i] = p[i - 1];
+                i--;
+            }
+            while (i + 1 < f.length && (p[i + 1] > puntuacion || (p[i + 1] == puntuacion && f[i + 1] < fila))) {
+                f[i] = f[i + 1];
+                p[i] = p[i + 1];
+                i++;
+            }
+            f[i] = fila;
+            p[i] = puntuacion;
+        }
+    }
+
+    /**
+     * Selecciona las filas visibles a partir de las celdas calculadas.
+     *
+     * @param norte  latitud norte
+     * @param sur    latitud sur
+     * @param este   longitud este
+     * @param oeste  longitud oeste
+     * @param limite número máximo de filas si hay puntuador
+     * @return lo mismo que {@link ConsultaViewport#seleccionar(AlmacenGasolineras, BitSet, double,
+     *         double, double, double, PuntuadorGasolineras, int)}, o {@code null} si falta alguna
+     *         celda
+     */
+    public int[] seleccionar(double norte, double sur, double este, double oeste, int limite) {
+        int nivelLon = nivelLongitud(este - oeste);
+        int nivelLat = nivelLatitud(norte - sur);
+        List<Celda> tocadas = new ArrayList<>(4);
+        for (int x = columna(oeste, nivelLon); x <= columna(este, nivelLon); x++) {
+            for (int y = fila(sur, nivelLat); y <= fila(norte, nivelLat); y++) {
+                Celda celda = celdas.get(clave(nivelLon, nivelLat, x, y));
+                if (celda == null)
+                    return null;
+                tocadas.add(celda);
+            }
+        }
+        return mezclar(tocadas, norte, sur, este, oeste, puntuador != null ? limite : Integer.MAX_VALUE);
+    }
+
+    /**
+     * Calcula la siguiente celda que falta alrededor del viewport.
+     *
+     * @param norte latitud norte
+     * @param sur   latitud sur
+     * @param este  longitud este
+     * @param oeste longitud oeste
+     * @return {@code true} si ha calculado una celda y puede faltar alguna más
+     */
+    public boolean precalcularSiguiente(double norte, double sur, double este, double oeste) {
+        int nivelLon = nivelLongitud(este - oeste);
+        int nivelLat = nivelLatitud(norte - sur);
+        double centroLat = (norte + sur) / 2;
+        double centroLon = (este + oeste) / 2;
+        double medioAlto = (norte - sur) / 2;
+        double medioAncho = (este - oeste) / 2;
+
+        // El viewport y su anillo, el zoom siguiente (mitad de tamaño) y el anterior (doble)
+        return calcularPrimeraQueFalte(nivelLon, nivelLat, norte, sur, este, oeste, 0)
+                || calcularPrimeraQueFalte(nivelLon, nivelLat, norte, sur, este, oeste, 1)
+                || calcularPrimeraQueFalte(nivelLon + 1, nivelLat + 1, centroLat + medioAlto / 2,
+                        centroLat - medioAlto / 2, centroLon + medioAncho / 2, centroLon - medioAncho / 2, 0)
+                || calcularPrimeraQueFalte(nivelLon - 1, nivelLat - 1, centroLat + medioAlto * 2,
+                        centroLat - medioAlto * 2, centroLon + medioAncho * 2, centroLon - medioAncho * 2, 0);
+    }
+
+    /**
+     * Calcula todas las celdas que faltan alrededor del viewport.
+     *
+     * @param norte latitud norte
+     * @param sur   latitud sur
+     * @param este  longitud este
+     * @param oeste longitud oeste
+     */
+    public void precalcular(double norte, double sur, double este, double oeste) {
+        while (precalcularSiguiente(norte, sur, este, oeste)) {
+            // Una celda por vuelta
+        }
+    }
+
+    /**
+     * Obtiene el número de celdas calculadas.
+     *
+     * @return las celdas en la caché
+     */
+    public int tamano() {
+        return celdas.size();
+    }
+
+    private boolean calcularPrimeraQueFalte(int nivelLon, int nivelLat, double norte, double sur,
+            double este, double oeste, int anillo) {
+        if (nivelLon < 0 || nivelLat < 0 || nivelLon > NIVEL_MAXIMO || nivelLat > NIVEL_MAXIMO)
+            return false;
+        int ultimaColumna = (1 << nivelLon) - 1;
+        int ultimaFila = (1 << nivelLat) - 1;
+        int x0 = Math.max(0, columna(oeste, nivelLon) - anillo);
+        int x1 = Math.min(ultimaColumna, columna(este, nivelLon) + anillo);
+        int y0 = Math.max(0, fila(sur, nivelLat) - anillo);
+        int y1 = Math.min(ultimaFila, fila(norte, nivelLat) + anillo);
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                long clave = clave(nivelLon, nivelLat, x, y);
+                if (!celdas.containsKey(clave)) {
+                    celdas.put(clave, calcular(nivelLon, nivelLat, x, y));
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private Celda calcular(int nivelLon, int nivelLat, int x, int y) {
+        // La pertenencia se decide con la misma cuenta que usa la consulta para elegir celdas
+        BitSet enCelda = new BitSet(almacen.tamano());
+        int dentro = 0;
+        for (int fila = filas.nextSetBit(0); fila >= 0; fila = filas.nextSetBit(fila + 1)) {
+            double lat = almacen.latitud(fila);
+            double lon = almacen.longitud(fila);
+            if (!Double.isNaN(lat) && !Double.isNaN(lon)
+                    && columna(lon, nivelLon) == x && fila(lat, nivelLat) == y) {
+                enCelda.set(fila);
+                dentro++;
+            }
+        }
+        int[] seleccion = ConsultaViewport.seleccionar(almacen, enCelda, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, puntuador, dentro);
+        double[] puntuaciones = null;
+        if (puntuador != null) {
+            puntuaciones = new double[seleccion.length];
+            for (int i = 0; i < seleccion.length; i++)
+                puntuaciones[i] = puntuador.calcularPuntuacion(almacen, seleccion[i]);
+        }
+        return new Celda(seleccion, puntuaciones);
+    }
+
+    /**
+     * Mezcla las listas ordenadas de las celdas quedándose con las filas del rectángulo.
+     * Cada fila está en una sola celda, así que no hay repetidas.
+     */
+    private int[] mezclar(List<Celda> tocadas, double norte, double sur, double este, double oeste, int limite) {
+        int[] posiciones = new int[tocadas.size()];
+        int total = 0;
+        for (Celda celda : tocadas)
+            total += celda.filas.length;
+        int[] resultado = new int[Math.min(total, limite)];
+        int n = 0;
+        while (n < resultado.length) {
+            int mejor = -1;
+            for (int i = 0; i < tocadas.size(); i++) {
+                Celda celda = tocadas.get(i);
+                if (posiciones[i] < celda.filas.length
+                        && (mejor < 0 || antes(celda, posiciones[i], tocadas.get(mejor), posiciones[mejor])))
+                    mejor = i;
+            }
+            if (mejor < 0)
+                break;
+            int fila = tocadas.get(mejor).filas[posiciones[mejor]++];
+            if (ConsultaViewport.contiene(almacen, fila, norte, sur, este, oeste))
+                resultado[n++] = fila;
+        }
+        return n == resultado.length ? resultado : Arrays.copyOf(resultado, n);
+    }
+
+    private static boolean antes(Celda a, int i, Celda b, int j) {
+        if (a.puntuaciones != null && a.puntuaciones[i] != b.puntuaciones[j])
+            return a.puntuaciones[i] > b.puntuaciones[j];
+        return a.filas[i] < b.filas[j];
+    }
+
+    private static int nivelLongitud(double ancho) {
+        return nivel(360.0 / ancho);
+    }
+
+    private static int nivelLatitud(double alto) {
+        return nivel(180.0 / alto);
+    }
+
+    /** Mayor {@code k} tal que una celda de {@code 1 / 2^k} del mapa sigue cubriendo el viewport. */
+    private static int nivel(double proporcion) {
+        if (!(proporcion > 1))
+            return 0;
+        int k = 31 - Integer.numberOfLeadingZeros((int) Math.min(proporcion, 1 << NIVEL_MAXIMO));
+        return Math.min(NIVEL_MAXIMO, k);
+    }
+
+    private static int columna(double longitud, int nivel) {
+        int x = (int) Math.floor((longitud + 180.0) / (360.0 / (1 << nivel)));
+        return Math.max(0, Math.min((1 << nivel) - 1, x));
+    }
+
+    private static int fila(double latitud, int nivel) {
+        int y = (int) Math.floor((latitud + 90.0) / (180.0 / (1 << nivel)));
+        return Math.max(0, Math.min((1 << nivel) - 1, y));
+    }
+
+    private static long clave(int nivelLon, int nivelLat, int x, int y) {
+        return ((long) nivelLon << 59) | ((long) nivelLat << 54) | ((long) x << 27) | y;
+    }
+}
@@ -0,0 +1,175 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Resultado de comparar un nuevo volcado de la API con el conjunto actual de gasolineras.
+ * <p>
+ * Clasifica cada estación por su identificador IDEESS en añadida, eliminada, con cambio
+ * de precios o con cambio de metadatos (una misma estación puede tener ambos cambios).
+ * Para las estaciones modificadas o eliminadas conserva la versión anterior, de modo
+ * que los índices derivados puedan retirar sus valores antiguos sin recorrer todo el conjunto.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class CambiosSincronizacion {
+
+    private final List<GasolineraAPI> anadidas = new ArrayList<>();
+    private final List<GasolineraAPI> eliminadas = new ArrayList<>();
+    private final List<GasolineraAPI> preciosCambiados = new ArrayList<>();
+    private final List<GasolineraAPI> metadatosCambiados = new ArrayList<>();
+    private final Map<String, GasolineraAPI> anteriores = new HashMap<>();
+
+    void registrarAnadida(GasolineraAPI gasolinera) {
+        anadidas.add(gasolinera);
+    }
+
+    void registrarEliminada(GasolineraAPI gasolinera) {
+        eliminadas.add(gasolinera);
+    }
+
+    void registrarModificada(GasolineraAPI anterior, GasolineraAPI nueva, boolean precios, boolean metadatos) {
+        if (precios)
+            preciosCambiados.add(nueva);
+        if (metadatos)
+            metadatosCambiados.add(nueva);
+        anteriores.put(nueva.getId(), anterior);
+    }
+
+    /**
+     * Obtiene las gasolineras que no existían en el conjunto anterior.
+     *
+     * @return lista de gasolineras añadidas
+     */
+    public List<GasolineraAPI> getAnadidas() {
+        return Collections.unmodifiableList(anadidas);
+    }
+
+    /**
+     * Obtiene las gasolineras que ya no aparecen en el nuevo volcado.
+     *
+     * @return lista con la última versión conocida de las gasolineras eliminadas
+     */
+    public List<GasolineraAPI> getEliminadas() {
+        return Collections.unmodifiableList(eliminadas);
+    }
+
+    /**
+     * Obtiene las gasolineras cuyo precio de algún combustible ha cambiado.
+     *
+     * @return lista con la nueva versión de las gasolineras
+     */
+    public List<GasolineraAPI> getPreciosCambiados() {
+        return Collections.unmodifiableList(preciosCambiados);
+    }
+
+    /**
+     * Obtiene las gasolineras cuyos datos descriptivos (rótulo, dirección, horario,
+     * coordenadas...) han cambiado.
+     *
+     * @return lista con la nueva versión de las gasolineras
+     */
+    public List<GasolineraAPI> getMetadatosCambiados() {
+        return Collections.unmodifiableList(metadatosCambiados);
+    }
+
+    /**
+     * Obtiene todas las gasolineras que hay que reevaluar: añadidas y modificadas,
+     * sin repeticiones.
+     *
+     * @return lista con la nueva versión de cada gasolinera afectada
+     */
+    public List<GasolineraAPI> getActualizadas() {
+        List<GasolineraAPI> actualizadas = new ArrayList<>(anadidas.size() + anteriores.size());
+        actualizadas.addAll(anadidas);
+        actualizadas.addAll(preciosCambiados);
+        Set<String> conPrecio = new HashSet<>();
+        for (GasolineraAPI g : preciosCambiados)
+            conPrecio.add(g.getId());
+        for (GasolineraAPI g : metadatosCambiados) {
+            if (!conPrecio.contains(g.getId()))
+                actualizadas.add(g);
+        }
+        return actualizadas;
+    }
+
+    /**
+     * Obtiene la versión anterior de una gasolinera modificada.
+     *
+     * @param id el identificador IDEESS
+     * @return la versión anterior o {@code null} si la gasolinera no fue modificada
+     */
+    public GasolineraAPI getAnterior(String id) {
+        return anteriores.get(id);
+    }
+
+    /**
+     * Indica si el cambio afecta a rótulos, provincias, municipios u otros datos
+     * descriptivos, y por tanto a los índices construidos sobre ellos.
+     *
+     * @return {@code true} si hay altas, bajas o cambios de metadatos
+     */
+    public boolean afectaAMetadatos() {
+        return !anadidas.isEmpty() || !eliminadas.isEmpty() || !metadatosCambiados.isEmpty();
+    }
+
+    /**
+     * Indica si alguna gasolinera que sigue en el volcado ha cambiado el precio de un
+     * combustible. Las altas y bajas no se tienen en cuenta.
+     *
+     * @param combustible el combustible
+     * @return {@code true} si alguna gasolinera modificada tiene otro precio de ese combustible
+     */
+    public boolean afectaAPrecios(Combustible combustible) {
+        for (GasolineraAPI g : preciosCambiados) {
+            if (!Objects.equals(combustible.precio(g), combustible.precio(anteriores.get(g.getId()))))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Indica si alguna gasolinera que sigue en el volcado ha cambiado de coordenadas.
+     *
+     * @return {@code true} si alguna gasolinera modificada tiene otra latitud o longitud
+     */
+    public boolean afectaAUbicaciones() {
+        for (GasolineraAPI g : metadatosCambiados) {
+            GasolineraAPI anterior = anteriores.get(g.getId());
+            if (!Objects.equals(g.getLatitud(), anterior.getLatitud())
+                    || !Objects.equals(g.getLongitud(), anterior.getLongitud()))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Número total de gasolineras afectadas por la sincronización.
+     *
+     * @return suma de añadidas, eliminadas y modificadas
+     */
+    public int getTotal() {
+        return anadidas.size() + eliminadas.size() + anteriores.size();
+    }
+
+    /**
+     * Indica si el nuevo volcado es idéntico al anterior.
+     *
+     * @return {@code true} si no hay ningún cambio
+     */
+    public boolean estaVacio() {
+        return getTotal() == 0;
+    }
+}
@@ -0,0 +1,134 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Diferencia entre dos publicaciones consecutivas del conjunto de gasolineras visibles.
+ * <p>
+ * Se calcula comparando los conjuntos de filas del almacén, sin recorrer las gasolineras
+ * que siguen igual: las que entran, las que salen y las que siguen visibles pero han
+ * cambiado en una sincronización. Quien la recibe aplica un trabajo proporcional a los
+ * cambios en lugar de comparar listas completas.
+ * </p>
+ * <p>
+ * Cada diferencia lleva la versión del conjunto que deja. Si un consumidor recibe una cuya
+ * versión no es la siguiente a la última que aplicó (por ejemplo, porque estaba en segundo
+ * plano y se ha perdido alguna), debe volver a empezar desde el conjunto completo.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class CambiosVisibles {
+
+    private final long version;
+    private final int total;
+    private final List<GasolineraAPI> entradas;
+    private final List<String> salidas;
+    private final List<GasolineraAPI> cambiadas;
+
+    private CambiosVisibles(long version, int total, List<GasolineraAPI> entradas, List<String> salidas,
+            List<GasolineraAPI> cambiadas) {
+        this.version = version;
+        this.total = total;
+        this.entradas = entradas;
+        this.salidas = salidas;
+        this.cambiadas = cambiadas;
+    }
+
+    /**
+     * Calcula la diferencia entre el conjunto publicado y el nuevo.
+     *
+     * @param version     la versión del nuevo conjunto
+     * @param anteriores  las filas publicadas; las de gasolineras eliminadas del almacén ya
+     *                    deben estar quitadas, porque el almacén reutiliza sus filas
+     * @param nuevas      las filas del nuevo conjunto
+     * @param modificadas las filas actualizadas por sincronizaciones desde la publicación anterior
+     * @param eliminadas  los IDEESS de las gasolineras publicadas que se han eliminado del almacén
+     * @param almacen     el almacén columnar
+     * @param gasolinera  la gasolinera de cada fila
+     * @return la diferencia
+     */
+    public static CambiosVisibles calcular(long version, BitSet anteriores, BitSet nuevas, BitSet modificadas,
+            List<String> eliminadas, AlmacenGasolineras almacen, IntFunction<GasolineraAPI> gasolinera) {
+        // Operaciones de 64 filas en 64 filas; solo se recorren los bits que cambian
+        BitSet entran = (BitSet) nuevas.clone();
+        entran.andNot(anteriores);
+        BitSet salen = (BitSet) anteriores.clone();
+        salen.andNot(nuevas);
+        BitSet siguen = (BitSet) modificadas.clone();
+        siguen.and(anteriores);
+        siguen.and(nuevas);
+
+        List<GasolineraAPI> entradas = new ArrayList<>(entran.cardinality());
+        List<String> salidas = new ArrayList<>(eliminadas);
+        List<GasolineraAPI> cambiadas = new ArrayList<>(siguen.cardinality());
+        for (int fila = entran.nextSetBit(0); fila >= 0; fila = entran.nextSetBit(fila + 1))
+            entradas.add(gasolinera.apply(fila));
+        for (int fila = salen.nextSetBit(0); fila >= 0; fila = salen.nextSetBit(fila + 1))
+            salidas.add(almacen.id(fila));
+        for (int fila = siguen.nextSetBit(0); fila >= 0; fila = siguen.nextSetBit(fila + 1))
+            cambiadas.add(gasolinera.apply(fila));
+        return new CambiosVisibles(version, nuevas.cardinality(), entradas, salidas, cambiadas);
+    }
+
+    /**
+     * Indica si no ha entrado, salido ni cambiado ninguna gasolinera.
+     *
+     * @return {@code true} si la diferencia está vacía
+     */
+    public boolean estaVacio() {
+        return entradas.isEmpty() && salidas.isEmpty() && cambiadas.isEmpty();
+    }
+
+    /**
+     * Obtiene la versión del conjunto que deja esta diferencia.
+     *
+     * @return la versión; la primera publicación es la 1
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Obtiene el número de gasolineras visibles tras la diferencia.
+     *
+     * @return el tamaño del nuevo conjunto
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Obtiene las gasolineras que pasan a ser visibles.
+     *
+     * @return lista de gasolineras que entran
+     */
+    public List<GasolineraAPI> getEntradas() {
+        return Collections.unmodifiableList(entradas);
+    }
+
+    /**
+     * Obtiene los IDEESS de las gasolineras que dejan de ser visibles.
+     *
+     * @return lista de identificadores que salen
+     */
+    public List<String> getSalidas() {
+        return Collections.unmodifiableList(salidas);
+    }
+
+    /**
+     * Obtiene las gasolineras que siguen visibles pero han cambiado.
+     *
+     * @return lista con la nueva versión de las gasolineras
+     */
+    public List<GasolineraAPI> getCambiadas() {
+        return Collections.unmodifiableList(cambiadas);
+    }
+}
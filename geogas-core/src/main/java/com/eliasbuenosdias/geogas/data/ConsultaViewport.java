@@ -0,0 +1,204 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.utils.PuntuadorGasolineras;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Selección de las gasolineras visibles en un rectángulo del mapa.
+ * <p>
+ * Trabaja con coordenadas en grados en lugar de con el {@code BoundingBox} de osmdroid
+ * para poder ejecutarse y medirse fuera de Android.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class ConsultaViewport {
+
+    /**
+     * Número máximo de marcadores que se muestran a la vez.
+     */
+    public static final int LIMITE_VISIBLES = 200;
+
+    private ConsultaViewport() {
+    }
+
+    /**
+     * Comprueba si una gasolinera está dentro del rectángulo.
+     * Las coordenadas que no se pueden interpretar se consideran fuera.
+     *
+     * @param g     la gasolinera
+     * @param norte latitud norte
+     * @param sur   latitud sur
+     * @param este  longitud este
+     * @param oeste longitud oeste
+     * @return {@code true} si la gasolinera está dentro
+     */
+    public static boolean contiene(GasolineraAPI g, double norte, double sur, double este, double oeste) {
+        try {
+            double lat = Double.parseDouble(g.getLatitud().replace(",", "."));
+            double lon = Double.parseDouble(g.getLongitud().replace(",", "."));
+            return lat <= norte && lat >= sur && lon <= este && lon >= oeste;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Selecciona las gasolineras del rectángulo y, si hay puntuador, se queda con las
+     * {@code limite} de mayor puntuación.
+     *
+     * @param gasolineras las gasolineras candidatas
+     * @param norte       latitud norte
+     * @param sur         latitud sur
+     * @param este        longitud este
+     * @param oeste       longitud oeste
+     * @param puntuador   el puntuador, o {@code null} para devolver todas sin ordenar
+     * @param limite      número máximo de gasolineras si hay puntuador
+     * @return las gasolineras visibles
+     */
+    public static List<GasolineraAPI> seleccionar(Collection<GasolineraAPI> gasolineras, double norte,
+            double sur, double este, double oeste, PuntuadorGasolineras puntuador, int limite) {
+        List<GasolineraAPI> enViewport = new ArrayList<>();
+        for (GasolineraAPI g : gasolineras) {
+            if (contiene(g, norte, sur, este, oeste))
+                enViewport.add(g);
+        }
+        if (puntuador == null)
+            return enViewport;
+
+        List<PuntuadorGasolineras.GasolineraPuntuada> puntuadas = puntuador.ordenarPorPuntuacion(enViewport);
+        int tope = Math.min(limite, puntuadas.size());
+        List<GasolineraAPI> resultado = new ArrayList<>(tope);
+        for (int i = 0; i < tope; i++)
+            resultado.add(puntuadas.get(i).gasolinera);
+        return resultado;
+    }
+
+    /**
+     * Comprueba si la gasolinera de una fila está dentro del rectángulo.
+     *
+     * @param almacen el almacén columnar
+     * @param fila    la fila
+     * @param norte   latitud norte
+     * @param sur     latitud sur
+     * @param este    longitud este
+     * @param oeste   longitud oeste
+     * @return {@code true} si la gasolinera está dentro
+     */
+    public static boolean contiene(AlmacenGasolineras almacen, int fila, double norte, double sur,
+            double este, double oeste) {
+        double lat = almacen.latitud(fila);
+        double lon = almacen.longitud(fila);
+        return lat <= norte && lat >= sur && lon <= este && lon >= oeste;
+    }
+
+    /**
+     * Selecciona las filas del rectángulo y, si hay puntuador, se queda con las
+     * {@code limite} de mayor puntuación, de mayor a menor. A igual puntuación gana la
+     * fila más baja.
+     * <p>
+     * Solo lee las columnas de coordenadas y las que usa el puntuador, y mantiene las
+     * mejores en un montículo de tamaño {@code limite} en lugar de ordenar todas las
+     * candidatas.
+     * </p>
+     *
+     * @param almacen   el almacén columnar
+     * @param filas     las filas candidatas
+     * @param norte     latitud norte
+     * @param sur       latitud sur
+     * @param este      longitud este
+     * @param oeste     longitud oeste
+     * @param puntuador el puntuador, o {@code null} para devolver todas en orden de fila
+     * @param limite    número máximo de filas si hay puntuador
+     * @return las filas visibles
+     */
+    public static int[] seleccionar(AlmacenGasolineras almacen, BitSet filas, double norte, double sur,
+            double este, double oeste, PuntuadorGasolineras puntuador, int limite) {
+        if (puntuador == null) {
+            int[] enViewport = new int[filas.cardinality()];
+            int n = 0;
+            for (int fila = filas.nextSetBit(0); fila >= 0; fila = filas.nextSetBit(fila + 1)) {
+                if (contiene(almacen, fila, norte, sur, este, oeste))
+                    enViewport[n++] = fila;
+            }
+            return Arrays.copyOf(enViewport, n);
+        }
+
+        // Montículo de mínimos: en la raíz está la peor de las seleccionadas
+        double[] puntuaciones = new double[limite];
+        int[] seleccionadas = new int[limite];
+        int n = 0;
+        for (int fila = filas.nextSetBit(0); fila >= 0; fila = filas.nextSetBit(fila + 1)) {
+            if (!contiene(almacen, fila, norte, sur, este, oeste))
+                continue;
+            double puntuacion = puntuador.calcularPuntuacion(almacen, fila);
+            if (n < limite) {
+                puntuaciones[n] = puntuacion;
+                seleccionadas[n] = fila;
+                subir(puntuaciones, seleccionadas, n++);
+            } else if (limite > 0 && peor(puntuaciones[0], seleccionadas[0], puntuacion, fila)) {
+                puntuaciones[0] = puntuacion;
+                seleccionadas[0] = fila;
+                bajar(puntuaciones, seleccionadas, 0, n);
+            }
+        }
+
+        // Extraer de peor a mejor rellenando desde el final
+        int[] resultado = new int[n];
+        for (int i = n - 1; i >= 0; i--) {
+            resultado[i] = seleccionadas[0];
+            puntuaciones[0] = puntuaciones[i];
+            seleccionadas[0] = seleccionadas[i];
+            bajar(puntuaciones, seleccionadas, 0, i);
+        }
+        return resultado;
+    }
+
+    /**
+     * Indica si {@code (pa, fa)} queda por detrás de {@code (pb, fb)} en el orden de
+     * selección.
+     */
+    private static boolean peor(double pa, int fa, double pb, int fb) {
+        return pa < pb || (pa == pb && fa > fb);
+    }
+
+    private static void subir(double[] p, int[] f, int i) {
+        while (i > 0) {
+            int padre = (i - 1) >>> 1;
+            if (!peor(p[i], f[i], p[padre], f[padre]))
+                return;
+            intercambiar(p, f, i, padre);
+            i = padre;
+        }
+    }
+
+    private static void bajar(double[] p, int[] f, int i, int n) {
+        while (true) {
+            int hijo = 2 * i + 1;
+            if (hijo >= n)
+                return;
+            if (hijo + 1 < n && peor(p[hijo + 1], f[hijo + 1], p[hijo], f[hijo]))
+                hijo++;
+            if (!peor(p[hijo], f[hijo], p[i], f[i]))
+                return;
+            intercambiar(p, f, i, hijo);
+            i = hijo;
+        }
+    }
+
+    private static void intercambiar(double[] p, int[] f, int a, int b) {
+        double pt = p[a];
+        p[a] = p[b];
+        p[b] = pt;
+        int ft = f[a];
+        f[a] = f[b];
+        f[b] = ft;
+    }
+}
@@ -0,0 +1,113 @@
+package com.eliasbuenosdias.geogas.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Construcción en paralelo de las estructuras que se derivan del almacén tras una
+ * sincronización: índices de precios, índice de búsqueda, listas de autocompletado,
+ * pirámide de representantes, mapa de calor...
+ * <p>
+ * Cada estructura solo lee el almacén y las filas ya resueltas, así que no dependen unas de
+ * otras. Las tareas se lanzan en un {@link ForkJoinPool} según se añaden y
+ * {@link #completar()} es la única barrera: espera a todas y solo entonces pueden leerse
+ * los resultados y publicarse juntos. Mientras tanto ninguna estructura a medio construir
+ * es visible para la interfaz.
+ * </p>
+ * <p>
+ * Una etapa se usa una vez. Las tareas se añaden desde un solo hilo y la etapa puede
+ * completarse desde otro al que se pase después, de modo que el hilo principal la lance
+ * sin quedarse esperando a la barrera.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class EtapaIndexado {
+
+    private final ForkJoinPool pool;
+    private final List<ForkJoinTask<?>> tareas = new ArrayList<>();
+    private boolean completada;
+
+    /**
+     * Crea una etapa sobre un pool compartido.
+     *
+     * @param pool el pool donde se ejecutan las tareas
+     */
+    public EtapaIndexado(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Crea un pool con un hilo por núcleo del dispositivo para las etapas de indexado.
+     *
+     * @return el pool, que debe cerrarse con {@link ForkJoinPool#shutdown()} al terminar
+     */
+    public static ForkJoinPool crearPool() {
+        return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Lanza una tarea que construye una estructura.
+     *
+     * @param tarea la construcción
+     * @param <T>   el tipo de la estructura
+     * @return el resultado, que solo puede leerse después de {@link #completar()}
+     * @throws IllegalStateException si la etapa ya se ha completado
+     */
+    public <T> Supplier<T> anadir(Callable<T> tarea) {
+        ForkJoinTask<T> lanzada = lanzar(ForkJoinTask.adapt(tarea));
+        return () -> {
+            if (!completada)
+                throw new IllegalStateException("La etapa de indexado no se ha completado");
+            return lanzada.join();
+        };
+    }
+
+    /**
+     * Lanza una tarea que actualiza una estructura sin devolver nada.
+     *
+     * @param tarea la actualización
+     * @throws IllegalStateException si la etapa ya se ha completado
+     */
+    public void ejecutar(Runnable tarea) {
+        lanzar(ForkJoinTask.adapt(tarea));
+    }
+
+    private <T> ForkJoinTask<T> lanzar(ForkJoinTask<T> tarea) {
+        if (completada)
+            throw new IllegalStateException("La etapa de indexado ya se ha completado");
+        tareas.add(tarea);
+        pool.execute(tarea);
+        return tarea;
+    }
+
+    /**
+     * Espera a que terminen todas las tareas. Si alguna ha fallado, se espera igualmente
+     * al resto, para que ninguna siga tocando su estructura, y se relanza el primer error.
+     *
+     * @throws RuntimeException el error de la primera tarea que ha fallado
+     */
+    public void completar() {
+        completada = true;
+        Throwable error = null;
+        for (ForkJoinTask<?> tarea : tareas) {
+            tarea.quietlyJoin();
+            if (error == null && tarea.isCompletedAbnormally())
+                error = tarea.getException();
+        }
+        // El pool devuelve una copia hecha en este hilo, con el error original como causa
+        if (error != null && error.getCause() != null && error.getCause().getClass() == error.getClass())
+            error = error.getCause();
+        if (error instanceof RuntimeException)
+            throw (RuntimeException) error;
+        if (error instanceof Error)
+            throw (Error) error;
+        if (error != null)
+            throw new IllegalStateException(error);
+    }
+}
@@ -0,0 +1,196 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.NormalizadorTexto;
+
+import java.text.CollationKey;
+import java.text.Collator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Índice de prefijos para autocompletar una lista de valores, como provincias, municipios
+ * o rótulos.
+ * <p>
+ * Los valores se ordenan con las claves de colación del español, de modo que "Ávila" va
+ * junto a "Avila" y la "ñ" después de la "n"; de los valores que solo difieren en tildes o
+ * mayúsculas se queda el primero. Cada valor se pliega una vez con {@link NormalizadorTexto}
+ * al construir, y de esa clave se guarda el texto desde el principio de cada una de sus
+ * palabras, ordenado también una sola vez. Una búsqueda es una bisección hasta la primera
+ * clave con el prefijo escrito y un recorrido de las que siguen: O(log n + coincidencias),
+ * sin pasar por los valores que no coinciden.
+ * </p>
+ * <p>
+ * Es inmutable, así que puede consultarse desde el hilo de filtrado de un desplegable.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class IndiceAutocompletado {
+
+    /** Índice sin valores. */
+    public static final IndiceAutocompletado VACIO = construir(Collections.<String>emptyList());
+
+    private final List<String> valores;
+    // Clave entera de cada valor, en el mismo orden
+    private final String[] clavesValor;
+    // Claves desde cada principio de palabra, ordenadas, y la posición en valores de cada una
+    private final String[] claves;
+    private final int[] valorDeClave;
+
+    private IndiceAutocompletado(List<String> valores, String[] clavesValor, String[] claves,
+            int[] valorDeClave) {
+        this.valores = valores;
+        this.clavesValor = clavesValor;
+        this.claves = claves;
+        this.valorDeClave = valorDeClave;
+    }
+
+    /**
+     * Construye el índice de unos valores.
+     *
+     * @param valores los valores, sin repetir; de los que solo difieren en tildes o
+     *                mayúsculas se queda el primero en orden de colación
+     * @return el índice
+     */
+    public static IndiceAutocompletado construir(Collection<String> valores) {
+        Collator collator = Collator.getInstance(new Locale("es", "ES"));
+        CollationKey[] colacion = new CollationKey[valores.size()];
+        int n = 0;
+        for (String valor : valores)
+            colacion[n++] = collator.getCollationKey(valor);
+        Arrays.sort(colacion);
+        String[] ordenados = new String[n];
+        String[] clavesValor = new String[n];
+        HashSet<String> vistas = new HashSet<>();
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            String valor = colacion[i].getSourceString();
+            String clave = NormalizadorTexto.plegar(valor);
+            if (vistas.add(clave)) {
+                ordenados[m] = valor;
+                clavesValor[m++] = clave;
+            }
+        }
+        ordenados = Arrays.copyOf(ordenados, m);
+        clavesValor = Arrays.copyOf(clavesValor, m);
+
+        // Una clave por cada principio de palabra de cada valor
+        List<String> sufijos = new ArrayList<>();
+        List<Integer> origen = new ArrayList<>();
+        for (int i = 0; i < m; i++) {
+            String plegado = clavesValor[i];
+            for (int c = 0; c < plegado.length(); c++) {
+                if (!NormalizadorTexto.esSeparador(plegado.charAt(c))
+                        && (c == 0 || NormalizadorTexto.esSeparador(plegado.charAt(c - 1)))) {
+                    sufijos.add(plegado.substring(c));
+                    origen.add(i);
+                }
+            }
+        }
+        Integer[] orden = new Integer[sufijos.size()];
+        for (int k = 0; k < orden.length; k++)
+            orden[k] = k;
+        Arrays.sort(orden, (a, b) -> sufijos.get(a).compareTo(sufijos.get(b)));
+        String[] claves = new String[orden.length];
+        int[] valorDeClave = new int[orden.length];
+        for (int k = 0; k < orden.length; k++) {
+            claves[k] = sufijos.get(orden[k]);
+            valorDeClave[k] = origen.get(orden[k]);
+        }
+        return new IndiceAutocompletado(Collections.unmodifiableList(Arrays.asList(ordenados)), clavesValor,
+                claves, valorDeClave);
+    }
+
+    /**
+     * Obtiene todos los valores.
+     *
+     * @return lista de solo lectura en orden de colación
+     */
+    public List<String> getValores() {
+        return valores;
+    }
+
+    /**
+     * Obtiene el número de valores.
+     *
+     * @return los valores del índice
+     */
+    public int size() {
+        return valores.size();
+    }
+
+    /**
+     * Busca los valores con alguna palabra que empiece por un texto, sin tener en cuenta
+     * tildes ni mayúsculas. El texto puede abarcar varias palabras: "san seb" encuentra
+     * "San Sebastián de los Reyes".
+     *
+     * @param prefijo el texto escrito
+     * @return los valores encontrados en orden de colación, o todos si el texto está vacío
+     */
+    public List<String> buscar(CharSequence prefijo) {
+        String buscado = prefijo == null ? "" : NormalizadorTexto.plegar(prefijo.toString().trim());
+        if (buscado.isEmpty())
+            return valores;
+
+        int desde = primeraClave(buscado);
+        int hasta = desde;
+        while (hasta < claves.length && claves[hasta].startsWith(buscado))
+            hasta++;
+        if (hasta == desde)
+            return Collections.emptyList();
+
+        // Un valor puede coincidir por varias palabras: se dejan una vez y en su orden
+        int[] encontrados = Arrays.copyOfRange(valorDeClave, desde, hasta);
+        Arrays.sort(encontrados);
+        List<String> resultado = new ArrayList<>(encontrados.length);
+        for (int k = 0; k < encontrados.length; k++) {
+            if (k == 0 || encontrados[k] != encontrados[k - 1])
+                resultado.add(valores.get(encontrados[k]));
+        }
+        return resultado;
+    }
+
+    /**
+     * Busca el valor que coincide entero con un texto, sin tener en cuenta tildes ni
+     * mayúsculas.
+     *
+     * @param texto el texto escrito
+     * @return el valor tal como está en el índice, o {@code null} si no hay ninguno
+     */
+    public String buscarExacto(String texto) {
+        String buscado = NormalizadorTexto.plegar(texto.trim());
+        if (buscado.isEmpty())
+            return null;
+        // Se comparan las claves guardadas, sin plegar ni copiar los candidatos
+        for (int k = primeraClave(buscado); k < claves.length && claves[k].startsWith(buscado); k++) {
+            if (clavesValor[valorDeClave[k]].equals(buscado))
+                return valores.get(valorDeClave[k]);
+        }
+        return null;
+    }
+
+    /**
+     * Busca la primera clave mayor o igual que un texto; las repetidas también cuentan.
+     *
+     * @param buscado el texto ya plegado
+     * @return la posición en las claves ordenadas
+     */
+    private int primeraClave(String buscado) {
+        int desde = 0;
+        int alto = claves.length;
+        while (desde < alto) {
+            int medio = (desde + alto) >>> 1;
+            if (claves[medio].compareTo(buscado) < 0)
+                desde = medio + 1;
+            else
+                alto = medio;
+        }
+        return desde;
+    }
+}
@@ -0,0 +1,243 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.DiccionarioCadenas;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.models.NormalizadorTexto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Índice invertido de texto sobre el rótulo, la dirección, la localidad, el municipio y el
+ * código postal de las gasolineras de un {@link AlmacenGasolineras}.
+ * <p>
+ * Se indexan las claves sin tildes ni mayúsculas que cada campo trae calculadas desde la
+ * lectura del volcado, partidas en palabras, de modo que "avda andalucia" encuentra
+ * "AVDA. DE ANDALUCÍA"; de la consulta solo se pliega el texto escrito. Cada palabra de
+ * la consulta se busca como prefijo en un diccionario ordenado y una gasolinera solo sale
+ * si contiene todas. Se ordenan por puntuación: cada palabra suma el peso del campo donde
+ * aparece, más si coincide entera, y más cuanto menos gasolineras la contienen.
+ * </p>
+ * <p>
+ * Se indexa por fila del almacén y se mantiene con cada sincronización tocando solo las
+ * gasolineras añadidas, eliminadas o con otros metadatos.
+ * </p>
+ * <p>
+ * Sus métodos están sincronizados para que la interfaz pueda buscar mientras otro hilo
+ * aplica una sincronización: la búsqueda solo espera a la gasolinera que se esté
+ * indexando, no a toda la sincronización.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class IndiceBusqueda {
+
+    private static final int ROTULO = 0;
+    private static final int DIRECCION = 1;
+    private static final int LOCALIDAD = 2;
+    private static final int MUNICIPIO = 3;
+    private static final int CODIGO_POSTAL = 4;
+    /** Bits de cada entrada reservados para el campo; el resto es la fila. */
+    private static final int BITS_CAMPO = 3;
+    /** Peso de cada campo en la puntuación: el rótulo y la población pesan más que la calle. */
+    private static final float[] PESOS = { 3f, 1f, 2f, 2f, 1.5f };
+    /** Factor de una palabra que solo coincide como prefijo frente a una entera. */
+    private static final float PESO_PREFIJO = 0.6f;
+    /**
+     * Gasolineras que contienen una palabra. Cada entrada lleva la fila y el campo.
+     */
+    private static final class Apariciones {
+        final String palabra;
+        int[] entradas = new int[4];
+        int n;
+
+        Apariciones(String palabra) {
+            this.palabra = palabra;
+        }
+
+        void anadir(int entrada) {
+            if (n == entradas.length)
+                entradas = Arrays.copyOf(entradas, n * 2);
+            entradas[n++] = entrada;
+        }
+
+        void quitarFila(int fila) {
+            for (int i = n - 1; i >= 0; i--) {
+                if (entradas[i] >>> BITS_CAMPO == fila)
+                    entradas[i] = entradas[--n];
+            }
+        }
+    }
+
+    // Ordenadas para buscar por prefijo; el mapa hash evita recorrer el árbol al indexar
+    private final TreeMap<String, Apariciones> palabras = new TreeMap<>();
+    private final HashMap<String, Apariciones> porPalabra = new HashMap<>();
+    // Palabras de cada fila, para retirarlas sin volver a leer la gasolinera
+    private Apariciones[][] porFila = new Apariciones[1024][];
+    private int filas;
+
+    /**
+     * Indexa las gasolineras añadidas y las que han cambiado de metadatos en una
+     * sincronización. Debe llamarse después de aplicar los cambios al almacén; las
+     * eliminadas se retiran antes con {@link #eliminar(int)}, mientras el almacén aún
+     * conserva su fila.
+     *
+     * @param cambios los cambios de la sincronización
+     * @param almacen el almacén con los cambios ya aplicados
+     */
+    public void aplicar(CambiosSincronizacion cambios, AlmacenGasolineras almacen) {
+        for (GasolineraAPI g : cambios.getAnadidas())
+            indexar(almacen.fila(g.getId()), g);
+        for (GasolineraAPI g : cambios.getMetadatosCambiados())
+            indexar(almacen.fila(g.getId()), g);
+    }
+
+    /**
+     * Indexa una gasolinera en su fila, sustituyendo lo que la fila tuviera.
+     *
+     * @param fila la fila de la gasolinera en el almacén
+     * @param g    la gasolinera
+     */
+    public synchronized void indexar(int fila, GasolineraAPI g) {
+        eliminar(fila);
+        List<Apariciones> propias = new ArrayList<>();
+        List<String> campo = new ArrayList<>();
+        anadirCampo(fila, ROTULO, DiccionarioCadenas.ROTULOS.clave(g.getIdRotulo()), campo, propias);
+        anadirCampo(fila, DIRECCION, g.getClaveDireccion(), campo, propias);
+        anadirCampo(fila, LOCALIDAD, g.getClaveLocalidad(), campo, propias);
+        anadirCampo(fila, MUNICIPIO, DiccionarioCadenas.MUNICIPIOS.clave(g.getIdMunicipio()), campo, propias);
+        // Solo dígitos: plegarlo devuelve la misma cadena
+        anadirCampo(fila, CODIGO_POSTAL, NormalizadorTexto.plegar(g.getCodigoPostal()), campo, propias);
+
+        if (fila >= porFila.length)
+            porFila = Arrays.copyOf(porFila, Math.max(fila + 1, porFila.length * 2));
+        porFila[fila] = propias.toArray(new Apariciones[0]);
+        filas++;
+    }
+
+    /**
+     * Retira una fila del índice. No hace nada si no estaba indexada.
+     *
+     * @param fila la fila de la gasolinera en el almacén
+     */
+    public synchronized void eliminar(int fila) {
+        if (fila < 0 || fila >= porFila.length || porFila[fila] == null)
+            return;
+        for (Apariciones a : porFila[fila]) {
+            a.quitarFila(fila);
+            if (a.n == 0 && porPalabra.remove(a.palabra) != null)
+                palabras.remove(a.palabra);
+        }
+        porFila[fila] = null;
+        filas--;
+    }
+
+    /**
+     * Obtiene el número de gasolineras indexadas.
+     *
+     * @return las filas indexadas
+     */
+    public synchronized int size() {
+        return filas;
+    }
+
+    /**
+     * Busca las gasolineras que contienen todas las palabras de un texto, cada una entera
+     * o como principio de una palabra indexada.
+     *
+     * @param texto  el texto buscado
+     * @param limite el máximo de resultados
+     * @return las filas encontradas, de mayor a menor puntuación y, a igualdad, por fila
+     */
+    public synchronized int[] buscar(String texto, int limite) {
+        List<String> consulta = new ArrayList<>();
+        partir(NormalizadorTexto.plegar(texto), consulta);
+        if (consulta.isEmpty() || limite <= 0 || filas == 0)
+            return new int[0];
+
+        float[] puntos = new float[porFila.length];
+        float[] mejor = new float[porFila.length];
+        BitSet candidatas = null;
+        for (String palabra : consulta) {
+            BitSet contienen = new BitSet(porFila.length);
+            Arrays.fill(mejor, 0f);
+            for (Apariciones a : palabras.subMap(palabra, true, palabra + Character.MAX_VALUE, true).values()) {
+                float peso = (float) Math.log(1 + (double) filas / a.n);
+                if (!a.palabra.equals(palabra))
+                    peso *= PESO_PREFIJO;
+                for (int i = 0; i < a.n; i++) {
+                    int fila = a.entradas[i] >>> BITS_CAMPO;
+                    float valor = peso * PESOS[a.entradas[i] & ((1 << BITS_CAMPO) - 1)];
+                    if (valor > mejor[fila])
+                        mejor[fila] = valor;
+                    contienen.set(fila);
+                }
+            }
+            if (candidatas == null)
+                candidatas = contienen;
+            else
+                candidatas.and(contienen);
+            if (candidatas.isEmpty())
+                return new int[0];
+            // Cada palabra suma solo su mejor aparición en la gasolinera
+            for (int fila = candidatas.nextSetBit(0); fila >= 0; fila = candidatas.nextSetBit(fila + 1))
+                puntos[fila] += mejor[fila];
+        }
+
+        // Puntuación en los bits altos; en los bajos, la fila invertida para desempatar por fila
+        long[] orden = new long[candidatas.cardinality()];
+        int k = 0;
+        for (int fila = candidatas.nextSetBit(0); fila >= 0; fila = candidatas.nextSetBit(fila + 1))
+            orden[k++] = (long) Float.floatToIntBits(puntos[fila]) << 32 | (Integer.MAX_VALUE - fila);
+        Arrays.sort(orden);
+
+        int[] resultado = new int[Math.min(limite, orden.length)];
+        for (int i = 0; i < resultado.length; i++)
+            resultado[i] = Integer.MAX_VALUE - (int) orden[orden.length - 1 - i];
+        return resultado;
+    }
+
+    private void anadirCampo(int fila, int campo, String clave, List<String> palabrasCampo,
+            List<Apariciones> propias) {
+        palabrasCampo.clear();
+        partir(clave, palabrasCampo);
+        for (int i = 0; i < palabrasCampo.size(); i++) {
+            String palabra = palabrasCampo.get(i);
+            // Una palabra repetida en el mismo campo cuenta una vez
+            if (palabrasCampo.indexOf(palabra) < i)
+                continue;
+            Apariciones a = porPalabra.get(palabra);
+            if (a == null) {
+                a = new Apariciones(palabra);
+                porPalabra.put(palabra, a);
+                palabras.put(palabra, a);
+            }
+            a.anadir(fila << BITS_CAMPO | campo);
+            propias.add(a);
+        }
+    }
+
+    /**
+     * Parte un texto ya plegado con {@link NormalizadorTexto} en palabras de letras y dígitos.
+     *
+     * @param clave    el texto plegado, o {@code null}
+     * @param palabras donde se añaden las palabras
+     */
+    private static void partir(String clave, List<String> palabras) {
+        if (clave == null)
+            return;
+        int inicio = 0;
+        for (int i = 0; i <= clave.length(); i++) {
+            if (i < clave.length() && !NormalizadorTexto.esSeparador(clave.charAt(i)))
+                continue;
+            if (i > inicio)
+                palabras.add(clave.substring(inicio, i));
+            inicio = i + 1;
+        }
+    }
+}
@@ -0,0 +1,236 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.Combustible;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Índice de las filas de un {@link AlmacenGasolineras} ordenadas por el precio de un
+ * combustible.
+ * <p>
+ * Se construye tras cada sincronización. Un filtro de precio máximo es una búsqueda
+ * binaria más el prefijo del índice, las {@code n} más baratas son las primeras
+ * posiciones y el histograma se calcula sobre los precios ya ordenados. Las filas sin ese
+ * combustible se guardan aparte porque el filtro de precio máximo no las descarta.
+ * </p>
+ * <p>
+ * Es inmutable una vez construido.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class IndicePrecios {
+
+    private final Combustible combustible;
+    private final int[] filas;
+    private final int[] precios;
+    private final int[] filasSinPrecio;
+
+    private IndicePrecios(Combustible combustible, int[] filas, int[] precios, int[] filasSinPrecio) {
+        this.combustible = combustible;
+        this.filas = filas;
+        this.precios = precios;
+        this.filasSinPrecio = filasSinPrecio;
+    }
+
+    /**
+     * Construye el índice de un combustible. Las filas con precio no interpretable no
+     * aparecen ni entre las ordenadas ni entre las que no tienen precio.
+     *
+     * @param almacen     el almacén con las gasolineras actuales
+     * @param combustible el combustible a indexar
+     * @return el índice
+     */
+    public static IndicePrecios construir(AlmacenGasolineras almacen, Combustible combustible) {
+        // Precio en la mitad alta y fila en la baja: ordenar los long ordena por precio y fila
+        long[] claves = new long[almacen.size()];
+        int[] sinPrecio = new int[almacen.size()];
+        int numClaves = 0;
+        int numSinPrecio = 0;
+        for (int fila = 0; fila < almacen.tamano(); fila++) {
+            if (!almacen.estaViva(fila))
+                continue;
+            int precio = almacen.precio(fila, combustible);
+            if (precio >= 0)
+                claves[numClaves++] = ((long) precio << 32) | fila;
+            else if (precio == AlmacenGasolineras.SIN_PRECIO)
+                sinPrecio[numSinPrecio++] = fila;
+        }
+        Arrays.sort(claves, 0, numClaves);
+
+        int[] filas = new int[numClaves];
+        int[] precios = new int[numClaves];
+        for (int i = 0; i < numClaves; i++) {
+            filas[i] = (int) claves[i];
+            precios[i] = (int) (claves[i] >>> 32);
+        }
+        return new IndicePrecios(combustible, filas, precios, Arrays.copyOf(sinPrecio, numSinPrecio));
+    }
+
+    /**
+     * Obtiene el combustible indexado.
+     *
+     * @return el combustible
+     */
+    public Combustible getCombustible() {
+        return combustible;
+    }
+
+    /**
+     * Obtiene el número de gasolineras con precio para este combustible.
+     *
+     * @return el tamaño del índice
+     */
+    public int size() {
+        return filas.length;
+    }
+
+    /**
+     * Obtiene la fila en una posición del índice.
+     *
+     * @param posicion la posición, de la más barata a la más cara
+     * @return la fila del almacén
+     */
+    public int fila(int posicion) {
+        return filas[posicion];
+    }
+
+    /**
+     * Obtiene el precio en una posición del índice.
+     *
+     * @param posicion la posición, de la más barata a la más cara
+     * @return el precio en milésimas de euro
+     */
+    public int precio(int posicion) {
+        return precios[posicion];
+    }
+
+    /**
+     * Cuenta las gasolineras cuyo precio no supera un máximo.
+     *
+     * @param maximo el precio máximo en milésimas
+     * @return la longitud del prefijo del índice con precio menor o igual que {@code maximo}
+     */
+    public int contarHasta(int maximo) {
+        int bajo = 0;
+        int alto = precios.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (precios[medio] <= maximo)
+                bajo = medio + 1;
+            else
+                alto = medio;
+        }
+        return bajo;
+    }
+
+    /**
+     * Obtiene las filas de las {@code n} gasolineras más baratas.
+     *
+     * @param n el número de gasolineras
+     * @return las filas, de la más barata a la más cara
+     */
+    public int[] masBaratas(int n) {
+        return Arrays.copyOf(filas, Math.min(n, filas.length));
+    }
+
+    /**
+     * Cuenta las filas que cumplen un filtro de precio máximo: las del prefijo y las que
+     * no tienen este combustible.
+     *
+     * @param maximo el precio máximo en milésimas
+     * @return el número de filas candidatas
+     */
+    public int contarCandidatas(int maximo) {
+        return contarHasta(maximo) + filasSinPrecio.length;
+    }
+
+    /**
+     * Marca las filas que cumplen un filtro de precio máximo.
+     *
+     * @param maximo  el precio máximo en milésimas
+     * @param destino el conjunto donde se marcan las filas
+     */
+    public void marcarCandidatas(int maximo, BitSet destino) {
+        int hasta = contarHasta(maximo);
+        for (int i = 0; i < hasta; i++)
+            destino.set(filas[i]);
+        for (int fila : filasSinPrecio)
+            destino.set(fila);
+    }
+
+    /**
+     * Calcula la distribución de precios en cubetas del mismo ancho.
+     * <p>
+     * El rango va del percentil 1 al 99 para que unos pocos precios anómalos no aplasten
+     * el resto; los que quedan fuera se suman a la primera o la última cubeta.
+     * </p>
+     *
+     * @param numCubetas el número de cubetas
+     * @return el histograma, vacío si no hay precios
+     */
+    public Histograma histograma(int numCubetas) {
+        int[] conteos = new int[numCubetas];
+        if (precios.length == 0)
+            return new Histograma(0, 0, conteos);
+
+        int recorte = precios.length / 100;
+        int minimo = precios[recorte];
+        int maximo = precios[precios.length - 1 - recorte];
+        Histograma histograma = new Histograma(minimo, maximo, conteos);
+        for (int precio : precios)
+            conteos[histograma.cubeta(precio)]++;
+        return histograma;
+    }
+
+    /**
+     * Distribución de precios de un combustible.
+     */
+    public static final class Histograma {
+        /**
+         * Precio del borde inferior de la primera cubeta, en milésimas.
+         */
+        public final int minimo;
+        /**
+         * Precio del borde superior de la última cubeta, en milésimas.
+         */
+        public final int maximo;
+        /**
+         * Número de gasolineras en cada cubeta.
+         */
+        public final int[] conteos;
+
+        Histograma(int minimo, int maximo, int[] conteos) {
+            this.minimo = minimo;
+            this.maximo = maximo;
+            this.conteos = conteos;
+        }
+
+        /**
+         * Obtiene la cubeta en la que cae un precio.
+         *
+         * @param precio el precio en milésimas
+         * @return el índice de la cubeta, limitado al rango del histograma
+         */
+        public int cubeta(int precio) {
+            if (maximo <= minimo)
+                return 0;
+            int cubeta = (int) ((long) (precio - minimo) * conteos.length / (maximo - minimo + 1));
+            return Math.max(0, Math.min(conteos.length - 1, cubeta));
+        }
+
+        /**
+         * Obtiene el mayor número de gasolineras de una cubeta.
+         *
+         * @return el máximo de {@link #conteos}
+         */
+        public int getConteoMaximo() {
+            int maximoConteo = 0;
+            for (int conteo : conteos)
+                maximoConteo = Math.max(maximoConteo, conteo);
+            return maximoConteo;
+        }
+    }
+}
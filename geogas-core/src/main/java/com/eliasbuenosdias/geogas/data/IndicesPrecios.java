@@ -0,0 +1,119 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.Combustible;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Conjunto de {@link IndicePrecios}, uno por combustible, construidos sobre el mismo
+ * estado de un {@link AlmacenGasolineras}.
+ * <p>
+ * Es inmutable, así que puede publicarse a la interfaz mientras se construye el siguiente.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class IndicesPrecios {
+
+    private final IndicePrecios[] indices;
+    private final List<Combustible> disponibles;
+
+    private IndicesPrecios(IndicePrecios[] indices) {
+        this.indices = indices;
+        List<Combustible> conPrecio = new ArrayList<>();
+        for (IndicePrecios indice : indices) {
+            if (indice.size() > 0)
+                conPrecio.add(indice.getCombustible());
+        }
+        this.disponibles = Collections.unmodifiableList(conPrecio);
+    }
+
+    /**
+     * Construye los índices de todos los combustibles.
+     *
+     * @param almacen el almacén con las gasolineras actuales
+     * @return los índices
+     */
+    public static IndicesPrecios construir(AlmacenGasolineras almacen) {
+        Combustible[] combustibles = Combustible.values();
+        IndicePrecios[] indices = new IndicePrecios[combustibles.length];
+        for (Combustible c : combustibles)
+            indices[c.ordinal()] = IndicePrecios.construir(almacen, c);
+        return new IndicesPrecios(indices);
+    }
+
+    /**
+     * Lanza en una etapa de indexado la construcción del índice de cada combustible, que
+     * es una ordenación independiente de las demás.
+     *
+     * @param almacen el almacén con las gasolineras actuales
+     * @param etapa   la etapa donde se construyen
+     * @return los índices, que pueden leerse después de {@link EtapaIndexado#completar()}
+     */
+    public static Supplier<IndicesPrecios> construir(AlmacenGasolineras almacen, EtapaIndexado etapa) {
+        return actualizar(null, almacen, null, etapa);
+    }
+
+    /**
+     * Lanza en una etapa de indexado solo los índices que cambian con una sincronización
+     * y reutiliza los demás. Con altas o bajas cambian todos, porque cada índice también
+     * guarda las filas sin precio; si no, solo los de los combustibles con algún precio
+     * distinto.
+     *
+     * @param anteriores los índices antes de la sincronización, o {@code null} para construirlos todos
+     * @param almacen    el almacén con los cambios ya aplicados
+     * @param cambios    los cambios de la sincronización, o {@code null} para construirlos todos
+     * @param etapa      la etapa donde se construyen
+     * @return los índices, que pueden leerse después de {@link EtapaIndexado#completar()}; si
+     *         no cambia ninguno, los mismos {@code anteriores}
+     */
+    public static Supplier<IndicesPrecios> actualizar(IndicesPrecios anteriores, AlmacenGasolineras almacen,
+            CambiosSincronizacion cambios, EtapaIndexado etapa) {
+        boolean todos = anteriores == null || cambios == null
+                || !cambios.getAnadidas().isEmpty() || !cambios.getEliminadas().isEmpty();
+        Combustible[] combustibles = Combustible.values();
+        List<Supplier<IndicePrecios>> porCombustible = new ArrayList<>(combustibles.length);
+        boolean alguno = false;
+        for (Combustible c : combustibles) {
+            if (todos || cambios.afectaAPrecios(c)) {
+                porCombustible.add(etapa.anadir(() -> IndicePrecios.construir(almacen, c)));
+                alguno = true;
+            } else {
+                IndicePrecios mismo = anteriores.get(c);
+                porCombustible.add(() -> mismo);
+            }
+        }
+        if (!alguno)
+            return () -> anteriores;
+        return () -> {
+            IndicePrecios[] indices = new IndicePrecios[combustibles.length];
+            for (Combustible c : combustibles)
+                indices[c.ordinal()] = porCombustible.get(c.ordinal()).get();
+            return new IndicesPrecios(indices);
+        };
+    }
+
+    /**
+     * Obtiene el índice de un combustible.
+     *
+     * @param combustible el combustible
+     * @return su índice
+     */
+    public IndicePrecios get(Combustible combustible) {
+        return indices[combustible.ordinal()];
+    }
+
+    /**
+     * Obtiene los combustibles que tienen precio en alguna gasolinera, en el orden de
+     * {@link Combustible}.
+     *
+     * @return lista de solo lectura con los combustibles presentes en el volcado
+     */
+    public List<Combustible> getCombustiblesDisponibles() {
+        return disponibles;
+    }
+}
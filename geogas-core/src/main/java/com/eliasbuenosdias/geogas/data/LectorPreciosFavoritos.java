@@ -0,0 +1,168 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Lector en streaming del volcado de la API que extrae solo los precios de las gasolineras favoritas.
+ * <p>
+ * Recorre el JSON con un {@link JsonReader} sin construir el árbol ni los ~12.000 objetos
+ * {@code GasolineraAPI}: los campos que no interesan se saltan y únicamente se conservan
+ * las estaciones cuyo IDEESS está en el conjunto de favoritas. Pensado para tareas en
+ * segundo plano con un presupuesto de memoria reducido.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class LectorPreciosFavoritos {
+
+    /**
+     * Claves JSON de los combustibles vigilados. El índice de cada clave es el que se usa
+     * en {@link PreciosFavorita#precios}.
+     */
+    public static final String[] COMBUSTIBLES = { "Precio Gasolina 95 E5", "Precio Gasoleo A" };
+    /**
+     * Combustible al que se refiere cada clave de {@link #COMBUSTIBLES}, en el mismo orden.
+     */
+    public static final Combustible[] VIGILADOS = { Combustible.GASOLINA_95, Combustible.GASOLEO_A };
+
+    /**
+     * Precios leídos de una gasolinera favorita.
+     */
+    public static class PreciosFavorita {
+        /**
+         * Identificador IDEESS de la gasolinera.
+         */
+        public final String id;
+        /**
+         * Rótulo de la gasolinera, para mostrarlo en la notificación.
+         */
+        public final String rotulo;
+        /**
+         * Precio de cada combustible de {@link #COMBUSTIBLES}, o {@code NaN} si no lo vende.
+         */
+        public final double[] precios;
+
+        /**
+         * Construye los precios de una gasolinera favorita.
+         *
+         * @param id      el identificador IDEESS
+         * @param rotulo  el rótulo de la gasolinera
+         * @param precios los precios por combustible
+         */
+        public PreciosFavorita(String id, String rotulo, double[] precios) {
+            this.id = id;
+            this.rotulo = rotulo;
+            this.precios = precios;
+        }
+    }
+
+    private LectorPreciosFavoritos() {
+    }
+
+    /**
+     * Lee el volcado y devuelve los precios de las gasolineras favoritas.
+     * <p>
+     * Acepta tanto un array en la raíz como el objeto de la API con el array en
+     * {@code ListaEESSPrecio}.
+     * </p>
+     *
+     * @param reader    el contenido JSON del volcado
+     * @param favoritas los identificadores de las gasolineras favoritas
+     * @return los precios de las favoritas encontradas en el volcado
+     * @throws IOException si el flujo no se puede leer o no es JSON válido
+     */
+    public static List<PreciosFavorita> leer(Reader reader, Set<String> favoritas) throws IOException {
+        List<PreciosFavorita> resultado = new ArrayList<>();
+        JsonReader json = new JsonReader(reader);
+
+        if (json.peek() == JsonToken.BEGIN_OBJECT) {
+            json.beginObject();
+            while (json.hasNext()) {
+                String nombre = json.nextName();
+                if (("ListaEESSPrecio".equals(nombre) || "listaEESSPrecio".equals(nombre))
+                        && json.peek() == JsonToken.BEGIN_ARRAY) {
+                    leerLista(json, favoritas, resultado);
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        } else if (json.peek() == JsonToken.BEGIN_ARRAY) {
+            leerLista(json, favoritas, resultado);
+        }
+
+        return resultado;
+    }
+
+    private static void leerLista(JsonReader json, Set<String> favoritas, List<PreciosFavorita> resultado)
+            throws IOException {
+        String[] precios = new String[COMBUSTIBLES.length];
+
+        json.beginArray();
+        while (json.hasNext()) {
+            String id = null;
+            String rotulo = null;
+            java.util.Arrays.fill(precios, null);
+
+            json.beginObject();
+            while (json.hasNext()) {
+                String nombre = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                } else if ("IDEESS".equals(nombre)) {
+                    id = json.nextString();
+                } else if ("Rótulo".equals(nombre)) {
+                    rotulo = json.nextString();
+                } else {
+                    int indice = indiceCombustible(nombre);
+                    if (indice >= 0)
+                        precios[indice] = json.nextString();
+                    else
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+
+            if (id != null && favoritas.contains(id)) {
+                double[] valores = new double[COMBUSTIBLES.length];
+                for (int i = 0; i < valores.length; i++)
+                    valores[i] = parsearPrecio(precios[i]);
+                resultado.add(new PreciosFavorita(id, rotulo, valores));
+            }
+        }
+        json.endArray();
+    }
+
+    private static int indiceCombustible(String nombre) {
+        for (int i = 0; i < COMBUSTIBLES.length; i++) {
+            if (COMBUSTIBLES[i].equals(nombre))
+                return i;
+        }
+        return -1;
+    }
+
+    /**
+     * Convierte un precio con coma decimal ("1,459") a número.
+     *
+     * @param precio el texto del precio
+     * @return el precio, o {@code NaN} si está vacío o no es válido
+     */
+    static double parsearPrecio(String precio) {
+        if (precio == null || precio.isEmpty())
+            return Double.NaN;
+        try {
+            return Double.parseDouble(precio.replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
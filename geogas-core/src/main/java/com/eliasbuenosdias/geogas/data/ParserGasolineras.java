@@ -0,0 +1,118 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Convierte la respuesta JSON de la API de Miteco en la lista de gasolineras.
+ * <p>
+ * Admite tanto un array en la raíz como el objeto habitual de la API, buscando
+ * la lista en los campos {@code ListaEESSPrecio}, {@code listaEESSPrecio} o {@code data}.
+ * Cada gasolinera se lee con {@link AdaptadorGasolineraAPI}, sin reflexión. La lectura
+ * desde un {@link Reader} es en streaming y no construye el árbol JSON completo.
+ * </p>
+ * <p>
+ * No es seguro para uso concurrente.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class ParserGasolineras {
+
+    private static final List<String> CAMPOS_LISTA = Arrays.asList("ListaEESSPrecio", "listaEESSPrecio", "data");
+
+    private final AdaptadorGasolineraAPI adaptador = new AdaptadorGasolineraAPI();
+
+    /**
+     * Lee un array completo con un único lector, en lugar de uno por gasolinera.
+     */
+    private final TypeAdapter<List<GasolineraAPI>> adaptadorLista = new TypeAdapter<List<GasolineraAPI>>() {
+        @Override
+        public List<GasolineraAPI> read(JsonReader in) throws IOException {
+            return leerLista(in);
+        }
+
+        @Override
+        public void write(JsonWriter out, List<GasolineraAPI> lista) throws IOException {
+            out.beginArray();
+            for (GasolineraAPI g : lista)
+                adaptador.write(out, g);
+            out.endArray();
+        }
+    };
+
+    /**
+     * Extrae las gasolineras de la respuesta de la API ya parseada.
+     *
+     * @param json la respuesta completa de la API
+     * @return la lista de gasolineras, vacía si la respuesta no contiene ninguna lista
+     *         reconocida; los elementos {@code null} del JSON se descartan
+     */
+    public List<GasolineraAPI> parsear(JsonElement json) {
+        if (json.isJsonArray()) {
+            return adaptadorLista.fromJsonTree(json);
+        }
+        if (json.isJsonObject()) {
+            JsonObject obj = json.getAsJsonObject();
+            for (String campo : CAMPOS_LISTA) {
+                if (obj.has(campo) && obj.get(campo).isJsonArray()) {
+                    return adaptadorLista.fromJsonTree(obj.get(campo));
+                }
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /**
+     * Extrae las gasolineras leyendo la respuesta de la API en streaming.
+     *
+     * @param reader el cuerpo de la respuesta; no se cierra
+     * @return la lista de gasolineras, vacía si la respuesta no contiene ninguna lista
+     *         reconocida; los elementos {@code null} del JSON se descartan
+     * @throws IOException si falla la lectura o el JSON está mal formado
+     */
+    public List<GasolineraAPI> parsear(Reader reader) throws IOException {
+        JsonReader in = new JsonReader(reader);
+        JsonToken raiz = in.peek();
+        if (raiz == JsonToken.BEGIN_ARRAY)
+            return leerLista(in);
+        if (raiz != JsonToken.BEGIN_OBJECT)
+            return new ArrayList<>();
+
+        List<GasolineraAPI> lista = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            String nombre = in.nextName();
+            if (lista == null && CAMPOS_LISTA.contains(nombre) && in.peek() == JsonToken.BEGIN_ARRAY)
+                lista = leerLista(in);
+            else
+                in.skipValue();
+        }
+        in.endObject();
+        return lista != null ? lista : new ArrayList<>();
+    }
+
+    private List<GasolineraAPI> leerLista(JsonReader in) throws IOException {
+        List<GasolineraAPI> lista = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            GasolineraAPI g = adaptador.read(in);
+            if (g != null)
+                lista.add(g);
+        }
+        in.endArray();
+        return lista;
+    }
+}
@@ -0,0 +1,245 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.tiles.RegionTeselas;
+import com.eliasbuenosdias.geogas.utils.ProveedorFavoritos;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Pirámide de gasolineras representativas para las vistas alejadas del mapa.
+ * <p>
+ * En cada nivel {@code n} el mapa se divide en las {@code 2^n x 2^n} celdas de las teselas
+ * de ese zoom, y cada celda con gasolineras guarda una sola: la más barata del combustible
+ * de referencia, o la de fila más baja si ninguna tiene precio. Una consulta elige el
+ * nivel en el que el viewport ocupa unas {@link #COLUMNAS_OBJETIVO} columnas, de modo que
+ * el mapa queda cubierto por igual en lugar de amontonarse en las ciudades. Las favoritas
+ * se añaden siempre.
+ * </p>
+ * <p>
+ * Se construye de una vez tras cada sincronización o cambio de filtros: las filas se
+ * ordenan una sola vez por la celda del nivel más fino en orden Z, y cada nivel superior
+ * solo compara en una pasada los representantes del de debajo, porque la más barata de
+ * una celda es la más barata de sus cuatro subceldas.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class PiramideRepresentantes {
+
+    /** Nivel más fino; por debajo de él la vista es de ciudad y se muestran todas. */
+    public static final int NIVEL_MAXIMO = 14;
+    /** Columnas de celdas que ocupa el ancho del viewport en el nivel elegido. */
+    public static final int COLUMNAS_OBJETIVO = 8;
+
+    private final AlmacenGasolineras almacen;
+    // Por nivel, las celdas en orden Z creciente y su representante
+    private final long[][] celdas = new long[NIVEL_MAXIMO + 1][];
+    private final int[][] representantes = new int[NIVEL_MAXIMO + 1][];
+    // Filas favoritas en orden creciente
+    private int[] favoritas;
+
+    private PiramideRepresentantes(AlmacenGasolineras almacen, int[] favoritas) {
+        this.almacen = almacen;
+        this.favoritas = favoritas;
+    }
+
+    /**
+     * Construye la pirámide con las filas que cumplen los filtros.
+     *
+     * @param almacen     el almacén columnar
+     * @param filas       las filas candidatas
+     * @param combustible el combustible cuyo precio decide el representante
+     * @param favoritos   el proveedor de favoritas, o {@code null}
+     * @return la pirámide
+     */
+    public static PiramideRepresentantes construir(AlmacenGasolineras almacen, BitSet filas,
+            Combustible combustible, ProveedorFavoritos favoritos) {
+        int[] candidatas = new int[filas.cardinality()];
+        int[] favoritas = new int[candidatas.length];
+        int n = 0;
+        int nFavoritas = 0;
+        for (int fila = filas.nextSetBit(0); fila >= 0; fila = filas.nextSetBit(fila + 1)) {
+            if (Double.isNaN(almacen.latitud(fila)) || Double.isNaN(almacen.longitud(fila)))
+                continue;
+            candidatas[n++] = fila;
+            if (favoritos != null && favoritos.esFavorita(almacen.id(fila)))
+                favoritas[nFavoritas++] = fila;
+        }
+
+        PiramideRepresentantes piramide = new PiramideRepresentantes(almacen, Arrays.copyOf(favoritas, nFavoritas));
+        // Orden Z de la celda del nivel más fino en los bits altos y fila en los bajos
+        long[] orden = new long[n];
+        for (int i = 0; i < n; i++) {
+            int fila = candidatas[i];
+            orden[i] = intercalar(RegionTeselas.columna(almacen.longitud(fila), NIVEL_MAXIMO),
+                    RegionTeselas.fila(almacen.latitud(fila), NIVEL_MAXIMO)) << 32 | fila;
+        }
+        Arrays.sort(orden);
+        long[] claves = new long[n];
+        candidatas = new int[n];
+        for (int i = 0; i < n; i++) {
+            claves[i] = orden[i] >>> 32;
+            candidatas[i] = (int) orden[i];
+        }
+        for (int nivel = NIVEL_MAXIMO; nivel >= 0; nivel--)
+            n = piramide.agrupar(nivel, claves, candidatas, n, combustible);
+        return piramide;
+    }
+
+    /**
+     * Se queda con la mejor candidata de cada celda de un nivel, dejándolas al principio de
+     * los arreglos. En orden Z la celda de un nivel es la del nivel más fino sin sus dos
+     * bits bajos por cada nivel de diferencia, así que las de una misma celda ya están
+     * juntas y basta una pasada.
+     *
+     * @return el número de representantes
+     */
+    private int agrupar(int nivel, long[] claves, int[] candidatas, int n, Combustible combustible) {
+        int desplazamiento = 2 * (NIVEL_MAXIMO - nivel);
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (m == 0 || claves[i] >>> desplazamiento != claves[m - 1] >>> desplazamiento) {
+                claves[m] = claves[i];
+                candidatas[m++] = candidatas[i];
+            } else if (mejor(candidatas[i], candidatas[m - 1], combustible)) {
+                claves[m - 1] = claves[i];
+                candidatas[m - 1] = candidatas[i];
+            }
+        }
+        long[] celdasNivel = new long[m];
+        for (int i = 0; i < m; i++)
+            celdasNivel[i] = claves[i] >>> desplazamiento;
+        celdas[nivel] = celdasNivel;
+        representantes[nivel] = Arrays.copyOf(candidatas, m);
+        return m;
+    }
+
+    /** Más barata y, a igual precio, de fila más baja. */
+    private boolean mejor(int fila, int otra, Combustible combustible) {
+        long precio = precio(fila, combustible);
+        long precioOtra = precio(otra, combustible);
+        return precio < precioOtra || (precio == precioOtra && fila < otra);
+    }
+
+    /** Precio en milésimas con las gasolineras sin precio al final. */
+    private long precio(int fila, Combustible combustible) {
+        int precio = almacen.precio(fila, combustible);
+        return precio >= 0 ? precio : Long.MAX_VALUE;
+    }
+
+    /**
+     * Calcula el nivel de la pirámide para el ancho de un viewport.
+     *
+     * @param ancho el ancho en grados de longitud
+     * @return el nivel, que puede superar {@link #NIVEL_MAXIMO} en vistas de ciudad
+     */
+    public static int nivelPara(double ancho) {
+        double celdas = 360.0 * COLUMNAS_OBJETIVO / ancho;
+        if (!(celdas >= 2))
+            return 0;
+        return 63 - Long.numberOfLeadingZeros((long) Math.min(celdas, 1L << 40));
+    }
+
+    /**
+     * Marca o desmarca una fila como favorita sin reconstruir la pirámide. Los
+     * representantes no cambian, porque se eligen por precio.
+     *
+     * @param fila     una fila de las candidatas con que se construyó
+     * @param favorita si ahora es favorita
+     */
+    public void marcarFavorita(int fila, boolean favorita) {
+        if (Double.isNaN(almacen.latitud(fila)) || Double.isNaN(almacen.longitud(fila)))
+            return;
+        int i = Arrays.binarySearch(favoritas, fila);
+        if (favorita == i >= 0)
+            return;
+        int[] nuevas = new int[favoritas.length + (favorita ? 1 : -1)];
+        if (favorita) {
+            int hueco = -i - 1;
+            System.arraycopy(favoritas, 0, nuevas, 0, hueco);
+            nuevas[hueco] = fila;
+            System.arraycopy(favoritas, hueco, nuevas, hueco + 1, favoritas.length - hueco);
+        } else {
+            System.arraycopy(favoritas, 0, nuevas, 0, i);
+            System.arraycopy(favoritas, i + 1, nuevas, i, favoritas.length - i - 1);
+        }
+        favoritas = nuevas;
+    }
+
+    /**
+     * Selecciona los representantes del viewport.
+     *
+     * @param norte latitud norte
+     * @param sur   latitud sur
+     * @param este  longitud este
+     * @param oeste longitud oeste
+     * @return las filas de los representantes y favoritas del rectángulo, o {@code null} si
+     *         la vista es tan cercana que deben mostrarse todas las gasolineras
+     */
+    public int[] seleccionar(double norte, double sur, double este, double oeste) {
+        int nivel = nivelPara(este - oeste);
+        if (nivel > NIVEL_MAXIMO)
+            return null;
+        long[] claves = celdas[nivel];
+        int[] filas = representantes[nivel];
+        int x0 = RegionTeselas.columna(oeste, nivel);
+        int x1 = RegionTeselas.columna(este, nivel);
+        int y0 = RegionTeselas.fila(norte, nivel);
+        int y1 = RegionTeselas.fila(sur, nivel);
+        int[] resultado = new int[claves.length + favoritas.length];
+        int n = 0;
+        if ((long) (x1 - x0 + 1) * (y1 - y0 + 1) < claves.length) {
+            // Se busca cada celda del rectángulo
+            for (int x = x0; x <= x1; x++) {
+                for (int y = y0; y <= y1; y++) {
+                    int i = Arrays.binarySearch(claves, intercalar(x, y));
+                    if (i >= 0 && ConsultaViewport.contiene(almacen, filas[i], norte, sur, este, oeste))
+                        resultado[n++] = filas[i];
+                }
+            }
+        } else {
+            // El rectángulo tiene más celdas que el nivel: se recorre el nivel entero
+            for (int fila : filas) {
+                if (ConsultaViewport.contiene(almacen, fila, norte, sur, este, oeste))
+                    resultado[n++] = fila;
+            }
+        }
+
+        for (int fila : favoritas) {
+            if (!ConsultaViewport.contiene(almacen, fila, norte, sur, este, oeste))
+                continue;
+            int i = Arrays.binarySearch(claves, intercalar(RegionTeselas.columna(almacen.longitud(fila), nivel),
+                    RegionTeselas.fila(almacen.latitud(fila), nivel)));
+            if (i < 0 || filas[i] != fila)
+                resultado[n++] = fila;
+        }
+        return Arrays.copyOf(resultado, n);
+    }
+
+    /**
+     * Obtiene el número de celdas con representante de un nivel.
+     *
+     * @param nivel el nivel, entre 0 y {@link #NIVEL_MAXIMO}
+     * @return las celdas ocupadas
+     */
+    public int tamano(int nivel) {
+        return celdas[nivel].length;
+    }
+
+    /** Código en orden Z (Morton) de una celda: los bits de la columna y la fila alternados. */
+    private static long intercalar(int x, int y) {
+        return separar(x) << 1 | separar(y);
+    }
+
+    private static long separar(int v) {
+        long b = v & 0xFFFFL;
+        b = (b | b << 8) & 0x00FF00FFL;
+        b = (b | b << 4) & 0x0F0F0F0FL;
+        b = (b | b << 2) & 0x33333333L;
+        b = (b | b << 1) & 0x55555555L;
+        return b;
+    }
+}
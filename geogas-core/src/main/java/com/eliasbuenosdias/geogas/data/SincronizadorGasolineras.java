@@ -0,0 +1,143 @@
+package com.eliasbuenosdias.geogas.data;
+
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Mantiene el conjunto actual de gasolineras indexado por IDEESS y calcula las diferencias
+ * con cada nuevo volcado de la API.
+ * <p>
+ * Las gasolineras que no cambian conservan la misma instancia entre sincronizaciones, de modo
+ * que los marcadores y demás estructuras que las referencian siguen siendo válidos. Solo las
+ * estaciones añadidas, eliminadas o modificadas se devuelven en {@link CambiosSincronizacion}
+ * para que las capas superiores actualicen únicamente lo necesario.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class SincronizadorGasolineras {
+
+    private final Map<String, GasolineraAPI> gasolineras = new LinkedHashMap<>();
+
+    /**
+     * Incorpora un nuevo volcado completo y calcula los cambios respecto al anterior.
+     * <p>
+     * Las entradas sin identificador se descartan porque no pueden seguirse entre volcados.
+     * </p>
+     *
+     * @param nuevas la lista completa de gasolineras recibida de la API
+     * @return los cambios detectados
+     */
+    public CambiosSincronizacion sincronizar(List<GasolineraAPI> nuevas) {
+        CambiosSincronizacion cambios = new CambiosSincronizacion();
+        Map<String, GasolineraAPI> pendientes = new LinkedHashMap<>(gasolineras);
+
+        for (GasolineraAPI nueva : nuevas) {
+            if (nueva == null || nueva.getId() == null)
+                continue;
+            GasolineraAPI anterior = pendientes.remove(nueva.getId());
+            if (anterior == null) {
+                gasolineras.put(nueva.getId(), nueva);
+                cambios.registrarAnadida(nueva);
+                continue;
+            }
+
+            boolean precios = !mismosPrecios(anterior, nueva);
+            boolean metadatos = !mismosMetadatos(anterior, nueva);
+            if (precios || metadatos) {
+                gasolineras.put(nueva.getId(), nueva);
+                cambios.registrarModificada(anterior, nueva, precios, metadatos);
+            }
+        }
+
+        for (GasolineraAPI eliminada : pendientes.values()) {
+            gasolineras.remove(eliminada.getId());
+            cambios.registrarEliminada(eliminada);
+        }
+
+        return cambios;
+    }
+
+    /**
+     * Obtiene una gasolinera por su identificador.
+     *
+     * @param id el identificador IDEESS
+     * @return la gasolinera o {@code null} si no existe
+     */
+    public GasolineraAPI obtener(String id) {
+        return gasolineras.get(id);
+    }
+
+    /**
+     * Obtiene una vista de solo lectura de todas las gasolineras actuales, en el orden
+     * en que llegaron por primera vez.
+     *
+     * @return colección con las gasolineras actuales
+     */
+    public Collection<GasolineraAPI> getGasolineras() {
+        return Collections.unmodifiableCollection(gasolineras.values());
+    }
+
+    /**
+     * Número de gasolineras del conjunto actual.
+     *
+     * @return el tamaño del conjunto
+     */
+    public int size() {
+        return gasolineras.size();
+    }
+
+    /**
+     * Compara los precios de todos los combustibles de dos versiones de una gasolinera.
+     *
+     * @param a la primera versión
+     * @param b la segunda versión
+     * @return {@code true} si todos los precios coinciden
+     */
+    static boolean mismosPrecios(GasolineraAPI a, GasolineraAPI b) {
+        return Objects.equals(a.getPrecioGasolina95(), b.getPrecioGasolina95())
+                && Objects.equals(a.getPrecioGasolina95E10(), b.getPrecioGasolina95E10())
+                && Objects.equals(a.getPrecioGasolina98(), b.getPrecioGasolina98())
+                && Objects.equals(a.getPrecioGasolina98E10(), b.getPrecioGasolina98E10())
+                && Objects.equals(a.getPrecioGasoleoA(), b.getPrecioGasoleoA())
+                && Objects.equals(a.getPrecioGasoleoB(), b.getPrecioGasoleoB())
+                && Objects.equals(a.getPrecioGasoleoC(), b.getPrecioGasoleoC())
+                && Objects.equals(a.getPrecioGasoleoPremium(), b.getPrecioGasoleoPremium())
+                && Objects.equals(a.getPrecioGLP(), b.getPrecioGLP())
+                && Objects.equals(a.getPrecioGNC(), b.getPrecioGNC())
+                && Objects.equals(a.getPrecioGNL(), b.getPrecioGNL())
+                && Objects.equals(a.getPrecioHidrogeno(), b.getPrecioHidrogeno())
+                && Objects.equals(a.getPrecioBiodiesel(), b.getPrecioBiodiesel())
+                && Objects.equals(a.getPrecioBioetanol(), b.getPrecioBioetanol());
+    }
+
+    /**
+     * Compara los datos descriptivos que usan la interfaz, los filtros y los índices.
+     * La fecha de actualización se ignora porque cambia en cada volcado.
+     *
+     * @param a la primera versión
+     * @param b la segunda versión
+     * @return {@code true} si los metadatos coinciden
+     */
+    static boolean mismosMetadatos(GasolineraAPI a, GasolineraAPI b) {
+        return a.getIdRotulo() == b.getIdRotulo()
+                && Objects.equals(a.getDireccion(), b.getDireccion())
+                && Objects.equals(a.getCodigoPostal(), b.getCodigoPostal())
+                && Objects.equals(a.getLocalidad(), b.getLocalidad())
+                && a.getIdMunicipio() == b.getIdMunicipio()
+                && a.getIdProvincia() == b.getIdProvincia()
+                && Objects.equals(a.getLatitud(), b.getLatitud())
+                && Objects.equals(a.getLongitud(), b.getLongitud())
+                && a.getIdHorario() == b.getIdHorario()
+                && Objects.equals(a.getTipoVenta(), b.getTipoVenta())
+                && Objects.equals(a.getRemision(), b.getRemision())
+                && Objects.equals(a.getMargen(), b.getMargen());
+    }
+}
@@ -0,0 +1,183 @@
+package com.eliasbuenosdias.geogas.historico;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.models.Combustible;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Precios de todas las gasolineras en un día, en columnas de tipos primitivos.
+ * <p>
+ * Cada gasolinera ocupa su IDEESS como entero y dos bytes por combustible con el precio en
+ * milésimas de euro, en lugar de los objetos y cadenas del volcado. Un día completo son unos
+ * pocos cientos de KB, y el mismo objeto se vacía y se reutiliza para el día siguiente.
+ * </p>
+ * <p>
+ * No es seguro para uso concurrente.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class DiaPrecios {
+
+    /** Precio ausente en las columnas compactas. */
+    static final char VACIO = 0xFFFF;
+
+    private static final Combustible[] COMBUSTIBLES = Combustible.values();
+
+    private int[] ids = new int[1024];
+    private final char[][] precios = new char[COMBUSTIBLES.length][1024];
+    // Combustibles con algún precio en el día
+    private long mascara;
+    private int n;
+    private int descartadas;
+    private boolean ordenado = true;
+
+    /**
+     * Añade los precios de una gasolinera. Si el IDEESS ya estaba, gana el último.
+     *
+     * @param id        el identificador IDEESS
+     * @param milesimas el precio de cada combustible por ordinal, en milésimas de euro;
+     *                  los negativos son precios que no tiene
+     */
+    public void anadir(String id, int[] milesimas) {
+        int numero = numero(id);
+        if (numero < 0) {
+            // El Ministerio solo publica IDEESS numéricos
+            descartadas++;
+            return;
+        }
+        if (n == ids.length) {
+            ids = Arrays.copyOf(ids, n * 2);
+            for (int c = 0; c < precios.length; c++)
+                precios[c] = Arrays.copyOf(precios[c], n * 2);
+        }
+        ids[n] = numero;
+        for (int c = 0; c < precios.length; c++) {
+            int precio = milesimas[c];
+            if (precio >= 0 && precio < VACIO) {
+                precios[c][n] = (char) precio;
+                mascara |= COMBUSTIBLES[c].bit();
+            } else {
+                precios[c][n] = VACIO;
+            }
+        }
+        ordenado &= n == 0 || ids[n - 1] < numero;
+        n++;
+    }
+
+    /**
+     * Vacía el día para reutilizarlo sin volver a reservar las columnas.
+     */
+    public void vaciar() {
+        n = 0;
+        mascara = 0;
+        descartadas = 0;
+        ordenado = true;
+    }
+
+    /**
+     * Obtiene el número de gasolineras del día.
+     *
+     * @return las gasolineras distintas
+     */
+    public int tamano() {
+        ordenar();
+        return n;
+    }
+
+    /**
+     * Obtiene cuántas gasolineras se han descartado por no tener un IDEESS numérico.
+     *
+     * @return las descartadas
+     */
+    public int getDescartadas() {
+        return descartadas;
+    }
+
+    /**
+     * Obtiene el precio de una gasolinera.
+     *
+     * @param id          el identificador IDEESS
+     * @param combustible el combustible
+     * @return el precio en milésimas, o {@link AlmacenGasolineras#SIN_PRECIO} si no lo tiene
+     */
+    public int precio(String id, Combustible combustible) {
+        ordenar();
+        int numero = numero(id);
+        int i = numero >= 0 ? Arrays.binarySearch(ids, 0, n, numero) : -1;
+        char precio = i >= 0 ? precios[combustible.ordinal()][i] : VACIO;
+        return precio == VACIO ? AlmacenGasolineras.SIN_PRECIO : precio;
+    }
+
+    /**
+     * Convierte un IDEESS en el entero con que se guarda.
+     *
+     * @param id el identificador IDEESS
+     * @return el número, o -1 si no es un entero no negativo
+     */
+    static int numero(String id) {
+        try {
+            int numero = Integer.parseInt(id);
+            return numero >= 0 ? numero : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Ordena por IDEESS y quita las repetidas, dejando la última añadida.
+     */
+    void ordenar() {
+        if (ordenado)
+            return;
+        // IDEESS en los bits altos y posición de llegada en los bajos
+        long[] orden = new long[n];
+        for (int i = 0; i < n; i++)
+            orden[i] = (long) ids[i] << 32 | i;
+        Arrays.sort(orden);
+
+        int[] nuevosIds = new int[ids.length];
+        char[][] nuevosPrecios = new char[precios.length][];
+        for (int c = 0; c < precios.length; c++)
+            nuevosPrecios[c] = new char[ids.length];
+        int m = 0;
+        for (int k = 0; k < n; k++) {
+            int id = (int) (orden[k] >> 32);
+            if (k + 1 < n && (int) (orden[k + 1] >> 32) == id)
+                continue;
+            int i = (int) orden[k];
+            nuevosIds[m] = id;
+            for (int c = 0; c < precios.length; c++)
+                nuevosPrecios[c][m] = precios[c][i];
+            m++;
+        }
+        ids = nuevosIds;
+        System.arraycopy(nuevosPrecios, 0, precios, 0, precios.length);
+        n = m;
+        ordenado = true;
+    }
+
+    /**
+     * Escribe el día en el formato de {@link SeriesPreciosHistoricos}: cabecera, IDEESS en
+     * orden creciente y una columna por cada combustible con algún precio.
+     */
+    void escribir(DataOutputStream salida) throws IOException {
+        ordenar();
+        salida.writeInt(SeriesPreciosHistoricos.MAGIA);
+        salida.writeInt(n);
+        salida.writeLong(mascara);
+        for (int i = 0; i < n; i++)
+            salida.writeInt(ids[i]);
+        for (Combustible c : COMBUSTIBLES) {
+            if ((mascara & c.bit()) == 0)
+                continue;
+            char[] columna = precios[c.ordinal()];
+            for (int i = 0; i < n; i++)
+                salida.writeChar(columna[i]);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.eliasbuenosdias.geogas.historico;
+
+import com.eliasbuenosdias.geogas.utils.RecorridoConcurrente;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.time.LocalDate;
+
+/**
+ * Importa los volcados históricos de un intervalo de días a una
+ * {@link SeriesPreciosHistoricos} con un número limitado de descargas simultáneas.
+ * <p>
+ * Recorre el intervalo del día más reciente al más antiguo, de modo que si se interrumpe
+ * ya están los días que más interesan. Los días que la serie ya tiene no se vuelven a
+ * pedir y los que quedaron a medio escribir se descartan al empezar: lanzar de nuevo el
+ * mismo intervalo continúa donde se quedó.
+ * </p>
+ * <p>
+ * Cada hilo lee su volcado en streaming sobre un único {@link DiaPrecios} que reutiliza
+ * para todos sus días y ningún objeto por gasolinera. En memoria hay a la vez tantos días
+ * como descargas simultáneas; con una concurrencia de 1, un solo día.
+ * </p>
+ * <p>
+ * El reparto entre hilos y la cancelación son los de {@link RecorridoConcurrente}.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class ImportadorHistorico {
+
+    /**
+     * Origen de los volcados históricos. Se llama desde varios hilos a la vez.
+     */
+    public interface FuenteHistorico {
+        /**
+         * Abre el volcado de un día.
+         *
+         * @param dia el día
+         * @return el contenido JSON; lo cierra el importador
+         * @throws IOException si no se ha podido descargar
+         */
+        Reader abrir(LocalDate dia) throws IOException;
+    }
+
+    /**
+     * Receptor del progreso de una importación. Se llama desde los hilos de descarga.
+     */
+    public interface Progreso {
+        /**
+         * Informa del avance.
+         *
+         * @param procesados días ya importados, existentes o fallidos
+         * @param total      días del intervalo
+         */
+        void actualizar(int procesados, int total);
+    }
+
+    /**
+     * Resultado de una importación.
+     */
+    public static final class Resultado {
+        /** Días importados en esta ejecución. */
+        public final int importados;
+        /** Días que ya estaban en la serie. */
+        public final int existentes;
+        /** Días que no se han podido importar. */
+        public final int fallidos;
+        /** Días del intervalo. */
+        public final int total;
+        /** Si la importación se canceló antes de recorrer todo el intervalo. */
+        public final boolean cancelada;
+
+        private final RecorridoConcurrente.Resultado recorrido;
+
+        Resultado(RecorridoConcurrente.Resultado recorrido) {
+            this.importados = (int) recorrido.hechas;
+            this.existentes = (int) recorrido.existentes;
+            this.fallidos = (int) recorrido.fallidas;
+            this.total = (int) recorrido.total;
+            this.cancelada = recorrido.cancelado;
+            this.recorrido = recorrido;
+        }
+
+        /**
+         * Indica si todos los días del intervalo están en la serie.
+         *
+         * @return {@code true} si no se canceló ni falló ninguno
+         */
+        public boolean estaCompleta() {
+            return recorrido.estaCompleto();
+        }
+    }
+
+    private final RecorridoConcurrente recorrido;
+
+    /**
+     * Construye un importador.
+     *
+     * @param concurrencia el máximo de descargas simultáneas
+     * @throws IllegalArgumentException si {@code concurrencia} es menor que 1
+     */
+    public ImportadorHistorico(int concurrencia) {
+        this.recorrido = new RecorridoConcurrente(concurrencia);
+    }
+
+    /**
+     * Importa el intervalo y espera a que termine.
+     *
+     * @param desde    el primer día
+     * @param hasta    el último día, incluido
+     * @param fuente   de dónde se descargan los volcados
+     * @param serie    dónde se guardan los días
+     * @param progreso el receptor del avance, o {@code null}
+     * @return el resultado de la importación
+     * @throws InterruptedException si se interrumpe el hilo que espera; la importación se cancela
+     */
+    public Resultado importar(LocalDate desde, LocalDate hasta, FuenteHistorico fuente,
+            SeriesPreciosHistoricos serie, Progreso progreso) throws InterruptedException {
+        int total = (int) Math.max(0, hasta.toEpochDay() - desde.toEpochDay() + 1);
+        serie.descartarTemporales();
+        RecorridoConcurrente.Progreso avance = progreso == null ? null
+                : (procesados, dias) -> progreso.actualizar((int) procesados, (int) dias);
+
+        return new Resultado(recorrido.recorrer(total, () -> {
+            DiaPrecios precios = new DiaPrecios();
+            return k -> {
+                LocalDate dia = hasta.minusDays(k);
+                if (serie.contiene(dia))
+                    return RecorridoConcurrente.Estado.EXISTENTE;
+                precios.vaciar();
+                try (Reader reader = fuente.abrir(dia)) {
+                    LectorDiaHistorico.leer(reader, precios);
+                }
+                // Un volcado vacío es un día que el servicio aún no tiene: se reintentará
+                if (precios.tamano() == 0)
+                    throw new IOException("Día sin gasolineras: " + dia);
+                serie.guardar(dia, precios);
+                return RecorridoConcurrente.Estado.HECHA;
+            };
+        }, avance, 1));
+    }
+
+    /**
+     * Cancela la importación en curso. Los días que se estén descargando terminan y no se
+     * empieza ninguno más.
+     */
+    public void cancelar() {
+        recorrido.cancelar();
+    }
+}
@@ -0,0 +1,109 @@
+package com.eliasbuenosdias.geogas.historico;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Lector en streaming de un volcado histórico diario del Ministerio
+ * ({@code EstacionesTerrestresHist/{fecha}}).
+ * <p>
+ * El volcado tiene el mismo formato que el del día en curso. Solo se leen el IDEESS y los
+ * precios de cada gasolinera, que pasan directamente a un {@link DiaPrecios}; el resto de
+ * campos se salta sin construir el árbol JSON ni objetos {@code GasolineraAPI}.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class LectorDiaHistorico {
+
+    private LectorDiaHistorico() {
+    }
+
+    /**
+     * Lee un volcado y añade sus precios al día.
+     * <p>
+     * Acepta tanto un array en la raíz como el objeto de la API con el array en
+     * {@code ListaEESSPrecio}.
+     * </p>
+     *
+     * @param reader el contenido JSON del volcado; no se cierra
+     * @param dia    el día donde se añaden los precios
+     * @throws IOException si el flujo no se puede leer o no es JSON válido
+     */
+    public static void leer(Reader reader, DiaPrecios dia) throws IOException {
+        JsonReader json = new JsonReader(reader);
+        if (json.peek() == JsonToken.BEGIN_OBJECT) {
+            json.beginObject();
+            while (json.hasNext()) {
+                String nombre = json.nextName();
+                if (("ListaEESSPrecio".equals(nombre) || "listaEESSPrecio".equals(nombre))
+                        && json.peek() == JsonToken.BEGIN_ARRAY) {
+                    leerLista(json, dia);
+                } else {
+                    json.skipValue();
+                }
+            }
+            json.endObject();
+        } else if (json.peek() == JsonToken.BEGIN_ARRAY) {
+            leerLista(json, dia);
+        }
+    }
+
+    private static void leerLista(JsonReader json, DiaPrecios dia) throws IOException {
+        int[] precios = new int[Combustible.values().length];
+
+        json.beginArray();
+        while (json.hasNext()) {
+            String id = null;
+            Arrays.fill(precios, AlmacenGasolineras.SIN_PRECIO);
+
+            json.beginObject();
+            while (json.hasNext()) {
+                String nombre = json.nextName();
+                if (json.peek() == JsonToken.NULL) {
+                    json.nextNull();
+                } else if ("IDEESS".equals(nombre)) {
+                    id = json.nextString();
+                } else {
+                    Combustible c = combustible(nombre);
+                    if (c != null)
+                        precios[c.ordinal()] = AlmacenGasolineras.aMilesimas(json.nextString());
+                    else
+                        json.skipValue();
+                }
+            }
+            json.endObject();
+
+            if (id != null)
+                dia.anadir(id, precios);
+        }
+        json.endArray();
+    }
+
+    private static Combustible combustible(String nombre) {
+        switch (nombre) {
+            case "Precio Gasolina 95 E5": return Combustible.GASOLINA_95;
+            case "Precio Gasolina 95 E10": return Combustible.GASOLINA_95_E10;
+            case "Precio Gasolina 98 E5": return Combustible.GASOLINA_98;
+            case "Precio Gasolina 98 E10": return Combustible.GASOLINA_98_E10;
+            case "Precio Gasoleo A": return Combustible.GASOLEO_A;
+            case "Precio Gasoleo B": return Combustible.GASOLEO_B;
+            case "Precio Gasoleo C": return Combustible.GASOLEO_C;
+            case "Precio Gasoleo Premium": return Combustible.GASOLEO_PREMIUM;
+            case "Precio Gases licuados del petróleo": return Combustible.GLP;
+            case "Precio Gas Natural Comprimido": return Combustible.GNC;
+            case "Precio Gas Natural Licuado": return Combustible.GNL;
+            case "Precio Hidrogeno": return Combustible.HIDROGENO;
+            case "Precio Biodiesel": return Combustible.BIODIESEL;
+            case "Precio Bioetanol": return Combustible.BIOETANOL;
+            default: return null;
+        }
+    }
+}
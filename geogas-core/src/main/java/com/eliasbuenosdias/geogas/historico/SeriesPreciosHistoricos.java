@@ -0,0 +1,207 @@
+package com.eliasbuenosdias.geogas.historico;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.models.Combustible;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Serie temporal local de precios diarios por gasolinera y combustible.
+ * <p>
+ * Cada día es un archivo de la carpeta con la fecha ISO como nombre. Dentro van una
+ * cabecera, los IDEESS de las gasolineras en orden creciente y una columna por cada
+ * combustible con algún precio ese día, con dos bytes por gasolinera. Un día de todo el
+ * país ocupa unos 250 KB, frente a los 10 MB del volcado JSON.
+ * </p>
+ * <p>
+ * Que el archivo de un día exista significa que el día está completo: las escrituras van a
+ * un archivo temporal que luego se renombra, y {@link #descartarTemporales()} borra los de
+ * las importaciones interrumpidas. Para leer la serie de una gasolinera se proyecta cada
+ * día en memoria y se busca su IDEESS por bisección, sin leer el resto del archivo.
+ * </p>
+ * <p>
+ * Se pueden guardar días distintos desde varios hilos a la vez.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class SeriesPreciosHistoricos {
+
+    /** Marca y versión del formato al principio de cada día: "GGH" y 1. */
+    static final int MAGIA = 0x47474801;
+    /** Bytes de la cabecera: marca, número de gasolineras y máscara de combustibles. */
+    private static final int CABECERA = 4 + 4 + 8;
+    private static final String EXTENSION = ".dia";
+    private static final String TEMPORAL = ".tmp";
+
+    private final File carpeta;
+
+    /**
+     * Abre la serie.
+     *
+     * @param carpeta la carpeta de la serie; se crea si no existe
+     */
+    public SeriesPreciosHistoricos(File carpeta) {
+        this.carpeta = carpeta;
+        carpeta.mkdirs();
+    }
+
+    /**
+     * Borra los días a medio escribir. Solo debe llamarse cuando no hay ninguna
+     * importación en curso.
+     */
+    public void descartarTemporales() {
+        File[] existentes = carpeta.listFiles();
+        if (existentes == null)
+            return;
+        for (File archivo : existentes) {
+            if (archivo.getName().endsWith(TEMPORAL))
+                archivo.delete();
+        }
+    }
+
+    /**
+     * Indica si un día ya está guardado.
+     *
+     * @param dia el día
+     * @return {@code true} si está completo en la serie
+     */
+    public boolean contiene(LocalDate dia) {
+        return archivo(dia).isFile();
+    }
+
+    /**
+     * Obtiene los días guardados.
+     *
+     * @return los días en orden cronológico
+     */
+    public List<LocalDate> dias() {
+        List<LocalDate> dias = new ArrayList<>();
+        File[] archivos = carpeta.listFiles();
+        if (archivos == null)
+            return dias;
+        for (File archivo : archivos) {
+            String nombre = archivo.getName();
+            if (!nombre.endsWith(EXTENSION))
+                continue;
+            try {
+                dias.add(LocalDate.parse(nombre.substring(0, nombre.length() - EXTENSION.length())));
+            } catch (DateTimeParseException e) {
+                // No es de la serie
+            }
+        }
+        dias.sort(null);
+        return dias;
+    }
+
+    /**
+     * Obtiene lo que ocupan los días guardados.
+     *
+     * @return el tamaño en bytes
+     */
+    public long getBytes() {
+        long bytes = 0;
+        for (LocalDate dia : dias())
+            bytes += archivo(dia).length();
+        return bytes;
+    }
+
+    /**
+     * Guarda un día, sustituyendo el que hubiera.
+     *
+     * @param dia     el día
+     * @param precios los precios del día; se ordenan por IDEESS
+     * @throws IOException si no se ha podido escribir; el día queda sin guardar
+     */
+    public void guardar(LocalDate dia, DiaPrecios precios) throws IOException {
+        File destino = archivo(dia);
+        File temporal = new File(carpeta, destino.getName() + TEMPORAL);
+        try (DataOutputStream salida = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporal), 64 * 1024))) {
+            precios.escribir(salida);
+        } catch (IOException e) {
+            temporal.delete();
+            throw e;
+        }
+        destino.delete();
+        if (!temporal.renameTo(destino)) {
+            temporal.delete();
+            throw new IOException("No se ha podido guardar el día " + dia);
+        }
+    }
+
+    /**
+     * Lee los precios diarios de una gasolinera en un intervalo.
+     *
+     * @param id          el identificador IDEESS
+     * @param combustible el combustible
+     * @param desde       el primer día
+     * @param hasta       el último día, incluido
+     * @return un precio en milésimas por día del intervalo, o
+     *         {@link AlmacenGasolineras#SIN_PRECIO} si ese día no está guardado o la
+     *         gasolinera no tenía precio
+     * @throws IOException si algún día guardado no se puede leer
+     */
+    public int[] serie(String id, Combustible combustible, LocalDate desde, LocalDate hasta) throws IOException {
+        int dias = (int) Math.max(0, hasta.toEpochDay() - desde.toEpochDay() + 1);
+        int[] serie = new int[dias];
+        Arrays.fill(serie, AlmacenGasolineras.SIN_PRECIO);
+        int numero = DiaPrecios.numero(id);
+        if (numero < 0)
+            return serie;
+        for (int i = 0; i < dias; i++) {
+            File archivo = archivo(desde.plusDays(i));
+            if (archivo.isFile())
+                serie[i] = leerPrecio(archivo, numero, combustible);
+        }
+        return serie;
+    }
+
+    private static int leerPrecio(File archivo, int id, Combustible combustible) throws IOException {
+        try (RandomAccessFile entrada = new RandomAccessFile(archivo, "r");
+                FileChannel canal = entrada.getChannel()) {
+            MappedByteBuffer datos = canal.map(FileChannel.MapMode.READ_ONLY, 0, canal.size());
+            if (datos.limit() < CABECERA || datos.getInt(0) != MAGIA)
+                throw new IOException("Día con formato desconocido: " + archivo.getName());
+            int n = datos.getInt(4);
+            long mascara = datos.getLong(8);
+            if ((mascara & combustible.bit()) == 0)
+                return AlmacenGasolineras.SIN_PRECIO;
+
+            int bajo = 0;
+            int alto = n - 1;
+            while (bajo <= alto) {
+                int medio = (bajo + alto) >>> 1;
+                int actual = datos.getInt(CABECERA + 4 * medio);
+                if (actual < id) {
+                    bajo = medio + 1;
+                } else if (actual > id) {
+                    alto = medio - 1;
+                } else {
+                    // Las columnas van en orden de ordinal, solo las de combustibles presentes
+                    int columna = Long.bitCount(mascara & (combustible.bit() - 1));
+                    char precio = datos.getChar(CABECERA + 4 * n + 2 * (columna * n + medio));
+                    return precio == DiaPrecios.VACIO ? AlmacenGasolineras.SIN_PRECIO : precio;
+                }
+            }
+            return AlmacenGasolineras.SIN_PRECIO;
+        }
+    }
+
+    private File archivo(LocalDate dia) {
+        return new File(carpeta, dia + EXTENSION);
+    }
+}
@@ -0,0 +1,55 @@
+package com.eliasbuenosdias.geogas.models;
+
+import java.util.function.Function;
+
+/**
+ * Combustibles con precio en el volcado del Ministerio.
+ * <p>
+ * El ordinal de cada constante se usa como índice de columna en el almacén columnar y
+ * como bit en su máscara de combustibles disponibles.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public enum Combustible {
+    GASOLINA_95(GasolineraAPI::getPrecioGasolina95),
+    GASOLINA_95_E10(GasolineraAPI::getPrecioGasolina95E10),
+    GASOLINA_98(GasolineraAPI::getPrecioGasolina98),
+    GASOLINA_98_E10(GasolineraAPI::getPrecioGasolina98E10),
+    GASOLEO_A(GasolineraAPI::getPrecioGasoleoA),
+    GASOLEO_B(GasolineraAPI::getPrecioGasoleoB),
+    GASOLEO_C(GasolineraAPI::getPrecioGasoleoC),
+    GASOLEO_PREMIUM(GasolineraAPI::getPrecioGasoleoPremium),
+    GLP(GasolineraAPI::getPrecioGLP),
+    GNC(GasolineraAPI::getPrecioGNC),
+    GNL(GasolineraAPI::getPrecioGNL),
+    HIDROGENO(GasolineraAPI::getPrecioHidrogeno),
+    BIODIESEL(GasolineraAPI::getPrecioBiodiesel),
+    BIOETANOL(GasolineraAPI::getPrecioBioetanol);
+
+    private final Function<GasolineraAPI, String> precio;
+
+    Combustible(Function<GasolineraAPI, String> precio) {
+        this.precio = precio;
+    }
+
+    /**
+     * Obtiene el precio de este combustible tal como llega de la API.
+     *
+     * @param gasolinera la gasolinera
+     * @return el precio con coma decimal, o {@code null} si no lo tiene
+     */
+    public String precio(GasolineraAPI gasolinera) {
+        return precio.apply(gasolinera);
+    }
+
+    /**
+     * Obtiene el bit de este combustible en una máscara de combustibles.
+     *
+     * @return la máscara con solo este combustible
+     */
+    public long bit() {
+        return 1L << ordinal();
+    }
+}
@@ -0,0 +1,152 @@
+package com.eliasbuenosdias.geogas.models;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Diccionario de cadenas repetidas codificadas como enteros pequeños.
+ * <p>
+ * Las provincias, municipios, rótulos y horarios del volcado del Ministerio se repiten
+ * miles de veces. Cada campo tiene su propio diccionario, de modo que
+ * {@link GasolineraAPI} guarda solo el identificador y todas las estaciones comparten la
+ * misma instancia de cada cadena en la tabla. Los filtros de ubicación y marca comparan
+ * identificadores en lugar de cadenas.
+ * </p>
+ * <p>
+ * Al registrar una cadena se calcula también su clave con {@link NormalizadorTexto}, y las
+ * cadenas con la misma clave, como "MÁLAGA" y "Malaga", forman un grupo identificado por
+ * la primera. Así las comparaciones sin tildes ni mayúsculas no pliegan texto por cada
+ * gasolinera.
+ * </p>
+ * <p>
+ * Los identificadores son consecutivos desde cero y nunca se reutilizan, así que sirven
+ * como índice de arrays auxiliares. La codificación está sincronizada; la decodificación
+ * no bloquea porque la tabla solo crece.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class DiccionarioCadenas {
+
+    /** Identificador de un valor ausente ({@code null}). */
+    public static final int SIN_VALOR = -1;
+
+    /** Diccionario de provincias. */
+    public static final DiccionarioCadenas PROVINCIAS = new DiccionarioCadenas();
+    /** Diccionario de municipios. */
+    public static final DiccionarioCadenas MUNICIPIOS = new DiccionarioCadenas();
+    /** Diccionario de rótulos o marcas. */
+    public static final DiccionarioCadenas ROTULOS = new DiccionarioCadenas();
+    /** Diccionario de horarios. */
+    public static final DiccionarioCadenas HORARIOS = new DiccionarioCadenas();
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final Map<String, Integer> gruposPorClave = new HashMap<>();
+    private volatile String[] cadenas = new String[64];
+    // En paralelo a cadenas: la clave plegada y el primer identificador con esa clave
+    private volatile String[] claves = new String[64];
+    private volatile int[] grupos = new int[64];
+    private volatile int tamano;
+
+    /**
+     * Devuelve el identificador de una cadena, registrándola si es nueva.
+     *
+     * @param valor la cadena a codificar
+     * @return su identificador, o {@link #SIN_VALOR} si {@code valor} es {@code null}
+     */
+    public synchronized int codificar(String valor) {
+        if (valor == null)
+            return SIN_VALOR;
+        Integer existente = ids.get(valor);
+        if (existente != null)
+            return existente;
+
+        int id = tamano;
+        String[] tabla = cadenas;
+        String[] tablaClaves = claves;
+        int[] tablaGrupos = grupos;
+        if (id == tabla.length) {
+            tabla = Arrays.copyOf(tabla, id * 2);
+            tablaClaves = Arrays.copyOf(tablaClaves, id * 2);
+            tablaGrupos = Arrays.copyOf(tablaGrupos, id * 2);
+        }
+        String clave = NormalizadorTexto.plegar(valor);
+        Integer grupo = gruposPorClave.putIfAbsent(clave, id);
+        tabla[id] = valor;
+        tablaClaves[id] = clave;
+        tablaGrupos[id] = grupo != null ? grupo : id;
+        cadenas = tabla;
+        claves = tablaClaves;
+        grupos = tablaGrupos;
+        ids.put(valor, id);
+        tamano = id + 1;
+        return id;
+    }
+
+    /**
+     * Busca el identificador de una cadena sin registrarla.
+     *
+     * @param valor la cadena a buscar
+     * @return su identificador, o {@link #SIN_VALOR} si es {@code null} o no está registrada
+     */
+    public synchronized int buscar(String valor) {
+        if (valor == null)
+            return SIN_VALOR;
+        Integer id = ids.get(valor);
+        return id != null ? id : SIN_VALOR;
+    }
+
+    /**
+     * Busca el grupo de las cadenas con una clave, sin registrarla.
+     *
+     * @param clave la clave, ya plegada con {@link NormalizadorTexto#plegar(String)}
+     * @return el identificador del grupo, o {@link #SIN_VALOR} si ninguna cadena tiene esa clave
+     */
+    public synchronized int buscarClave(String clave) {
+        if (clave == null)
+            return SIN_VALOR;
+        Integer grupo = gruposPorClave.get(clave);
+        return grupo != null ? grupo : SIN_VALOR;
+    }
+
+    /**
+     * Devuelve la cadena asociada a un identificador.
+     *
+     * @param id el identificador devuelto por {@link #codificar(String)}
+     * @return la cadena compartida, o {@code null} para {@link #SIN_VALOR}
+     */
+    public String cadena(int id) {
+        return id == SIN_VALOR ? null : cadenas[id];
+    }
+
+    /**
+     * Devuelve la clave sin tildes ni mayúsculas de un identificador, calculada al registrarlo.
+     *
+     * @param id el identificador devuelto por {@link #codificar(String)}
+     * @return la clave, o {@code null} para {@link #SIN_VALOR}
+     */
+    public String clave(int id) {
+        return id == SIN_VALOR ? null : claves[id];
+    }
+
+    /**
+     * Devuelve el grupo de un identificador: el primero registrado con su misma clave.
+     *
+     * @param id el identificador devuelto por {@link #codificar(String)}
+     * @return el identificador del grupo, o {@link #SIN_VALOR} para {@link #SIN_VALOR}
+     */
+    public int grupo(int id) {
+        return id == SIN_VALOR ? SIN_VALOR : grupos[id];
+    }
+
+    /**
+     * Obtiene el número de cadenas registradas, que es también el siguiente identificador.
+     *
+     * @return el tamaño del diccionario
+     */
+    public int tamano() {
+        return tamano;
+    }
+}
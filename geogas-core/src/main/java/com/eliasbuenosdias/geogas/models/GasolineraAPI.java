@@ -6,7 +6,11 @@
      * Modelo de datos para representar una estación de servicio (gasolinera) de la API de Miteco.
      * Contiene toda la información sobre ubicación, precios de combustibles, horarios y servicios
      * disponibles en una estación terrestre de servicio.
-     * Utiliza anotaciones Gson para mapear los campos JSON de la API REST del Ministerio.
+     * Las anotaciones Gson documentan las claves JSON de la API REST del Ministerio; la
+     * lectura la hace {@code AdaptadorGasolineraAPI} sin reflexión.
+     * Rótulo, municipio, provincia y horario se guardan codificados en los
+     * {@link DiccionarioCadenas} compartidos; son campos {@code transient} sin anotación,
+     * porque su clave JSON solo la conoce el adaptador.
      *
      * @author Elías Prieto Parrilla
      * @version 1.0
@@ -20,10 +24,10 @@
         @SerializedName("IDEESS")
         private String id;
         /**
-         * Rótulo o marca comercial de la gasolinera.
+         * Rótulo o marca comercial de la gasolinera, codificado en {@link DiccionarioCadenas#ROTULOS}.
+         * En el JSON es la clave "Rótulo".
          */
-        @SerializedName("Rótulo")
-        private String rotulo;
+        private transient int rotulo = DiccionarioCadenas.SIN_VALOR;
         /**
          * Código postal de la ubicación de la estación.
          */
@@ -34,21 +38,29 @@
          */
         @SerializedName("Dirección")
         private String direccion;
+        /**
+         * Dirección sin tildes ni mayúsculas, calculada con {@link NormalizadorTexto} al establecerla.
+         */
+        private transient String claveDireccion;
         /**
          * Localidad donde se encuentra la estación.
          */
         @SerializedName("Localidad")
         private String localidad;
         /**
-         * Municipio al que pertenece la estación.
+         * Localidad sin tildes ni mayúsculas, calculada con {@link NormalizadorTexto} al establecerla.
+         */
+        private transient String claveLocalidad;
+        /**
+         * Municipio al que pertenece la estación, codificado en {@link DiccionarioCadenas#MUNICIPIOS}.
+         * En el JSON es la clave "Municipio".
          */
-        @SerializedName("Municipio")
-        private String municipio;
+        private transient int municipio = DiccionarioCadenas.SIN_VALOR;
         /**
-         * Provincia donde está ubicada la estación.
+         * Provincia donde está ubicada la estación, codificada en {@link DiccionarioCadenas#PROVINCIAS}.
+         * En el JSON es la clave "Provincia".
          */
-        @SerializedName("Provincia")
-        private String provincia;
+        private transient int provincia = DiccionarioCadenas.SIN_VALOR;
         /**
          * Latitud de la ubicación geográfica de la estación.
          */
@@ -62,10 +74,10 @@
 
         // === HORARIOS Y SERVICIOS ===
         /**
-         * Horario de apertura y cierre de la estación.
+         * Horario de apertura y cierre de la estación, codificado en {@link DiccionarioCadenas#HORARIOS}.
+         * En el JSON es la clave "Horario".
          */
-        @SerializedName("Horario")
-        private String horario;
+        private transient int horario = DiccionarioCadenas.SIN_VALOR;
         /**
          * Tipo de venta de la estación.
          * Valores posibles: "P" = Público, "R" = Restringido.
@@ -218,13 +230,19 @@
          *
          * @return el rótulo de la estación
          */
-        public String getRotulo() { return rotulo; }
+        public String getRotulo() { return DiccionarioCadenas.ROTULOS.cadena(rotulo); }
         /**
          * Establece el rótulo o marca comercial de la gasolinera.
          *
          * @param rotulo el rótulo a establecer
          */
-        public void setRotulo(String rotulo) { this.rotulo = rotulo; }
+        public void setRotulo(String rotulo) { this.rotulo = DiccionarioCadenas.ROTULOS.codificar(rotulo); }
+        /**
+         * Obtiene el identificador del rótulo en {@link DiccionarioCadenas#ROTULOS}.
+         *
+         * @return el identificador, o {@link DiccionarioCadenas#SIN_VALOR} si no tiene
+         */
+        public int getIdRotulo() { return rotulo; }
         /**
          * Obtiene el código postal de la estación.
          *
@@ -248,7 +266,16 @@
          *
          * @param direccion la dirección a establecer
          */
-        public void setDireccion(String direccion) { this.direccion = direccion; }
+        public void setDireccion(String direccion) {
+            this.direccion = direccion;
+            this.claveDireccion = NormalizadorTexto.plegar(direccion);
+        }
+        /**
+         * Obtiene la dirección sin tildes ni mayúsculas, para buscar sin volver a plegarla.
+         *
+         * @return la clave de la dirección
+         */
+        public String getClaveDireccion() { return claveDireccion; }
         /**
          * Obtiene la localidad donde se encuentra la estación.
          *
@@ -260,31 +287,52 @@
          *
          * @param localidad la localidad a establecer
          */
-        public void setLocalidad(String localidad) { this.localidad = localidad; }
+        public void setLocalidad(String localidad) {
+            this.localidad = localidad;
+            this.claveLocalidad = NormalizadorTexto.plegar(localidad);
+        }
+        /**
+         * Obtiene la localidad sin tildes ni mayúsculas, para buscar sin volver a plegarla.
+         *
+         * @return la clave de la localidad
+         */
+        public String getClaveLocalidad() { return claveLocalidad; }
         /**
          * Obtiene el municipio al que pertenece la estación.
          *
          * @return el municipio de la estación
          */
-        public String getMunicipio() { return municipio; }
+        public String getMunicipio() { return DiccionarioCadenas.MUNICIPIOS.cadena(municipio); }
         /**
          * Establece el municipio al que pertenece la estación.
          *
          * @param municipio el municipio a establecer
          */
-        public void setMunicipio(String municipio) { this.municipio = municipio; }
+        public void setMunicipio(String municipio) { this.municipio = DiccionarioCadenas.MUNICIPIOS.codificar(municipio); }
+        /**
+         * Obtiene el identificador del municipio en {@link DiccionarioCadenas#MUNICIPIOS}.
+         *
+         * @return el identificador, o {@link DiccionarioCadenas#SIN_VALOR} si no tiene
+         */
+        public int getIdMunicipio() { return municipio; }
         /**
          * Obtiene la provincia donde está ubicada la estación.
          *
          * @return la provincia de la estación
          */
-        public String getProvincia() { return provincia; }
+        public String getProvincia() { return DiccionarioCadenas.PROVINCIAS.cadena(provincia); }
         /**
          * Establece la provincia donde está ubicada la estación.
          *
          * @param provincia la provincia a establecer
          */
-        public void setProvincia(String provincia) { this.provincia = provincia; }
+        public void setProvincia(String provincia) { this.provincia = DiccionarioCadenas.PROVINCIAS.codificar(provincia); }
+        /**
+         * Obtiene el identificador de la provincia en {@link DiccionarioCadenas#PROVINCIAS}.
+         *
+         * @return el identificador, o {@link DiccionarioCadenas#SIN_VALOR} si no tiene
+         */
+        public int getIdProvincia() { return provincia; }
         /**
          * Obtiene la latitud de la ubicación geográfica.
          *
@@ -314,13 +362,19 @@
          *
          * @return el horario de la estación
          */
-        public String getHorario() { return horario; }
+        public String getHorario() { return DiccionarioCadenas.HORARIOS.cadena(horario); }
         /**
          * Establece el horario de apertura y cierre.
          *
          * @param horario el horario a establecer
          */
-        public void setHorario(String horario) { this.horario = horario; }
+        public void setHorario(String horario) { this.horario = DiccionarioCadenas.HORARIOS.codificar(horario); }
+        /**
+         * Obtiene el identificador del horario en {@link DiccionarioCadenas#HORARIOS}.
+         *
+         * @return el identificador, o {@link DiccionarioCadenas#SIN_VALOR} si no tiene
+         */
+        public int getIdHorario() { return horario; }
         /**
          * Obtiene el tipo de venta de la estación.
          *
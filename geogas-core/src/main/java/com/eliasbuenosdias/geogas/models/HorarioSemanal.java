@@ -0,0 +1,231 @@
+package com.eliasbuenosdias.geogas.models;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Horario de apertura de una gasolinera compilado a una máscara de minutos de la semana.
+ * <p>
+ * El Ministerio publica el horario como texto libre, por ejemplo
+ * {@code "L-V: 06:00-22:00; S: 07:00-15:00"} o {@code "L-D: 24H"}. El texto se interpreta
+ * una sola vez y queda un bit por minuto de la semana, de lunes a las 00:00 a domingo a
+ * las 23:59, así que saber si está abierta a una hora es una sola comprobación de bit.
+ * </p>
+ * <p>
+ * Como los horarios distintos del volcado son unos pocos cientos, {@link #compilado(int)}
+ * guarda un horario por identificador de {@link DiccionarioCadenas#HORARIOS} y todas las
+ * gasolineras con el mismo texto comparten la máscara.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class HorarioSemanal {
+
+    /** Minutos de un día. */
+    public static final int MINUTOS_DIA = 24 * 60;
+    /** Minutos de una semana. */
+    public static final int MINUTOS_SEMANA = 7 * MINUTOS_DIA;
+
+    /** Horario ausente o que no se ha podido interpretar: nunca consta como abierta. */
+    public static final HorarioSemanal DESCONOCIDO = new HorarioSemanal(new long[palabras()], false);
+
+    private static final String DIAS = "LMXJVSD";
+    private static final Pattern TRAMO = Pattern.compile(
+            "(?:([LMXJVSD](?:\\s*-\\s*[LMXJVSD])?(?:\\s*,\\s*[LMXJVSD](?:\\s*-\\s*[LMXJVSD])?)*)\\s*:)?\\s*(.+)");
+    private static final Pattern INTERVALO = Pattern.compile("(\\d{1,2})[:.](\\d{2})\\s*-\\s*(\\d{1,2})[:.](\\d{2})");
+    private static final Pattern SEPARADOR_INTERVALOS = Pattern.compile("\\s*(?:,|\\bY\\b)\\s*");
+
+    // Horarios compilados por identificador de diccionario; crece con el diccionario
+    private static volatile HorarioSemanal[] compilados = new HorarioSemanal[64];
+
+    private final long[] minutos;
+    private final boolean interpretado;
+    private final boolean siempreAbierta;
+
+    private HorarioSemanal(long[] minutos, boolean interpretado) {
+        this.minutos = minutos;
+        this.interpretado = interpretado;
+        boolean completo = interpretado;
+        for (int i = 0; completo && i < minutos.length; i++)
+            completo = minutos[i] == (i == minutos.length - 1 ? ultimaPalabraCompleta() : -1L);
+        this.siempreAbierta = completo;
+    }
+
+    private static int palabras() {
+        return (MINUTOS_SEMANA + 63) >>> 6;
+    }
+
+    private static long ultimaPalabraCompleta() {
+        int resto = MINUTOS_SEMANA & 63;
+        return resto == 0 ? -1L : (1L << resto) - 1;
+    }
+
+    /**
+     * Obtiene el horario compilado de un identificador de {@link DiccionarioCadenas#HORARIOS},
+     * interpretando el texto la primera vez que se pide.
+     *
+     * @param idHorario el identificador del horario
+     * @return el horario, o {@link #DESCONOCIDO} si el identificador es
+     *         {@link DiccionarioCadenas#SIN_VALOR} o el texto no se entiende
+     */
+    public static HorarioSemanal compilado(int idHorario) {
+        if (idHorario < 0)
+            return DESCONOCIDO;
+        HorarioSemanal[] tabla = compilados;
+        if (idHorario < tabla.length && tabla[idHorario] != null)
+            return tabla[idHorario];
+        return compilar(idHorario);
+    }
+
+    private static synchronized HorarioSemanal compilar(int idHorario) {
+        HorarioSemanal[] tabla = compilados;
+        if (idHorario >= tabla.length)
+            tabla = Arrays.copyOf(tabla, Math.max(tabla.length * 2, idHorario + 1));
+        if (tabla[idHorario] == null)
+            tabla[idHorario] = interpretar(DiccionarioCadenas.HORARIOS.cadena(idHorario));
+        compilados = tabla;
+        return tabla[idHorario];
+    }
+
+    /**
+     * Interpreta un horario en el formato del Ministerio.
+     * <p>
+     * Acepta tramos separados por {@code ;}, cada uno con días opcionales ({@code L},
+     * {@code M}, {@code X}, {@code J}, {@code V}, {@code S}, {@code D}, rangos como
+     * {@code L-V} o listas como {@code S, D}) seguidos de {@code 24H} o de intervalos
+     * {@code HH:MM-HH:MM} separados por coma o {@code y}. Un tramo sin días vale para toda
+     * la semana. Los intervalos que cruzan la medianoche siguen en el día siguiente y un
+     * cierre a las 23:59 se entiende como fin del día.
+     * </p>
+     *
+     * @param texto el horario publicado
+     * @return el horario, o {@link #DESCONOCIDO} si es {@code null}, vacío o no se entiende
+     */
+    public static HorarioSemanal interpretar(String texto) {
+        if (texto == null || texto.trim().isEmpty())
+            return DESCONOCIDO;
+
+        long[] minutos = new long[palabras()];
+        for (String tramo : texto.toUpperCase(Locale.ROOT).split(";")) {
+            tramo = tramo.trim();
+            if (tramo.isEmpty())
+                continue;
+            Matcher m = TRAMO.matcher(tramo);
+            if (!m.matches())
+                return DESCONOCIDO;
+            boolean[] dias = m.group(1) != null ? leerDias(m.group(1)) : todosLosDias();
+            if (!marcarHoras(minutos, dias, m.group(2).trim()))
+                return DESCONOCIDO;
+        }
+        return new HorarioSemanal(minutos, true);
+    }
+
+    private static boolean[] todosLosDias() {
+        boolean[] dias = new boolean[7];
+        Arrays.fill(dias, true);
+        return dias;
+    }
+
+    private static boolean[] leerDias(String texto) {
+        boolean[] dias = new boolean[7];
+        for (String parte : texto.split(",")) {
+            String[] extremos = parte.split("-");
+            int desde = DIAS.indexOf(extremos[0].trim().charAt(0));
+            int hasta = DIAS.indexOf(extremos[extremos.length - 1].trim().charAt(0));
+            // Un rango como V-L da la vuelta a la semana
+            for (int d = desde; ; d = (d + 1) % 7) {
+                dias[d] = true;
+                if (d == hasta)
+                    break;
+            }
+        }
+        return dias;
+    }
+
+    private static boolean marcarHoras(long[] minutos, boolean[] dias, String horas) {
+        if (horas.equals("24H") || horas.equals("24 H")) {
+            for (int d = 0; d < 7; d++) {
+                if (dias[d])
+                    marcar(minutos, d * MINUTOS_DIA, MINUTOS_DIA);
+            }
+            return true;
+        }
+
+        for (String intervalo : SEPARADOR_INTERVALOS.split(horas)) {
+            Matcher m = INTERVALO.matcher(intervalo);
+            if (!m.matches())
+                return false;
+            int apertura = minutoDelDia(m.group(1), m.group(2));
+            int cierre = minutoDelDia(m.group(3), m.group(4));
+            if (apertura < 0 || apertura == MINUTOS_DIA || cierre < 0)
+                return false;
+            if (cierre == MINUTOS_DIA - 1)
+                cierre = MINUTOS_DIA;
+            // 00:00-00:00 y similares se publican para abierto todo el día
+            int duracion = cierre > apertura ? cierre - apertura : cierre + MINUTOS_DIA - apertura;
+            for (int d = 0; d < 7; d++) {
+                if (dias[d])
+                    marcar(minutos, d * MINUTOS_DIA + apertura, duracion);
+            }
+        }
+        return true;
+    }
+
+    private static int minutoDelDia(String horas, String minutos) {
+        int h = Integer.parseInt(horas);
+        int m = Integer.parseInt(minutos);
+        if (h > 24 || m > 59 || (h == 24 && m != 0))
+            return -1;
+        return h * 60 + m;
+    }
+
+    private static void marcar(long[] bits, int desde, int longitud) {
+        for (int i = 0; i < longitud; i++) {
+            int minuto = (desde + i) % MINUTOS_SEMANA;
+            bits[minuto >>> 6] |= 1L << minuto;
+        }
+    }
+
+    /**
+     * Calcula el minuto de la semana de un instante, contando desde el lunes a las 00:00.
+     *
+     * @param momento la fecha y hora local
+     * @return el minuto, entre 0 y {@link #MINUTOS_SEMANA} - 1
+     */
+    public static int minutoSemana(LocalDateTime momento) {
+        return (momento.getDayOfWeek().getValue() - 1) * MINUTOS_DIA
+                + momento.getHour() * 60 + momento.getMinute();
+    }
+
+    /**
+     * Indica si la gasolinera está abierta en un minuto de la semana.
+     *
+     * @param minutoSemana el minuto, calculado con {@link #minutoSemana(LocalDateTime)}
+     * @return {@code true} si el horario la da por abierta
+     */
+    public boolean estaAbierta(int minutoSemana) {
+        return (minutos[minutoSemana >>> 6] & (1L << minutoSemana)) != 0;
+    }
+
+    /**
+     * Indica si la gasolinera abre las 24 horas todos los días.
+     *
+     * @return {@code true} si todos los minutos de la semana están abiertos
+     */
+    public boolean esSiempreAbierta() {
+        return siempreAbierta;
+    }
+
+    /**
+     * Indica si el texto del horario se ha podido interpretar.
+     *
+     * @return {@code false} para {@link #DESCONOCIDO}
+     */
+    public boolean esInterpretado() {
+        return interpretado;
+    }
+}
@@ -0,0 +1,74 @@
+package com.eliasbuenosdias.geogas.models;
+
+import java.text.Normalizer;
+
+/**
+ * Normalizador común de los textos que se buscan o se comparan: nombres, direcciones,
+ * localidades, municipios y provincias.
+ * <p>
+ * La clave de un texto es el mismo texto en minúsculas y sin tildes ni diéresis, con la
+ * "ñ" como "n" y la misma longitud, de modo que "MÁLAGA" y "Malaga" o "A CORUÑA" y
+ * "a coruna" tienen la misma clave. Las claves de los campos de las gasolineras se
+ * calculan una vez al leer el volcado y se guardan junto al texto; en las búsquedas y
+ * filtros solo se pliega lo que escribe el usuario.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class NormalizadorTexto {
+
+    /** Tabla de plegado para los caracteres latinos, que son los que llevan tilde en el volcado. */
+    private static final char[] PLEGADO = new char[0x250];
+
+    static {
+        for (char c = 0; c < PLEGADO.length; c++) {
+            String base = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            PLEGADO[c] = Character.toLowerCase(base.charAt(0));
+        }
+    }
+
+    private NormalizadorTexto() {
+    }
+
+    /**
+     * Calcula la clave de un texto.
+     *
+     * @param texto el texto, o {@code null}
+     * @return la clave, la misma instancia si el texto ya estaba plegado, o {@code null}
+     */
+    public static String plegar(String texto) {
+        if (texto == null)
+            return null;
+        int i = 0;
+        while (i < texto.length() && plegar(texto.charAt(i)) == texto.charAt(i))
+            i++;
+        if (i == texto.length())
+            return texto;
+
+        char[] plegado = texto.toCharArray();
+        for (; i < plegado.length; i++)
+            plegado[i] = plegar(plegado[i]);
+        return new String(plegado);
+    }
+
+    /**
+     * Pliega un carácter.
+     *
+     * @param c el carácter
+     * @return el carácter en minúsculas y sin tilde
+     */
+    public static char plegar(char c) {
+        return c < PLEGADO.length ? PLEGADO[c] : Character.toLowerCase(c);
+    }
+
+    /**
+     * Indica si un carácter separa palabras en una clave.
+     *
+     * @param c el carácter
+     * @return {@code true} si no es letra ni dígito
+     */
+    public static boolean esSeparador(char c) {
+        return !Character.isLetterOrDigit(c);
+    }
+}
@@ -0,0 +1,143 @@
+package com.eliasbuenosdias.geogas.tiles;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Caché en disco de teselas generadas, con un tamaño máximo y descarte de las usadas hace
+ * más tiempo.
+ * <p>
+ * Cada tesela es un archivo de la carpeta con la clave como nombre. Al abrirla se recupera
+ * el orden de uso de la fecha de modificación de los archivos, que se actualiza en cada
+ * lectura, así que el orden sobrevive a los reinicios. Las escrituras van a un archivo
+ * temporal que luego se renombra, para no dejar teselas a medias si la aplicación muere.
+ * </p>
+ * <p>
+ * Los métodos son sincronizados: se llama desde los hilos que pintan las teselas.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class CacheDiscoTeselas {
+
+    private static final String TEMPORAL = ".tmp";
+
+    private final File carpeta;
+    private final long maximoBytes;
+    // Clave y tamaño en orden de uso, de la menos reciente a la más reciente
+    private final LinkedHashMap<String, Long> archivos = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    /**
+     * Abre la caché y recupera las teselas guardadas.
+     *
+     * @param carpeta     la carpeta de la caché; se crea si no existe
+     * @param maximoBytes el tamaño máximo
+     */
+    public CacheDiscoTeselas(File carpeta, long maximoBytes) {
+        this.carpeta = carpeta;
+        this.maximoBytes = maximoBytes;
+        File[] existentes = carpeta.listFiles();
+        if (existentes == null) {
+            carpeta.mkdirs();
+            return;
+        }
+        Arrays.sort(existentes, Comparator.comparingLong(File::lastModified));
+        for (File archivo : existentes) {
+            if (archivo.getName().endsWith(TEMPORAL)) {
+                archivo.delete();
+            } else if (archivo.isFile()) {
+                archivos.put(archivo.getName(), archivo.length());
+                bytes += archivo.length();
+            }
+        }
+        descartar();
+    }
+
+    /**
+     * Lee una tesela y la marca como la más reciente.
+     *
+     * @param clave la clave de la tesela
+     * @return el contenido, o {@code null} si no está o no se ha podido leer
+     */
+    public synchronized byte[] leer(String clave) {
+        if (archivos.get(clave) == null)
+            return null;
+        File archivo = new File(carpeta, clave);
+        try {
+            byte[] datos = Files.readAllBytes(archivo.toPath());
+            archivo.setLastModified(System.currentTimeMillis());
+            return datos;
+        } catch (IOException e) {
+            // Borrada desde fuera: se olvida
+            quitar(clave);
+            return null;
+        }
+    }
+
+    /**
+     * Guarda una tesela y descarta las menos recientes si se pasa del tamaño máximo.
+     *
+     * @param clave la clave de la tesela
+     * @param datos el contenido
+     */
+    public synchronized void guardar(String clave, byte[] datos) {
+        File temporal = new File(carpeta, clave + TEMPORAL);
+        try (FileOutputStream salida = new FileOutputStream(temporal)) {
+            salida.write(datos);
+        } catch (IOException e) {
+            temporal.delete();
+            return;
+        }
+        if (!temporal.renameTo(new File(carpeta, clave))) {
+            temporal.delete();
+            return;
+        }
+        quitar(clave);
+        archivos.put(clave, (long) datos.length);
+        bytes += datos.length;
+        descartar();
+    }
+
+    /**
+     * Obtiene lo que ocupan las teselas guardadas.
+     *
+     * @return el tamaño en bytes
+     */
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Obtiene el número de teselas guardadas.
+     *
+     * @return las teselas de la caché
+     */
+    public synchronized int tamano() {
+        return archivos.size();
+    }
+
+    private void quitar(String clave) {
+        Long tamano = archivos.remove(clave);
+        if (tamano != null)
+            bytes -= tamano;
+    }
+
+    private void descartar() {
+        Iterator<Map.Entry<String, Long>> it = archivos.entrySet().iterator();
+        while (bytes > maximoBytes && it.hasNext()) {
+            Map.Entry<String, Long> masAntigua = it.next();
+            new File(carpeta, masAntigua.getKey()).delete();
+            bytes -= masAntigua.getValue();
+            it.remove();
+        }
+    }
+}
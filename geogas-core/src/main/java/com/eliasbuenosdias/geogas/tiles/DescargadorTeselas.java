@@ -0,0 +1,163 @@
+package com.eliasbuenosdias.geogas.tiles;
+
+import com.eliasbuenosdias.geogas.utils.RecorridoConcurrente;
+
+import java.io.IOException;
+
+/**
+ * Descarga todas las teselas de una {@link RegionTeselas} con un número limitado de
+ * descargas simultáneas.
+ * <p>
+ * Recorre la región del zoom más bajo al más alto, de modo que si se interrumpe ya están
+ * las vistas generales. Antes de descargar cada tesela pregunta al destino si sigue
+ * pendiente: volver a lanzar la misma región continúa donde se quedó y las teselas ya
+ * guardadas no vuelven a pedirse a la red.
+ * </p>
+ * <p>
+ * No sabe de dónde vienen las teselas ni dónde se guardan; eso lo decide el
+ * {@link DestinoTeselas}, que en la aplicación es la caché de osmdroid. El reparto entre
+ * hilos y la cancelación son los de {@link RecorridoConcurrente}.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class DescargadorTeselas {
+
+    /** Número de avisos de progreso aproximado durante una descarga. */
+    private static final int AVISOS_PROGRESO = 200;
+
+    /**
+     * Lugar donde se guardan las teselas descargadas.
+     * <p>
+     * Se llama desde varios hilos a la vez.
+     * </p>
+     */
+    public interface DestinoTeselas {
+        /**
+         * Indica si una tesela falta o está caducada.
+         *
+         * @param zoom el nivel de zoom
+         * @param x    la columna
+         * @param y    la fila
+         * @return {@code true} si hay que descargarla
+         */
+        boolean pendiente(int zoom, int x, int y);
+
+        /**
+         * Descarga y guarda una tesela.
+         *
+         * @param zoom el nivel de zoom
+         * @param x    la columna
+         * @param y    la fila
+         * @throws IOException si no se ha podido descargar o guardar
+         */
+        void descargar(int zoom, int x, int y) throws IOException;
+    }
+
+    /**
+     * Receptor del progreso de una descarga. Se llama desde los hilos de descarga.
+     */
+    public interface Progreso {
+        /**
+         * Informa del avance.
+         *
+         * @param procesadas teselas ya descargadas, existentes o fallidas
+         * @param total      teselas de la región
+         */
+        void actualizar(long procesadas, long total);
+    }
+
+    /**
+     * Resultado de una descarga.
+     */
+    public static final class Resultado {
+        /** Teselas descargadas en esta ejecución. */
+        public final long descargadas;
+        /** Teselas que ya estaban guardadas. */
+        public final long existentes;
+        /** Teselas que no se han podido descargar. */
+        public final long fallidas;
+        /** Teselas de la región. */
+        public final long total;
+        /** Si la descarga se canceló antes de recorrer toda la región. */
+        public final boolean cancelada;
+
+        private final RecorridoConcurrente.Resultado recorrido;
+
+        Resultado(RecorridoConcurrente.Resultado recorrido) {
+            this.descargadas = recorrido.hechas;
+            this.existentes = recorrido.existentes;
+            this.fallidas = recorrido.fallidas;
+            this.total = recorrido.total;
+            this.cancelada = recorrido.cancelado;
+            this.recorrido = recorrido;
+        }
+
+        /**
+         * Indica si todas las teselas de la región están guardadas.
+         *
+         * @return {@code true} si no se canceló ni falló ninguna
+         */
+        public boolean estaCompleta() {
+            return recorrido.estaCompleto();
+        }
+    }
+
+    private final RecorridoConcurrente recorrido;
+
+    /**
+     * Construye un descargador.
+     *
+     * @param concurrencia el máximo de descargas simultáneas
+     * @throws IllegalArgumentException si {@code concurrencia} es menor que 1
+     */
+    public DescargadorTeselas(int concurrencia) {
+        this.recorrido = new RecorridoConcurrente(concurrencia);
+    }
+
+    /**
+     * Descarga la región y espera a que termine.
+     *
+     * @param region   la región a descargar
+     * @param destino  dónde se comprueban y guardan las teselas
+     * @param progreso el receptor del avance, o {@code null}
+     * @return el resultado de la descarga
+     * @throws InterruptedException si se interrumpe el hilo que espera; la descarga se cancela
+     */
+    public Resultado descargar(RegionTeselas region, DestinoTeselas destino, Progreso progreso)
+            throws InterruptedException {
+        // Primera posición lineal de cada zoom: la tesela k se localiza sin listar la región
+        int niveles = region.getZoomMax() - region.getZoomMin() + 1;
+        long[] inicios = new long[niveles + 1];
+        for (int i = 0; i < niveles; i++)
+            inicios[i + 1] = inicios[i] + region.contarTeselas(region.getZoomMin() + i);
+        long total = inicios[niveles];
+
+        return new Resultado(recorrido.recorrer(total, () -> k -> {
+            int nivel = 0;
+            while (k >= inicios[nivel + 1])
+                nivel++;
+            int zoom = region.getZoomMin() + nivel;
+            int oeste = RegionTeselas.columna(region.getOeste(), zoom);
+            int norte = RegionTeselas.fila(region.getNorte(), zoom);
+            int columnas = RegionTeselas.columna(region.getEste(), zoom) - oeste + 1;
+            long posicion = k - inicios[nivel];
+            int x = oeste + (int) (posicion % columnas);
+            int y = norte + (int) (posicion / columnas);
+
+            if (!destino.pendiente(zoom, x, y))
+                return RecorridoConcurrente.Estado.EXISTENTE;
+            destino.descargar(zoom, x, y);
+            return RecorridoConcurrente.Estado.HECHA;
+        }, progreso == null ? null : progreso::actualizar, total / AVISOS_PROGRESO));
+    }
+
+    /**
+     * Cancela la descarga en curso. Las teselas que se estén descargando terminan y no se
+     * empieza ninguna más.
+     */
+    public void cancelar() {
+        recorrido.cancelar();
+    }
+}
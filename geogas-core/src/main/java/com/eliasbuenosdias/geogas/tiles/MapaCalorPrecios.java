@@ -0,0 +1,362 @@
+package com.eliasbuenosdias.geogas.tiles;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.models.Combustible;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Locale;
+
+/**
+ * Mapa de calor de precios de un combustible, pintado en teselas del mapa.
+ * <p>
+ * Es una copia inmutable de las coordenadas y precios de las gasolineras, tomada en el
+ * hilo principal, de la que se pintan teselas desde cualquier hilo. Cada tesela de
+ * {@link #LADO} píxeles se divide en celdas de {@link #LADO_CELDA} píxeles, y cada celda se
+ * colorea con el precio mínimo o la mediana de las gasolineras de la celda y sus ocho
+ * vecinas: de verde (barato) a rojo (caro) entre los percentiles 5 y 95 de todo el país,
+ * para que los colores de teselas distintas sean comparables.
+ * </p>
+ * <p>
+ * {@link #getVersion()} es una huella del contenido, y no del momento en que se tomó: un
+ * volcado igual al anterior da la misma versión y las teselas guardadas siguen valiendo
+ * aunque se reinicie la aplicación.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class MapaCalorPrecios {
+
+    /** Valor que da color a cada celda. */
+    public enum Modo {
+        /** El precio más bajo de la zona. */
+        MINIMO,
+        /** La mediana de los precios de la zona. */
+        MEDIANA
+    }
+
+    /** Lado de una tesela en píxeles. */
+    public static final int LADO = 256;
+    /** Lado de una celda en píxeles. */
+    public static final int LADO_CELDA = 8;
+    /** Zoom máximo del mapa de calor; más cerca ya se ven los marcadores. */
+    public static final int ZOOM_MAXIMO = 12;
+
+    // Coordenadas en píxeles del mundo al zoom 22 (2^30 por eje)
+    private static final int BITS_MUNDO = 30;
+    private static final int CELDAS = LADO / LADO_CELDA;
+    private static final int BITS_CELDAS = 5;
+    private static final int ALFA = 0xA0;
+    // Hasta este número de precios la mediana se calcula juntándolos y ordenándolos
+    private static final int MEDIANA_DIRECTA = 64;
+    private static final int[] VERDE = { 0x2E, 0xB8, 0x4B };
+    private static final int[] AMARILLO = { 0xFF, 0xC1, 0x07 };
+    private static final int[] ROJO = { 0xE5, 0x39, 0x35 };
+
+    private final Combustible combustible;
+    private final Modo modo;
+    // Ordenadas por x
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] precios;
+    private final int precioBajo;
+    private final int precioAlto;
+    private final long version;
+
+    private MapaCalorPrecios(Combustible combustible, Modo modo, int[] xs, int[] ys, int[] precios,
+            int precioBajo, int precioAlto, long version) {
+        this.combustible = combustible;
+        this.modo = modo;
+        this.xs = xs;
+        this.ys = ys;
+        this.precios = precios;
+        this.precioBajo = precioBajo;
+        this.precioAlto = precioAlto;
+        this.version = version;
+    }
+
+    /**
+     * Copia las gasolineras con precio del combustible.
+     *
+     * @param almacen     el almacén columnar
+     * @param filas       las filas que entran en el mapa
+     * @param combustible el combustible
+     * @param modo        el valor que da color a cada celda
+     * @return el mapa de calor
+     */
+    public static MapaCalorPrecios construir(AlmacenGasolineras almacen, BitSet filas, Combustible combustible,
+            Modo modo) {
+        long[] orden = new long[filas.cardinality()];
+        int[] ysFila = new int[orden.length];
+        int[] preciosFila = new int[orden.length];
+        int n = 0;
+        long huella = 0;
+        for (int fila = filas.nextSetBit(0); fila >= 0; fila = filas.nextSetBit(fila + 1)) {
+            int precio = almacen.precio(fila, combustible);
+            double lat = almacen.latitud(fila);
+            double lon = almacen.longitud(fila);
+            if (precio < 0 || Double.isNaN(lat) || Double.isNaN(lon))
+                continue;
+            int x = mundoX(lon);
+            int y = mundoY(lat);
+            orden[n] = (long) x << 32 | n;
+            ysFila[n] = y;
+            preciosFila[n] = precio;
+            // Suma de mezclas: no depende del orden de las filas en el almacén
+            huella += mezclar((long) x << 32 ^ (long) y << 1 ^ (long) precio * 0x9E3779B97F4A7C15L);
+            n++;
+        }
+        Arrays.sort(orden, 0, n);
+
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        int[] precios = new int[n];
+        for (int i = 0; i < n; i++) {
+            int origen = (int) orden[i];
+            xs[i] = (int) (orden[i] >>> 32);
+            ys[i] = ysFila[origen];
+            precios[i] = preciosFila[origen];
+        }
+
+        int[] ordenados = precios.clone();
+        Arrays.sort(ordenados);
+        int bajo = n > 0 ? ordenados[(n - 1) * 5 / 100] : 0;
+        int alto = n > 0 ? ordenados[(n - 1) * 95 / 100] : 0;
+        long version = mezclar(huella ^ mezclar(n) ^ (long) combustible.ordinal() << 40 ^ (long) modo.ordinal() << 48);
+        return new MapaCalorPrecios(combustible, modo, xs, ys, precios, bajo, alto, version);
+    }
+
+    /**
+     * Obtiene la clave de una tesela para las cachés: zoom, columna, fila, combustible,
+     * modo y versión de los datos.
+     *
+     * @param zoom el nivel de zoom
+     * @param x    la columna
+     * @param y    la fila
+     * @return la clave, válida como nombre de archivo
+     */
+    public String clave(int zoom, int x, int y) {
+        return String.format(Locale.ROOT, "%d_%d_%d_%s_%s_%016x", zoom, x, y, combustible, modo, version);
+    }
+
+    /**
+     * Pinta una tesela.
+     *
+     * @param zoom el nivel de zoom, como mucho {@link #ZOOM_MAXIMO}
+     * @param x    la columna
+     * @param y    la fila
+     * @return los {@code LADO * LADO} píxeles ARGB por filas, o {@code null} si no hay ninguna
+     *         gasolinera que dé color a la tesela
+     */
+    public int[] pintar(int zoom, int x, int y) {
+        int bitsTesela = BITS_MUNDO - zoom;
+        int bitsCelda = bitsTesela - BITS_CELDAS;
+        // Rejilla de la tesela con una celda más por cada lado para las vecinas del borde
+        long x0 = ((long) x << bitsTesela) - (1L << bitsCelda);
+        long y0 = ((long) y << bitsTesela) - (1L << bitsCelda);
+        long x1 = x0 + ((long) (CELDAS + 2) << bitsCelda);
+        int lado = CELDAS + 2;
+
+        int desde = primeraDesde(x0);
+        int hasta = primeraDesde(x1);
+        int[] celdas = new int[hasta - desde];
+        int[] inicio = new int[lado * lado + 1];
+        int dentro = 0;
+        for (int i = desde; i < hasta; i++) {
+            long cy = (ys[i] - y0) >> bitsCelda;
+            int celda = -1;
+            if (cy >= 0 && cy < lado) {
+                celda = (int) cy * lado + (int) ((xs[i] - x0) >> bitsCelda);
+                inicio[celda + 1]++;
+                dentro++;
+            }
+            celdas[i - desde] = celda;
+        }
+        if (dentro == 0)
+            return null;
+
+        // Precios agrupados por celda; para la mediana se ordenan dentro de cada una y
+        // para el mínimo basta con dejar el menor el primero
+        for (int c = 0; c < lado * lado; c++)
+            inicio[c + 1] += inicio[c];
+        int[] agrupados = new int[dentro];
+        int[] posicion = Arrays.copyOf(inicio, lado * lado);
+        for (int i = desde; i < hasta; i++) {
+            int celda = celdas[i - desde];
+            if (celda >= 0)
+                agrupados[posicion[celda]++] = precios[i];
+        }
+        for (int c = 0; c < lado * lado; c++) {
+            if (modo == Modo.MEDIANA) {
+                Arrays.sort(agrupados, inicio[c], inicio[c + 1]);
+            } else {
+                for (int p = inicio[c] + 1; p < inicio[c + 1]; p++) {
+                    if (agrupados[p] < agrupados[inicio[c]]) {
+                        int menor = agrupados[p];
+                        agrupados[p] = agrupados[inicio[c]];
+                        agrupados[inicio[c]] = menor;
+                    }
+                }
+            }
+        }
+
+        int[] pixeles = new int[LADO * LADO];
+        int[] vecinas = new int[9];
+        int[] zona = new int[MEDIANA_DIRECTA];
+        boolean pintada = false;
+        for (int cy = 1; cy <= CELDAS; cy++) {
+            for (int cx = 1; cx <= CELDAS; cx++) {
+                int nVecinas = 0;
+                int k = 0;
+                for (int vy = cy - 1; vy <= cy + 1; vy++) {
+                    for (int vx = cx - 1; vx <= cx + 1; vx++) {
+                        int c = vy * lado + vx;
+                        if (inicio[c + 1] > inicio[c]) {
+                            vecinas[nVecinas++] = c;
+                            k += inicio[c + 1] - inicio[c];
+                        }
+                    }
+                }
+                if (k == 0)
+                    continue;
+                int valor;
+                if (modo == Modo.MINIMO) {
+                    valor = Integer.MAX_VALUE;
+                    for (int i = 0; i < nVecinas; i++)
+                        valor = Math.min(valor, agrupados[inicio[vecinas[i]]]);
+                } else if (k <= MEDIANA_DIRECTA) {
+                    int n = 0;
+                    for (int i = 0; i < nVecinas; i++) {
+                        for (int p = inicio[vecinas[i]]; p < inicio[vecinas[i] + 1]; p++)
+                            zona[n++] = agrupados[p];
+                    }
+                    Arrays.sort(zona, 0, k);
+                    valor = (zona[(k - 1) / 2] + zona[k / 2]) / 2;
+                } else {
+                    valor = (kesimo(agrupados, inicio, vecinas, nVecinas, (k - 1) / 2)
+                            + kesimo(agrupados, inicio, vecinas, nVecinas, k / 2)) / 2;
+                }
+                int color = color(valor);
+                for (int py = (cy - 1) * LADO_CELDA; py < cy * LADO_CELDA; py++)
+                    Arrays.fill(pixeles, py * LADO + (cx - 1) * LADO_CELDA, py * LADO + cx * LADO_CELDA, color);
+                pintada = true;
+            }
+        }
+        return pintada ? pixeles : null;
+    }
+
+    /**
+     * Busca el precio en la posición {@code r} (desde 0) de la unión de los precios ordenados
+     * de varias celdas, sin juntarlos: el menor precio con más de {@code r} precios menores o
+     * iguales, buscado por bisección entre el mínimo y el máximo de las celdas.
+     */
+    private static int kesimo(int[] agrupados, int[] inicio, int[] celdas, int n, int r) {
+        int bajo = Integer.MAX_VALUE;
+        int alto = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            bajo = Math.min(bajo, agrupados[inicio[celdas[i]]]);
+            alto = Math.max(alto, agrupados[inicio[celdas[i] + 1] - 1]);
+        }
+        while (bajo < alto) {
+            int medio = (int) (((long) bajo + alto) >> 1);
+            int hastaMedio = 0;
+            for (int i = 0; i < n; i++)
+                hastaMedio += hastaPrecio(agrupados, inicio[celdas[i]], inicio[celdas[i] + 1], medio);
+            if (hastaMedio > r)
+                alto = medio;
+            else
+                bajo = medio + 1;
+        }
+        return bajo;
+    }
+
+    /** Número de precios menores o iguales que {@code precio} en un tramo ordenado. */
+    private static int hastaPrecio(int[] agrupados, int desde, int hasta, int precio) {
+        int bajo = desde;
+        int alto = hasta;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (agrupados[medio] <= precio)
+                bajo = medio + 1;
+            else
+                alto = medio;
+        }
+        return bajo - desde;
+    }
+
+    /**
+     * Calcula el color de un precio: verde en el percentil 5, amarillo a medio camino y rojo
+     * en el percentil 95, semitransparente para que se vea el mapa debajo.
+     *
+     * @param precio el precio en milésimas
+     * @return el color ARGB
+     */
+    public int color(int precio) {
+        double t = precioAlto > precioBajo ? (double) (precio - precioBajo) / (precioAlto - precioBajo) : 0.5;
+        t = Math.max(0, Math.min(1, t));
+        int[] desde = t < 0.5 ? VERDE : AMARILLO;
+        int[] hasta = t < 0.5 ? AMARILLO : ROJO;
+        double f = t < 0.5 ? t * 2 : t * 2 - 1;
+        int color = ALFA << 24;
+        for (int i = 0; i < 3; i++)
+            color |= (int) Math.round(desde[i] + (hasta[i] - desde[i]) * f) << (16 - 8 * i);
+        return color;
+    }
+
+    private int primeraDesde(long x) {
+        int bajo = 0;
+        int alto = xs.length;
+        while (bajo < alto) {
+            int medio = (bajo + alto) >>> 1;
+            if (xs[medio] < x)
+                bajo = medio + 1;
+            else
+                alto = medio;
+        }
+        return bajo;
+    }
+
+    private static int mundoX(double longitud) {
+        double x = (longitud + 180.0) / 360.0;
+        return (int) Math.max(0, Math.min((1 << BITS_MUNDO) - 1, Math.floor(x * (1 << BITS_MUNDO))));
+    }
+
+    private static int mundoY(double latitud) {
+        double lat = Math.toRadians(Math.max(-RegionTeselas.LATITUD_MAXIMA, Math.min(RegionTeselas.LATITUD_MAXIMA, latitud)));
+        double y = (1.0 - Math.log(Math.tan(lat) + 1.0 / Math.cos(lat)) / Math.PI) / 2.0;
+        return (int) Math.max(0, Math.min((1 << BITS_MUNDO) - 1, Math.floor(y * (1 << BITS_MUNDO))));
+    }
+
+    /** Mezcla de bits de SplitMix64. */
+    private static long mezclar(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Obtiene el combustible.
+     *
+     * @return el combustible
+     */
+    public Combustible getCombustible() { return combustible; }
+    /**
+     * Obtiene el valor que da color a cada celda.
+     *
+     * @return el modo
+     */
+    public Modo getModo() { return modo; }
+    /**
+     * Obtiene la huella de los datos, el combustible y el modo.
+     *
+     * @return la versión
+     */
+    public long getVersion() { return version; }
+    /**
+     * Obtiene el número de gasolineras con precio.
+     *
+     * @return las gasolineras del mapa
+     */
+    public int tamano() { return xs.length; }
+}
@@ -0,0 +1,259 @@
+package com.eliasbuenosdias.geogas.tiles;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.models.DiccionarioCadenas;
+
+import java.util.Locale;
+import java.util.Objects;
+
+/**
+ * Rectángulo geográfico y rango de zoom de teselas del mapa.
+ * <p>
+ * Describe una zona descargada o por descargar para el mapa sin conexión. Las teselas
+ * siguen el esquema XYZ de OpenStreetMap en proyección Web Mercator: en el zoom
+ * {@code z} hay {@code 2^z} columnas de oeste a este y {@code 2^z} filas de norte a sur.
+ * </p>
+ * <p>
+ * Es inmutable y se puede guardar como texto con {@link #codificar()}.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class RegionTeselas {
+
+    /** Zoom máximo de las fuentes de teselas habituales. */
+    public static final int ZOOM_MAXIMO = 19;
+    /** Latitud límite de la proyección Web Mercator. */
+    public static final double LATITUD_MAXIMA = 85.05112878;
+    /** Margen en grados que se añade alrededor de las gasolineras de una provincia. */
+    public static final double MARGEN_PROVINCIA = 0.05;
+
+    private final double norte;
+    private final double sur;
+    private final double este;
+    private final double oeste;
+    private final int zoomMin;
+    private final int zoomMax;
+
+    /**
+     * Construye una región.
+     *
+     * @param norte   latitud del borde norte
+     * @param sur     latitud del borde sur
+     * @param este    longitud del borde este
+     * @param oeste   longitud del borde oeste
+     * @param zoomMin zoom mínimo, incluido
+     * @param zoomMax zoom máximo, incluido
+     * @throws IllegalArgumentException si el rectángulo o el rango de zoom no son válidos
+     */
+    public RegionTeselas(double norte, double sur, double este, double oeste, int zoomMin, int zoomMax) {
+        if (!(norte >= sur) || !(este >= oeste))
+            throw new IllegalArgumentException("Rectángulo no válido");
+        if (zoomMin < 0 || zoomMax > ZOOM_MAXIMO || zoomMin > zoomMax)
+            throw new IllegalArgumentException("Rango de zoom no válido: " + zoomMin + "-" + zoomMax);
+        this.norte = norte;
+        this.sur = sur;
+        this.este = este;
+        this.oeste = oeste;
+        this.zoomMin = zoomMin;
+        this.zoomMax = zoomMax;
+    }
+
+    /**
+     * Construye la región que cubre todas las gasolineras de una provincia, con un margen
+     * de {@link #MARGEN_PROVINCIA} grados.
+     *
+     * @param almacen     el almacén con las gasolineras actuales
+     * @param idProvincia el grupo de la provincia en {@link DiccionarioCadenas#PROVINCIAS}, que
+     *                    reúne las grafías que solo difieren en tildes o mayúsculas
+     * @param zoomMin     zoom mínimo, incluido
+     * @param zoomMax     zoom máximo, incluido
+     * @return la región, o {@code null} si la provincia no tiene gasolineras con coordenadas
+     */
+    public static RegionTeselas deProvincia(AlmacenGasolineras almacen, int idProvincia, int zoomMin, int zoomMax) {
+        double norte = Double.NEGATIVE_INFINITY;
+        double sur = Double.POSITIVE_INFINITY;
+        double este = Double.NEGATIVE_INFINITY;
+        double oeste = Double.POSITIVE_INFINITY;
+        for (int fila = 0; fila < almacen.tamano(); fila++) {
+            if (!almacen.estaViva(fila) || DiccionarioCadenas.PROVINCIAS.grupo(almacen.idProvincia(fila)) != idProvincia)
+                continue;
+            double lat = almacen.latitud(fila);
+            double lon = almacen.longitud(fila);
+            if (Double.isNaN(lat) || Double.isNaN(lon))
+                continue;
+            norte = Math.max(norte, lat);
+            sur = Math.min(sur, lat);
+            este = Math.max(este, lon);
+            oeste = Math.min(oeste, lon);
+        }
+        if (norte == Double.NEGATIVE_INFINITY)
+            return null;
+        return new RegionTeselas(norte + MARGEN_PROVINCIA, sur - MARGEN_PROVINCIA,
+                este + MARGEN_PROVINCIA, oeste - MARGEN_PROVINCIA, zoomMin, zoomMax);
+    }
+
+    /**
+     * Calcula la columna de la tesela que contiene una longitud.
+     *
+     * @param longitud la longitud en grados
+     * @param zoom     el nivel de zoom
+     * @return la columna, entre 0 y {@code 2^zoom - 1}
+     */
+    public static int columna(double longitud, int zoom) {
+        int lado = 1 << zoom;
+        int x = (int) Math.floor((longitud + 180.0) / 360.0 * lado);
+        return Math.max(0, Math.min(lado - 1, x));
+    }
+
+    /**
+     * Calcula la fila de la tesela que contiene una latitud.
+     *
+     * @param latitud la latitud en grados
+     * @param zoom    el nivel de zoom
+     * @return la fila, entre 0 (norte) y {@code 2^zoom - 1} (sur)
+     */
+    public static int fila(double latitud, int zoom) {
+        int lado = 1 << zoom;
+        double lat = Math.toRadians(Math.max(-LATITUD_MAXIMA, Math.min(LATITUD_MAXIMA, latitud)));
+        double y = (1.0 - Math.log(Math.tan(lat) + 1.0 / Math.cos(lat)) / Math.PI) / 2.0 * lado;
+        return Math.max(0, Math.min(lado - 1, (int) Math.floor(y)));
+    }
+
+    /**
+     * Cuenta las teselas de un nivel de zoom.
+     *
+     * @param zoom el nivel de zoom
+     * @return el número de teselas que cubren la región en ese zoom
+     */
+    public long contarTeselas(int zoom) {
+        long columnas = columna(este, zoom) - columna(oeste, zoom) + 1L;
+        long filas = fila(sur, zoom) - fila(norte, zoom) + 1L;
+        return columnas * filas;
+    }
+
+    /**
+     * Cuenta las teselas de todo el rango de zoom.
+     *
+     * @return el número total de teselas de la región
+     */
+    public long contarTeselas() {
+        long total = 0;
+        for (int z = zoomMin; z <= zoomMax; z++)
+            total += contarTeselas(z);
+        return total;
+    }
+
+    /**
+     * Estima lo que ocupa la región descargada.
+     *
+     * @param bytesPorTesela el tamaño medio de una tesela
+     * @return la estimación en bytes
+     */
+    public long estimarBytes(long bytesPorTesela) {
+        return contarTeselas() * bytesPorTesela;
+    }
+
+    /**
+     * Indica si la región cubre por completo un rectángulo visto a un zoom.
+     *
+     * @param norte latitud del borde norte
+     * @param sur   latitud del borde sur
+     * @param este  longitud del borde este
+     * @param oeste longitud del borde oeste
+     * @param zoom  el zoom del mapa; se redondea hacia abajo, que es el nivel de teselas que pide
+     * @return {@code true} si todas las teselas necesarias son de la región
+     */
+    public boolean cubre(double norte, double sur, double este, double oeste, double zoom) {
+        int z = (int) Math.floor(zoom);
+        return z >= zoomMin && z <= zoomMax
+                && norte <= this.norte && sur >= this.sur && este <= this.este && oeste >= this.oeste;
+    }
+
+    /**
+     * Obtiene la latitud del borde norte.
+     *
+     * @return la latitud del borde norte
+     */
+    public double getNorte() { return norte; }
+    /**
+     * Obtiene la latitud del borde sur.
+     *
+     * @return la latitud del borde sur
+     */
+    public double getSur() { return sur; }
+    /**
+     * Obtiene la longitud del borde este.
+     *
+     * @return la longitud del borde este
+     */
+    public double getEste() { return este; }
+    /**
+     * Obtiene la longitud del borde oeste.
+     *
+     * @return la longitud del borde oeste
+     */
+    public double getOeste() { return oeste; }
+    /**
+     * Obtiene el zoom mínimo, incluido.
+     *
+     * @return el zoom mínimo, incluido
+     */
+    public int getZoomMin() { return zoomMin; }
+    /**
+     * Obtiene el zoom máximo, incluido.
+     *
+     * @return el zoom máximo, incluido
+     */
+    public int getZoomMax() { return zoomMax; }
+
+    /**
+     * Codifica la región como texto para guardarla.
+     *
+     * @return el texto, que {@link #decodificar(String)} convierte de nuevo en la región
+     */
+    public String codificar() {
+        return String.format(Locale.ROOT, "%.6f;%.6f;%.6f;%.6f;%d;%d", norte, sur, este, oeste, zoomMin, zoomMax);
+    }
+
+    /**
+     * Decodifica una región guardada con {@link #codificar()}.
+     *
+     * @param texto el texto guardado
+     * @return la región, o {@code null} si el texto no es válido
+     */
+    public static RegionTeselas decodificar(String texto) {
+        if (texto == null)
+            return null;
+        String[] partes = texto.split(";");
+        if (partes.length != 6)
+            return null;
+        try {
+            return new RegionTeselas(Double.parseDouble(partes[0]), Double.parseDouble(partes[1]),
+                    Double.parseDouble(partes[2]), Double.parseDouble(partes[3]),
+                    Integer.parseInt(partes[4]), Integer.parseInt(partes[5]));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof RegionTeselas))
+            return false;
+        return codificar().equals(((RegionTeselas) o).codificar());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(codificar());
+    }
+
+    @Override
+    public String toString() {
+        return codificar();
+    }
+}
@@ -0,0 +1,699 @@
+// En FiltrosManager.java - REEMPLAZA completamente la clase:
+package com.eliasbuenosdias.geogas.utils;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.data.IndicePrecios;
+import com.eliasbuenosdias.geogas.data.IndicesPrecios;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.DiccionarioCadenas;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.models.HorarioSemanal;
+import com.eliasbuenosdias.geogas.models.NormalizadorTexto;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gestor de filtros para gasolineras.
+ * <p>
+ * Esta clase proporciona funcionalidad para filtrar listas de gasolineras según
+ * múltiples criterios como ubicación, tipo de combustible, precio, servicios y favoritos.
+ * Aplica filtros de forma combinada utilizando operadores AND.
+ * </p>
+ * <p>
+ * Los filtros de provincia, municipio y marca se resuelven una vez contra los
+ * {@link DiccionarioCadenas} y después comparan identificadores enteros en cada gasolinera.
+ * No distinguen tildes ni mayúsculas: el texto del filtro se pliega con
+ * {@link NormalizadorTexto} al empezar la consulta y se compara con las claves que los
+ * diccionarios calcularon al leer el volcado.
+ * Los de 24 horas y abiertas usan el {@link HorarioSemanal} compilado de cada horario.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public class FiltrosManager {
+    private String provincia;
+    private String municipio;
+    private String gasolinera;
+    private boolean soloGasolina95 = false;
+    private boolean soloGasolina98 = false;
+    private boolean soloDiesel = false;
+    private boolean soloDieselPremium = false;
+    private boolean soloGLP = false;
+    private boolean solo24Horas = false;
+    private boolean soloFavoritas = false;
+    private boolean soloAbiertas = false;
+    private LocalDateTime momentoApertura;
+    private final Map<Combustible, Double> preciosMaximos = new EnumMap<>(Combustible.class);
+    // Precios máximos en milésimas para el filtrado por filas; null hasta que se necesitan
+    private Combustible[] combustiblesConMaximo;
+    private int[] maximosMilesimas;
+
+    private static final byte ROTULO_SIN_EVALUAR = 0;
+    private static final byte ROTULO_COINCIDE = 1;
+    private static final byte ROTULO_NO_COINCIDE = 2;
+
+    // Grupos de los diccionarios resueltos al preparar cada consulta; SIN_VALOR si no existen
+    private int idProvincia = DiccionarioCadenas.SIN_VALOR;
+    private int idMunicipio = DiccionarioCadenas.SIN_VALOR;
+    // Filtro de marca plegado, para compararlo con las claves de los rótulos
+    private String clavePrefijoRotulo;
+    // Resultado del filtro de marca por identificador de rótulo
+    private byte[] coincidenciasRotulo = new byte[0];
+    // Minuto de la semana del filtro de abiertas, resuelto al empezar cada consulta
+    private int minutoApertura;
+
+    // Getters y Setters
+    /**
+     * Obtiene la provincia configurada como filtro.
+     *
+     * @return la provincia o {@code null} si no hay filtro de provincia
+     */
+    public String getProvincia() { return provincia; }
+    /**
+     * Establece el filtro de provincia.
+     *
+     * @param provincia la provincia a filtrar
+     */
+    public void setProvincia(String provincia) {
+        this.provincia = provincia;
+    }
+    /**
+     * Obtiene el municipio configurado como filtro.
+     *
+     * @return el municipio o {@code null} si no hay filtro de municipio
+     */
+    public String getMunicipio() { return municipio; }
+    /**
+     * Establece el filtro de municipio.
+     *
+     * @param municipio el municipio a filtrar
+     */
+    public void setMunicipio(String municipio) {
+        this.municipio = municipio;
+    }
+    /**
+     * Obtiene el nombre de gasolinera configurado como filtro.
+     *
+     * @return el nombre de la gasolinera o {@code null} si no hay filtro
+     */
+    public String getGasolinera() { return gasolinera; }
+    /**
+     * Establece el filtro por nombre de gasolinera.
+     *
+     * @param gasolinera el nombre de la gasolinera a filtrar
+     */
+    public void setGasolinera(String gasolinera) { // Cambiado
+        this.gasolinera = gasolinera;
+        this.clavePrefijoRotulo = NormalizadorTexto.plegar(gasolinera);
+        Arrays.fill(coincidenciasRotulo, ROTULO_SIN_EVALUAR);
+    }
+    /**
+     * Verifica si el filtro de Gasolina 95 está activo.
+     *
+     * @return {@code true} si solo se muestran gasolineras con Gasolina 95
+     */
+    public boolean isSoloGasolina95() { return soloGasolina95; }
+    /**
+     * Establece el filtro de Gasolina 95.
+     *
+     * @param soloGasolina95 {@code true} para mostrar solo gasolineras con Gasolina 95
+     */
+    public void setSoloGasolina95(boolean soloGasolina95) { this.soloGasolina95 = soloGasolina95; }
+    /**
+     * Verifica si el filtro de Gasolina 98 está activo.
+     *
+     * @return {@code true} si solo se muestran gasolineras con Gasolina 98
+     */
+    public boolean isSoloGasolina98() { return soloGasolina98; }
+    /**
+     * Establece el filtro de Gasolina 98.
+     *
+     * @param soloGasolina98 {@code true} para mostrar solo gasolineras con Gasolina 98
+     */
+    public void setSoloGasolina98(boolean soloGasolina98) { this.soloGasolina98 = soloGasolina98; }
+    /**
+     * Verifica si el filtro de Diesel está activo.
+     *
+     * @return {@code true} si solo se muestran gasolineras con Diesel
+     */
+    public boolean isSoloDiesel() { return soloDiesel; }
+    /**
+     * Establece el filtro de Diesel.
+     *
+     * @param soloDiesel {@code true} para mostrar solo gasolineras con Diesel
+     */
+    public void setSoloDiesel(boolean soloDiesel) { this.soloDiesel = soloDiesel; }
+    /**
+     * Verifica si el filtro de Diesel Premium está activo.
+     *
+     * @return {@code true} si solo se muestran gasolineras con Diesel Premium
+     */
+    public boolean isSoloDieselPremium() { return soloDieselPremium; }
+    /**
+     * Establece el filtro de Diesel Premium.
+     *
+     * @param soloDieselPremium {@code true} para mostrar solo gasolineras con Diesel Premium
+     */
+    public void setSoloDieselPremium(boolean soloDieselPremium) { this.soloDieselPremium = soloDieselPremium; }
+    /**
+     * Verifica si el filtro de GLP está activo.
+     *
+     * @return {@code true} si solo se muestran gasolineras con GLP
+     */
+    public boolean isSoloGLP() { return soloGLP; }
+    /**
+     * Establece el filtro de GLP.
+     *
+     * @param soloGLP {@code true} para mostrar solo gasolineras con GLP
+     */
+    public void setSoloGLP(boolean soloGLP) { this.soloGLP = soloGLP; }
+    /**
+     * Verifica si el filtro de 24 horas está activo.
+     *
+     * @return {@code true} si solo se muestran gasolineras abiertas 24 horas
+     */
+    public boolean isSolo24Horas() { return solo24Horas; }
+    /**
+     * Establece el filtro de servicio 24 horas.
+     *
+     * @param solo24Horas {@code true} para mostrar solo gasolineras 24 horas
+     */
+    public void setSolo24Horas(boolean solo24Horas) { this.solo24Horas = solo24Horas; }
+    /**
+     * Verifica si el filtro de favoritas está activo.
+     *
+     * @return {@code true} si solo se muestran gasolineras favoritas
+     */
+    public boolean isSoloFavoritas() { return soloFavoritas; }
+    /**
+     * Establece el filtro de gasolineras favoritas.
+     *
+     * @param soloFavoritas {@code true} para mostrar solo gasolineras favoritas
+     */
+    public void setSoloFavoritas(boolean soloFavoritas) { this.soloFavoritas = soloFavoritas; }
+    /**
+     * Verifica si el filtro de solo gasolineras abiertas está activo.
+     *
+     * @return {@code true} si solo se muestran las abiertas en {@link #getMomentoApertura()}
+     */
+    public boolean isSoloAbiertas() { return soloAbiertas; }
+    /**
+     * Establece el filtro de solo gasolineras abiertas.
+     *
+     * @param soloAbiertas {@code true} para mostrar solo las abiertas en el momento elegido
+     */
+    public void setSoloAbiertas(boolean soloAbiertas) { this.soloAbiertas = soloAbiertas; }
+    /**
+     * Obtiene el momento en el que deben estar abiertas las gasolineras.
+     *
+     * @return la fecha y hora local, o {@code null} si es el momento de cada consulta
+     */
+    public LocalDateTime getMomentoApertura() { return momentoApertura; }
+    /**
+     * Establece el momento en el que deben estar abiertas las gasolineras.
+     *
+     * @param momentoApertura la fecha y hora local, o {@code null} para usar la hora actual
+     */
+    public void setMomentoApertura(LocalDateTime momentoApertura) { this.momentoApertura = momentoApertura; }
+
+    /**
+     * Obtiene el combustible cuyo precio representa a cada gasolinera, por ejemplo para
+     * elegir la más barata de una zona del mapa.
+     *
+     * @return el primero de los combustibles marcados en el filtro; si no hay ninguno, el
+     *         primero con precio máximo, y si tampoco, Gasolina 95
+     */
+    public Combustible getCombustibleReferencia() {
+        if (soloGasolina95)
+            return Combustible.GASOLINA_95;
+        if (soloGasolina98)
+            return Combustible.GASOLINA_98;
+        if (soloDiesel)
+            return Combustible.GASOLEO_A;
+        if (soloDieselPremium)
+            return Combustible.GASOLEO_PREMIUM;
+        if (soloGLP)
+            return Combustible.GLP;
+        if (!preciosMaximos.isEmpty())
+            return preciosMaximos.keySet().iterator().next();
+        return Combustible.GASOLINA_95;
+    }
+    /**
+     * Obtiene el precio máximo para Gasolina 95.
+     *
+     * @return el precio máximo o {@code null} si no hay límite
+     */
+    public Double getPrecioMaxGasolina95() { return getPrecioMaximo(Combustible.GASOLINA_95); }
+    /**
+     * Establece el precio máximo para Gasolina 95.
+     *
+     * @param precioMaxGasolina95 el precio máximo permitido
+     */
+    public void setPrecioMaxGasolina95(Double precioMaxGasolina95) { setPrecioMaximo(Combustible.GASOLINA_95, precioMaxGasolina95); }
+    /**
+     * Obtiene el precio máximo para Diesel.
+     *
+     * @return el precio máximo o {@code null} si no hay límite
+     */
+    public Double getPrecioMaxDiesel() { return getPrecioMaximo(Combustible.GASOLEO_A); }
+    /**
+     * Establece el precio máximo para Diesel.
+     *
+     * @param precioMaxDiesel el precio máximo permitido
+     */
+    public void setPrecioMaxDiesel(Double precioMaxDiesel) { setPrecioMaximo(Combustible.GASOLEO_A, precioMaxDiesel); }
+    /**
+     * Obtiene el precio máximo de un combustible.
+     *
+     * @param combustible el combustible
+     * @return el precio máximo o {@code null} si no hay límite
+     */
+    public Double getPrecioMaximo(Combustible combustible) { return preciosMaximos.get(combustible); }
+    /**
+     * Establece el precio máximo de un combustible.
+     *
+     * @param combustible el combustible
+     * @param precioMaximo el precio máximo permitido, o {@code null} para quitar el límite
+     */
+    public void setPrecioMaximo(Combustible combustible, Double precioMaximo) {
+        if (precioMaximo == null) {
+            preciosMaximos.remove(combustible);
+        } else {
+            preciosMaximos.put(combustible, precioMaximo);
+        }
+        combustiblesConMaximo = null;
+    }
+    /**
+     * Aplica todos los filtros configurados a una lista de gasolineras.
+     * <p>
+     * Los filtros se aplican de forma combinada con operador AND, es decir,
+     * una gasolinera debe cumplir todos los filtros activos para ser incluida.
+     * </p>
+     *
+     * @param gasolineras la colección original de gasolineras
+     * @param favoritosManager el gestor de favoritos necesario para el filtro de favoritas
+     * @return una nueva lista con las gasolineras que cumplen todos los filtros
+     */
+    public List<GasolineraAPI> aplicarFiltros(Collection<GasolineraAPI> gasolineras, ProveedorFavoritos favoritosManager) {
+        List<GasolineraAPI> resultado = new ArrayList<>();
+
+        prepararConsulta();
+        for (GasolineraAPI gasolinera : gasolineras) {
+            if (cumpleFiltrosPreparados(gasolinera, favoritosManager)) {
+                resultado.add(gasolinera);
+            }
+        }
+
+        return resultado;
+    }
+    /**
+     * Verifica si una gasolinera cumple todos los filtros configurados.
+     * <p>
+     * Permite reevaluar estaciones sueltas tras una sincronización incremental
+     * sin volver a filtrar la lista completa.
+     * </p>
+     *
+     * @param gasolinera la gasolinera a verificar
+     * @param favoritosManager el gestor de favoritos
+     * @return {@code true} si cumple todos los filtros activos
+     */
+    public boolean cumpleFiltros(GasolineraAPI gasolinera, ProveedorFavoritos favoritosManager) {
+        prepararConsulta();
+        return cumpleFiltrosPreparados(gasolinera, favoritosManager);
+    }
+    /**
+     * Verifica todos los filtros sobre una gasolinera con la consulta ya preparada.
+     *
+     * @param gasolinera la gasolinera a verificar
+     * @param favoritosManager el gestor de favoritos
+     * @return {@code true} si cumple todos los filtros activos
+     */
+    private boolean cumpleFiltrosPreparados(GasolineraAPI gasolinera, ProveedorFavoritos favoritosManager) {
+        return cumpleFiltroUbicacion(gasolinera) &&
+                cumpleFiltroGasolinera(gasolinera) && // Actualizado
+                cumpleFiltroCombustibles(gasolinera) &&
+                cumpleFiltroServicios(gasolinera, favoritosManager) &&
+                cumpleFiltroPrecios(gasolinera);
+    }
+    /**
+     * Aplica todos los filtros configurados a las filas de un almacén columnar.
+     *
+     * @param almacen el almacén con las gasolineras actuales
+     * @param favoritosManager el gestor de favoritos necesario para el filtro de favoritas
+     * @return las filas que cumplen todos los filtros
+     */
+    public BitSet aplicarFiltros(AlmacenGasolineras almacen, ProveedorFavoritos favoritosManager) {
+        BitSet resultado = new BitSet(almacen.tamano());
+        prepararConsulta();
+        for (int fila = 0; fila < almacen.tamano(); fila++) {
+            if (almacen.estaViva(fila) && cumpleFiltrosPreparados(almacen, fila, favoritosManager)) {
+                resultado.set(fila);
+            }
+        }
+        return resultado;
+    }
+    /**
+     * Verifica si la gasolinera de una fila cumple todos los filtros configurados.
+     * <p>
+     * Equivale a {@link #cumpleFiltros(GasolineraAPI, ProveedorFavoritos)} pero lee las
+     * columnas del almacén: identificadores de diccionario, máscara de combustibles y
+     * precios en milésimas.
+     * </p>
+     *
+     * @param almacen el almacén con las gasolineras actuales
+     * @param fila la fila de la gasolinera
+     * @param favoritosManager el gestor de favoritos
+     * @return {@code true} si cumple todos los filtros activos
+     */
+    public boolean cumpleFiltros(AlmacenGasolineras almacen, int fila, ProveedorFavoritos favoritosManager) {
+        prepararConsulta();
+        return cumpleFiltrosPreparados(almacen, fila, favoritosManager);
+    }
+    /**
+     * Verifica todos los filtros sobre una fila con la consulta ya preparada.
+     *
+     * @param almacen el almacén con las gasolineras actuales
+     * @param fila la fila de la gasolinera
+     * @param favoritosManager el gestor de favoritos
+     * @return {@code true} si cumple todos los filtros activos
+     */
+    private boolean cumpleFiltrosPreparados(AlmacenGasolineras almacen, int fila, ProveedorFavoritos favoritosManager) {
+        long requeridos = combustiblesRequeridos();
+        return cumpleFiltroUbicacion(almacen.idProvincia(fila), almacen.idMunicipio(fila)) &&
+                cumpleFiltroGasolinera(almacen.idRotulo(fila)) &&
+                (almacen.combustibles(fila) & requeridos) == requeridos &&
+                cumpleFiltroServicios(almacen.idHorario(fila), almacen.id(fila), favoritosManager) &&
+                cumpleFiltroPrecios(almacen, fila);
+    }
+    /**
+     * Aplica todos los filtros configurados usando los índices de precios.
+     * <p>
+     * Si hay precios máximos, el índice más selectivo da las filas candidatas con una
+     * búsqueda binaria y solo esas se comprueban contra el resto de filtros. Sin precios
+     * máximos equivale a {@link #aplicarFiltros(AlmacenGasolineras, ProveedorFavoritos)}.
+     * </p>
+     *
+     * @param almacen el almacén con las gasolineras actuales
+     * @param indices los índices construidos sobre el mismo estado del almacén
+     * @param favoritosManager el gestor de favoritos necesario para el filtro de favoritas
+     * @return las filas que cumplen todos los filtros
+     */
+    public BitSet aplicarFiltros(AlmacenGasolineras almacen, IndicesPrecios indices,
+            ProveedorFavoritos favoritosManager) {
+        IndicePrecios masSelectivo = null;
+        int maximoMasSelectivo = 0;
+        int menosCandidatas = Integer.MAX_VALUE;
+        for (Map.Entry<Combustible, Double> entrada : preciosMaximos.entrySet()) {
+            IndicePrecios indice = indices.get(entrada.getKey());
+            int maximo = aMilesimasMaximas(entrada.getValue());
+            int candidatas = indice.contarCandidatas(maximo);
+            if (candidatas < menosCandidatas) {
+                masSelectivo = indice;
+                maximoMasSelectivo = maximo;
+                menosCandidatas = candidatas;
+            }
+        }
+        // Si el límite deja pasar casi todo, recorrer las columnas en orden sale más barato
+        if (masSelectivo == null || menosCandidatas > almacen.size() / 2)
+            return aplicarFiltros(almacen, favoritosManager);
+
+        BitSet resultado = new BitSet(almacen.tamano());
+        masSelectivo.marcarCandidatas(maximoMasSelectivo, resultado);
+        prepararConsulta();
+        for (int fila = resultado.nextSetBit(0); fila >= 0; fila = resultado.nextSetBit(fila + 1)) {
+            if (!cumpleFiltrosPreparados(almacen, fila, favoritosManager)) {
+                resultado.clear(fila);
+            }
+        }
+        return resultado;
+    }
+    /**
+     * Resuelve lo que depende del momento de la consulta, para no repetirlo en cada
+     * gasolinera.
+     */
+    private void prepararConsulta() {
+        // Las provincias y municipios pueden aparecer con cada sincronización
+        idProvincia = provincia != null && !provincia.isEmpty()
+                ? DiccionarioCadenas.PROVINCIAS.buscarClave(NormalizadorTexto.plegar(provincia))
+                : DiccionarioCadenas.SIN_VALOR;
+        idMunicipio = municipio != null && !municipio.isEmpty()
+                ? DiccionarioCadenas.MUNICIPIOS.buscarClave(NormalizadorTexto.plegar(municipio))
+                : DiccionarioCadenas.SIN_VALOR;
+        if (soloAbiertas) {
+            minutoApertura = HorarioSemanal.minutoSemana(
+                    momentoApertura != null ? momentoApertura : LocalDateTime.now());
+        }
+    }
+    /**
+     * Calcula la máscara de combustibles que exigen los filtros activos.
+     *
+     * @return la máscara con un bit por combustible requerido
+     */
+    private long combustiblesRequeridos() {
+        long mascara = 0;
+        if (soloGasolina95) mascara |= Combustible.GASOLINA_95.bit();
+        if (soloGasolina98) mascara |= Combustible.GASOLINA_98.bit();
+        if (soloDiesel) mascara |= Combustible.GASOLEO_A.bit();
+        if (soloDieselPremium) mascara |= Combustible.GASOLEO_PREMIUM.bit();
+        if (soloGLP) mascara |= Combustible.GLP.bit();
+        return mascara;
+    }
+    /**
+     * Verifica los precios máximos de una fila. Los precios ausentes cumplen y los que
+     * no se pudieron interpretar no.
+     *
+     * @param almacen el almacén con las gasolineras actuales
+     * @param fila la fila de la gasolinera
+     * @return {@code true} si ningún precio supera su límite
+     */
+    private boolean cumpleFiltroPrecios(AlmacenGasolineras almacen, int fila) {
+        if (combustiblesConMaximo == null) {
+            combustiblesConMaximo = preciosMaximos.keySet().toArray(new Combustible[0]);
+            maximosMilesimas = new int[combustiblesConMaximo.length];
+            for (int i = 0; i < combustiblesConMaximo.length; i++)
+                maximosMilesimas[i] = aMilesimasMaximas(preciosMaximos.get(combustiblesConMaximo[i]));
+        }
+        for (int i = 0; i < combustiblesConMaximo.length; i++) {
+            int milesimas = almacen.precio(fila, combustiblesConMaximo[i]);
+            if (milesimas == AlmacenGasolineras.SIN_PRECIO) continue;
+            if (milesimas == AlmacenGasolineras.PRECIO_INVALIDO) return false;
+            if (milesimas > maximosMilesimas[i]) return false;
+        }
+        return true;
+    }
+    /**
+     * Convierte un límite en euros a milésimas, redondeando hacia abajo para que un
+     * precio en milésimas lo cumpla si y solo si no supera el límite original.
+     *
+     * @param euros el límite en euros
+     * @return el límite en milésimas
+     */
+    private static int aMilesimasMaximas(double euros) {
+        return (int) Math.max(Integer.MIN_VALUE, Math.min(Integer.MAX_VALUE, Math.floor(euros * 1000 + 1e-9)));
+    }
+    /**
+     * Verifica si la gasolinera cumple los filtros de ubicación.
+     *
+     * @param gasolinera la gasolinera a verificar
+     * @return {@code true} si cumple los filtros de provincia y municipio
+     */
+    private boolean cumpleFiltroUbicacion(GasolineraAPI gasolinera) {
+        return cumpleFiltroUbicacion(gasolinera.getIdProvincia(), gasolinera.getIdMunicipio());
+    }
+    /**
+     * Verifica los filtros de ubicación sobre los identificadores de diccionario. Se compara
+     * el grupo de cada identificador, de modo que "Malaga" también acepta "MÁLAGA".
+     *
+     * @param idProvinciaGasolinera el identificador de provincia de la gasolinera
+     * @param idMunicipioGasolinera el identificador de municipio de la gasolinera
+     * @return {@code true} si cumple los filtros de provincia y municipio
+     */
+    private boolean cumpleFiltroUbicacion(int idProvinciaGasolinera, int idMunicipioGasolinera) {
+        if (provincia != null && !provincia.isEmpty()) {
+            if (idProvincia == DiccionarioCadenas.SIN_VALOR
+                    || idProvincia != DiccionarioCadenas.PROVINCIAS.grupo(idProvinciaGasolinera)) {
+                return false;
+            }
+        }
+
+        if (municipio != null && !municipio.isEmpty()) {
+            if (idMunicipio == DiccionarioCadenas.SIN_VALOR
+                    || idMunicipio != DiccionarioCadenas.MUNICIPIOS.grupo(idMunicipioGasolinera)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+    /**
+     * Verifica si la gasolinera cumple el filtro de nombre.
+     * <p>
+     * Utiliza coincidencia por prefijo sin tener en cuenta tildes ni mayúsculas. Cada rótulo
+     * distinto se compara una sola vez, con la clave que calculó el diccionario, y el
+     * resultado se guarda por su identificador.
+     * </p>
+     *
+     * @param gasolinera la gasolinera a verificar
+     * @return {@code true} si el nombre comienza con el filtro especificado
+     */
+    private boolean cumpleFiltroGasolinera(GasolineraAPI gasolinera) {
+        return cumpleFiltroGasolinera(gasolinera.getIdRotulo());
+    }
+    /**
+     * Verifica el filtro de nombre sobre el identificador de rótulo.
+     *
+     * @param id el identificador de rótulo de la gasolinera
+     * @return {@code true} si el rótulo comienza con el filtro especificado
+     */
+    private boolean cumpleFiltroGasolinera(int id) {
+        if (this.gasolinera == null || this.gasolinera.isEmpty()) return true;
+
+        if (id == DiccionarioCadenas.SIN_VALOR) return false;
+
+        if (id >= coincidenciasRotulo.length)
+            coincidenciasRotulo = Arrays.copyOf(coincidenciasRotulo,
+                    Math.max(id + 1, DiccionarioCadenas.ROTULOS.tamano()));
+        byte coincide = coincidenciasRotulo[id];
+        if (coincide == ROTULO_SIN_EVALUAR) {
+            coincide = DiccionarioCadenas.ROTULOS.clave(id).startsWith(clavePrefijoRotulo)
+                    ? ROTULO_COINCIDE : ROTULO_NO_COINCIDE;
+            coincidenciasRotulo[id] = coincide;
+        }
+        return coincide == ROTULO_COINCIDE;
+    }
+    /**
+     * Verifica si la gasolinera cumple los filtros de combustibles.
+     * <p>
+     * La gasolinera debe tener disponibles todos los tipos de combustible
+     * cuyos filtros estén activos.
+     * </p>
+     *
+     * @param gasolinera la gasolinera a verificar
+     * @return {@code true} si tiene todos los combustibles filtrados
+     */
+    private boolean cumpleFiltroCombustibles(GasolineraAPI gasolinera) {
+        if (soloGasolina95 && (gasolinera.getPrecioGasolina95() == null || gasolinera.getPrecioGasolina95().isEmpty())) {
+            return false;
+        }
+        if (soloGasolina98 && (gasolinera.getPrecioGasolina98() == null || gasolinera.getPrecioGasolina98().isEmpty())) {
+            return false;
+        }
+        if (soloDiesel && (gasolinera.getPrecioGasoleoA() == null || gasolinera.getPrecioGasoleoA().isEmpty())) {
+            return false;
+        }
+        if (soloDieselPremium && (gasolinera.getPrecioGasoleoPremium() == null || gasolinera.getPrecioGasoleoPremium().isEmpty())) {
+            return false;
+        }
+        if (soloGLP && (gasolinera.getPrecioGLP() == null || gasolinera.getPrecioGLP().isEmpty())) {
+            return false;
+        }
+        return true;
+    }
+    /**
+     * Verifica si la gasolinera cumple los filtros de servicios.
+     *
+     * @param gasolinera la gasolinera a verificar
+     * @param favoritosManager el gestor de favoritos
+     * @return {@code true} si cumple los filtros de horario y favoritas
+     */
+    private boolean cumpleFiltroServicios(GasolineraAPI gasolinera, ProveedorFavoritos favoritosManager) {
+        return cumpleFiltroServicios(gasolinera.getIdHorario(), gasolinera.getId(), favoritosManager);
+    }
+    /**
+     * Verifica los filtros de servicios sobre el identificador de horario.
+     *
+     * @param idHorario el identificador de horario de la gasolinera
+     * @param id el identificador IDEESS de la gasolinera
+     * @param favoritosManager el gestor de favoritos
+     * @return {@code true} si cumple los filtros de horario y favoritas
+     */
+    private boolean cumpleFiltroServicios(int idHorario, String id, ProveedorFavoritos favoritosManager) {
+        if (solo24Horas || soloAbiertas) {
+            HorarioSemanal horario = HorarioSemanal.compilado(idHorario);
+            if (solo24Horas && !horario.esSiempreAbierta()) {
+                return false;
+            }
+            if (soloAbiertas && !horario.estaAbierta(minutoApertura)) {
+                return false;
+            }
+        }
+
+        if (soloFavoritas && favoritosManager != null) {
+            if (id == null || !favoritosManager.esFavorita(id)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+    /**
+     * Verifica si la gasolinera cumple los filtros de precio máximo.
+     * <p>
+     * Los precios se comparan con los límites establecidos para cada combustible.
+     * Maneja correctamente el formato de precios con coma como separador decimal.
+     * </p>
+     *
+     * @param gasolinera la gasolinera a verificar
+     * @return {@code true} si los precios están dentro de los límites establecidos
+     */
+    private boolean cumpleFiltroPrecios(GasolineraAPI gasolinera) {
+        try {
+            for (Map.Entry<Combustible, Double> entrada : preciosMaximos.entrySet()) {
+                String valor = entrada.getKey().precio(gasolinera);
+                if (valor == null) continue;
+                double precio = Double.parseDouble(valor.replace(",", "."));
+                if (precio > entrada.getValue()) return false;
+            }
+        } catch (NumberFormatException e) {
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Elimina todos los filtros configurados, restaurando el estado inicial.
+     */
+    public void limpiarFiltros() {
+        provincia = null;
+        municipio = null;
+        gasolinera = null; // Actualizado
+        soloGasolina95 = false;
+        soloGasolina98 = false;
+        soloDiesel = false;
+        soloDieselPremium = false;
+        soloGLP = false;
+        solo24Horas = false;
+        soloFavoritas = false;
+        soloAbiertas = false;
+        momentoApertura = null;
+        preciosMaximos.clear();
+        combustiblesConMaximo = null;
+    }
+    /**
+     * Verifica si hay algún filtro activo.
+     *
+     * @return {@code true} si al menos un filtro está configurado
+     */
+    public boolean tieneFiltrosActivos() {
+        return (provincia != null && !provincia.isEmpty()) ||
+                (municipio != null && !municipio.isEmpty()) ||
+                (gasolinera != null && !gasolinera.isEmpty()) || // Actualizado
+                soloGasolina95 ||
+                soloGasolina98 ||
+                soloDiesel ||
+                soloDieselPremium ||
+                soloGLP ||
+                solo24Horas ||
+                soloFavoritas ||
+                soloAbiertas ||
+                !preciosMaximos.isEmpty();
+    }
+}
\ No newline at end of file
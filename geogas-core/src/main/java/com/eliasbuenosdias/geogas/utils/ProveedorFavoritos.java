@@ -0,0 +1,22 @@
+package com.eliasbuenosdias.geogas.utils;
+
+/**
+ * Fuente de las gasolineras favoritas del usuario.
+ * <p>
+ * Desacopla el filtrado y la puntuación del almacenamiento de los favoritos,
+ * que en la aplicación son las SharedPreferences de {@code FavoritosManager}.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public interface ProveedorFavoritos {
+
+    /**
+     * Verifica si una gasolinera está marcada como favorita.
+     *
+     * @param gasolineraId el identificador único de la gasolinera
+     * @return {@code true} si la gasolinera es favorita, {@code false} en caso contrario
+     */
+    boolean esFavorita(String gasolineraId);
+}
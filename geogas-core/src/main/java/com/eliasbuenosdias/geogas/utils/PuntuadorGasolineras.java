@@ -1,6 +1,8 @@
 
 package com.eliasbuenosdias.geogas.utils;
 
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.models.Combustible;
 import com.eliasbuenosdias.geogas.models.GasolineraAPI;
 
 import java.util.ArrayList;
@@ -20,7 +22,11 @@ import java.util.List;
  */
 public class PuntuadorGasolineras {
 
-    private FavoritosManager favoritosManager;
+    private ProveedorFavoritos favoritosManager;
+
+    // Combustibles que cuentan para la variedad
+    private static final long MASCARA_VARIEDAD = Combustible.GASOLINA_95.bit() | Combustible.GASOLEO_A.bit()
+            | Combustible.GLP.bit() | Combustible.GASOLINA_98.bit();
 
     // Pesos configurables para los criterios
     private double pesoPrecios = 0.2;      // 60% para precios
@@ -32,7 +38,7 @@ public class PuntuadorGasolineras {
      *
      * @param favoritosManager el gestor de favoritos para considerar preferencias del usuario
      */
-    public PuntuadorGasolineras(FavoritosManager favoritosManager) {
+    public PuntuadorGasolineras(ProveedorFavoritos favoritosManager) {
         this.favoritosManager = favoritosManager;
     }
 
@@ -90,6 +96,46 @@ public class PuntuadorGasolineras {
 
         return puntuacion;
     }
+    /**
+     * Calcula la puntuación total de relevancia de la gasolinera de una fila.
+     * <p>
+     * Aplica los mismos criterios que {@link #calcularPuntuacion(GasolineraAPI)} leyendo
+     * los precios en milésimas y la máscara de combustibles del almacén columnar.
+     * </p>
+     *
+     * @param almacen el almacén con las gasolineras actuales
+     * @param fila la fila de la gasolinera
+     * @return la puntuación total calculada (0.0 a 1.0)
+     */
+    public double calcularPuntuacion(AlmacenGasolineras almacen, int fila) {
+        double puntuacionPrecios = 0.0;
+        int combustiblesValidos = 0;
+
+        int precio95 = almacen.precio(fila, Combustible.GASOLINA_95);
+        if (precio95 >= 0) {
+            puntuacionPrecios += Math.max(0, 2.0 - precio95 / 1000.0) / 2.0;
+            combustiblesValidos++;
+        }
+        int precioDiesel = almacen.precio(fila, Combustible.GASOLEO_A);
+        if (precioDiesel >= 0) {
+            puntuacionPrecios += Math.max(0, 2.0 - precioDiesel / 1000.0) / 2.0;
+            combustiblesValidos++;
+        }
+        int precioGLP = almacen.precio(fila, Combustible.GLP);
+        if (precioGLP >= 0) {
+            puntuacionPrecios += Math.max(0, 1.5 - precioGLP / 1000.0) / 1.5;
+            combustiblesValidos++;
+        }
+
+        long variedad = almacen.combustibles(fila) & MASCARA_VARIEDAD;
+        String id = almacen.id(fila);
+
+        double puntuacion = 0.0;
+        puntuacion += (combustiblesValidos > 0 ? puntuacionPrecios / combustiblesValidos : 0) * pesoPrecios;
+        puntuacion += Math.min(1.0, Long.bitCount(variedad) / 3.0) * pesoVariedad;
+        puntuacion += (id != null && favoritosManager.esFavorita(id) ? 1.0 : 0.0) * pesoFavoritos;
+        return puntuacion;
+    }
     /**
      * Calcula la puntuación basada en precios de combustibles.
      * <p>
@@ -0,0 +1,176 @@
+package com.eliasbuenosdias.geogas.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Recorre las posiciones de un trabajo largo, como las teselas de una región o los días de
+ * un histórico, con un número limitado de hilos y la posibilidad de cancelarlo.
+ * <p>
+ * Los hilos toman la siguiente posición pendiente en orden, de modo que si el recorrido se
+ * interrumpe ya están hechas las primeras. Cada posición termina hecha, ya existente o
+ * fallida; un fallo no detiene el recorrido. Al cancelar, las posiciones en curso terminan
+ * y no se empieza ninguna más.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class RecorridoConcurrente {
+
+    /**
+     * Cómo ha terminado una posición.
+     */
+    public enum Estado {
+        /** Se ha hecho en este recorrido. */
+        HECHA,
+        /** Ya estaba hecha de antes. */
+        EXISTENTE
+    }
+
+    /**
+     * Procesa las posiciones que le tocan a un hilo. Cada hilo tiene el suyo, así que puede
+     * guardar estado que reutiliza de una posición a la siguiente.
+     */
+    public interface Trabajador {
+        /**
+         * Procesa una posición.
+         *
+         * @param posicion la posición, de 0 al total menos uno
+         * @return cómo ha terminado
+         * @throws IOException si ha fallado; se cuenta como fallida y se sigue
+         */
+        Estado procesar(long posicion) throws IOException;
+    }
+
+    /**
+     * Receptor del progreso de un recorrido. Se llama desde los hilos del recorrido.
+     */
+    public interface Progreso {
+        /**
+         * Informa del avance.
+         *
+         * @param procesadas posiciones ya hechas, existentes o fallidas
+         * @param total      posiciones del recorrido
+         */
+        void actualizar(long procesadas, long total);
+    }
+
+    /**
+     * Resultado de un recorrido.
+     */
+    public static final class Resultado {
+        /** Posiciones hechas en este recorrido. */
+        public final long hechas;
+        /** Posiciones que ya estaban hechas. */
+        public final long existentes;
+        /** Posiciones que han fallado. */
+        public final long fallidas;
+        /** Posiciones del recorrido. */
+        public final long total;
+        /** Si se canceló antes de procesar todas las posiciones. */
+        public final boolean cancelado;
+
+        Resultado(long hechas, long existentes, long fallidas, long total, boolean cancelado) {
+            this.hechas = hechas;
+            this.existentes = existentes;
+            this.fallidas = fallidas;
+            this.total = total;
+            this.cancelado = cancelado;
+        }
+
+        /**
+         * Indica si todas las posiciones están hechas.
+         *
+         * @return {@code true} si no se canceló ni falló ninguna
+         */
+        public boolean estaCompleto() {
+            return !cancelado && fallidas == 0 && hechas + existentes == total;
+        }
+    }
+
+    private final int concurrencia;
+    private volatile boolean cancelado;
+
+    /**
+     * Construye un recorrido.
+     *
+     * @param concurrencia el máximo de hilos simultáneos
+     * @throws IllegalArgumentException si {@code concurrencia} es menor que 1
+     */
+    public RecorridoConcurrente(int concurrencia) {
+        if (concurrencia < 1)
+            throw new IllegalArgumentException("Concurrencia no válida: " + concurrencia);
+        this.concurrencia = concurrencia;
+    }
+
+    /**
+     * Recorre todas las posiciones y espera a que termine.
+     *
+     * @param total          el número de posiciones
+     * @param trabajadores   crea el trabajador de cada hilo
+     * @param progreso       el receptor del avance, o {@code null}
+     * @param intervaloAviso cada cuántas posiciones se avisa del progreso; la última siempre
+     * @return el resultado del recorrido
+     * @throws InterruptedException si se interrumpe el hilo que espera; el recorrido se cancela
+     */
+    public Resultado recorrer(long total, Supplier<Trabajador> trabajadores, Progreso progreso,
+            long intervaloAviso) throws InterruptedException {
+        AtomicLong siguiente = new AtomicLong();
+        AtomicLong hechas = new AtomicLong();
+        AtomicLong existentes = new AtomicLong();
+        AtomicLong fallidas = new AtomicLong();
+        AtomicLong procesadas = new AtomicLong();
+        long intervalo = Math.max(1, intervaloAviso);
+
+        Callable<Void> trabajo = () -> {
+            Trabajador trabajador = trabajadores.get();
+            long k;
+            while (!cancelado && (k = siguiente.getAndIncrement()) < total) {
+                try {
+                    if (trabajador.procesar(k) == Estado.HECHA)
+                        hechas.incrementAndGet();
+                    else
+                        existentes.incrementAndGet();
+                } catch (IOException | RuntimeException e) {
+                    fallidas.incrementAndGet();
+                }
+
+                long hechasYa = procesadas.incrementAndGet();
+                if (progreso != null && (hechasYa % intervalo == 0 || hechasYa == total))
+                    progreso.actualizar(hechasYa, total);
+            }
+            return null;
+        };
+
+        int hilos = (int) Math.max(1, Math.min(concurrencia, total));
+        List<Callable<Void>> trabajos = new ArrayList<>(hilos);
+        for (int i = 0; i < hilos; i++)
+            trabajos.add(trabajo);
+        ExecutorService ejecutor = Executors.newFixedThreadPool(hilos);
+        try {
+            ejecutor.invokeAll(trabajos);
+        } catch (InterruptedException e) {
+            cancelado = true;
+            throw e;
+        } finally {
+            ejecutor.shutdownNow();
+        }
+        return new Resultado(hechas.get(), existentes.get(), fallidas.get(), total,
+                cancelado && procesadas.get() < total);
+    }
+
+    /**
+     * Cancela el recorrido en curso. Las posiciones en curso terminan y no se empieza
+     * ninguna más.
+     */
+    public void cancelar() {
+        cancelado = true;
+    }
+}
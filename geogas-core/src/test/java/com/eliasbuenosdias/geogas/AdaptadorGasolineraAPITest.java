@@ -0,0 +1,101 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.AdaptadorGasolineraAPI;
+import com.eliasbuenosdias.geogas.data.ParserGasolineras;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.google.gson.JsonParser;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.io.IOException;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: AdaptadorGasolineraAPI
+ *
+ * Esta clase prueba la lectura sin reflexión del JSON del Ministerio:
+ * - Las claves con tildes y espacios se asignan a su campo
+ * - Las claves no usadas y los valores nulos se ignoran
+ * - Los valores repetidos comparten la misma instancia
+ * - La escritura y la lectura son simétricas
+ */
+public class AdaptadorGasolineraAPITest {
+
+    private static final String ESTACION = "{\"C.P.\":\"28001\",\"Dirección\":\"CALLE MAYOR, 1\","
+            + "\"Horario\":\"L-D: 24H\",\"Latitud\":\"40,416775\",\"Localidad\":\"MADRID\","
+            + "\"Longitud (WGS84)\":\"-3,703790\",\"Margen\":\"D\",\"Municipio\":\"Madrid\","
+            + "\"Precio Gasoleo A\":\"1,459\",\"Precio Gasolina 95 E5\":\"1,559\","
+            + "\"Precio Gasolina 98 E5\":\"\",\"Precio Gases licuados del petróleo\":\"0,959\","
+            + "\"Provincia\":\"MADRID\",\"Remisión\":\"dm\",\"Rótulo\":\"REPSOL\",\"Tipo Venta\":\"P\","
+            + "\"% BioEtanol\":\"0,0\",\"% Éster metílico\":\"0,0\",\"IDEESS\":\"%s\","
+            + "\"IDMunicipio\":\"4354\",\"IDProvincia\":\"28\",\"IDCCAA\":\"13\",\"Precio Hidrogeno\":null}";
+
+    private AdaptadorGasolineraAPI adaptador;
+
+    @Before
+    public void setUp() {
+        adaptador = new AdaptadorGasolineraAPI();
+    }
+
+    private String estacion(String id) {
+        return ESTACION.replace("%s", id);
+    }
+
+    @Test
+    public void testRead_ClavesDelMinisterio() throws IOException {
+        GasolineraAPI g = adaptador.fromJson(estacion("1001"));
+
+        assertEquals("1001", g.getId());
+        assertEquals("REPSOL", g.getRotulo());
+        assertEquals("CALLE MAYOR, 1", g.getDireccion());
+        assertEquals("40,416775", g.getLatitud());
+        assertEquals("-3,703790", g.getLongitud());
+        assertEquals("L-D: 24H", g.getHorario());
+        assertEquals("dm", g.getRemision());
+        assertEquals("1,559", g.getPrecioGasolina95());
+        assertEquals("1,459", g.getPrecioGasoleoA());
+        assertEquals("0,959", g.getPrecioGLP());
+        assertEquals("", g.getPrecioGasolina98());
+        assertNull("Los nulos se ignoran", g.getPrecioHidrogeno());
+        assertNull("Las claves no usadas no se asignan", g.getPorcentajeBioetanol());
+    }
+
+    @Test
+    public void testRead_ValoresRepetidosInternados() throws IOException {
+        GasolineraAPI a = adaptador.fromJson(estacion("1001"));
+        GasolineraAPI b = adaptador.fromJson(estacion("1002"));
+
+        assertSame(a.getProvincia(), b.getProvincia());
+        assertSame(a.getRotulo(), b.getRotulo());
+        assertSame(a.getPrecioGasolina95(), b.getPrecioGasolina95());
+        assertNotEquals(a.getId(), b.getId());
+    }
+
+    @Test
+    public void testWriteRead_Simetrico() throws IOException {
+        GasolineraAPI original = adaptador.fromJson(estacion("1001"));
+
+        GasolineraAPI copia = adaptador.fromJson(adaptador.toJson(original));
+
+        assertEquals(original.getId(), copia.getId());
+        assertEquals(original.getDireccion(), copia.getDireccion());
+        assertEquals(original.getLongitud(), copia.getLongitud());
+        assertEquals(original.getPrecioGLP(), copia.getPrecioGLP());
+        assertEquals(original.getMargen(), copia.getMargen());
+    }
+
+    @Test
+    public void testParser_VolcadoSinteticoCompleto() {
+        String json = new GeneradorDatasetMiteco().generarJson(300);
+
+        List<GasolineraAPI> gasolineras = new ParserGasolineras().parsear(JsonParser.parseString(json));
+
+        assertEquals(300, gasolineras.size());
+        for (GasolineraAPI g : gasolineras) {
+            assertNotNull(g.getId());
+            assertNotNull(g.getProvincia());
+            assertNotNull(g.getLatitud());
+        }
+    }
+}
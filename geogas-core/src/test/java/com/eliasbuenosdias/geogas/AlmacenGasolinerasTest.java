@@ -0,0 +1,134 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.data.ConsultaViewport;
+import com.eliasbuenosdias.geogas.data.SincronizadorGasolineras;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.DiccionarioCadenas;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.utils.FiltrosManager;
+import com.eliasbuenosdias.geogas.utils.ProveedorFavoritos;
+import com.eliasbuenosdias.geogas.utils.PuntuadorGasolineras;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: AlmacenGasolineras
+ *
+ * Esta clase prueba el almacén columnar y las consultas por fila:
+ * - Coordenadas, precios en milésimas y máscara de combustibles
+ * - Filas estables y reutilización de las filas eliminadas
+ * - Los filtros por fila coinciden con los filtros sobre objetos
+ * - La selección del viewport por fila coincide con la selección sobre objetos
+ */
+public class AlmacenGasolinerasTest {
+
+    private AlmacenGasolineras almacen;
+
+    @Before
+    public void setUp() {
+        almacen = new AlmacenGasolineras();
+    }
+
+    private GasolineraAPI crear(String id, String precio95, String precioDiesel) {
+        GasolineraAPI g = new GasolineraAPI();
+        g.setId(id);
+        g.setRotulo("REPSOL");
+        g.setProvincia("MADRID");
+        g.setLatitud("40,416775");
+        g.setLongitud("-3,703790");
+        g.setPrecioGasolina95(precio95);
+        g.setPrecioGasoleoA(precioDiesel);
+        return g;
+    }
+
+    @Test
+    public void testActualizar_Columnas() {
+        int fila = almacen.actualizar(crear("1", "1,559", ""));
+
+        assertEquals("1", almacen.id(fila));
+        assertEquals(40.416775, almacen.latitud(fila), 1e-9);
+        assertEquals(-3.70379, almacen.longitud(fila), 1e-9);
+        assertEquals(1559, almacen.precio(fila, Combustible.GASOLINA_95));
+        assertEquals(AlmacenGasolineras.PRECIO_INVALIDO, almacen.precio(fila, Combustible.GASOLEO_A));
+        assertEquals(AlmacenGasolineras.SIN_PRECIO, almacen.precio(fila, Combustible.GLP));
+        assertEquals(Combustible.GASOLINA_95.bit(), almacen.combustibles(fila));
+        assertEquals("MADRID", DiccionarioCadenas.PROVINCIAS.cadena(almacen.idProvincia(fila)));
+    }
+
+    @Test
+    public void testFilasEstables_YReutilizadas() {
+        int primera = almacen.actualizar(crear("1", "1,559", null));
+        int segunda = almacen.actualizar(crear("2", "1,600", null));
+
+        assertEquals(primera, almacen.actualizar(crear("1", "1,499", null)));
+        assertEquals(1499, almacen.precio(primera, Combustible.GASOLINA_95));
+
+        almacen.eliminar("1");
+        assertFalse(almacen.estaViva(primera));
+        assertEquals(-1, almacen.fila("1"));
+
+        int tercera = almacen.actualizar(crear("3", "1,700", null));
+        assertEquals("La fila libre se reutiliza", primera, tercera);
+        assertEquals(segunda, almacen.fila("2"));
+        assertEquals(2, almacen.size());
+        assertEquals(2, almacen.tamano());
+    }
+
+    @Test
+    public void testFiltrosPorFila_CoincidenConObjetos() {
+        List<GasolineraAPI> gasolineras = new GeneradorDatasetMiteco().generarGasolineras(3000);
+        SincronizadorGasolineras sincronizador = new SincronizadorGasolineras();
+        almacen.aplicar(sincronizador.sincronizar(gasolineras));
+        ProveedorFavoritos favoritos = id -> id.hashCode() % 7 == 0;
+
+        FiltrosManager filtros = new FiltrosManager();
+        filtros.setProvincia(gasolineras.get(0).getProvincia());
+        filtros.setSoloDiesel(true);
+        filtros.setPrecioMaxGasolina95(1.70);
+        assertMismasGasolineras(filtros.aplicarFiltros(gasolineras, favoritos),
+                filtros.aplicarFiltros(almacen, favoritos));
+
+        filtros = new FiltrosManager();
+        filtros.setGasolinera("rep");
+        filtros.setSoloFavoritas(true);
+        filtros.setPrecioMaxDiesel(1.55);
+        assertMismasGasolineras(filtros.aplicarFiltros(gasolineras, favoritos),
+                filtros.aplicarFiltros(almacen, favoritos));
+    }
+
+    @Test
+    public void testViewportPorFila_CoincideConObjetos() {
+        List<GasolineraAPI> gasolineras = new GeneradorDatasetMiteco().generarGasolineras(3000);
+        almacen.aplicar(new SincronizadorGasolineras().sincronizar(gasolineras));
+        PuntuadorGasolineras puntuador = new PuntuadorGasolineras(id -> id.endsWith("3"));
+        BitSet todas = new BitSet();
+        todas.set(0, almacen.tamano());
+
+        List<GasolineraAPI> esperadas = ConsultaViewport.seleccionar(gasolineras, 43.9, 35.9, 4.4, -9.4,
+                puntuador, ConsultaViewport.LIMITE_VISIBLES);
+        int[] filas = ConsultaViewport.seleccionar(almacen, todas, 43.9, 35.9, 4.4, -9.4,
+                puntuador, ConsultaViewport.LIMITE_VISIBLES);
+
+        assertEquals(esperadas.size(), filas.length);
+        for (int i = 0; i < filas.length; i++)
+            assertEquals(esperadas.get(i).getId(), almacen.id(filas[i]));
+    }
+
+    private void assertMismasGasolineras(List<GasolineraAPI> esperadas, BitSet filas) {
+        List<String> ids = new ArrayList<>();
+        for (int fila = filas.nextSetBit(0); fila >= 0; fila = filas.nextSetBit(fila + 1))
+            ids.add(almacen.id(fila));
+        List<String> idsEsperados = new ArrayList<>();
+        for (GasolineraAPI g : esperadas)
+            idsEsperados.add(g.getId());
+
+        assertFalse("La consulta de prueba debe devolver resultados", ids.isEmpty());
+        assertEquals(idsEsperados, ids);
+    }
+}
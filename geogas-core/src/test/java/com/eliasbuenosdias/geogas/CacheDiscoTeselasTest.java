@@ -0,0 +1,81 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.tiles.CacheDiscoTeselas;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.IOException;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: CacheDiscoTeselas
+ *
+ * Esta clase prueba la caché en disco de teselas generadas:
+ * - Guardar y leer, también tras volver a abrir la caché
+ * - Descarte de las usadas hace más tiempo al pasar del tamaño máximo
+ * - Al abrir se borran los temporales de escrituras interrumpidas
+ */
+public class CacheDiscoTeselasTest {
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private static byte[] datos(int tamano, int valor) {
+        byte[] datos = new byte[tamano];
+        java.util.Arrays.fill(datos, (byte) valor);
+        return datos;
+    }
+
+    @Test
+    public void testGuardarYLeer_SobreviveAlReinicio() {
+        File raiz = new File(carpeta.getRoot(), "calor");
+        CacheDiscoTeselas cache = new CacheDiscoTeselas(raiz, 1000);
+        assertNull(cache.leer("6_31_24"));
+
+        cache.guardar("6_31_24", datos(10, 1));
+
+        assertArrayEquals(datos(10, 1), cache.leer("6_31_24"));
+        CacheDiscoTeselas reabierta = new CacheDiscoTeselas(raiz, 1000);
+        assertEquals(1, reabierta.tamano());
+        assertEquals(10, reabierta.getBytes());
+        assertArrayEquals(datos(10, 1), reabierta.leer("6_31_24"));
+    }
+
+    @Test
+    public void testGuardar_DescartaLaMenosReciente() {
+        CacheDiscoTeselas cache = new CacheDiscoTeselas(carpeta.getRoot(), 100);
+        cache.guardar("a", datos(40, 1));
+        cache.guardar("b", datos(40, 2));
+        // Leer "a" la vuelve la más reciente: sale "b"
+        assertNotNull(cache.leer("a"));
+
+        cache.guardar("c", datos(40, 3));
+
+        assertEquals(2, cache.tamano());
+        assertEquals(80, cache.getBytes());
+        assertNull(cache.leer("b"));
+        assertFalse(new File(carpeta.getRoot(), "b").exists());
+        assertNotNull(cache.leer("a"));
+        assertNotNull(cache.leer("c"));
+    }
+
+    @Test
+    public void testAbrir_BorraTemporalesYRespetaElMaximo() throws IOException {
+        File raiz = carpeta.getRoot();
+        CacheDiscoTeselas cache = new CacheDiscoTeselas(raiz, 1000);
+        cache.guardar("antigua", datos(60, 1));
+        cache.guardar("nueva", datos(60, 2));
+        assertTrue(new File(raiz, "antigua").setLastModified(1_000_000L));
+        assertTrue(new File(raiz, "nueva").setLastModified(2_000_000L));
+        assertTrue(new File(raiz, "rota.tmp").createNewFile());
+
+        CacheDiscoTeselas pequena = new CacheDiscoTeselas(raiz, 100);
+
+        assertFalse(new File(raiz, "rota.tmp").exists());
+        assertEquals(1, pequena.tamano());
+        assertNull(pequena.leer("antigua"));
+        assertArrayEquals(datos(60, 2), pequena.leer("nueva"));
+    }
+}
@@ -0,0 +1,133 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.data.CacheViewport;
+import com.eliasbuenosdias.geogas.data.ConsultaViewport;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.utils.ProveedorFavoritos;
+import com.eliasbuenosdias.geogas.utils.PuntuadorGasolineras;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: CacheViewport
+ *
+ * Esta clase prueba la caché de selecciones alrededor del viewport:
+ * - Tras precalcular, un desplazamiento corto y un zoom más o menos se sirven de la caché
+ * - Lo servido coincide con la selección directa, con y sin puntuador
+ * - Un salto lejos del viewport no está en la caché
+ * - Invalidar descarta todas las celdas
+ * - Recolocar una fila cuya puntuación cambia equivale a volver a calcular
+ */
+public class CacheViewportTest {
+
+    // Viewport centrado en Madrid
+    private static final double NORTE = 40.9;
+    private static final double SUR = 39.9;
+    private static final double ESTE = -3.0;
+    private static final double OESTE = -4.4;
+
+    private AlmacenGasolineras almacen;
+    private BitSet filas;
+    private PuntuadorGasolineras puntuador;
+
+    @Before
+    public void setUp() {
+        almacen = new AlmacenGasolineras();
+        for (GasolineraAPI g : new GeneradorDatasetMiteco().generarGasolineras(4000))
+            almacen.actualizar(g);
+        filas = new BitSet();
+        for (int fila = 0; fila < almacen.tamano(); fila++) {
+            // Solo la mitad, como si hubiera un filtro activo
+            if (almacen.estaViva(fila) && fila % 2 == 0)
+                filas.set(fila);
+        }
+        ProveedorFavoritos favoritos = id -> id.hashCode() % 5 == 0;
+        puntuador = new PuntuadorGasolineras(favoritos);
+    }
+
+    private void comprobar(CacheViewport cache, PuntuadorGasolineras p, double desplazamientoLat,
+            double desplazamientoLon, double escala) {
+        double centroLat = (NORTE + SUR) / 2 + desplazamientoLat;
+        double centroLon = (ESTE + OESTE) / 2 + desplazamientoLon;
+        double medioAlto = (NORTE - SUR) / 2 * escala;
+        double medioAncho = (ESTE - OESTE) / 2 * escala;
+        double n = centroLat + medioAlto, s = centroLat - medioAlto;
+        double e = centroLon + medioAncho, o = centroLon - medioAncho;
+
+        int[] esperadas = ConsultaViewport.seleccionar(almacen, filas, n, s, e, o, p, ConsultaViewport.LIMITE_VISIBLES);
+        int[] servidas = cache.seleccionar(n, s, e, o, ConsultaViewport.LIMITE_VISIBLES);
+        assertTrue("El viewport debe tener gasolineras", esperadas.length > 0);
+        assertNotNull("Debería estar en la caché", servidas);
+        assertArrayEquals(esperadas, servidas);
+    }
+
+    @Test
+    public void testPrecalcular_DesplazamientosYZoomCoincidenConLaSeleccionDirecta() {
+        CacheViewport cache = new CacheViewport(almacen);
+        cache.invalidar(filas, puntuador);
+        cache.precalcular(NORTE, SUR, ESTE, OESTE);
+
+        assertTrue(cache.tamano() > 4);
+        assertTrue(cache.tamano() <= CacheViewport.MAXIMO_CELDAS);
+        comprobar(cache, puntuador, 0, 0, 1);
+        comprobar(cache, puntuador, 0.3, -0.4, 1);
+        comprobar(cache, puntuador, -0.25, 0.5, 1);
+        comprobar(cache, puntuador, 0, 0, 0.5);
+        comprobar(cache, puntuador, 0, 0, 2);
+    }
+
+    @Test
+    public void testPrecalcular_SinPuntuadorDevuelveTodasEnOrdenDeFila() {
+        CacheViewport cache = new CacheViewport(almacen);
+        cache.invalidar(filas, null);
+        cache.precalcular(NORTE, SUR, ESTE, OESTE);
+
+        comprobar(cache, null, 0.2, 0.2, 1);
+    }
+
+    @Test
+    public void testRecolocar_TrasMarcarYDesmarcarFavoritas() {
+        Set<String> marcadas = new HashSet<>();
+        PuntuadorGasolineras p = new PuntuadorGasolineras(marcadas::contains);
+        CacheViewport cache = new CacheViewport(almacen);
+        cache.invalidar(filas, p);
+        cache.precalcular(NORTE, SUR, ESTE, OESTE);
+
+        // Las de más abajo en la selección directa, que al marcarlas suben del todo
+        int[] todas = ConsultaViewport.seleccionar(almacen, filas, NORTE, SUR, ESTE, OESTE, p, filas.cardinality());
+        int[] cambiadas = { todas[todas.length - 1], todas[todas.length / 2], todas[0] };
+        for (int fila : cambiadas) {
+            marcadas.add(almacen.id(fila));
+            cache.recolocar(fila);
+            comprobar(cache, p, 0, 0, 1);
+        }
+        for (int fila : cambiadas) {
+            marcadas.remove(almacen.id(fila));
+            cache.recolocar(fila);
+            comprobar(cache, p, 0, 0, 1);
+            comprobar(cache, p, 0, 0, 0.5);
+        }
+    }
+
+    @Test
+    public void testSeleccionar_FueraDelAnilloEInvalidar() {
+        CacheViewport cache = new CacheViewport(almacen);
+        cache.invalidar(filas, puntuador);
+        assertNull("Sin precalcular no hay nada", cache.seleccionar(NORTE, SUR, ESTE, OESTE, 200));
+
+        while (cache.precalcularSiguiente(NORTE, SUR, ESTE, OESTE)) {
+            // Celda a celda, como cuando la aplicación está ociosa
+        }
+        assertNull("Barcelona queda lejos del anillo", cache.seleccionar(41.9, 40.9, 2.9, 1.5, 200));
+
+        cache.invalidar(filas, puntuador);
+        assertEquals(0, cache.tamano());
+        assertNull(cache.seleccionar(NORTE, SUR, ESTE, OESTE, 200));
+    }
+}
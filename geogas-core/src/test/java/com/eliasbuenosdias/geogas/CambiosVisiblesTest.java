@@ -0,0 +1,101 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.data.CambiosVisibles;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: CambiosVisibles
+ *
+ * Esta clase prueba la diferencia entre dos conjuntos visibles:
+ * - Gasolineras que entran, salen y siguen visibles con cambios
+ * - Las eliminadas del almacén salen por su IDEESS
+ * - Las modificadas que no estaban visibles no cuentan como cambiadas
+ * - Total y versión del nuevo conjunto
+ */
+public class CambiosVisiblesTest {
+
+    private AlmacenGasolineras almacen;
+    private List<GasolineraAPI> gasolineras;
+
+    @Before
+    public void setUp() {
+        almacen = new AlmacenGasolineras();
+        gasolineras = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            GasolineraAPI g = new GasolineraAPI();
+            g.setId(String.valueOf(i));
+            g.setLatitud("40,4");
+            g.setLongitud("-3,7");
+            almacen.actualizar(g);
+            gasolineras.add(g);
+        }
+    }
+
+    private static BitSet filas(int... filas) {
+        BitSet bits = new BitSet();
+        for (int fila : filas)
+            bits.set(fila);
+        return bits;
+    }
+
+    private static List<String> ids(List<GasolineraAPI> lista) {
+        List<String> ids = new ArrayList<>();
+        for (GasolineraAPI g : lista)
+            ids.add(g.getId());
+        return ids;
+    }
+
+    private CambiosVisibles calcular(BitSet anteriores, BitSet nuevas, BitSet modificadas, List<String> eliminadas) {
+        return CambiosVisibles.calcular(7, anteriores, nuevas, modificadas, eliminadas, almacen, gasolineras::get);
+    }
+
+    @Test
+    public void testCalcular_EntranSalenYCambian() {
+        CambiosVisibles cambios = calcular(filas(0, 1, 2), filas(1, 2, 3, 4), filas(2), Collections.emptyList());
+
+        assertEquals(Arrays.asList("3", "4"), ids(cambios.getEntradas()));
+        assertEquals(Arrays.asList("0"), cambios.getSalidas());
+        assertEquals(Arrays.asList("2"), ids(cambios.getCambiadas()));
+        assertEquals(4, cambios.getTotal());
+        assertEquals(7, cambios.getVersion());
+        assertFalse(cambios.estaVacio());
+    }
+
+    @Test
+    public void testCalcular_EliminadasSalenPorId() {
+        CambiosVisibles cambios = calcular(filas(1), filas(1), new BitSet(), Arrays.asList("99"));
+
+        assertEquals(Arrays.asList("99"), cambios.getSalidas());
+        assertTrue(cambios.getEntradas().isEmpty());
+        assertFalse(cambios.estaVacio());
+    }
+
+    @Test
+    public void testCalcular_ModificadasFueraDelConjuntoNoCuentan() {
+        // La 5 se modificó pero no estaba visible, y la 3 entra: no es un cambio
+        CambiosVisibles cambios = calcular(filas(1), filas(1, 3), filas(3, 5), Collections.emptyList());
+
+        assertEquals(Arrays.asList("3"), ids(cambios.getEntradas()));
+        assertTrue(cambios.getCambiadas().isEmpty());
+    }
+
+    @Test
+    public void testCalcular_SinCambiosEstaVacio() {
+        BitSet anteriores = filas(0, 2);
+        CambiosVisibles cambios = calcular(anteriores, filas(0, 2), new BitSet(), Collections.emptyList());
+
+        assertTrue(cambios.estaVacio());
+        assertEquals(2, cambios.getTotal());
+        assertEquals("No modifica el conjunto anterior", filas(0, 2), anteriores);
+    }
+}
@@ -0,0 +1,168 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.tiles.DescargadorTeselas;
+import com.eliasbuenosdias.geogas.tiles.RegionTeselas;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: DescargadorTeselas y RegionTeselas
+ *
+ * Esta clase prueba la descarga de zonas del mapa contra un servidor de teselas local:
+ * - Cálculo de columnas, filas y número de teselas de una región
+ * - Todas las teselas se descargan una vez sin superar la concurrencia máxima
+ * - Una segunda descarga continúa donde se quedó sin volver a pedir nada
+ * - Las teselas que el servidor no da cuentan como fallidas
+ */
+public class DescargadorTeselasTest {
+
+    private HttpServer servidor;
+    private final AtomicInteger enCurso = new AtomicInteger();
+    private final AtomicInteger maximoEnCurso = new AtomicInteger();
+    private final AtomicInteger peticiones = new AtomicInteger();
+    private volatile String teselaAusente = "";
+
+    @Before
+    public void setUp() throws IOException {
+        servidor = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        servidor.setExecutor(Executors.newFixedThreadPool(16));
+        servidor.createContext("/", intercambio -> {
+            int actuales = enCurso.incrementAndGet();
+            maximoEnCurso.accumulateAndGet(actuales, Math::max);
+            peticiones.incrementAndGet();
+            try {
+                Thread.sleep(2);
+                String ruta = intercambio.getRequestURI().getPath();
+                if (ruta.equals(teselaAusente)) {
+                    intercambio.sendResponseHeaders(404, -1);
+                } else {
+                    byte[] cuerpo = ruta.getBytes(StandardCharsets.UTF_8);
+                    intercambio.sendResponseHeaders(200, cuerpo.length);
+                    try (OutputStream out = intercambio.getResponseBody()) {
+                        out.write(cuerpo);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                enCurso.decrementAndGet();
+                intercambio.close();
+            }
+        });
+        servidor.start();
+    }
+
+    @After
+    public void tearDown() {
+        servidor.stop(0);
+    }
+
+    /**
+     * Destino en memoria que descarga del servidor local como lo haría la caché del mapa.
+     */
+    private class CacheMemoria implements DescargadorTeselas.DestinoTeselas {
+        final Map<String, byte[]> teselas = new ConcurrentHashMap<>();
+
+        @Override
+        public boolean pendiente(int zoom, int x, int y) {
+            return !teselas.containsKey(ruta(zoom, x, y));
+        }
+
+        @Override
+        public void descargar(int zoom, int x, int y) throws IOException {
+            String ruta = ruta(zoom, x, y);
+            URL url = new URL("http://127.0.0.1:" + servidor.getAddress().getPort() + ruta);
+            HttpURLConnection conexion = (HttpURLConnection) url.openConnection();
+            try {
+                if (conexion.getResponseCode() != 200)
+                    throw new IOException("HTTP " + conexion.getResponseCode());
+                try (InputStream in = conexion.getInputStream()) {
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    in.transferTo(bytes);
+                    teselas.put(ruta, bytes.toByteArray());
+                }
+            } finally {
+                conexion.disconnect();
+            }
+        }
+
+        String ruta(int zoom, int x, int y) {
+            return "/" + zoom + "/" + x + "/" + y + ".png";
+        }
+    }
+
+    @Test
+    public void testRegion_ColumnasFilasYConteo() {
+        assertEquals(0, RegionTeselas.columna(-180, 3));
+        assertEquals(7, RegionTeselas.columna(180, 3));
+        assertEquals(4, RegionTeselas.columna(0.0001, 3));
+        assertEquals(0, RegionTeselas.fila(85, 3));
+        assertEquals(4, RegionTeselas.fila(-0.0001, 3));
+        // Puerta del Sol en zoom 15, según la fórmula de teselas de OpenStreetMap (asinh)
+        assertEquals(16046, RegionTeselas.columna(-3.7038, 15));
+        assertEquals(12355, RegionTeselas.fila(40.4168, 15));
+
+        RegionTeselas region = new RegionTeselas(40.5, 40.3, -3.5, -3.9, 10, 12);
+        long total = 0;
+        for (int z = 10; z <= 12; z++)
+            total += region.contarTeselas(z);
+        assertEquals(total, region.contarTeselas());
+        assertEquals(total * 1000, region.estimarBytes(1000));
+        assertTrue(region.cubre(40.45, 40.35, -3.6, -3.8, 11.5));
+        assertFalse("Fuera del rango de zoom", region.cubre(40.45, 40.35, -3.6, -3.8, 13));
+        assertEquals(region, RegionTeselas.decodificar(region.codificar()));
+    }
+
+    @Test
+    public void testDescarga_ConcurrenciaLimitadaYProgreso() throws Exception {
+        RegionTeselas region = new RegionTeselas(40.6, 40.2, -3.4, -4.0, 8, 12);
+        CacheMemoria cache = new CacheMemoria();
+        AtomicLong ultimoProgreso = new AtomicLong();
+
+        DescargadorTeselas.Resultado resultado = new DescargadorTeselas(3)
+                .descargar(region, cache, (procesadas, total) -> ultimoProgreso.accumulateAndGet(procesadas, Math::max));
+
+        assertTrue(resultado.estaCompleta());
+        assertEquals(region.contarTeselas(), resultado.descargadas);
+        assertEquals(region.contarTeselas(), cache.teselas.size());
+        assertEquals(region.contarTeselas(), peticiones.get());
+        assertEquals(region.contarTeselas(), ultimoProgreso.get());
+        assertTrue("Nunca más de 3 descargas a la vez", maximoEnCurso.get() <= 3);
+    }
+
+    @Test
+    public void testDescarga_ReanudaYCuentaFallidas() throws Exception {
+        RegionTeselas region = new RegionTeselas(40.6, 40.2, -3.4, -4.0, 8, 11);
+        CacheMemoria cache = new CacheMemoria();
+        teselaAusente = cache.ruta(11, RegionTeselas.columna(-3.7, 11), RegionTeselas.fila(40.4, 11));
+
+        DescargadorTeselas.Resultado primera = new DescargadorTeselas(4).descargar(region, cache, null);
+        assertFalse(primera.estaCompleta());
+        assertEquals(1, primera.fallidas);
+
+        teselaAusente = "";
+        peticiones.set(0);
+        DescargadorTeselas.Resultado segunda = new DescargadorTeselas(4).descargar(region, cache, null);
+        assertTrue(segunda.estaCompleta());
+        assertEquals("Solo se pide la que faltaba", 1, segunda.descargadas);
+        assertEquals(1, peticiones.get());
+        assertEquals(region.contarTeselas() - 1, segunda.existentes);
+    }
+}
@@ -0,0 +1,97 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.models.DiccionarioCadenas;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: DiccionarioCadenas
+ *
+ * Esta clase prueba la codificación de cadenas repetidas como enteros:
+ * - Una misma cadena recibe siempre el mismo identificador consecutivo
+ * - La búsqueda no registra cadenas nuevas
+ * - Los nulos se codifican como SIN_VALOR
+ * - Claves sin tildes ni mayúsculas y grupos de cadenas con la misma clave
+ * - GasolineraAPI guarda identificadores y devuelve la instancia compartida
+ */
+public class DiccionarioCadenasTest {
+
+    private DiccionarioCadenas diccionario;
+
+    @Before
+    public void setUp() {
+        diccionario = new DiccionarioCadenas();
+    }
+
+    @Test
+    public void testCodificar_IdentificadoresConsecutivosYEstables() {
+        int madrid = diccionario.codificar("MADRID");
+        int sevilla = diccionario.codificar("SEVILLA");
+
+        assertEquals(0, madrid);
+        assertEquals(1, sevilla);
+        assertEquals(madrid, diccionario.codificar(new String("MADRID")));
+        assertEquals(2, diccionario.tamano());
+        assertEquals("SEVILLA", diccionario.cadena(sevilla));
+    }
+
+    @Test
+    public void testBuscar_NoRegistraCadenasNuevas() {
+        diccionario.codificar("MADRID");
+
+        assertEquals(0, diccionario.buscar("MADRID"));
+        assertEquals(DiccionarioCadenas.SIN_VALOR, diccionario.buscar("TOLEDO"));
+        assertEquals(1, diccionario.tamano());
+    }
+
+    @Test
+    public void testNulos_SinValor() {
+        assertEquals(DiccionarioCadenas.SIN_VALOR, diccionario.codificar(null));
+        assertNull(diccionario.cadena(DiccionarioCadenas.SIN_VALOR));
+        assertEquals(0, diccionario.tamano());
+    }
+
+    @Test
+    public void testClavesYGrupos_SinTildesNiMayusculas() {
+        int mayusculas = diccionario.codificar("MÁLAGA");
+        int otra = diccionario.codificar("SEVILLA");
+        int minusculas = diccionario.codificar("Malaga");
+
+        assertEquals("malaga", diccionario.clave(mayusculas));
+        assertSame(diccionario.clave(mayusculas), diccionario.clave(mayusculas));
+        assertEquals(mayusculas, diccionario.grupo(minusculas));
+        assertEquals(otra, diccionario.grupo(otra));
+        assertEquals(mayusculas, diccionario.buscarClave("malaga"));
+        assertEquals(DiccionarioCadenas.SIN_VALOR, diccionario.buscarClave("MALAGA"));
+        assertEquals(DiccionarioCadenas.SIN_VALOR, diccionario.grupo(DiccionarioCadenas.SIN_VALOR));
+        assertNull(diccionario.clave(DiccionarioCadenas.SIN_VALOR));
+    }
+
+    @Test
+    public void testCrecimiento_ConservaLasCadenas() {
+        for (int i = 0; i < 1000; i++)
+            diccionario.codificar("MUNICIPIO " + i);
+
+        assertEquals(1000, diccionario.tamano());
+        assertEquals("MUNICIPIO 0", diccionario.cadena(0));
+        assertEquals("MUNICIPIO 999", diccionario.cadena(999));
+        assertEquals("municipio 999", diccionario.clave(999));
+        assertEquals(999, diccionario.grupo(999));
+    }
+
+    @Test
+    public void testGasolineraAPI_CompartenIdentificadorEInstancia() {
+        GasolineraAPI a = new GasolineraAPI();
+        GasolineraAPI b = new GasolineraAPI();
+        a.setProvincia(new String("CUENCA"));
+        b.setProvincia(new String("CUENCA"));
+
+        assertEquals(a.getIdProvincia(), b.getIdProvincia());
+        assertSame(a.getProvincia(), b.getProvincia());
+        assertEquals(DiccionarioCadenas.SIN_VALOR, a.getIdMunicipio());
+        assertNull(a.getMunicipio());
+    }
+}
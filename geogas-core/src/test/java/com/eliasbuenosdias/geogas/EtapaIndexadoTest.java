@@ -0,0 +1,108 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.data.EtapaIndexado;
+import com.eliasbuenosdias.geogas.data.IndicesPrecios;
+import com.eliasbuenosdias.geogas.data.SincronizadorGasolineras;
+import com.eliasbuenosdias.geogas.models.Combustible;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: EtapaIndexado
+ *
+ * Esta clase prueba la construcción en paralelo de los índices tras una sincronización:
+ * - Las tareas se ejecutan a la vez en el pool
+ * - Los resultados solo se leen después de la barrera
+ * - Un fallo se relanza cuando han terminado todas las tareas
+ * - Los índices de precios construidos en paralelo son los mismos que en serie
+ */
+public class EtapaIndexadoTest {
+
+    private ForkJoinPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new ForkJoinPool(2);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void testCompletar_TareasALaVez() {
+        // Cada tarea espera a la otra: solo terminan si se ejecutan en paralelo
+        CountDownLatch ambas = new CountDownLatch(2);
+        Callable<Boolean> tarea = () -> {
+            ambas.countDown();
+            return ambas.await(5, TimeUnit.SECONDS);
+        };
+        EtapaIndexado etapa = new EtapaIndexado(pool);
+        Supplier<Boolean> primera = etapa.anadir(tarea);
+        Supplier<Boolean> segunda = etapa.anadir(tarea);
+        etapa.completar();
+
+        assertTrue(primera.get());
+        assertTrue(segunda.get());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testResultado_AntesDeLaBarrera() {
+        EtapaIndexado etapa = new EtapaIndexado(pool);
+        Supplier<Integer> resultado = etapa.anadir(() -> 1);
+        resultado.get();
+    }
+
+    @Test
+    public void testCompletar_FalloTrasTerminarTodas() {
+        AtomicBoolean terminada = new AtomicBoolean();
+        EtapaIndexado etapa = new EtapaIndexado(pool);
+        etapa.ejecutar(() -> {
+            throw new IllegalArgumentException("índice roto");
+        });
+        etapa.ejecutar(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            terminada.set(true);
+        });
+
+        try {
+            etapa.completar();
+            fail("Debería relanzar el fallo de la tarea");
+        } catch (IllegalArgumentException e) {
+            assertEquals("índice roto", e.getMessage());
+        }
+        assertTrue(terminada.get());
+    }
+
+    @Test
+    public void testIndicesPrecios_IgualQueEnSerie() {
+        AlmacenGasolineras almacen = new AlmacenGasolineras();
+        almacen.aplicar(new SincronizadorGasolineras()
+                .sincronizar(new GeneradorDatasetMiteco().generarGasolineras(3000)));
+
+        EtapaIndexado etapa = new EtapaIndexado(pool);
+        Supplier<IndicesPrecios> paralelo = IndicesPrecios.construir(almacen, etapa);
+        etapa.completar();
+        IndicesPrecios serie = IndicesPrecios.construir(almacen);
+
+        assertEquals(serie.getCombustiblesDisponibles(), paralelo.get().getCombustiblesDisponibles());
+        for (Combustible c : Combustible.values())
+            assertArrayEquals(c.name(), serie.get(c).masBaratas(serie.get(c).size()),
+                    paralelo.get().get(c).masBaratas(paralelo.get().get(c).size()));
+    }
+}
@@ -1,7 +1,7 @@
 package com.eliasbuenosdias.geogas;
 
 import com.eliasbuenosdias.geogas.models.GasolineraAPI;
-import com.eliasbuenosdias.geogas.utils.FavoritosManager;
+import com.eliasbuenosdias.geogas.utils.ProveedorFavoritos;
 import com.eliasbuenosdias.geogas.utils.FiltrosManager;
 
 import org.junit.Before;
@@ -18,6 +18,7 @@ import static org.junit.Assert.*;
  *
  * Esta clase prueba el sistema de filtrado de gasolineras, incluyendo:
  * - Filtros por ubicación (provincia, municipio)
+ * - Filtros de ubicación y marca sin tildes ni mayúsculas
  * - Filtros por tipo de combustible
  * - Filtros por servicios (24 horas)
  * - Filtros por precio máximo
@@ -35,7 +36,7 @@ public class FiltrosManagerTest {
     private FiltrosManager filtrosManager; // Objeto bajo prueba
 
     @Mock
-    private FavoritosManager mockFavoritosManager; // Mock para pruebas de favoritos
+    private ProveedorFavoritos mockFavoritosManager; // Mock para pruebas de favoritos
 
     private List<GasolineraAPI> listaGasolineras; // Lista de prueba con gasolineras
 
@@ -138,6 +139,49 @@ public class FiltrosManagerTest {
         assertTrue("Debería contener 'Repsol'", resultado.get(0).getRotulo().contains("Repsol"));
     }
 
+    /**
+     * TEST: Filtrar por ubicación y marca sin tener en cuenta tildes ni mayúsculas.
+     *
+     * Escenario: El usuario escribe "malaga" y "cepsa" sin tildes y en minúsculas.
+     * Comportamiento esperado: Pasan las gasolineras de "MÁLAGA" y "Málaga" con rótulo "CEPSA".
+     */
+    @Test
+    public void testFiltrarSinTildesNiMayusculas() {
+        // ARRANGE
+        filtrosManager.setProvincia("malaga");
+        filtrosManager.setGasolinera("cepsa");
+        GasolineraAPI mayusculas = new GasolineraAPI();
+        mayusculas.setProvincia("MÁLAGA");
+        mayusculas.setRotulo("CEPSA");
+        GasolineraAPI minusculas = new GasolineraAPI();
+        minusculas.setProvincia("Málaga");
+        minusculas.setRotulo("Cepsa Estación");
+        GasolineraAPI otraMarca = new GasolineraAPI();
+        otraMarca.setProvincia("MÁLAGA");
+        otraMarca.setRotulo("GALP");
+        GasolineraAPI otraProvincia = new GasolineraAPI();
+        otraProvincia.setProvincia("A CORUÑA");
+        otraProvincia.setRotulo("CEPSA");
+
+        listaGasolineras.clear();
+        listaGasolineras.add(mayusculas);
+        listaGasolineras.add(minusculas);
+        listaGasolineras.add(otraMarca);
+        listaGasolineras.add(otraProvincia);
+
+        // ACT
+        List<GasolineraAPI> resultado = filtrosManager.aplicarFiltros(listaGasolineras, mockFavoritosManager);
+        filtrosManager.setProvincia("a coruna");
+        List<GasolineraAPI> coruna = filtrosManager.aplicarFiltros(listaGasolineras, mockFavoritosManager);
+
+        // ASSERT
+        assertEquals(2, resultado.size());
+        assertSame(mayusculas, resultado.get(0));
+        assertSame(minusculas, resultado.get(1));
+        assertEquals(1, coruna.size());
+        assertSame(otraProvincia, coruna.get(0));
+    }
+
     /**
      * TEST: Filtrar gasolineras que tienen Gasolina 95.
      *
@@ -0,0 +1,75 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import org.junit.Test;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: GeneradorDatasetMiteco
+ *
+ * Esta clase prueba el generador de volcados sintéticos:
+ * - La misma semilla produce exactamente el mismo JSON
+ * - El JSON usa las claves y el formato decimal del ministerio
+ * - Las gasolineras generadas se parsean, tienen IDEESS únicos y caen dentro de España
+ */
+public class GeneradorDatasetMitecoTest {
+
+    @Test
+    public void testMismaSemilla_MismoJson() {
+        String primero = new GeneradorDatasetMiteco(42L).generarJson(500);
+        String segundo = new GeneradorDatasetMiteco(42L).generarJson(500);
+        String otraSemilla = new GeneradorDatasetMiteco(43L).generarJson(500);
+
+        assertEquals(primero, segundo);
+        assertNotEquals(primero, otraSemilla);
+    }
+
+    @Test
+    public void testPrefijoEstable_AlAumentarElTamano() {
+        List<GasolineraAPI> pequeno = new GeneradorDatasetMiteco().generarGasolineras(100);
+        List<GasolineraAPI> grande = new GeneradorDatasetMiteco().generarGasolineras(1000);
+
+        for (int i = 0; i < pequeno.size(); i++) {
+            assertEquals(pequeno.get(i).getId(), grande.get(i).getId());
+            assertEquals(pequeno.get(i).getPrecioGasolina95(), grande.get(i).getPrecioGasolina95());
+        }
+    }
+
+    @Test
+    public void testFormatoDelMinisterio() {
+        String json = new GeneradorDatasetMiteco().generarJson(50);
+
+        assertTrue(json.startsWith("{\"Fecha\":"));
+        assertTrue(json.contains("\"ListaEESSPrecio\":["));
+        assertTrue(json.contains("\"Rótulo\":"));
+        assertTrue(json.contains("\"Dirección\":"));
+        assertTrue(json.contains("\"Longitud (WGS84)\":"));
+        assertTrue(json.contains("\"ResultadoConsulta\":\"OK\""));
+    }
+
+    @Test
+    public void testGasolineras_ParseablesYDentroDeEspana() {
+        List<GasolineraAPI> gasolineras = new GeneradorDatasetMiteco().generarGasolineras(2000);
+
+        assertEquals(2000, gasolineras.size());
+        Set<String> ids = new HashSet<>();
+        boolean hayPrecioVacio = false;
+        for (GasolineraAPI g : gasolineras) {
+            assertTrue("IDEESS duplicado: " + g.getId(), ids.add(g.getId()));
+            assertTrue(g.getLatitud().contains(","));
+            double lat = Double.parseDouble(g.getLatitud().replace(",", "."));
+            double lon = Double.parseDouble(g.getLongitud().replace(",", "."));
+            assertTrue("Latitud fuera de España: " + lat, lat > 26.0 && lat < 45.0);
+            assertTrue("Longitud fuera de España: " + lon, lon > -19.5 && lon < 5.5);
+            if (g.getPrecioGasolina98().isEmpty())
+                hayPrecioVacio = true;
+            else
+                assertTrue(g.getPrecioGasolina98().matches("\\d,\\d{3}"));
+        }
+        assertTrue("Debe haber combustibles sin precio", hayPrecioVacio);
+    }
+}
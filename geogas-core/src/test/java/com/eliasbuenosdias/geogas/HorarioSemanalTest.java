@@ -0,0 +1,94 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.models.DiccionarioCadenas;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.models.HorarioSemanal;
+import com.eliasbuenosdias.geogas.utils.FiltrosManager;
+
+import org.junit.Test;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: HorarioSemanal
+ *
+ * Esta clase prueba el horario compilado a minutos de la semana:
+ * - Tramos por días con varios intervalos y horarios 24 horas
+ * - Intervalos que cruzan la medianoche
+ * - Los textos que no se entienden nunca constan como abiertos
+ * - El filtro de abiertas a una hora y el de 24 horas sobre el horario compilado
+ */
+public class HorarioSemanalTest {
+
+    // Lunes 6 de enero de 2025
+    private static int minuto(int dia, int hora, int min) {
+        return HorarioSemanal.minutoSemana(LocalDateTime.of(2025, 1, 6 + dia, hora, min));
+    }
+
+    @Test
+    public void testTramosPorDias() {
+        HorarioSemanal horario = HorarioSemanal.interpretar("L-V: 06:00-22:00; S: 07:00-14:00 y 16:00-20:00");
+
+        assertTrue(horario.esInterpretado());
+        assertTrue(horario.estaAbierta(minuto(0, 6, 0)));
+        assertFalse(horario.estaAbierta(minuto(0, 22, 0)));
+        assertTrue(horario.estaAbierta(minuto(4, 21, 59)));
+        assertTrue(horario.estaAbierta(minuto(5, 13, 30)));
+        assertFalse(horario.estaAbierta(minuto(5, 15, 0)));
+        assertTrue(horario.estaAbierta(minuto(5, 16, 0)));
+        assertFalse("El domingo no aparece", horario.estaAbierta(minuto(6, 12, 0)));
+        assertFalse(horario.esSiempreAbierta());
+    }
+
+    @Test
+    public void testVeinticuatroHoras() {
+        assertTrue(HorarioSemanal.interpretar("L-D: 24H").esSiempreAbierta());
+        assertTrue(HorarioSemanal.interpretar("24H").esSiempreAbierta());
+        assertTrue(HorarioSemanal.interpretar("L-D: 00:00-23:59").esSiempreAbierta());
+        assertFalse(HorarioSemanal.interpretar("L-S: 24H").esSiempreAbierta());
+    }
+
+    @Test
+    public void testCruzaMedianoche() {
+        HorarioSemanal horario = HorarioSemanal.interpretar("D: 22:00-06:00");
+
+        assertTrue(horario.estaAbierta(minuto(6, 23, 0)));
+        assertTrue("Sigue abierta el lunes de madrugada", horario.estaAbierta(minuto(0, 5, 59)));
+        assertFalse(horario.estaAbierta(minuto(0, 6, 0)));
+    }
+
+    @Test
+    public void testNoInterpretable() {
+        for (String texto : Arrays.asList(null, "", "Consultar", "L-V: 25:00-26:00")) {
+            HorarioSemanal horario = HorarioSemanal.interpretar(texto);
+            assertFalse(horario.esInterpretado());
+            assertFalse(horario.estaAbierta(minuto(2, 12, 0)));
+        }
+        assertSame(HorarioSemanal.DESCONOCIDO, HorarioSemanal.compilado(DiccionarioCadenas.SIN_VALOR));
+    }
+
+    @Test
+    public void testFiltroAbiertas() {
+        GasolineraAPI manana = new GasolineraAPI();
+        manana.setId("1");
+        manana.setHorario("L-D: 06:00-14:00");
+        GasolineraAPI siempre = new GasolineraAPI();
+        siempre.setId("2");
+        siempre.setHorario("L-D: 24H");
+        List<GasolineraAPI> gasolineras = Arrays.asList(manana, siempre);
+
+        FiltrosManager filtros = new FiltrosManager();
+        filtros.setSoloAbiertas(true);
+        filtros.setMomentoApertura(LocalDateTime.of(2025, 1, 8, 20, 0));
+        assertEquals(Arrays.asList(siempre), filtros.aplicarFiltros(gasolineras, null));
+
+        filtros.setMomentoApertura(LocalDateTime.of(2025, 1, 8, 9, 0));
+        assertEquals(2, filtros.aplicarFiltros(gasolineras, null).size());
+
+        filtros = new FiltrosManager();
+        filtros.setSolo24Horas(true);
+        assertEquals(Arrays.asList(siempre), filtros.aplicarFiltros(gasolineras, null));
+    }
+}
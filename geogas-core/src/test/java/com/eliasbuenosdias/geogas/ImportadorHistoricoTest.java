@@ -0,0 +1,129 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.historico.ImportadorHistorico;
+import com.eliasbuenosdias.geogas.historico.SeriesPreciosHistoricos;
+import com.eliasbuenosdias.geogas.models.Combustible;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: ImportadorHistorico
+ *
+ * Esta clase prueba la importación de un intervalo de volcados históricos:
+ * - Se importan todos los días con varias descargas simultáneas, como mucho las indicadas
+ * - Se recorren del más reciente al más antiguo
+ * - Los días ya guardados no se vuelven a pedir; tras un fallo se reanuda solo lo que falta
+ * - La concurrencia debe ser positiva
+ */
+public class ImportadorHistoricoTest {
+
+    private static final LocalDate DESDE = LocalDate.of(2026, 9, 1);
+    private static final LocalDate HASTA = LocalDate.of(2026, 9, 30);
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    /** Fuente en memoria: el precio del gasóleo de la gasolinera 1 es 1,000 más el día del mes. */
+    private static class FuentePrueba implements ImportadorHistorico.FuenteHistorico {
+        final List<LocalDate> pedidos = Collections.synchronizedList(new ArrayList<>());
+        final Set<LocalDate> fallan = Collections.synchronizedSet(new HashSet<>());
+        int simultaneas;
+        int maximoSimultaneas;
+
+        @Override
+        public Reader abrir(LocalDate dia) throws IOException {
+            pedidos.add(dia);
+            synchronized (this) {
+                maximoSimultaneas = Math.max(maximoSimultaneas, ++simultaneas);
+            }
+            try {
+                Thread.sleep(2);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            } finally {
+                synchronized (this) {
+                    simultaneas--;
+                }
+            }
+            if (fallan.contains(dia))
+                throw new IOException("Servicio no disponible");
+            return new StringReader("{\"ListaEESSPrecio\":[{\"IDEESS\":\"1\",\"Precio Gasoleo A\":\"1,"
+                    + String.format("%03d", dia.getDayOfMonth()) + "\"}]}");
+        }
+    }
+
+    @Test
+    public void testImportar_TodosLosDias() throws Exception {
+        SeriesPreciosHistoricos serie = new SeriesPreciosHistoricos(carpeta.getRoot());
+        FuentePrueba fuente = new FuentePrueba();
+        int[] ultimoProgreso = new int[2];
+
+        ImportadorHistorico.Resultado resultado = new ImportadorHistorico(3).importar(DESDE, HASTA, fuente, serie,
+                (procesados, total) -> {
+                    synchronized (ultimoProgreso) {
+                        ultimoProgreso[0] = Math.max(ultimoProgreso[0], procesados);
+                        ultimoProgreso[1] = total;
+                    }
+                });
+
+        assertTrue(resultado.estaCompleta());
+        assertEquals(30, resultado.importados);
+        assertEquals(30, serie.dias().size());
+        assertTrue(fuente.maximoSimultaneas <= 3);
+        assertArrayEquals(new int[] { 30, 30 }, ultimoProgreso);
+        int[] precios = serie.serie("1", Combustible.GASOLEO_A, DESDE, HASTA);
+        for (int i = 0; i < precios.length; i++)
+            assertEquals(1001 + i, precios[i]);
+    }
+
+    @Test
+    public void testImportar_DelMasRecienteAlMasAntiguo() throws Exception {
+        FuentePrueba fuente = new FuentePrueba();
+
+        new ImportadorHistorico(1).importar(HASTA.minusDays(2), HASTA, fuente,
+                new SeriesPreciosHistoricos(carpeta.getRoot()), null);
+
+        assertEquals(List.of(HASTA, HASTA.minusDays(1), HASTA.minusDays(2)), fuente.pedidos);
+    }
+
+    @Test
+    public void testImportar_ReanudaSoloLoQueFalta() throws Exception {
+        SeriesPreciosHistoricos serie = new SeriesPreciosHistoricos(carpeta.getRoot());
+        FuentePrueba fuente = new FuentePrueba();
+        fuente.fallan.add(DESDE.plusDays(4));
+        fuente.fallan.add(DESDE.plusDays(20));
+
+        ImportadorHistorico.Resultado primero = new ImportadorHistorico(4).importar(DESDE, HASTA, fuente, serie, null);
+
+        assertFalse(primero.estaCompleta());
+        assertEquals(28, primero.importados);
+        assertEquals(2, primero.fallidos);
+        assertFalse(serie.contiene(DESDE.plusDays(4)));
+
+        fuente.fallan.clear();
+        fuente.pedidos.clear();
+        ImportadorHistorico.Resultado segundo = new ImportadorHistorico(4).importar(DESDE, HASTA, fuente, serie, null);
+
+        assertTrue(segundo.estaCompleta());
+        assertEquals(2, segundo.importados);
+        assertEquals(28, segundo.existentes);
+        assertEquals(Set.of(DESDE.plusDays(4), DESDE.plusDays(20)), new HashSet<>(fuente.pedidos));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_ConcurrenciaNoValida() {
+        new ImportadorHistorico(0);
+    }
+}
@@ -0,0 +1,101 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.IndiceAutocompletado;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import org.junit.Test;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: IndiceAutocompletado
+ *
+ * Esta clase prueba el autocompletado por prefijo:
+ * - Orden de colación del español
+ * - Coincidencia sin tildes ni mayúsculas al principio de cualquier palabra
+ * - Valores que coinciden por varias palabras salen una vez
+ * - Valores que solo difieren en tildes o mayúsculas se dejan una vez
+ * - Mismo resultado que recorrer toda la lista
+ */
+public class IndiceAutocompletadoTest {
+
+    private static final List<String> MUNICIPIOS = Arrays.asList(
+            "Ávila", "Avilés", "Ñora (La)", "Nules", "Sevilla", "San Sebastián de los Reyes",
+            "Sanlúcar de Barrameda", "Dos Hermanas", "Hermanas (Las)", "L'Hospitalet de Llobregat");
+
+    @Test
+    public void testValores_OrdenDeColacion() {
+        IndiceAutocompletado indice = IndiceAutocompletado.construir(MUNICIPIOS);
+
+        assertEquals(Arrays.asList("Ávila", "Avilés", "Dos Hermanas", "Hermanas (Las)",
+                "L'Hospitalet de Llobregat", "Nules", "Ñora (La)", "Sanlúcar de Barrameda",
+                "San Sebastián de los Reyes", "Sevilla"), indice.getValores());
+        assertEquals(MUNICIPIOS.size(), indice.size());
+    }
+
+    @Test
+    public void testBuscar_SinTildesYPorPalabra() {
+        IndiceAutocompletado indice = IndiceAutocompletado.construir(MUNICIPIOS);
+
+        assertEquals(Arrays.asList("Ávila", "Avilés"), indice.buscar("avi"));
+        assertEquals(Arrays.asList("Avilés"), indice.buscar("AVILES"));
+        assertEquals(Arrays.asList("Ñora (La)"), indice.buscar("nor"));
+        assertEquals(Arrays.asList("San Sebastián de los Reyes"), indice.buscar("san seb"));
+        assertEquals(Arrays.asList("San Sebastián de los Reyes"), indice.buscar("reyes"));
+        assertEquals(Arrays.asList("L'Hospitalet de Llobregat"), indice.buscar("hosp"));
+        assertEquals(Arrays.asList("Dos Hermanas", "Hermanas (Las)"), indice.buscar("herm"));
+        assertTrue(indice.buscar("zaragoza").isEmpty());
+        assertEquals(indice.getValores(), indice.buscar("  "));
+    }
+
+    @Test
+    public void testBuscar_ValorRepetidoPorVariasPalabras() {
+        IndiceAutocompletado indice = IndiceAutocompletado.construir(Arrays.asList("Villanueva de la Villa", "Villar"));
+
+        assertEquals(Arrays.asList("Villanueva de la Villa", "Villar"), indice.buscar("vill"));
+    }
+
+    @Test
+    public void testConstruir_UnValorPorClave() {
+        IndiceAutocompletado indice = IndiceAutocompletado.construir(Arrays.asList("MÁLAGA", "Málaga", "MALAGA", "Marbella"));
+
+        assertEquals(2, indice.size());
+        assertEquals(Arrays.asList("MALAGA", "Marbella"), indice.buscar("ma"));
+        assertEquals("MALAGA", indice.buscarExacto("málaga"));
+    }
+
+    @Test
+    public void testBuscarExacto() {
+        IndiceAutocompletado indice = IndiceAutocompletado.construir(MUNICIPIOS);
+
+        assertEquals("Ávila", indice.buscarExacto("avila "));
+        assertEquals("Sevilla", indice.buscarExacto("SEVILLA"));
+        assertNull(indice.buscarExacto("avil"));
+        assertNull(IndiceAutocompletado.VACIO.buscarExacto("avila"));
+    }
+
+    @Test
+    public void testBuscar_IgualQueRecorrerLaLista() {
+        List<String> valores = new ArrayList<>();
+        for (GasolineraAPI g : new GeneradorDatasetMiteco().generarGasolineras(3000)) {
+            if (!valores.contains(g.getMunicipio()))
+                valores.add(g.getMunicipio());
+        }
+        IndiceAutocompletado indice = IndiceAutocompletado.construir(valores);
+
+        for (String prefijo : new String[] { "a", "al", "san", "de l", "mad", "x" }) {
+            List<String> esperados = new ArrayList<>();
+            for (String valor : indice.getValores()) {
+                String plegado = Normalizer.normalize(valor, Normalizer.Form.NFD)
+                        .replaceAll("\\p{M}", "").toLowerCase(Locale.ROOT);
+                if (plegado.startsWith(prefijo) || plegado.matches("(?s).*[^\\p{L}\\p{N}]" + prefijo + ".*"))
+                    esperados.add(valor);
+            }
+            assertEquals(prefijo, esperados, indice.buscar(prefijo));
+        }
+    }
+}
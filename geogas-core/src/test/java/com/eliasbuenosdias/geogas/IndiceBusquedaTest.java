@@ -0,0 +1,141 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.data.CambiosSincronizacion;
+import com.eliasbuenosdias.geogas.data.IndiceBusqueda;
+import com.eliasbuenosdias.geogas.data.SincronizadorGasolineras;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: IndiceBusqueda
+ *
+ * Esta clase prueba la búsqueda de texto sobre las gasolineras:
+ * - Palabras sin tildes ni mayúsculas y por prefijo
+ * - Todas las palabras de la consulta deben aparecer
+ * - Orden por campo y por coincidencia entera
+ * - Mantenimiento incremental con altas, bajas y cambios de metadatos
+ */
+public class IndiceBusquedaTest {
+
+    private SincronizadorGasolineras sincronizador;
+    private AlmacenGasolineras almacen;
+    private IndiceBusqueda indice;
+
+    @Before
+    public void setUp() {
+        sincronizador = new SincronizadorGasolineras();
+        almacen = new AlmacenGasolineras();
+        indice = new IndiceBusqueda();
+    }
+
+    private GasolineraAPI crear(String id, String rotulo, String direccion, String localidad, String cp) {
+        GasolineraAPI g = new GasolineraAPI();
+        g.setId(id);
+        g.setRotulo(rotulo);
+        g.setDireccion(direccion);
+        g.setLocalidad(localidad);
+        g.setMunicipio(localidad);
+        g.setCodigoPostal(cp);
+        g.setProvincia("SEVILLA");
+        g.setLatitud("37,389092");
+        g.setLongitud("-5,984459");
+        g.setPrecioGasolina95("1,559");
+        return g;
+    }
+
+    /** Sincroniza como el ViewModel: bajas antes de tocar el almacén y el resto después. */
+    private void sincronizar(GasolineraAPI... gasolineras) {
+        CambiosSincronizacion cambios = sincronizador.sincronizar(Arrays.asList(gasolineras));
+        for (GasolineraAPI g : cambios.getEliminadas())
+            indice.eliminar(almacen.fila(g.getId()));
+        almacen.aplicar(cambios);
+        indice.aplicar(cambios, almacen);
+    }
+
+    private List<String> buscar(String texto) {
+        List<String> ids = new ArrayList<>();
+        for (int fila : indice.buscar(texto, 10))
+            ids.add(almacen.id(fila));
+        return ids;
+    }
+
+    @Test
+    public void testBuscar_SinTildesMayusculasNiPalabraCompleta() {
+        sincronizar(
+                crear("1", "REPSOL", "AVDA. DE ANDALUCÍA, 12", "Dos Hermanas", "41700"),
+                crear("2", "CEPSA", "CALLE MAYOR, 3", "Écija", "41400"));
+
+        assertEquals(Arrays.asList("1"), buscar("avda andalucia"));
+        assertEquals(Arrays.asList("1"), buscar("ANDALUCIA"));
+        assertEquals(Arrays.asList("2"), buscar("ecija"));
+        assertEquals(Arrays.asList("2"), buscar("ÉCI"));
+        assertEquals(Arrays.asList("2"), buscar("414"));
+        assertTrue(buscar("repsol ecija").isEmpty());
+        assertTrue(buscar("  ,. ").isEmpty());
+    }
+
+    @Test
+    public void testBuscar_OrdenPorCampoYCoincidenciaEntera() {
+        sincronizar(
+                crear("1", "BP", "CALLE SHELL, 1", "Sevilla", "41001"),
+                crear("2", "SHELL", "CALLE REAL, 2", "Sevilla", "41002"),
+                crear("3", "SHELLY", "CALLE REAL, 3", "Sevilla", "41003"));
+
+        // El rótulo pesa más que la dirección y la palabra entera más que el prefijo
+        assertEquals(Arrays.asList("2", "3", "1"), buscar("shell"));
+        assertEquals(Arrays.asList("2", "3"), buscar("shell real"));
+        assertEquals(2, indice.buscar("sevilla", 2).length);
+    }
+
+    @Test
+    public void testSincronizacion_Incremental() {
+        sincronizar(
+                crear("1", "REPSOL", "CALLE MAYOR, 1", "Utrera", "41710"),
+                crear("2", "CEPSA", "CALLE MAYOR, 2", "Utrera", "41710"));
+        assertEquals(2, indice.size());
+
+        // Cambia el rótulo de la 1, se da de baja la 2 y entra la 3, que reutiliza su fila
+        sincronizar(
+                crear("1", "MOEVE", "CALLE MAYOR, 1", "Utrera", "41710"),
+                crear("3", "GALP", "RONDA NORTE, 7", "Carmona", "41410"));
+
+        assertEquals(2, indice.size());
+        assertTrue(buscar("repsol").isEmpty());
+        assertTrue(buscar("cepsa").isEmpty());
+        assertEquals(Arrays.asList("1"), buscar("moeve"));
+        assertEquals(Arrays.asList("1"), buscar("mayor"));
+        assertEquals(Arrays.asList("3"), buscar("carmona galp"));
+    }
+
+    @Test
+    public void testBuscar_IgualQueIndexarDeCero() {
+        sincronizar(new GeneradorDatasetMiteco().generarGasolineras(2000).toArray(new GasolineraAPI[0]));
+
+        // Bajas, cambios de rótulo y altas que reutilizan las filas libres
+        List<GasolineraAPI> segunda = new ArrayList<>(
+                new GeneradorDatasetMiteco().generarGasolineras(2000).subList(300, 2000));
+        for (int i = 0; i < 100; i++)
+            segunda.get(i).setRotulo("PETROPRIX");
+        List<GasolineraAPI> altas = new GeneradorDatasetMiteco(7).generarGasolineras(200);
+        for (int i = 0; i < altas.size(); i++) {
+            altas.get(i).setId(String.valueOf(90000 + i));
+            segunda.add(altas.get(i));
+        }
+        sincronizar(segunda.toArray(new GasolineraAPI[0]));
+
+        IndiceBusqueda deCero = new IndiceBusqueda();
+        for (GasolineraAPI g : segunda)
+            deCero.indexar(almacen.fila(g.getId()), g);
+
+        assertEquals(deCero.size(), indice.size());
+        for (String consulta : new String[] { "repsol", "calle mayor", "avenida", "andalucia", "cep", "petroprix", "28" })
+            assertArrayEquals(consulta, deCero.buscar(consulta, 50), indice.buscar(consulta, 50));
+    }
+}
@@ -0,0 +1,146 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.data.CambiosSincronizacion;
+import com.eliasbuenosdias.geogas.data.EtapaIndexado;
+import com.eliasbuenosdias.geogas.data.IndicePrecios;
+import com.eliasbuenosdias.geogas.data.IndicesPrecios;
+import com.eliasbuenosdias.geogas.data.SincronizadorGasolineras;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.utils.FiltrosManager;
+import com.eliasbuenosdias.geogas.utils.ProveedorFavoritos;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: IndicePrecios
+ *
+ * Esta clase prueba los índices ordenados de precios por combustible:
+ * - Las filas quedan ordenadas por precio y las más baratas se leen directamente
+ * - La búsqueda binaria cuenta las gasolineras hasta un precio máximo
+ * - El histograma reparte todas las gasolineras con precio
+ * - El filtrado con índices coincide con el filtrado fila a fila, para cualquier combustible
+ * - Tras una sincronización solo se rehacen los índices de los combustibles con otro precio
+ */
+public class IndicePreciosTest {
+
+    private AlmacenGasolineras almacen;
+
+    @Before
+    public void setUp() {
+        almacen = new AlmacenGasolineras();
+    }
+
+    private void anadir(String id, String precioGLP) {
+        GasolineraAPI g = new GasolineraAPI();
+        g.setId(id);
+        g.setPrecioGLP(precioGLP);
+        almacen.actualizar(g);
+    }
+
+    @Test
+    public void testOrdenYMasBaratas() {
+        anadir("1", "0,999");
+        anadir("2", "0,899");
+        anadir("3", null);
+        anadir("4", "0,949");
+
+        IndicePrecios indice = IndicePrecios.construir(almacen, Combustible.GLP);
+
+        assertEquals(3, indice.size());
+        assertEquals(899, indice.precio(0));
+        assertEquals(999, indice.precio(2));
+        int[] baratas = indice.masBaratas(2);
+        assertEquals("2", almacen.id(baratas[0]));
+        assertEquals("4", almacen.id(baratas[1]));
+    }
+
+    @Test
+    public void testContarHasta_BusquedaBinaria() {
+        anadir("1", "0,999");
+        anadir("2", "0,899");
+        anadir("3", "0,949");
+        anadir("4", null);
+
+        IndicePrecios indice = IndicePrecios.construir(almacen, Combustible.GLP);
+
+        assertEquals(0, indice.contarHasta(898));
+        assertEquals(2, indice.contarHasta(949));
+        assertEquals(3, indice.contarHasta(5000));
+        assertEquals("Las que no tienen GLP también cumplen el máximo", 3, indice.contarCandidatas(949));
+    }
+
+    @Test
+    public void testHistograma_CuentaTodas() {
+        List<GasolineraAPI> gasolineras = new GeneradorDatasetMiteco().generarGasolineras(2000);
+        almacen.aplicar(new SincronizadorGasolineras().sincronizar(gasolineras));
+        IndicePrecios indice = IndicePrecios.construir(almacen, Combustible.GASOLINA_95);
+
+        IndicePrecios.Histograma histograma = indice.histograma(20);
+
+        int total = 0;
+        for (int conteo : histograma.conteos)
+            total += conteo;
+        assertEquals(indice.size(), total);
+        assertTrue(histograma.minimo < histograma.maximo);
+        assertEquals(0, histograma.cubeta(histograma.minimo));
+        assertEquals(19, histograma.cubeta(histograma.maximo));
+    }
+
+    @Test
+    public void testFiltrarConIndices_CoincideConFilas() {
+        List<GasolineraAPI> gasolineras = new GeneradorDatasetMiteco().generarGasolineras(3000);
+        almacen.aplicar(new SincronizadorGasolineras().sincronizar(gasolineras));
+        IndicesPrecios indices = IndicesPrecios.construir(almacen);
+        ProveedorFavoritos favoritos = id -> false;
+
+        FiltrosManager filtros = new FiltrosManager();
+        filtros.setPrecioMaxGasolina95(1.60);
+        filtros.setPrecioMaximo(Combustible.GASOLEO_PREMIUM, 1.65);
+        filtros.setSoloDiesel(true);
+
+        assertEquals(filtros.aplicarFiltros(almacen, favoritos), filtros.aplicarFiltros(almacen, indices, favoritos));
+        assertEquals(filtros.aplicarFiltros(gasolineras, favoritos).size(),
+                filtros.aplicarFiltros(almacen, indices, favoritos).cardinality());
+        assertTrue(indices.getCombustiblesDisponibles().contains(Combustible.GASOLINA_95));
+    }
+
+    @Test
+    public void testActualizar_SoloCombustiblesConOtroPrecio() {
+        SincronizadorGasolineras sincronizador = new SincronizadorGasolineras();
+        List<GasolineraAPI> gasolineras = new GeneradorDatasetMiteco().generarGasolineras(500);
+        almacen.aplicar(sincronizador.sincronizar(gasolineras));
+        IndicesPrecios anteriores = IndicesPrecios.construir(almacen);
+        ForkJoinPool pool = EtapaIndexado.crearPool();
+        try {
+            // El mismo volcado en el que solo cambia el precio de la gasolina 95 de una gasolinera
+            List<GasolineraAPI> nuevo = new GeneradorDatasetMiteco().generarGasolineras(500);
+            nuevo.get(0).setPrecioGasolina95("0,999");
+            CambiosSincronizacion cambios = sincronizador.sincronizar(nuevo);
+            almacen.aplicar(cambios);
+            EtapaIndexado etapa = new EtapaIndexado(pool);
+            Supplier<IndicesPrecios> nuevos = IndicesPrecios.actualizar(anteriores, almacen, cambios, etapa);
+            etapa.completar();
+
+            IndicesPrecios actualizados = nuevos.get();
+            assertNotSame(anteriores.get(Combustible.GASOLINA_95), actualizados.get(Combustible.GASOLINA_95));
+            assertSame(anteriores.get(Combustible.GASOLEO_A), actualizados.get(Combustible.GASOLEO_A));
+            assertEquals(999, actualizados.get(Combustible.GASOLINA_95).precio(0));
+
+            // Sin ningún precio distinto se conservan todos
+            EtapaIndexado otra = new EtapaIndexado(pool);
+            Supplier<IndicesPrecios> iguales = IndicesPrecios.actualizar(actualizados, almacen,
+                    sincronizador.sincronizar(nuevo), otra);
+            otra.completar();
+            assertSame(actualizados, iguales.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.historico.DiaPrecios;
+import com.eliasbuenosdias.geogas.historico.LectorDiaHistorico;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import org.junit.Test;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: LectorDiaHistorico y DiaPrecios
+ *
+ * Esta clase prueba la lectura en streaming de un volcado histórico diario:
+ * - Los precios con coma decimal pasan a milésimas y los vacíos quedan sin precio
+ * - Un IDEESS repetido se queda con el último; los no numéricos se descartan
+ * - Un volcado completo da los mismos precios que el parser de la aplicación
+ * - El día se vacía y se reutiliza
+ */
+public class LectorDiaHistoricoTest {
+
+    private static final String VOLCADO = "{\"Fecha\":\"01/10/2026 10:00:00\",\"ListaEESSPrecio\":["
+            + "{\"IDEESS\":\"1003\",\"Precio Gasoleo A\":\"1,499\",\"Rótulo\":\"CEPSA\"},"
+            + "{\"Precio Gasoleo A\":\"1,459\",\"Precio Gasolina 95 E5\":\"1,559\",\"IDEESS\":\"1001\"},"
+            + "{\"Precio Gasoleo A\":\"1,399\",\"Precio Gasolina 95 E5\":\"\",\"IDEESS\":\"1002\"},"
+            + "{\"Precio Gasoleo A\":\"1,489\",\"IDEESS\":\"1003\"},"
+            + "{\"Precio Gasoleo A\":\"1,300\",\"IDEESS\":\"X-1\"}"
+            + "],\"Nota\":\"\",\"ResultadoConsulta\":\"OK\"}";
+
+    @Test
+    public void testLeer_PreciosEnMilesimas() throws IOException {
+        DiaPrecios dia = new DiaPrecios();
+
+        LectorDiaHistorico.leer(new StringReader(VOLCADO), dia);
+
+        assertEquals(3, dia.tamano());
+        assertEquals(1, dia.getDescartadas());
+        assertEquals(1559, dia.precio("1001", Combustible.GASOLINA_95));
+        assertEquals(1459, dia.precio("1001", Combustible.GASOLEO_A));
+        assertEquals(AlmacenGasolineras.SIN_PRECIO, dia.precio("1002", Combustible.GASOLINA_95));
+        assertEquals("Gana el último", 1489, dia.precio("1003", Combustible.GASOLEO_A));
+        assertEquals(AlmacenGasolineras.SIN_PRECIO, dia.precio("9999", Combustible.GASOLEO_A));
+    }
+
+    @Test
+    public void testLeer_IgualQueElParser() throws IOException {
+        GeneradorDatasetMiteco generador = new GeneradorDatasetMiteco();
+        DiaPrecios dia = new DiaPrecios();
+
+        LectorDiaHistorico.leer(new StringReader(generador.generarJson(3000)), dia);
+
+        List<GasolineraAPI> gasolineras = generador.generarGasolineras(3000);
+        assertEquals(gasolineras.size(), dia.tamano());
+        for (GasolineraAPI g : gasolineras) {
+            for (Combustible c : Combustible.values()) {
+                int esperado = AlmacenGasolineras.aMilesimas(c.precio(g));
+                assertEquals(g.getId() + " " + c, Math.max(AlmacenGasolineras.SIN_PRECIO, esperado),
+                        dia.precio(g.getId(), c));
+            }
+        }
+    }
+
+    @Test
+    public void testVaciar_Reutiliza() throws IOException {
+        DiaPrecios dia = new DiaPrecios();
+        LectorDiaHistorico.leer(new StringReader(VOLCADO), dia);
+
+        dia.vaciar();
+        LectorDiaHistorico.leer(new StringReader("[{\"IDEESS\":\"7\",\"Precio Gasoleo A\":\"1,234\"}]"), dia);
+
+        assertEquals(1, dia.tamano());
+        assertEquals(0, dia.getDescartadas());
+        assertEquals(1234, dia.precio("7", Combustible.GASOLEO_A));
+        assertEquals(AlmacenGasolineras.SIN_PRECIO, dia.precio("1001", Combustible.GASOLEO_A));
+    }
+}
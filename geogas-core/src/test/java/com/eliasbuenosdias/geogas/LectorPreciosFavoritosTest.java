@@ -0,0 +1,65 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.LectorPreciosFavoritos;
+
+import org.junit.Test;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: LectorPreciosFavoritos
+ *
+ * Esta clase prueba la lectura en streaming del volcado de la API:
+ * - Solo se devuelven las gasolineras favoritas
+ * - Los precios con coma decimal se convierten correctamente
+ * - Los precios vacíos se representan como NaN
+ */
+public class LectorPreciosFavoritosTest {
+
+    private static final String VOLCADO = "{\"Fecha\":\"19/10/2026 10:00:00\",\"ListaEESSPrecio\":["
+            + "{\"C.P.\":\"28001\",\"Precio Gasoleo A\":\"1,459\",\"Precio Gasolina 95 E5\":\"1,559\","
+            + "\"Rótulo\":\"REPSOL\",\"IDEESS\":\"1001\",\"Horario\":\"24H\"},"
+            + "{\"Precio Gasoleo A\":\"1,399\",\"Precio Gasolina 95 E5\":\"\",\"Rótulo\":\"BALLENOIL\","
+            + "\"IDEESS\":\"1002\"},"
+            + "{\"Precio Gasoleo A\":\"1,499\",\"Rótulo\":\"CEPSA\",\"IDEESS\":\"1003\"}"
+            + "],\"Nota\":\"\",\"ResultadoConsulta\":\"OK\"}";
+
+    @Test
+    public void testLeer_SoloFavoritas() throws IOException {
+        Set<String> favoritas = new HashSet<>();
+        favoritas.add("1001");
+        favoritas.add("1002");
+
+        List<LectorPreciosFavoritos.PreciosFavorita> resultado = LectorPreciosFavoritos
+                .leer(new StringReader(VOLCADO), favoritas);
+
+        assertEquals(2, resultado.size());
+        assertEquals("1001", resultado.get(0).id);
+        assertEquals("REPSOL", resultado.get(0).rotulo);
+        assertEquals(1.559, resultado.get(0).precios[0], 0.0001);
+        assertEquals(1.459, resultado.get(0).precios[1], 0.0001);
+    }
+
+    @Test
+    public void testLeer_PrecioVacioEsNaN() throws IOException {
+        List<LectorPreciosFavoritos.PreciosFavorita> resultado = LectorPreciosFavoritos
+                .leer(new StringReader(VOLCADO), Collections.singleton("1002"));
+
+        assertEquals(1, resultado.size());
+        assertTrue(Double.isNaN(resultado.get(0).precios[0]));
+        assertEquals(1.399, resultado.get(0).precios[1], 0.0001);
+    }
+
+    @Test
+    public void testLeer_SinFavoritasEnElVolcado() throws IOException {
+        List<LectorPreciosFavoritos.PreciosFavorita> resultado = LectorPreciosFavoritos
+                .leer(new StringReader(VOLCADO), Collections.singleton("9999"));
+
+        assertTrue(resultado.isEmpty());
+    }
+}
@@ -0,0 +1,141 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.tiles.MapaCalorPrecios;
+import com.eliasbuenosdias.geogas.tiles.RegionTeselas;
+
+import org.junit.Test;
+import java.util.BitSet;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: MapaCalorPrecios
+ *
+ * Esta clase prueba el mapa de calor de precios:
+ * - Solo se colorean la celda de cada gasolinera y sus vecinas
+ * - Modo mínimo y modo mediana
+ * - Colores de verde (barato) a rojo (caro)
+ * - La versión depende de los datos, no del orden de las filas, y entra en la clave
+ */
+public class MapaCalorPreciosTest {
+
+    private static final int ZOOM = 8;
+    // Centro de Madrid
+    private static final double LAT = 40.4168;
+    private static final double LON = -3.7038;
+
+    private GasolineraAPI crear(String id, double lat, double lon, String precio95) {
+        GasolineraAPI g = new GasolineraAPI();
+        g.setId(id);
+        g.setLatitud(String.valueOf(lat).replace('.', ','));
+        g.setLongitud(String.valueOf(lon).replace('.', ','));
+        g.setPrecioGasolina95(precio95);
+        return g;
+    }
+
+    private static MapaCalorPrecios construir(AlmacenGasolineras almacen, MapaCalorPrecios.Modo modo) {
+        BitSet filas = new BitSet();
+        filas.set(0, almacen.tamano());
+        return MapaCalorPrecios.construir(almacen, filas, Combustible.GASOLINA_95, modo);
+    }
+
+    /** Píxel del centro de la celda en la que cae una coordenada dentro de su tesela. */
+    private static int pixel(int[] pixeles, double lat, double lon) {
+        // Un píxel de la tesela es una tesela del zoom con tantos niveles más como bits tiene su lado
+        int zoomPixel = ZOOM + Integer.numberOfTrailingZeros(MapaCalorPrecios.LADO);
+        int px = RegionTeselas.columna(lon, zoomPixel) % MapaCalorPrecios.LADO;
+        int py = RegionTeselas.fila(lat, zoomPixel) % MapaCalorPrecios.LADO;
+        int celda = MapaCalorPrecios.LADO_CELDA;
+        return pixeles[(py / celda * celda + celda / 2) * MapaCalorPrecios.LADO + px / celda * celda + celda / 2];
+    }
+
+    @Test
+    public void testPintar_SoloAlrededorDeLasGasolineras() {
+        AlmacenGasolineras almacen = new AlmacenGasolineras();
+        almacen.actualizar(crear("1", LAT, LON, "1,500"));
+        MapaCalorPrecios mapa = construir(almacen, MapaCalorPrecios.Modo.MINIMO);
+        int x = RegionTeselas.columna(LON, ZOOM);
+        int y = RegionTeselas.fila(LAT, ZOOM);
+
+        int[] pixeles = mapa.pintar(ZOOM, x, y);
+
+        assertNotNull(pixeles);
+        assertEquals(MapaCalorPrecios.LADO * MapaCalorPrecios.LADO, pixeles.length);
+        assertEquals(mapa.color(1500), pixel(pixeles, LAT, LON));
+        int coloreados = 0;
+        for (int p : pixeles) {
+            if (p != 0)
+                coloreados++;
+        }
+        assertTrue("Como mucho la celda y sus ocho vecinas",
+                coloreados <= 9 * MapaCalorPrecios.LADO_CELDA * MapaCalorPrecios.LADO_CELDA);
+        assertNull("Lejos no hay nada que pintar", mapa.pintar(ZOOM, x + 3, y));
+    }
+
+    @Test
+    public void testPintar_MinimoYMediana() {
+        AlmacenGasolineras almacen = new AlmacenGasolineras();
+        almacen.actualizar(crear("1", LAT, LON, "1,300"));
+        almacen.actualizar(crear("2", LAT + 0.001, LON, "1,500"));
+        almacen.actualizar(crear("3", LAT, LON + 0.001, "1,900"));
+        int x = RegionTeselas.columna(LON, ZOOM);
+        int y = RegionTeselas.fila(LAT, ZOOM);
+
+        MapaCalorPrecios minimo = construir(almacen, MapaCalorPrecios.Modo.MINIMO);
+        MapaCalorPrecios mediana = construir(almacen, MapaCalorPrecios.Modo.MEDIANA);
+
+        assertEquals(minimo.color(1300), pixel(minimo.pintar(ZOOM, x, y), LAT, LON));
+        assertEquals(mediana.color(1500), pixel(mediana.pintar(ZOOM, x, y), LAT, LON));
+
+        // Zona con muchos precios: la mediana se busca sin juntarlos
+        AlmacenGasolineras densa = new AlmacenGasolineras();
+        for (int i = 0; i <= 100; i++)
+            densa.actualizar(crear(String.valueOf(i), LAT + (i % 10) * 0.001, LON + (i / 10) * 0.001, "1," + (200 + i * 7 % 101)));
+        MapaCalorPrecios medianaDensa = construir(densa, MapaCalorPrecios.Modo.MEDIANA);
+        assertEquals(medianaDensa.color(1250), pixel(medianaDensa.pintar(ZOOM, x, y), LAT, LON));
+    }
+
+    @Test
+    public void testColor_DeVerdeARojo() {
+        AlmacenGasolineras almacen = new AlmacenGasolineras();
+        for (int i = 0; i < 100; i++)
+            almacen.actualizar(crear(String.valueOf(i), LAT + i * 0.01, LON, "1," + (400 + i)));
+        MapaCalorPrecios mapa = construir(almacen, MapaCalorPrecios.Modo.MINIMO);
+
+        int barato = mapa.color(1400);
+        int caro = mapa.color(1499);
+        assertTrue("Semitransparente", (barato >>> 24) > 0 && (barato >>> 24) < 0xFF);
+        assertTrue("Barato: más verde que rojo", ((barato >> 8) & 0xFF) > ((barato >> 16) & 0xFF));
+        assertTrue("Caro: más rojo que verde", ((caro >> 16) & 0xFF) > ((caro >> 8) & 0xFF));
+        assertEquals("Fuera del rango se satura", mapa.color(1499), mapa.color(2500));
+    }
+
+    @Test
+    public void testVersion_SegunLosDatos() {
+        AlmacenGasolineras a = new AlmacenGasolineras();
+        a.actualizar(crear("1", LAT, LON, "1,500"));
+        a.actualizar(crear("2", 41.38, 2.17, "1,600"));
+        a.actualizar(crear("3", 37.39, -5.98, ""));
+        AlmacenGasolineras b = new AlmacenGasolineras();
+        b.actualizar(crear("2", 41.38, 2.17, "1,600"));
+        b.actualizar(crear("1", LAT, LON, "1,500"));
+        AlmacenGasolineras c = new AlmacenGasolineras();
+        c.actualizar(crear("1", LAT, LON, "1,501"));
+        c.actualizar(crear("2", 41.38, 2.17, "1,600"));
+
+        MapaCalorPrecios mapaA = construir(a, MapaCalorPrecios.Modo.MINIMO);
+        assertEquals("Las que no tienen precio no cuentan", 2, mapaA.tamano());
+        assertEquals("Mismo contenido en otro orden", mapaA.getVersion(),
+                construir(b, MapaCalorPrecios.Modo.MINIMO).getVersion());
+        assertEquals(mapaA.clave(6, 31, 24), construir(b, MapaCalorPrecios.Modo.MINIMO).clave(6, 31, 24));
+        assertNotEquals("Cambia un precio", mapaA.getVersion(), construir(c, MapaCalorPrecios.Modo.MINIMO).getVersion());
+        assertNotEquals("Cambia el modo", mapaA.clave(6, 31, 24),
+                construir(a, MapaCalorPrecios.Modo.MEDIANA).clave(6, 31, 24));
+        BitSet todas = new BitSet();
+        todas.set(0, a.tamano());
+        assertNotEquals("Cambia el combustible", mapaA.clave(6, 31, 24),
+                MapaCalorPrecios.construir(a, todas, Combustible.GASOLEO_A, MapaCalorPrecios.Modo.MINIMO).clave(6, 31, 24));
+    }
+}
@@ -0,0 +1,50 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.models.NormalizadorTexto;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: NormalizadorTexto
+ *
+ * Esta clase prueba las claves sin tildes ni mayúsculas de los textos:
+ * - Tildes, diéresis, eñes y mayúsculas se pliegan conservando la longitud
+ * - Un texto ya plegado se devuelve sin copiarlo
+ * - GasolineraAPI calcula las claves de dirección y localidad al establecerlas
+ */
+public class NormalizadorTextoTest {
+
+    @Test
+    public void testPlegar_TildesEnesYMayusculas() {
+        assertEquals("a coruna", NormalizadorTexto.plegar("A CORUÑA"));
+        assertEquals("avda. de andalucia, 12", NormalizadorTexto.plegar("AVDA. DE ANDALUCÍA, 12"));
+        assertEquals("pinguino l'hospitalet", NormalizadorTexto.plegar("Pingüino L'Hospitalet"));
+        assertEquals("Écija".length(), NormalizadorTexto.plegar("Écija").length());
+        assertEquals('e', NormalizadorTexto.plegar('É'));
+        assertNull(NormalizadorTexto.plegar((String) null));
+    }
+
+    @Test
+    public void testPlegar_TextoYaPlegadoSinCopia() {
+        String plegado = "calle mayor, 3";
+        String codigoPostal = "41700";
+
+        assertSame(plegado, NormalizadorTexto.plegar(plegado));
+        assertSame(codigoPostal, NormalizadorTexto.plegar(codigoPostal));
+    }
+
+    @Test
+    public void testGasolineraAPI_ClavesAlEstablecer() {
+        GasolineraAPI g = new GasolineraAPI();
+        g.setDireccion("CALLE REAL, 5");
+        g.setLocalidad("Écija");
+
+        assertEquals("calle real, 5", g.getClaveDireccion());
+        assertEquals("ecija", g.getClaveLocalidad());
+
+        g.setLocalidad(null);
+        assertNull(g.getClaveLocalidad());
+    }
+}
@@ -0,0 +1,176 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.data.ConsultaViewport;
+import com.eliasbuenosdias.geogas.data.PiramideRepresentantes;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.eliasbuenosdias.geogas.tiles.RegionTeselas;
+import com.eliasbuenosdias.geogas.utils.ProveedorFavoritos;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: PiramideRepresentantes
+ *
+ * Esta clase prueba la pirámide de gasolineras representativas:
+ * - Elección del nivel según el ancho del viewport
+ * - Una gasolinera por celda, la más barata del combustible de referencia
+ * - Las favoritas se muestran aunque no sean las más baratas, también al marcarlas después
+ * - Sin precio gana la fila más baja, y en vista de ciudad no se usa la pirámide
+ */
+public class PiramideRepresentantesTest {
+
+    // Vista de toda la península
+    private static final double NORTE = 43.9;
+    private static final double SUR = 35.9;
+    private static final double ESTE = 4.4;
+    private static final double OESTE = -9.4;
+
+    private AlmacenGasolineras almacen;
+    private BitSet filas;
+
+    @Before
+    public void setUp() {
+        almacen = new AlmacenGasolineras();
+        for (GasolineraAPI g : new GeneradorDatasetMiteco().generarGasolineras(4000))
+            almacen.actualizar(g);
+        filas = new BitSet();
+        for (int fila = 0; fila < almacen.tamano(); fila++) {
+            if (almacen.estaViva(fila))
+                filas.set(fila);
+        }
+    }
+
+    private GasolineraAPI crear(String id, String lat, String lon, String precio95) {
+        GasolineraAPI g = new GasolineraAPI();
+        g.setId(id);
+        g.setLatitud(lat);
+        g.setLongitud(lon);
+        g.setPrecioGasolina95(precio95);
+        return g;
+    }
+
+    /** La más barata de cada celda calculada recorriendo todas las filas. */
+    private Map<List<Integer>, Integer> masBaratas(int nivel, Combustible combustible) {
+        Map<List<Integer>, Integer> mejores = new HashMap<>();
+        for (int fila = filas.nextSetBit(0); fila >= 0; fila = filas.nextSetBit(fila + 1)) {
+            List<Integer> celda = Arrays.asList(RegionTeselas.columna(almacen.longitud(fila), nivel),
+                    RegionTeselas.fila(almacen.latitud(fila), nivel));
+            Integer actual = mejores.get(celda);
+            if (actual == null || precio(fila, combustible) < precio(actual, combustible))
+                mejores.put(celda, fila);
+        }
+        return mejores;
+    }
+
+    private long precio(int fila, Combustible combustible) {
+        int precio = almacen.precio(fila, combustible);
+        return precio >= 0 ? precio : Long.MAX_VALUE;
+    }
+
+    @Test
+    public void testNivelPara_OchoColumnasPorViewport() {
+        assertEquals(0, PiramideRepresentantes.nivelPara(360 * 8));
+        assertEquals(3, PiramideRepresentantes.nivelPara(360));
+        assertEquals(7, PiramideRepresentantes.nivelPara(ESTE - OESTE));
+        assertTrue(PiramideRepresentantes.nivelPara(0.05) > PiramideRepresentantes.NIVEL_MAXIMO);
+    }
+
+    @Test
+    public void testSeleccionar_LaMasBarataDeCadaCelda() {
+        PiramideRepresentantes piramide = PiramideRepresentantes.construir(almacen, filas,
+                Combustible.GASOLEO_A, null);
+        int nivel = PiramideRepresentantes.nivelPara(ESTE - OESTE);
+
+        Set<Integer> esperadas = new HashSet<>();
+        for (int fila : masBaratas(nivel, Combustible.GASOLEO_A).values()) {
+            if (ConsultaViewport.contiene(almacen, fila, NORTE, SUR, ESTE, OESTE))
+                esperadas.add(fila);
+        }
+        Set<Integer> obtenidas = new HashSet<>();
+        for (int fila : piramide.seleccionar(NORTE, SUR, ESTE, OESTE))
+            assertTrue("Sin repetidas", obtenidas.add(fila));
+
+        assertEquals(esperadas, obtenidas);
+        assertTrue("Muchas menos que gasolineras", obtenidas.size() < ConsultaViewport.LIMITE_VISIBLES);
+        for (int n = 0; n <= PiramideRepresentantes.NIVEL_MAXIMO; n++)
+            assertEquals(masBaratas(n, Combustible.GASOLEO_A).size(), piramide.tamano(n));
+    }
+
+    @Test
+    public void testSeleccionar_FavoritasSiempreIncluidas() {
+        // La más cara de todas: nunca sería la representante de su celda
+        int cara = -1;
+        for (int fila = filas.nextSetBit(0); fila >= 0; fila = filas.nextSetBit(fila + 1)) {
+            if (almacen.precio(fila, Combustible.GASOLINA_95) >= 0
+                    && ConsultaViewport.contiene(almacen, fila, NORTE, SUR, ESTE, OESTE)
+                    && (cara < 0 || almacen.precio(fila, Combustible.GASOLINA_95) > almacen.precio(cara, Combustible.GASOLINA_95)))
+                cara = fila;
+        }
+        String idCara = almacen.id(cara);
+        ProveedorFavoritos favoritos = idCara::equals;
+
+        int[] sinFavorita = PiramideRepresentantes.construir(almacen, filas, Combustible.GASOLINA_95, null)
+                .seleccionar(NORTE, SUR, ESTE, OESTE);
+        int[] conFavorita = PiramideRepresentantes.construir(almacen, filas, Combustible.GASOLINA_95, favoritos)
+                .seleccionar(NORTE, SUR, ESTE, OESTE);
+
+        assertEquals(sinFavorita.length + 1, conFavorita.length);
+        boolean incluida = false;
+        for (int fila : conFavorita)
+            incluida |= fila == cara;
+        assertTrue(incluida);
+    }
+
+    @Test
+    public void testMarcarFavorita_IgualQueReconstruir() {
+        Set<String> marcadas = new HashSet<>();
+        PiramideRepresentantes piramide = PiramideRepresentantes.construir(almacen, filas,
+                Combustible.GASOLINA_95, marcadas::contains);
+        int[] sinFavoritas = piramide.seleccionar(NORTE, SUR, ESTE, OESTE);
+
+        for (int fila = 0; fila < almacen.tamano(); fila += 97) {
+            marcadas.add(almacen.id(fila));
+            piramide.marcarFavorita(fila, true);
+        }
+        Set<Integer> esperadas = new HashSet<>();
+        for (int fila : PiramideRepresentantes.construir(almacen, filas, Combustible.GASOLINA_95,
+                marcadas::contains).seleccionar(NORTE, SUR, ESTE, OESTE))
+            esperadas.add(fila);
+        Set<Integer> obtenidas = new HashSet<>();
+        for (int fila : piramide.seleccionar(NORTE, SUR, ESTE, OESTE))
+            assertTrue("Sin repetidas", obtenidas.add(fila));
+        assertEquals(esperadas, obtenidas);
+
+        for (int fila = 0; fila < almacen.tamano(); fila += 97)
+            piramide.marcarFavorita(fila, false);
+        assertArrayEquals(sinFavoritas, piramide.seleccionar(NORTE, SUR, ESTE, OESTE));
+    }
+
+    @Test
+    public void testSeleccionar_SinPrecioYVistaDeCiudad() {
+        AlmacenGasolineras pequeno = new AlmacenGasolineras();
+        pequeno.actualizar(crear("1", "40,40", "-3,70", ""));
+        pequeno.actualizar(crear("2", "40,41", "-3,71", ""));
+        int barata = pequeno.actualizar(crear("3", "40,42", "-3,69", "1,399"));
+        BitSet todas = new BitSet();
+        todas.set(0, pequeno.tamano());
+
+        PiramideRepresentantes piramide = PiramideRepresentantes.construir(pequeno, todas, Combustible.GASOLINA_95, null);
+        assertArrayEquals(new int[] { barata }, piramide.seleccionar(NORTE, SUR, ESTE, OESTE));
+        assertArrayEquals("Sin precio, la primera fila", new int[] { pequeno.fila("1") },
+                PiramideRepresentantes.construir(pequeno, todas, Combustible.GLP, null)
+                        .seleccionar(NORTE, SUR, ESTE, OESTE));
+        assertNull("Vista de calle", piramide.seleccionar(40.415, 40.405, -3.695, -3.705));
+    }
+}
@@ -1,7 +1,7 @@
 package com.eliasbuenosdias.geogas;
 
 import com.eliasbuenosdias.geogas.models.GasolineraAPI;
-import com.eliasbuenosdias.geogas.utils.FavoritosManager;
+import com.eliasbuenosdias.geogas.utils.ProveedorFavoritos;
 import com.eliasbuenosdias.geogas.utils.PuntuadorGasolineras;
 
 import org.junit.Before;
@@ -31,7 +31,7 @@ import static org.mockito.Mockito.when;
 public class PuntuadorGasolinerasTest {
 
     @Mock
-    private FavoritosManager mockFavoritosManager; // Mock para verificar favoritos
+    private ProveedorFavoritos mockFavoritosManager; // Mock para verificar favoritos
 
     private PuntuadorGasolineras puntuador; // Objeto bajo prueba
     private List<GasolineraAPI> gasolineras; // Lista para pruebas
@@ -0,0 +1,107 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.utils.RecorridoConcurrente;
+
+import org.junit.Test;
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: RecorridoConcurrente
+ *
+ * Esta clase prueba el recorrido común de la descarga de teselas y la importación del histórico:
+ * - Cada posición se procesa una vez sin superar la concurrencia máxima
+ * - Un trabajador por hilo
+ * - Las posiciones fallidas se cuentan y no detienen el recorrido
+ * - El progreso se avisa cada intervalo y siempre al final
+ * - Al cancelar no se empieza ninguna posición más
+ */
+public class RecorridoConcurrenteTest {
+
+    @Test
+    public void testRecorrer_CadaPosicionUnaVezConConcurrenciaLimitada() throws Exception {
+        Set<Long> vistas = ConcurrentHashMap.newKeySet();
+        AtomicInteger enCurso = new AtomicInteger();
+        AtomicInteger maximo = new AtomicInteger();
+        AtomicInteger trabajadores = new AtomicInteger();
+
+        RecorridoConcurrente.Resultado resultado = new RecorridoConcurrente(3).recorrer(60, () -> {
+            trabajadores.incrementAndGet();
+            return k -> {
+                maximo.accumulateAndGet(enCurso.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                enCurso.decrementAndGet();
+                assertTrue(vistas.add(k));
+                return k % 2 == 0 ? RecorridoConcurrente.Estado.HECHA
+                        : RecorridoConcurrente.Estado.EXISTENTE;
+            };
+        }, null, 1);
+
+        assertEquals(60, vistas.size());
+        assertTrue(maximo.get() <= 3);
+        assertEquals(3, trabajadores.get());
+        assertEquals(30, resultado.hechas);
+        assertEquals(30, resultado.existentes);
+        assertTrue(resultado.estaCompleto());
+    }
+
+    @Test
+    public void testRecorrer_FallosNoDetienenElRecorrido() throws Exception {
+        RecorridoConcurrente.Resultado resultado = new RecorridoConcurrente(2).recorrer(10, () -> k -> {
+            if (k == 4)
+                throw new IOException("fallo");
+            if (k == 7)
+                throw new IllegalStateException("fallo");
+            return RecorridoConcurrente.Estado.HECHA;
+        }, null, 1);
+
+        assertEquals(8, resultado.hechas);
+        assertEquals(2, resultado.fallidas);
+        assertFalse(resultado.cancelado);
+        assertFalse(resultado.estaCompleto());
+    }
+
+    @Test
+    public void testRecorrer_ProgresoCadaIntervaloYAlFinal() throws Exception {
+        AtomicInteger avisos = new AtomicInteger();
+        AtomicLong ultimo = new AtomicLong();
+
+        new RecorridoConcurrente(1).recorrer(25, () -> k -> RecorridoConcurrente.Estado.HECHA,
+                (procesadas, total) -> {
+                    avisos.incrementAndGet();
+                    ultimo.set(procesadas);
+                }, 10);
+
+        assertEquals(3, avisos.get());
+        assertEquals(25, ultimo.get());
+    }
+
+    @Test
+    public void testCancelar_NoEmpiezaMasPosiciones() throws Exception {
+        RecorridoConcurrente recorrido = new RecorridoConcurrente(1);
+        AtomicInteger procesadas = new AtomicInteger();
+
+        RecorridoConcurrente.Resultado resultado = recorrido.recorrer(100, () -> k -> {
+            if (procesadas.incrementAndGet() == 5)
+                recorrido.cancelar();
+            return RecorridoConcurrente.Estado.HECHA;
+        }, null, 1);
+
+        assertEquals(5, procesadas.get());
+        assertTrue(resultado.cancelado);
+        assertFalse(resultado.estaCompleto());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_ConcurrenciaNoValida() {
+        new RecorridoConcurrente(0);
+    }
+}
@@ -0,0 +1,97 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.AlmacenGasolineras;
+import com.eliasbuenosdias.geogas.historico.DiaPrecios;
+import com.eliasbuenosdias.geogas.historico.LectorDiaHistorico;
+import com.eliasbuenosdias.geogas.historico.SeriesPreciosHistoricos;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: SeriesPreciosHistoricos
+ *
+ * Esta clase prueba la serie temporal local de precios diarios:
+ * - La serie de una gasolinera devuelve el precio de cada día guardado
+ * - Los días que faltan, las gasolineras desconocidas y los combustibles sin precio quedan vacíos
+ * - Un día guardado ocupa mucho menos que su volcado JSON
+ * - Los días a medio escribir no cuentan y se pueden descartar
+ */
+public class SeriesPreciosHistoricosTest {
+
+    private static final LocalDate LUNES = LocalDate.of(2026, 10, 5);
+
+    @Rule
+    public TemporaryFolder carpeta = new TemporaryFolder();
+
+    private static DiaPrecios dia(String json) throws IOException {
+        DiaPrecios dia = new DiaPrecios();
+        LectorDiaHistorico.leer(new StringReader(json), dia);
+        return dia;
+    }
+
+    @Test
+    public void testSerie_UnPrecioPorDia() throws IOException {
+        SeriesPreciosHistoricos serie = new SeriesPreciosHistoricos(carpeta.getRoot());
+        serie.guardar(LUNES, dia("[{\"IDEESS\":\"12\",\"Precio Gasoleo A\":\"1,459\"},"
+                + "{\"IDEESS\":\"5\",\"Precio Gasoleo A\":\"1,400\",\"Precio Gasolina 95 E5\":\"1,500\"}]"));
+        serie.guardar(LUNES.plusDays(2), dia("[{\"IDEESS\":\"12\",\"Precio Gasoleo A\":\"1,449\"}]"));
+
+        assertArrayEquals(new int[] { 1459, -1, 1449 },
+                serie.serie("12", Combustible.GASOLEO_A, LUNES, LUNES.plusDays(2)));
+        assertArrayEquals(new int[] { 1500, -1, -1 },
+                serie.serie("5", Combustible.GASOLINA_95, LUNES, LUNES.plusDays(2)));
+        assertArrayEquals("Sin precio ese combustible", new int[] { -1 },
+                serie.serie("12", Combustible.GASOLINA_95, LUNES, LUNES));
+        assertArrayEquals("Gasolinera desconocida", new int[] { -1 },
+                serie.serie("13", Combustible.GASOLEO_A, LUNES, LUNES));
+        assertTrue(serie.contiene(LUNES));
+        assertFalse(serie.contiene(LUNES.plusDays(1)));
+        assertEquals(Arrays.asList(LUNES, LUNES.plusDays(2)), serie.dias());
+    }
+
+    @Test
+    public void testGuardar_VolcadoCompletoCompacto() throws IOException {
+        GeneradorDatasetMiteco generador = new GeneradorDatasetMiteco();
+        String json = generador.generarJson(4000);
+        SeriesPreciosHistoricos serie = new SeriesPreciosHistoricos(carpeta.getRoot());
+
+        serie.guardar(LUNES, dia(json));
+
+        assertTrue("Menos de una décima parte del JSON", serie.getBytes() * 10 < json.length());
+        List<GasolineraAPI> gasolineras = generador.generarGasolineras(4000);
+        for (GasolineraAPI g : gasolineras.subList(0, 200)) {
+            for (Combustible c : Combustible.values()) {
+                int esperado = Math.max(AlmacenGasolineras.SIN_PRECIO, AlmacenGasolineras.aMilesimas(c.precio(g)));
+                assertEquals(esperado, serie.serie(g.getId(), c, LUNES, LUNES)[0]);
+            }
+        }
+    }
+
+    @Test
+    public void testDescartarTemporales() throws IOException {
+        File raiz = carpeta.getRoot();
+        new SeriesPreciosHistoricos(raiz).guardar(LUNES, dia("[{\"IDEESS\":\"1\",\"Precio Gasoleo A\":\"1,4\"}]"));
+        File temporal = new File(raiz, LUNES.plusDays(1) + ".dia.tmp");
+        assertTrue(temporal.createNewFile());
+
+        SeriesPreciosHistoricos reabierta = new SeriesPreciosHistoricos(raiz);
+        assertEquals(Arrays.asList(LUNES), reabierta.dias());
+        assertFalse(reabierta.contiene(LUNES.plusDays(1)));
+
+        reabierta.descartarTemporales();
+
+        assertFalse(temporal.exists());
+        assertEquals(1400, reabierta.serie("1", Combustible.GASOLEO_A, LUNES, LUNES)[0]);
+    }
+}
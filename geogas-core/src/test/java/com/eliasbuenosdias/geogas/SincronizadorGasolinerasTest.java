@@ -0,0 +1,136 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.CambiosSincronizacion;
+import com.eliasbuenosdias.geogas.data.SincronizadorGasolineras;
+import com.eliasbuenosdias.geogas.models.Combustible;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+
+import org.junit.Before;
+import org.junit.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import static org.junit.Assert.*;
+
+/**
+ * PRUEBAS UNITARIAS PARA: SincronizadorGasolineras
+ *
+ * Esta clase prueba la sincronización incremental por IDEESS:
+ * - Primera carga: todas las gasolineras son añadidas
+ * - Volcado idéntico: no hay cambios y se conservan las instancias
+ * - Clasificación en añadidas, eliminadas, cambio de precio y cambio de metadatos
+ * - Qué combustibles cambian de precio y si alguna gasolinera cambia de sitio
+ */
+public class SincronizadorGasolinerasTest {
+
+    private SincronizadorGasolineras sincronizador;
+
+    @Before
+    public void setUp() {
+        sincronizador = new SincronizadorGasolineras();
+    }
+
+    @Test
+    public void testPrimeraCarga_TodasAnadidas() {
+        CambiosSincronizacion cambios = sincronizador.sincronizar(Arrays.asList(
+                crear("1", "Repsol", "1,500"), crear("2", "Cepsa", "1,600")));
+
+        assertEquals(2, cambios.getAnadidas().size());
+        assertTrue(cambios.getEliminadas().isEmpty());
+        assertTrue(cambios.afectaAMetadatos());
+        assertEquals(2, sincronizador.size());
+    }
+
+    @Test
+    public void testVolcadoIdentico_SinCambiosYMismaInstancia() {
+        GasolineraAPI original = crear("1", "Repsol", "1,500");
+        sincronizador.sincronizar(Arrays.asList(original));
+
+        CambiosSincronizacion cambios = sincronizador.sincronizar(Arrays.asList(crear("1", "Repsol", "1,500")));
+
+        assertTrue(cambios.estaVacio());
+        assertSame("Las estaciones sin cambios conservan su instancia", original, sincronizador.obtener("1"));
+    }
+
+    @Test
+    public void testClasificacionDeCambios() {
+        sincronizador.sincronizar(Arrays.asList(
+                crear("1", "Repsol", "1,500"),
+                crear("2", "Cepsa", "1,600"),
+                crear("3", "BP", "1,700")));
+
+        List<GasolineraAPI> nuevo = new ArrayList<>();
+        nuevo.add(crear("1", "Repsol", "1,450")); // precio
+        nuevo.add(crear("2", "Moeve", "1,600")); // metadatos
+        nuevo.add(crear("4", "Shell", "1,550")); // alta
+        CambiosSincronizacion cambios = sincronizador.sincronizar(nuevo);
+
+        assertEquals(1, cambios.getPreciosCambiados().size());
+        assertEquals("1", cambios.getPreciosCambiados().get(0).getId());
+        assertEquals(1, cambios.getMetadatosCambiados().size());
+        assertEquals("Cepsa", cambios.getAnterior("2").getRotulo());
+        assertEquals(1, cambios.getAnadidas().size());
+        assertEquals(1, cambios.getEliminadas().size());
+        assertEquals("3", cambios.getEliminadas().get(0).getId());
+        assertEquals(3, cambios.getActualizadas().size());
+        assertEquals(4, cambios.getTotal());
+        assertNull(sincronizador.obtener("3"));
+        assertEquals("1,450", sincronizador.obtener("1").getPrecioGasolina95());
+    }
+
+    @Test
+    public void testSoloPrecios_NoAfectaAMetadatos() {
+        sincronizador.sincronizar(Arrays.asList(crear("1", "Repsol", "1,500")));
+
+        CambiosSincronizacion cambios = sincronizador.sincronizar(Arrays.asList(crear("1", "Repsol", "1,520")));
+
+        assertFalse(cambios.afectaAMetadatos());
+        assertEquals(1, cambios.getActualizadas().size());
+    }
+
+    @Test
+    public void testAfectaAPrecios_SoloElCombustibleCambiado() {
+        GasolineraAPI original = crear("1", "Repsol", "1,500");
+        original.setPrecioGasoleoA("1,400");
+        sincronizador.sincronizar(Arrays.asList(original));
+
+        GasolineraAPI nueva = crear("1", "Repsol", "1,520");
+        nueva.setPrecioGasoleoA("1,400");
+        CambiosSincronizacion cambios = sincronizador.sincronizar(Arrays.asList(nueva));
+
+        assertTrue(cambios.afectaAPrecios(Combustible.GASOLINA_95));
+        assertFalse(cambios.afectaAPrecios(Combustible.GASOLEO_A));
+        assertFalse(cambios.afectaAUbicaciones());
+    }
+
+    @Test
+    public void testAfectaAUbicaciones_AlCambiarCoordenadas() {
+        sincronizador.sincronizar(Arrays.asList(crear("1", "Repsol", "1,500"), crear("2", "BP", "1,600")));
+
+        GasolineraAPI movida = crear("1", "Repsol", "1,500");
+        movida.setLatitud("40,500000");
+        CambiosSincronizacion cambios = sincronizador.sincronizar(Arrays.asList(movida, crear("2", "Moeve", "1,600")));
+
+        assertTrue(cambios.afectaAUbicaciones());
+        assertFalse(cambios.afectaAPrecios(Combustible.GASOLINA_95));
+    }
+
+    @Test
+    public void testGasolinerasSinId_SeDescartan() {
+        CambiosSincronizacion cambios = sincronizador.sincronizar(Arrays.asList(crear(null, "Sin id", "1,500")));
+
+        assertTrue(cambios.estaVacio());
+        assertEquals(0, sincronizador.size());
+    }
+
+    private GasolineraAPI crear(String id, String rotulo, String precio95) {
+        GasolineraAPI g = new GasolineraAPI();
+        g.setId(id);
+        g.setRotulo(rotulo);
+        g.setProvincia("MADRID");
+        g.setLatitud("40,416800");
+        g.setLongitud("-3,703800");
+        g.setPrecioGasolina95(precio95);
+        return g;
+    }
+}
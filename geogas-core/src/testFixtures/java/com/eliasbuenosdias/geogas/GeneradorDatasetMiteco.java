@@ -0,0 +1,272 @@
+package com.eliasbuenosdias.geogas;
+
+import com.eliasbuenosdias.geogas.data.ParserGasolineras;
+import com.eliasbuenosdias.geogas.models.GasolineraAPI;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generador determinista de volcados sintéticos de la API de Miteco.
+ * <p>
+ * Produce el JSON de {@code EstacionesTerrestres} con el formato exacto del ministerio:
+ * decimales con coma, claves con tildes, precios vacíos para los combustibles que no se
+ * venden y horarios reales. Las gasolineras se agrupan alrededor de las principales
+ * ciudades con una dispersión provincial, de modo que la densidad del mapa se parece a la
+ * real. Con la misma semilla y el mismo número de gasolineras el resultado es idéntico, y
+ * las primeras N gasolineras no dependen del total pedido.
+ * </p>
+ * <p>
+ * Se usa desde las pruebas unitarias y desde el módulo de benchmarks, sin acceso a red.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class GeneradorDatasetMiteco {
+
+    /**
+     * Semilla usada por defecto en pruebas y benchmarks.
+     */
+    public static final long SEMILLA_POR_DEFECTO = 20240601L;
+
+    /**
+     * Núcleo de población alrededor del que se agrupan gasolineras.
+     */
+    private static final class Nucleo {
+        final String provincia;
+        final String idProvincia;
+        final String ccaa;
+        final double lat;
+        final double lon;
+        final int peso;
+        final String[] municipios;
+
+        Nucleo(String provincia, String idProvincia, String ccaa, double lat, double lon, int peso,
+                String... municipios) {
+            this.provincia = provincia;
+            this.idProvincia = idProvincia;
+            this.ccaa = ccaa;
+            this.lat = lat;
+            this.lon = lon;
+            this.peso = peso;
+            this.municipios = municipios;
+        }
+    }
+
+    private static final Nucleo[] NUCLEOS = {
+            new Nucleo("MADRID", "28", "13", 40.4168, -3.7038, 14,
+                    "Madrid", "Móstoles", "Alcalá de Henares", "Fuenlabrada", "Leganés", "Getafe",
+                    "Alcorcón", "Torrejón de Ardoz", "Parla", "Alcobendas", "Las Rozas de Madrid"),
+            new Nucleo("BARCELONA", "08", "09", 41.3874, 2.1686, 12,
+                    "Barcelona", "L'Hospitalet de Llobregat", "Badalona", "Terrassa", "Sabadell",
+                    "Mataró", "Santa Coloma de Gramenet", "Cornellà de Llobregat"),
+            new Nucleo("VALENCIA / VALÈNCIA", "46", "10", 39.4699, -0.3763, 8,
+                    "València", "Torrent", "Gandia", "Paterna", "Sagunt/Sagunto", "Alzira"),
+            new Nucleo("SEVILLA", "41", "01", 37.3891, -5.9845, 7,
+                    "Sevilla", "Dos Hermanas", "Alcalá de Guadaíra", "Utrera", "Écija"),
+            new Nucleo("MÁLAGA", "29", "01", 36.7213, -4.4214, 6,
+                    "Málaga", "Marbella", "Mijas", "Vélez-Málaga", "Fuengirola", "Torremolinos"),
+            new Nucleo("ALICANTE", "03", "10", 38.3452, -0.4810, 6,
+                    "Alicante/Alacant", "Elche/Elx", "Torrevieja", "Orihuela", "Benidorm"),
+            new Nucleo("MURCIA", "30", "14", 37.9922, -1.1307, 5,
+                    "Murcia", "Cartagena", "Lorca", "Molina de Segura"),
+            new Nucleo("ZARAGOZA", "50", "02", 41.6488, -0.8891, 4,
+                    "Zaragoza", "Calatayud", "Utebo", "Ejea de los Caballeros"),
+            new Nucleo("BIZKAIA", "48", "16", 43.2630, -2.9350, 4,
+                    "Bilbao", "Barakaldo", "Getxo", "Portugalete", "Basauri"),
+            new Nucleo("CORUÑA (A)", "15", "12", 43.3623, -8.4115, 4,
+                    "Coruña (A)", "Santiago de Compostela", "Ferrol", "Oleiros", "Arteixo"),
+            new Nucleo("ASTURIAS", "33", "03", 43.3614, -5.8593, 4,
+                    "Oviedo", "Gijón", "Avilés", "Siero", "Langreo"),
+            new Nucleo("CÓRDOBA", "14", "01", 37.8882, -4.7794, 3,
+                    "Córdoba", "Lucena", "Puente Genil", "Montilla"),
+            new Nucleo("VALLADOLID", "47", "07", 41.6523, -4.7245, 3,
+                    "Valladolid", "Medina del Campo", "Laguna de Duero"),
+            new Nucleo("GRANADA", "18", "01", 37.1773, -3.5986, 3,
+                    "Granada", "Motril", "Almuñécar", "Baza"),
+            new Nucleo("BALEARS (ILLES)", "07", "04", 39.5696, 2.6502, 3,
+                    "Palma", "Calvià", "Manacor", "Eivissa", "Ciutadella de Menorca"),
+            new Nucleo("PALMAS (LAS)", "35", "05", 28.1235, -15.4363, 3,
+                    "Palmas de Gran Canaria (Las)", "Telde", "Arrecife", "Puerto del Rosario"),
+            new Nucleo("BADAJOZ", "06", "11", 38.8794, -6.9707, 2,
+                    "Badajoz", "Mérida", "Don Benito", "Almendralejo"),
+            new Nucleo("TOLEDO", "45", "08", 39.8628, -4.0273, 3,
+                    "Toledo", "Talavera de la Reina", "Illescas", "Seseña"),
+            new Nucleo("LEÓN", "24", "07", 42.5987, -5.5671, 2,
+                    "León", "Ponferrada", "San Andrés del Rabanedo"),
+            new Nucleo("NAVARRA", "31", "15", 42.8125, -1.6458, 2,
+                    "Pamplona/Iruña", "Tudela", "Barañáin/Barañain"),
+    };
+
+    private static final String[] ROTULOS = { "REPSOL", "CEPSA", "BP", "GALP", "SHELL", "MOEVE",
+            "PLENOIL", "BALLENOIL", "PETROPRIX", "CARREFOUR", "ALCAMPO", "AVIA", "PETRONOR",
+            "Nº 10.935", "E.S. LOS ÁNGELES" };
+    /**
+     * Descuento típico de cada rótulo respecto al precio medio, en euros por litro.
+     */
+    private static final double[] DESCUENTOS = { 0.0, 0.0, 0.01, 0.01, -0.01, 0.0,
+            0.12, 0.11, 0.10, 0.08, 0.08, 0.03, 0.0, 0.05, 0.04 };
+
+    private static final String[] HORARIOS = { "L-D: 24H", "L-D: 06:00-22:00", "L-D: 07:00-23:00",
+            "L-V: 07:00-21:00; S: 08:00-14:00", "L-S: 07:00-22:00; D: 08:00-15:00",
+            "L-V: 06:30-22:30; S-D: 08:00-22:00", "L-D: 07:00-22:00", "L-V: 08:00-20:00" };
+    private static final String[] VIAS = { "CALLE", "AVENIDA", "CARRETERA", "PLAZA", "AUTOVIA",
+            "PASEO", "POLIGONO INDUSTRIAL" };
+    private static final String[] NOMBRES_VIA = { "MAYOR", "DE ANDALUCÍA", "N-340 KM. 12",
+            "A-4 KM. 23,5", "DE LA CONSTITUCIÓN", "SAN ISIDRO", "DE CASTILLA", "REAL",
+            "DEL MEDITERRÁNEO", "M-40 SALIDA 26" };
+
+    private static final int PESO_TOTAL;
+
+    static {
+        int total = 0;
+        for (Nucleo n : NUCLEOS)
+            total += n.peso;
+        PESO_TOTAL = total;
+    }
+
+    private final long semilla;
+
+    /**
+     * Construye un generador con la semilla indicada.
+     *
+     * @param semilla la semilla del generador aleatorio
+     */
+    public GeneradorDatasetMiteco(long semilla) {
+        this.semilla = semilla;
+    }
+
+    /**
+     * Construye un generador con {@link #SEMILLA_POR_DEFECTO}.
+     */
+    public GeneradorDatasetMiteco() {
+        this(SEMILLA_POR_DEFECTO);
+    }
+
+    /**
+     * Genera el volcado completo como texto.
+     *
+     * @param numero número de gasolineras
+     * @return el JSON de la respuesta de la API
+     */
+    public String generarJson(int numero) {
+        StringWriter writer = new StringWriter(numero * 1100);
+        try {
+            escribir(numero, writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return writer.toString();
+    }
+
+    /**
+     * Genera el volcado y lo convierte en gasolineras con {@link ParserGasolineras},
+     * el mismo camino que sigue la aplicación.
+     *
+     * @param numero número de gasolineras
+     * @return las gasolineras generadas
+     */
+    public List<GasolineraAPI> generarGasolineras(int numero) {
+        return new ParserGasolineras().parsear(JsonParser.parseString(generarJson(numero)));
+    }
+
+    /**
+     * Escribe el volcado en streaming, sin construirlo en memoria.
+     *
+     * @param numero número de gasolineras
+     * @param destino donde se escribe el JSON; no se cierra
+     * @throws IOException si falla la escritura
+     */
+    public void escribir(int numero, Writer destino) throws IOException {
+        Random random = new Random(semilla);
+        JsonWriter json = new JsonWriter(destino);
+        json.beginObject();
+        json.name("Fecha").value("01/06/2024 10:00:00");
+        json.name("ListaEESSPrecio").beginArray();
+        long id = 1000;
+        for (int i = 0; i < numero; i++) {
+            id += 1 + random.nextInt(4);
+            escribirGasolinera(json, random, id);
+        }
+        json.endArray();
+        json.name("Nota").value("Archivo de información de precios de los carburantes en las estaciones "
+                + "de servicio terrestres. Datos sintéticos.");
+        json.name("ResultadoConsulta").value("OK");
+        json.endObject();
+        json.flush();
+    }
+
+    private static void escribirGasolinera(JsonWriter json, Random random, long id) throws IOException {
+        Nucleo nucleo = elegirNucleo(random);
+        // Un 70% se concentra en el área urbana y el resto se reparte por la provincia
+        double dispersion = random.nextInt(10) < 7 ? 0.08 : 0.45;
+        double lat = nucleo.lat + random.nextGaussian() * dispersion;
+        double lon = nucleo.lon + random.nextGaussian() * dispersion * 1.3;
+        int municipio = random.nextInt(nucleo.municipios.length);
+        int rotulo = random.nextInt(ROTULOS.length);
+        double base = 1.50 - DESCUENTOS[rotulo] + random.nextGaussian() * 0.03;
+        boolean pequena = random.nextInt(5) == 0;
+
+        json.beginObject();
+        json.name("C.P.").value(String.format(Locale.ROOT, "%s%03d", nucleo.idProvincia,
+                random.nextInt(1000)));
+        json.name("Dirección").value(VIAS[random.nextInt(VIAS.length)] + " "
+                + NOMBRES_VIA[random.nextInt(NOMBRES_VIA.length)] + ", " + (1 + random.nextInt(200)));
+        json.name("Horario").value(HORARIOS[random.nextInt(HORARIOS.length)]);
+        json.name("Latitud").value(coma(lat, 6));
+        json.name("Localidad").value(nucleo.municipios[municipio].toUpperCase(Locale.ROOT));
+        json.name("Longitud (WGS84)").value(coma(lon, 6));
+        json.name("Margen").value(random.nextBoolean() ? "D" : "I");
+        json.name("Municipio").value(nucleo.municipios[municipio]);
+        json.name("Precio Adblue").value(random.nextInt(4) == 0 ? coma(0.9 + random.nextDouble() * 0.5, 3) : "");
+        json.name("Precio Biodiesel").value("");
+        json.name("Precio Bioetanol").value("");
+        json.name("Precio Gas Natural Comprimido").value(random.nextInt(60) == 0 ? coma(1.2, 3) : "");
+        json.name("Precio Gas Natural Licuado").value(random.nextInt(120) == 0 ? coma(1.1, 3) : "");
+        json.name("Precio Gases licuados del petróleo").value(random.nextInt(7) == 0
+                ? coma(0.95 + random.nextGaussian() * 0.03, 3)
+                : "");
+        json.name("Precio Gasoleo A").value(random.nextInt(100) == 0 ? "" : coma(base - 0.08, 3));
+        json.name("Precio Gasoleo B").value(random.nextInt(3) == 0 ? coma(base - 0.40, 3) : "");
+        json.name("Precio Gasoleo Premium").value(pequena || random.nextBoolean() ? "" : coma(base + 0.05, 3));
+        json.name("Precio Gasolina 95 E10").value("");
+        json.name("Precio Gasolina 95 E5").value(random.nextInt(30) == 0 ? "" : coma(base, 3));
+        json.name("Precio Gasolina 95 E5 Premium").value(random.nextInt(8) == 0 ? coma(base + 0.08, 3) : "");
+        json.name("Precio Gasolina 98 E10").value("");
+        json.name("Precio Gasolina 98 E5").value(pequena || random.nextInt(5) < 2 ? "" : coma(base + 0.14, 3));
+        json.name("Precio Hidrogeno").value("");
+        json.name("Provincia").value(nucleo.provincia);
+        json.name("Remisión").value(random.nextBoolean() ? "dm" : "OM");
+        json.name("Rótulo").value(ROTULOS[rotulo]);
+        json.name("Tipo Venta").value(random.nextInt(20) == 0 ? "R" : "P");
+        json.name("% BioEtanol").value("0,0");
+        json.name("% Éster metílico").value("0,0");
+        json.name("IDEESS").value(String.valueOf(id));
+        json.name("IDMunicipio").value(String.valueOf(Integer.parseInt(nucleo.idProvincia) * 100 + municipio));
+        json.name("IDProvincia").value(nucleo.idProvincia);
+        json.name("IDCCAA").value(nucleo.ccaa);
+        json.endObject();
+    }
+
+    private static Nucleo elegirNucleo(Random random) {
+        int r = random.nextInt(PESO_TOTAL);
+        for (Nucleo n : NUCLEOS) {
+            r -= n.peso;
+            if (r < 0)
+                return n;
+        }
+        return NUCLEOS[NUCLEOS.length - 1];
+    }
+
+    private static String coma(double valor, int decimales) {
+        return String.format(Locale.ROOT, "%." + decimales + "f", valor).replace('.', ',');
+    }
+}
@@ -0,0 +1,59 @@
+// Macrobenchmarks de arranque en frío y fluidez del mapa sobre la variante "benchmark" de :app.
+// Se ejecutan en un emulador o dispositivo: ./gradlew :macrobenchmark:connectedBenchmarkAndroidTest
+plugins {
+    alias(libs.plugins.android.test)
+}
+
+android {
+    namespace = "com.eliasbuenosdias.geogas.macrobenchmark"
+    compileSdk {
+        version = release(36)
+    }
+
+    defaultConfig {
+        minSdk = 26
+        targetSdk = 36
+        testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+        // Permite medir en emulador; los números de referencia se toman en dispositivo físico
+        testInstrumentationRunnerArguments["androidx.benchmark.suppressErrors"] = "EMULATOR"
+    }
+
+    buildTypes {
+        create("benchmark") {
+            isDebuggable = true
+            signingConfig = getByName("debug").signingConfig
+            matchingFallbacks += listOf("release")
+        }
+    }
+
+    // Escenarios y servidor local compartidos con :baselineprofile
+    sourceSets {
+        getByName("main") {
+            java.srcDir("src/escenarios/java")
+        }
+    }
+
+    compileOptions {
+        sourceCompatibility = JavaVersion.VERSION_11
+        targetCompatibility = JavaVersion.VERSION_11
+    }
+
+    targetProjectPath = ":app"
+    experimentalProperties["android.experimental.self-instrumenting"] = true
+}
+
+dependencies {
+    implementation(libs.androidx.junit)
+    implementation(libs.androidx.uiautomator)
+    implementation(libs.androidx.benchmark.macro.junit4)
+    // Servidor local que sustituye a la API del Ministerio con el volcado sintético
+    implementation(libs.mockwebserver)
+    implementation(testFixtures(project(":geogas-core")))
+}
+
+// Solo tiene sentido medir la variante optimizada
+androidComponents {
+    beforeVariants(selector().all()) {
+        it.enable = it.buildType == "benchmark"
+    }
+}
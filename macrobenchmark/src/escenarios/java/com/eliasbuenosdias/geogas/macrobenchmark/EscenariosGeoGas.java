@@ -0,0 +1,134 @@
+package com.eliasbuenosdias.geogas.macrobenchmark;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.BySelector;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+/**
+ * Pasos de interacción con GeoGas compartidos por los macrobenchmarks y el generador
+ * de perfiles de referencia.
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class EscenariosGeoGas {
+
+    /**
+     * Paquete de la aplicación medida.
+     */
+    public static final String PAQUETE = "com.eliasbuenosdias.geogas";
+
+    private static final long ESPERA_CARGA_MS = 60_000;
+    private static final long ESPERA_UI_MS = 5_000;
+
+    private EscenariosGeoGas() {
+    }
+
+    /**
+     * Concede el permiso de ubicación para que la carga de datos empiece sin diálogo.
+     *
+     * @param scope el ámbito del benchmark
+     */
+    public static void concederUbicacion(MacrobenchmarkScope scope) {
+        scope.getDevice().executeShellCommand(
+                "pm grant " + PAQUETE + " android.permission.ACCESS_FINE_LOCATION");
+        scope.getDevice().executeShellCommand(
+                "pm grant " + PAQUETE + " android.permission.ACCESS_COARSE_LOCATION");
+    }
+
+    /**
+     * Espera a que termine la carga y aparezcan los primeros marcadores: la pantalla de
+     * carga se oculta y se muestra el botón de ubicación.
+     *
+     * @param device el dispositivo
+     */
+    public static void esperarPrimerMarcador(UiDevice device) {
+        if (!device.wait(Until.hasObject(id("btn_location_container")), ESPERA_CARGA_MS))
+            throw new IllegalStateException("La carga del volcado no terminó a tiempo");
+        device.waitForIdle();
+    }
+
+    /**
+     * Arrastra el mapa en un recorrido cerrado por Madrid. Con el mapa alejado al área
+     * metropolitana hay 200 marcadores visibles durante todo el recorrido.
+     *
+     * @param device el dispositivo
+     */
+    public static void recorrerMadrid(UiDevice device) {
+        UiObject2 mapa = mapa(device);
+        Direction[] recorrido = { Direction.LEFT, Direction.UP, Direction.RIGHT, Direction.RIGHT,
+                Direction.DOWN, Direction.DOWN, Direction.LEFT, Direction.LEFT, Direction.UP };
+        for (Direction direccion : recorrido) {
+            // Un swipe lento (sin fling) mantiene el mapa en movimiento continuo
+            mapa.setGestureMargin(device.getDisplayWidth() / 5);
+            mapa.swipe(direccion, 0.6f, 1500);
+            device.waitForIdle();
+        }
+    }
+
+    /**
+     * Aleja el mapa desde el nivel de calle hasta ver el área metropolitana, donde el
+     * límite de 200 marcadores visibles se alcanza.
+     *
+     * @param device el dispositivo
+     */
+    public static void alejarHastaAreaMetropolitana(UiDevice device) {
+        alejar(device, 2);
+    }
+
+    /**
+     * Aleja el mapa desde el nivel de calle hasta ver todo el país.
+     *
+     * @param device el dispositivo
+     */
+    public static void alejarHastaPais(UiDevice device) {
+        alejar(device, 5);
+    }
+
+    /**
+     * Abre el panel de filtros, activa gasolina 95 con un precio máximo y aplica.
+     *
+     * @param device el dispositivo
+     */
+    public static void aplicarFiltro(UiDevice device) {
+        device.findObject(id("toolbar_filters_container")).click();
+        UiObject2 gasolina95 = device.wait(Until.findObject(id("filter_gasolina95")), ESPERA_UI_MS);
+        if (!gasolina95.isChecked())
+            gasolina95.click();
+        UiObject2 precio = device.findObject(id("filter_precio_max_gasolina95"));
+        if (precio != null)
+            precio.setText("1.60");
+        UiObject2 aplicar = device.findObject(id("btn_apply_filters"));
+        if (aplicar == null) {
+            device.findObject(id("filters_panel")).scroll(Direction.DOWN, 1f);
+            aplicar = device.wait(Until.findObject(id("btn_apply_filters")), ESPERA_UI_MS);
+        }
+        aplicar.click();
+        device.wait(Until.gone(id("filters_panel")), ESPERA_UI_MS);
+        device.waitForIdle();
+    }
+
+    private static void alejar(UiDevice device, int pellizcos) {
+        UiObject2 mapa = mapa(device);
+        mapa.setGestureMargin(device.getDisplayWidth() / 10);
+        for (int i = 0; i < pellizcos; i++) {
+            mapa.pinchClose(0.8f, 2000);
+            device.waitForIdle();
+        }
+    }
+
+    private static UiObject2 mapa(UiDevice device) {
+        UiObject2 mapa = device.wait(Until.findObject(id("map")), ESPERA_UI_MS);
+        if (mapa == null)
+            throw new IllegalStateException("No se encuentra el mapa");
+        return mapa;
+    }
+
+    private static BySelector id(String recurso) {
+        return By.res(PAQUETE, recurso);
+    }
+}
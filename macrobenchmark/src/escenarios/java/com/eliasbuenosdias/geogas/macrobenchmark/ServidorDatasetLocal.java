@@ -0,0 +1,80 @@
+package com.eliasbuenosdias.geogas.macrobenchmark;
+
+import com.eliasbuenosdias.geogas.GeneradorDatasetMiteco;
+
+import java.io.IOException;
+
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * Servidor HTTP local que sustituye a la API del Ministerio durante las mediciones.
+ * <p>
+ * Sirve en {@code 127.0.0.1:8089} un volcado sintético de {@link GeneradorDatasetMiteco}
+ * del tamaño real del dataset, de modo que los resultados no dependen de la red ni del
+ * estado del servidor del Ministerio. La variante {@code benchmark} de la aplicación
+ * apunta a esta dirección.
+ * </p>
+ *
+ * @author Elías Prieto Parrilla
+ * @version 1.0
+ */
+public final class ServidorDatasetLocal {
+
+    /**
+     * Puerto fijado en el {@code API_BASE_URL} de la variante {@code benchmark} de :app.
+     */
+    public static final int PUERTO = 8089;
+    /**
+     * Número de gasolineras servidas, del orden del volcado real.
+     */
+    public static final int GASOLINERAS = 12_000;
+
+    private static MockWebServer servidor;
+
+    private ServidorDatasetLocal() {
+    }
+
+    /**
+     * Arranca el servidor si no estaba ya arrancado.
+     *
+     * @throws IOException si no se puede abrir el puerto
+     */
+    public static synchronized void iniciar() throws IOException {
+        if (servidor != null)
+            return;
+
+        Buffer volcado = new Buffer()
+                .writeUtf8(new GeneradorDatasetMiteco().generarJson(GASOLINERAS));
+        MockWebServer nuevo = new MockWebServer();
+        nuevo.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                String ruta = request.getPath();
+                if (ruta != null && ruta.contains("EstacionesTerrestres")) {
+                    return new MockResponse()
+                            .setHeader("Content-Type", "application/json; charset=utf-8")
+                            .setBody(volcado.clone());
+                }
+                return new MockResponse().setResponseCode(404);
+            }
+        });
+        nuevo.start(PUERTO);
+        servidor = nuevo;
+    }
+
+    /**
+     * Detiene el servidor.
+     *
+     * @throws IOException si falla el cierre
+     */
+    public static synchronized void detener() throws IOException {
+        if (servidor == null)
+            return;
+        servidor.shutdown();
+        servidor = null;
+    }
+}
@@ -0,0 +1,79 @@
+package com.eliasbuenosdias.geogas.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * MACROBENCHMARK: arranque en frío hasta el primer marcador.
+ * <p>
+ * {@code timeToInitialDisplayMs} mide el primer fotograma de {@code MainActivity} y
+ * {@code timeToFullDisplayMs} llega hasta el {@code reportFullyDrawn()} que la actividad
+ * emite al pintar los primeros marcadores, incluyendo descarga, parseo e índices.
+ * </p>
+ * <p>
+ * Se mide sin compilar y con el perfil de referencia empaquetado en el APK, de modo que
+ * la diferencia entre ambos es la ganancia del perfil.
+ * </p>
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class InicioEnFrioBenchmark {
+
+    @Rule
+    public MacrobenchmarkRule regla = new MacrobenchmarkRule();
+
+    @BeforeClass
+    public static void iniciarServidor() throws IOException {
+        ServidorDatasetLocal.iniciar();
+    }
+
+    @AfterClass
+    public static void detenerServidor() throws IOException {
+        ServidorDatasetLocal.detener();
+    }
+
+    @Test
+    public void inicioSinCompilar() {
+        medirInicio(new CompilationMode.None());
+    }
+
+    @Test
+    public void inicioConPerfilDeReferencia() {
+        medirInicio(new CompilationMode.Partial(BaselineProfileMode.Require, 0));
+    }
+
+    private void medirInicio(CompilationMode compilacion) {
+        regla.measureRepeated(
+                EscenariosGeoGas.PAQUETE,
+                Collections.singletonList(new StartupTimingMetric()),
+                compilacion,
+                StartupMode.COLD,
+                10,
+                scope -> {
+                    scope.pressHome();
+                    EscenariosGeoGas.concederUbicacion(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    EscenariosGeoGas.esperarPrimerMarcador(scope.getDevice());
+                    return Unit.INSTANCE;
+                });
+    }
+}
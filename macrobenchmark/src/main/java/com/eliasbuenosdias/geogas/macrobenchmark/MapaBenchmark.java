@@ -0,0 +1,88 @@
+package com.eliasbuenosdias.geogas.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.function.Consumer;
+
+import kotlin.Unit;
+
+/**
+ * MACROBENCHMARK: fluidez del mapa con el volcado completo cargado.
+ * <p>
+ * Cada escenario arranca la aplicación, espera a los primeros marcadores fuera de la
+ * medición y registra con {@link FrameTimingMetric} la duración de los fotogramas
+ * ({@code frameDurationCpuMs}, {@code frameOverrunMs}) durante la interacción. El proceso
+ * se reinicia en cada iteración, por lo que los filtros aplicados no se arrastran.
+ * </p>
+ */
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class MapaBenchmark {
+
+    private static final int ITERACIONES = 5;
+
+    @Rule
+    public MacrobenchmarkRule regla = new MacrobenchmarkRule();
+
+    @BeforeClass
+    public static void iniciarServidor() throws IOException {
+        ServidorDatasetLocal.iniciar();
+    }
+
+    @AfterClass
+    public static void detenerServidor() throws IOException {
+        ServidorDatasetLocal.detener();
+    }
+
+    @Test
+    public void desplazamientoPorMadrid() {
+        medir(scope -> EscenariosGeoGas.alejarHastaAreaMetropolitana(scope.getDevice()),
+                scope -> EscenariosGeoGas.recorrerMadrid(scope.getDevice()));
+    }
+
+    @Test
+    public void alejarHastaPais() {
+        medir(scope -> {
+        }, scope -> EscenariosGeoGas.alejarHastaPais(scope.getDevice()));
+    }
+
+    @Test
+    public void aplicarFiltro() {
+        medir(scope -> {
+        }, scope -> EscenariosGeoGas.aplicarFiltro(scope.getDevice()));
+    }
+
+    private void medir(Consumer<MacrobenchmarkScope> preparacion, Consumer<MacrobenchmarkScope> escenario) {
+        regla.measureRepeated(
+                EscenariosGeoGas.PAQUETE,
+                Collections.singletonList(new FrameTimingMetric()),
+                CompilationMode.DEFAULT,
+                null,
+                ITERACIONES,
+                scope -> {
+                    EscenariosGeoGas.concederUbicacion(scope);
+                    scope.killProcess();
+                    scope.startActivityAndWait();
+                    EscenariosGeoGas.esperarPrimerMarcador(scope.getDevice());
+                    preparacion.accept(scope);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    escenario.accept(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -21,3 +21,7 @@ dependencyResolutionManagement {
 
 rootProject.name = "GeoGas"
 include(":app")
+include(":geogas-core")
+include(":benchmark")
+include(":macrobenchmark")
+include(":baselineprofile")